@@ -11,6 +11,7 @@ import com.amazonaws.services.sqs.model.ReceiveMessageResult;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Charsets;
 import com.google.common.io.Resources;
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -134,7 +135,8 @@ public class DanglingPaymentsCleanupTestIT extends ExternalCallsIT {
   }
 
   private void andDanglingPaymentsCountIsZero() {
-    List<Payment> danglingPayments = paymentRepository.findDanglingPayments();
+    List<Payment> danglingPayments = paymentRepository.findDanglingPayments(
+        LocalDateTime.now(), Integer.MAX_VALUE);
     assertThat(danglingPayments).isEmpty();
   }
 
@@ -81,6 +81,48 @@ public class RetrieveSuccessfulPaymentsTestIT extends ExternalCallsIT {
         .responseHadNoData();
   }
 
+  @Test
+  public void shouldReturnNextPageFoundByKeysetOfLastPaymentOfPreviousPage() {
+    mockAccountServiceGetAllUsersCall(ANY_ACCOUNT_ID, 200);
+    mockVccsCleanAirZonesCall();
+
+    String lastPaymentIdOfFirstPage = givenSuccessfulPaymentsRetrieval()
+        .forAccountId(ANY_ACCOUNT_ID)
+        .forPageNumber("0")
+        .forPageSize("1")
+        .whenRequestIsMade()
+        .then()
+        .responseIsReturnedWithHttpOkStatusCode()
+        .responseIncludesSinglePaymentOutOf(2)
+        .lastPaymentId();
+
+    givenSuccessfulPaymentsRetrieval()
+        .forAccountId(ANY_ACCOUNT_ID)
+        .forPageNumber("1")
+        .forPageSize("1")
+        .forLastPaymentId(lastPaymentIdOfFirstPage)
+        .whenRequestIsMade()
+        .then()
+        .responseIsReturnedWithHttpOkStatusCode()
+        .responseIncludesSinglePaymentOutOf(2)
+        .responseDoesNotIncludePayment(lastPaymentIdOfFirstPage);
+  }
+
+  @Test
+  public void shouldReturn400WhenLastPaymentIdIsUnknown() {
+    mockAccountServiceGetAllUsersCall(ANY_ACCOUNT_ID, 200);
+    mockVccsCleanAirZonesCall();
+
+    givenSuccessfulPaymentsRetrieval()
+        .forAccountId(ANY_ACCOUNT_ID)
+        .forPageNumber("1")
+        .forPageSize("1")
+        .forLastPaymentId(UUID.randomUUID().toString())
+        .whenRequestIsMade()
+        .then()
+        .responseIsReturnedWithHttpBadRequestStatusCodeAndMessage("Unknown lastPaymentId");
+  }
+
   private RetrieveSuccessfulPaymentsJourneyAssertion givenSuccessfulPaymentsRetrieval() {
     return new RetrieveSuccessfulPaymentsJourneyAssertion();
   }
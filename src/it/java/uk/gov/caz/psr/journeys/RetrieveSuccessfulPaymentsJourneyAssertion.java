@@ -1,10 +1,12 @@
 package uk.gov.caz.psr.journeys;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.equalTo;
 
 import io.restassured.RestAssured;
 import io.restassured.response.ValidatableResponse;
 import io.restassured.specification.RequestSpecification;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -14,6 +16,7 @@ import org.springframework.http.HttpStatus;
 import uk.gov.caz.correlationid.Constants;
 import uk.gov.caz.psr.controller.AccountsController;
 import uk.gov.caz.psr.dto.SuccessfulPaymentsResponse;
+import uk.gov.caz.psr.model.EnrichedPaymentSummary;
 
 @RequiredArgsConstructor
 public class RetrieveSuccessfulPaymentsJourneyAssertion {
@@ -22,6 +25,7 @@ public class RetrieveSuccessfulPaymentsJourneyAssertion {
   private String accountUserId;
   private String pageNumber;
   private String pageSize;
+  private String lastPaymentId;
 
   private ValidatableResponse response;
   private SuccessfulPaymentsResponse successfulPaymentsResponse;
@@ -48,6 +52,11 @@ public class RetrieveSuccessfulPaymentsJourneyAssertion {
     return this;
   }
 
+  public RetrieveSuccessfulPaymentsJourneyAssertion forLastPaymentId(String lastPaymentId) {
+    this.lastPaymentId = lastPaymentId;
+    return this;
+  }
+
   public RetrieveSuccessfulPaymentsJourneyAssertion whenRequestIsMade() {
     RestAssured.basePath = AccountsController.ACCOUNTS_PATH;
 
@@ -69,6 +78,10 @@ public class RetrieveSuccessfulPaymentsJourneyAssertion {
         .queryParam("pageNumber", this.pageNumber)
         .queryParam("pageSize", this.pageSize);
 
+    if (this.lastPaymentId != null) {
+      request = request.queryParam("lastPaymentId", this.lastPaymentId);
+    }
+
     return this.accountUserId == null
         ? request
         : request.queryParam("accountUserId", this.accountUserId);
@@ -88,6 +101,11 @@ public class RetrieveSuccessfulPaymentsJourneyAssertion {
     return this;
   }
 
+  public void responseIsReturnedWithHttpBadRequestStatusCodeAndMessage(String message) {
+    response.statusCode(HttpStatus.BAD_REQUEST.value())
+        .body("message", equalTo(message));
+  }
+
   public void responseHadNoData() {
     SuccessfulPaymentsResponse response = this.successfulPaymentsResponse;
 
@@ -120,6 +138,27 @@ public class RetrieveSuccessfulPaymentsJourneyAssertion {
     assertThat(response.getPayments().stream().findFirst().get().isUnsuccessful()).isTrue();
   }
 
+  public RetrieveSuccessfulPaymentsJourneyAssertion responseIncludesSinglePaymentOutOf(
+      int totalPaymentsCount) {
+    SuccessfulPaymentsResponse response = this.successfulPaymentsResponse;
+
+    assertThat(response.getTotalPaymentsCount()).isEqualTo(totalPaymentsCount);
+    assertThat(response.getPageCount()).isEqualTo(totalPaymentsCount);
+    assertThat(response.getPayments()).hasSize(1);
+
+    return this;
+  }
+
+  public void responseDoesNotIncludePayment(String paymentId) {
+    assertThat(this.successfulPaymentsResponse.getPayments())
+        .noneMatch(payment -> payment.getPaymentId().toString().equals(paymentId));
+  }
+
+  public String lastPaymentId() {
+    List<EnrichedPaymentSummary> payments = this.successfulPaymentsResponse.getPayments();
+    return payments.get(payments.size() - 1).getPaymentId().toString();
+  }
+
   private Set<String> getPayersNames() {
     return this.successfulPaymentsResponse
         .getPayments()
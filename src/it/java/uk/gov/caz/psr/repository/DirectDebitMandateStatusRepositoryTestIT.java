@@ -0,0 +1,110 @@
+package uk.gov.caz.psr.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.Sql.ExecutionPhase;
+import uk.gov.caz.psr.annotation.IntegrationTest;
+import uk.gov.caz.psr.dto.AccountDirectDebitMandatesResponse.DirectDebitMandate.DirectDebitMandateStatus;
+import uk.gov.caz.psr.model.directdebit.CachedMandateStatus;
+
+@IntegrationTest
+@Sql(scripts = "classpath:data/sql/clear-direct-debit-mandate-statuses.sql",
+    executionPhase = ExecutionPhase.AFTER_TEST_METHOD)
+class DirectDebitMandateStatusRepositoryTestIT {
+
+  private static final UUID ACCOUNT_ID = UUID.fromString("1f30838f-69ee-4486-95b4-7dfcd5c6c67c");
+  private static final UUID CAZ_ID = UUID.fromString("b8e53786-c5ca-426a-a701-b14ee74857d4");
+  private static final String MANDATE_ID = "MD0000TEST";
+  private static final LocalDateTime CANCELLED_AT = LocalDateTime.of(2020, 6, 1, 12, 0, 2);
+
+  @Autowired
+  private DirectDebitMandateStatusRepository repository;
+
+  @BeforeEach
+  public void insertMandate() {
+    repository.upsert(Collections.singletonList(CachedMandateStatus.builder()
+        .paymentProviderMandateId(MANDATE_ID)
+        .accountId(ACCOUNT_ID)
+        .cleanAirZoneId(CAZ_ID)
+        .build()));
+  }
+
+  @Test
+  public void shouldUpdateStatusOfMandateWithoutKnownStatus() {
+    // when
+    List<CachedMandateStatus> updated = repository.updateStatuses(CAZ_ID,
+        change(DirectDebitMandateStatus.CANCELLED, CANCELLED_AT));
+
+    // then
+    assertThat(updated).containsExactly(cached(DirectDebitMandateStatus.CANCELLED, CANCELLED_AT));
+    assertThat(repository.findByMandateIds(Collections.singletonList(MANDATE_ID)))
+        .containsValue(cached(DirectDebitMandateStatus.CANCELLED, CANCELLED_AT));
+  }
+
+  @Test
+  public void shouldNotOverwriteStatusWithOlderOneDeliveredOutOfOrder() {
+    // given
+    repository.updateStatuses(CAZ_ID, change(DirectDebitMandateStatus.CANCELLED, CANCELLED_AT));
+
+    // when
+    List<CachedMandateStatus> updated = repository.updateStatuses(CAZ_ID,
+        change(DirectDebitMandateStatus.ACTIVE, CANCELLED_AT.minusSeconds(1)));
+
+    // then
+    assertThat(updated).isEmpty();
+    assertThat(repository.findByMandateIds(Collections.singletonList(MANDATE_ID)))
+        .containsValue(cached(DirectDebitMandateStatus.CANCELLED, CANCELLED_AT));
+  }
+
+  @Test
+  public void shouldOverwriteStatusWithNewerOne() {
+    // given
+    LocalDateTime reinstatedAt = CANCELLED_AT.plusSeconds(1);
+    repository.updateStatuses(CAZ_ID, change(DirectDebitMandateStatus.CANCELLED, CANCELLED_AT));
+
+    // when
+    List<CachedMandateStatus> updated = repository.updateStatuses(CAZ_ID,
+        change(DirectDebitMandateStatus.ACTIVE, reinstatedAt));
+
+    // then
+    assertThat(updated).containsExactly(cached(DirectDebitMandateStatus.ACTIVE, reinstatedAt));
+  }
+
+  @Test
+  public void shouldNotUpdateStatusOfMandateOfAnotherCleanAirZone() {
+    // when
+    List<CachedMandateStatus> updated = repository.updateStatuses(UUID.randomUUID(),
+        change(DirectDebitMandateStatus.CANCELLED, CANCELLED_AT));
+
+    // then
+    assertThat(updated).isEmpty();
+  }
+
+  private List<CachedMandateStatus> change(DirectDebitMandateStatus status,
+      LocalDateTime changedAt) {
+    return Collections.singletonList(CachedMandateStatus.builder()
+        .paymentProviderMandateId(MANDATE_ID)
+        .status(status)
+        .statusTimestamp(changedAt)
+        .build());
+  }
+
+  private CachedMandateStatus cached(DirectDebitMandateStatus status,
+      LocalDateTime statusTimestamp) {
+    return CachedMandateStatus.builder()
+        .paymentProviderMandateId(MANDATE_ID)
+        .accountId(ACCOUNT_ID)
+        .cleanAirZoneId(CAZ_ID)
+        .status(status)
+        .statusTimestamp(statusTimestamp)
+        .build();
+  }
+}
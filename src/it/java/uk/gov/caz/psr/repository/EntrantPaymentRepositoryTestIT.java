@@ -5,13 +5,16 @@ import static org.assertj.core.api.Assertions.assertThat;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.jdbc.Sql.ExecutionPhase;
 import uk.gov.caz.psr.annotation.IntegrationTest;
 import uk.gov.caz.psr.model.EntrantPayment;
+import uk.gov.caz.psr.model.EntrantPaymentKey;
 import uk.gov.caz.psr.model.EntrantPaymentUpdateActor;
 import uk.gov.caz.psr.model.InternalPaymentStatus;
 
@@ -51,6 +54,44 @@ public class EntrantPaymentRepositoryTestIT {
     assertThat(addedCazEntrantPayment.getTariffCode()).isEqualTo(entrantPayment.getTariffCode());
   }
 
+  @Test
+  public void shouldInsertManyEntrantPaymentsWithSingleStatementPreservingOrder() {
+    // given
+    UUID cleanAirZoneId = UUID.randomUUID();
+    List<EntrantPayment> entrantPayments = Arrays.asList(
+        notPaidEntrantPayment(cleanAirZoneId, "VRN1", LocalDate.now()),
+        notPaidEntrantPayment(cleanAirZoneId, "VRN2", LocalDate.now()),
+        notPaidEntrantPayment(cleanAirZoneId, "VRN1", LocalDate.now().minusDays(1)));
+
+    // when
+    List<EntrantPayment> addedEntrantPayments = entrantPaymentRepository.insert(entrantPayments);
+
+    // then
+    assertThat(addedEntrantPayments).extracting(EntrantPayment::getCleanAirZoneEntrantPaymentId)
+        .doesNotContainNull()
+        .doesNotHaveDuplicates();
+    for (EntrantPayment addedEntrantPayment : addedEntrantPayments) {
+      assertThat(entrantPaymentRepository.findOneByVrnAndCazEntryDate(cleanAirZoneId,
+          addedEntrantPayment.getVrn(), addedEntrantPayment.getTravelDate()))
+          .hasValueSatisfying(entrantPayment ->
+              assertThat(entrantPayment.getCleanAirZoneEntrantPaymentId())
+                  .isEqualTo(addedEntrantPayment.getCleanAirZoneEntrantPaymentId()));
+    }
+  }
+
+  private EntrantPayment notPaidEntrantPayment(UUID cleanAirZoneId, String vrn,
+      LocalDate travelDate) {
+    return EntrantPayment.builder()
+        .cleanAirZoneId(cleanAirZoneId)
+        .internalPaymentStatus(InternalPaymentStatus.NOT_PAID)
+        .charge(100)
+        .travelDate(travelDate)
+        .vrn(vrn)
+        .tariffCode("TARIFF_CODE")
+        .updateActor(EntrantPaymentUpdateActor.USER)
+        .build();
+  }
+
   @Test
   public void shouldFetchByPaymentIdWhenDataPresentInDB() {
     // given
@@ -76,4 +117,65 @@ public class EntrantPaymentRepositoryTestIT {
     // then
     assertThat(foundCazEntrantPayments).isEmpty();
   }
+
+  @Test
+  public void shouldInsertMissingAndCaptureExistingEntrantPaymentsInBulk() {
+    // given
+    UUID cazId = UUID.fromString("b8e53786-c5ca-426a-a701-b14ee74857d4");
+    EntrantPaymentKey existing = new EntrantPaymentKey(cazId, "ND84VSX", LocalDate.of(2019, 11, 1));
+    EntrantPaymentKey missing = new EntrantPaymentKey(cazId, "ND84VSX", LocalDate.of(2019, 11, 6));
+    List<EntrantPaymentKey> keys = Arrays.asList(existing, missing);
+
+    // when
+    int insertedCount = entrantPaymentRepository.insertCapturedIfNotExist(keys,
+        InternalPaymentStatus.NOT_PAID, EntrantPaymentUpdateActor.VCCS_API);
+    int updatedCount = entrantPaymentRepository.markAsVehicleEntrantCaptured(keys,
+        EntrantPaymentUpdateActor.VCCS_API);
+    List<EntrantPayment> entrantPayments = entrantPaymentRepository.findAllByKeys(keys);
+
+    // then
+    assertThat(insertedCount).isOne();
+    assertThat(updatedCount).isOne();
+    assertThat(entrantPayments).hasSize(2);
+    assertThat(entrantPayments).allMatch(EntrantPayment::isVehicleEntrantCaptured);
+    assertThat(entrantPayments.stream().map(EntrantPaymentKey::from).collect(Collectors.toSet()))
+        .containsExactlyInAnyOrder(existing, missing);
+    assertThat(entrantPayments)
+        .filteredOn(entrantPayment -> EntrantPaymentKey.from(entrantPayment).equals(existing))
+        .extracting(EntrantPayment::getInternalPaymentStatus)
+        .containsExactly(InternalPaymentStatus.PAID);
+  }
+
+  @Test
+  public void shouldFindPaidEntrantPaymentsOfManyVrnsGroupedByVrn() {
+    // given
+    UUID cleanAirZoneId = UUID.randomUUID();
+    LocalDate today = LocalDate.now();
+    entrantPaymentRepository.insert(Arrays.asList(
+        paidEntrantPayment(cleanAirZoneId, "VRN1", today),
+        paidEntrantPayment(cleanAirZoneId, "VRN1", today.minusDays(1)),
+        paidEntrantPayment(cleanAirZoneId, "VRN2", today),
+        paidEntrantPayment(cleanAirZoneId, "VRN2", today.minusDays(10)),
+        notPaidEntrantPayment(cleanAirZoneId, "VRN3", today),
+        paidEntrantPayment(UUID.randomUUID(), "VRN3", today)));
+
+    // when
+    Map<String, List<EntrantPayment>> result = entrantPaymentRepository
+        .findAllPaidByVrnsAndDateRangeAndCazId(Arrays.asList("VRN1", "VRN2", "VRN3", "VRN4"),
+            today.minusDays(6), today.plusDays(6), cleanAirZoneId);
+
+    // then
+    assertThat(result).containsOnlyKeys("VRN1", "VRN2");
+    assertThat(result.get("VRN1")).extracting(EntrantPayment::getTravelDate)
+        .containsExactlyInAnyOrder(today, today.minusDays(1));
+    assertThat(result.get("VRN2")).extracting(EntrantPayment::getTravelDate)
+        .containsExactly(today);
+  }
+
+  private EntrantPayment paidEntrantPayment(UUID cleanAirZoneId, String vrn,
+      LocalDate travelDate) {
+    return notPaidEntrantPayment(cleanAirZoneId, vrn, travelDate).toBuilder()
+        .internalPaymentStatus(InternalPaymentStatus.PAID)
+        .build();
+  }
 }
@@ -2,15 +2,20 @@ package uk.gov.caz.psr.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.jdbc.Sql.ExecutionPhase;
 import uk.gov.caz.psr.annotation.IntegrationTest;
+import uk.gov.caz.psr.model.EntrantPayment;
 import uk.gov.caz.psr.model.ExternalPaymentStatus;
 import uk.gov.caz.psr.model.Payment;
 
@@ -25,6 +30,9 @@ class PaymentRepositoryTestIT {
   @Autowired
   private PaymentRepository paymentRepository;
 
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
   @ParameterizedTest
   @ValueSource(strings = {"1d378f50-3326-412a-b663-cd080744f1f1",
       "b71b72a5-902f-4a16-a91d-1a4463b801db"})
@@ -68,10 +76,72 @@ class PaymentRepositoryTestIT {
     Payment payment = paymentRepository.findById(id).get();
 
     // when
-    paymentRepository.markSentConfirmationEmail(payment.getId());
+    boolean marked = paymentRepository.markSentConfirmationEmail(payment.getId());
     Payment updatedPayment = paymentRepository.findById(id).get();
 
     // then
+    assertThat(marked).isTrue();
     assertThat(updatedPayment.isEmailConfirmationSent()).isTrue();
   }
-}
\ No newline at end of file
+
+  @Test
+  public void shouldNotMarkConfirmationEmailSentTwice() {
+    // given
+    UUID id = UUID.fromString("b71b72a5-902f-4a16-a91d-1a4463b801db");
+    paymentRepository.markSentConfirmationEmail(id);
+
+    // when
+    boolean marked = paymentRepository.markSentConfirmationEmail(id);
+
+    // then
+    assertThat(marked).isFalse();
+  }
+
+  @Test
+  public void shouldSetCleanAirZoneIdOfPaymentFromItsEntrantPayments() {
+    // given
+    UUID id = UUID.fromString("b71b72a5-902f-4a16-a91d-1a4463b801db");
+
+    // when
+    Payment payment = paymentRepository.findById(id).get();
+
+    // then
+    assertThat(payment.getCleanAirZoneId())
+        .isEqualTo(UUID.fromString("b8e53786-c5ca-426a-a701-b14ee74857d4"));
+  }
+
+  @Test
+  public void shouldFetchPaymentsWithTheirEntrantPaymentsByIds() {
+    // given
+    UUID paymentWithEntrantPaymentsId = UUID.fromString("b71b72a5-902f-4a16-a91d-1a4463b801db");
+    UUID paymentWithoutEntrantPaymentsId =
+        UUID.fromString("1d378f50-3326-412a-b663-cd080744f1f1");
+
+    // when
+    Map<UUID, Payment> payments = paymentRepository.findByIds(Arrays.asList(
+        paymentWithEntrantPaymentsId, paymentWithoutEntrantPaymentsId, UUID.randomUUID()));
+
+    // then
+    assertThat(payments).containsOnlyKeys(paymentWithEntrantPaymentsId,
+        paymentWithoutEntrantPaymentsId);
+    assertThat(payments.get(paymentWithEntrantPaymentsId).getEntrantPayments()).hasSize(4);
+    assertThat(payments.get(paymentWithoutEntrantPaymentsId).getEntrantPayments()).isEmpty();
+  }
+
+  @Test
+  public void shouldFetchCleanAirZoneOfEntrantPaymentsWhenPaymentHasNone() {
+    // given
+    UUID id = UUID.fromString("b71b72a5-902f-4a16-a91d-1a4463b801db");
+    jdbcTemplate.update("UPDATE caz_payment.t_payment SET clean_air_zone_id = NULL "
+        + "WHERE payment_id = ?", id);
+
+    // when
+    Payment payment = paymentRepository.findByIds(Collections.singletonList(id)).get(id);
+
+    // then
+    assertThat(payment.getCleanAirZoneId()).isNull();
+    assertThat(payment.getEntrantPayments()).hasSize(4)
+        .extracting(EntrantPayment::getCleanAirZoneId)
+        .containsOnly(UUID.fromString("b8e53786-c5ca-426a-a701-b14ee74857d4"));
+  }
+}
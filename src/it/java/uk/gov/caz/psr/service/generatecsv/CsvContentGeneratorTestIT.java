@@ -3,6 +3,7 @@ package uk.gov.caz.psr.service.generatecsv;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
@@ -58,7 +59,8 @@ class CsvContentGeneratorTestIT extends ExternalCallsIT {
       mockAccountServiceGetAllUsersCall(accountId.toString(), 200);
 
       // when
-      List<String[]> csvRowResults = csvContentGenerator.generateCsvRows(accountId, accountUserIds);
+      List<String[]> csvRowResults = new ArrayList<>();
+      csvContentGenerator.streamCsvRows(accountId, accountUserIds, csvRowResults::add);
 
       // then
       assertThat(csvRowResults).hasSize(8);
@@ -109,7 +111,8 @@ class CsvContentGeneratorTestIT extends ExternalCallsIT {
       mockAccountServiceGetAllUsersCall(accountId.toString(), 200);
 
       // when
-      List<String[]> csvRowResults = csvContentGenerator.generateCsvRows(accountId, accountUserIds);
+      List<String[]> csvRowResults = new ArrayList<>();
+      csvContentGenerator.streamCsvRows(accountId, accountUserIds, csvRowResults::add);
 
       // then
       assertThat(String.join(",", csvRowResults.get(0))).isEqualTo(
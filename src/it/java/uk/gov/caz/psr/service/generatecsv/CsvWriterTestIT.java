@@ -3,6 +3,7 @@ package uk.gov.caz.psr.service.generatecsv;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.file.Files;
 import java.time.LocalDate;
@@ -30,7 +31,7 @@ class CsvWriterTestIT extends ExternalCallsIT {
       executionPhase = ExecutionPhase.BEFORE_TEST_METHOD)
   @Sql(scripts = "classpath:data/sql/clear-all-payments.sql",
       executionPhase = ExecutionPhase.AFTER_TEST_METHOD)
-  public void shouldCreateWriterWithCsvContent() throws IOException {
+  public void shouldWriteCsvContent() throws IOException {
     // given
     UUID accountId = UUID.fromString("1f30838f-69ee-4486-95b4-7dfcd5c6c67a");
     List<UUID> accountUserIds = Arrays.asList(
@@ -41,7 +42,8 @@ class CsvWriterTestIT extends ExternalCallsIT {
     mockAccountServiceGetAllUsersCall(accountId.toString(), 200);
 
     // when
-    Writer writer = csvWriter.createWriterWithCsvContent(accountId, accountUserIds);
+    Writer writer = new StringWriter();
+    csvWriter.writeCsvContent(accountId, accountUserIds, writer);
 
     // then
     assertThat(writer.toString()).isEqualTo(readExpectedCsv());
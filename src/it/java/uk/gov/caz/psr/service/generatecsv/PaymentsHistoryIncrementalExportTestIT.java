@@ -0,0 +1,173 @@
+package uk.gov.caz.psr.service.generatecsv;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.Sql.ExecutionPhase;
+import uk.gov.caz.psr.ExternalCallsIT;
+import uk.gov.caz.psr.annotation.IntegrationTest;
+import uk.gov.caz.psr.model.generatecsv.PaymentsHistoryExportMark;
+import uk.gov.caz.psr.repository.generatecsv.PaymentsHistoryExportMarkRepository;
+
+@Sql(scripts = {"classpath:data/sql/clear-all-payments.sql",
+    "classpath:data/sql/csv-export/test-data.sql"},
+    executionPhase = ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(scripts = "classpath:data/sql/clear-all-payments.sql",
+    executionPhase = ExecutionPhase.AFTER_TEST_METHOD)
+@IntegrationTest
+class PaymentsHistoryIncrementalExportTestIT extends ExternalCallsIT {
+
+  private static final UUID ACCOUNT_ID = UUID.fromString("1f30838f-69ee-4486-95b4-7dfcd5c6c67a");
+  private static final List<UUID> ACCOUNT_USER_IDS = Arrays.asList(
+      UUID.fromString("ab3e9f4b-4076-4154-b6dd-97c5d4800b47"),
+      UUID.fromString("3f319922-71d2-432c-9757-8e5f060c2447"),
+      UUID.fromString("88732cca-a5c7-4ad6-a60d-7edede935915"));
+  private static final String OLD_PAYMENT_ID = "c1a9f0d2-5b3e-4f6a-8c7d-9e0f1a2b3c4d";
+
+  @Autowired
+  private CsvWriter csvWriter;
+
+  @Autowired
+  private PaymentsHistoryExportMarkRepository paymentsHistoryExportMarkRepository;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Test
+  public void shouldWriteSameContentAsFullExportWhenPaymentIsMadeAndRefundedAfterExport()
+      throws IOException {
+    // given
+    StringWriter previousContent = new StringWriter();
+    PaymentsHistoryExportMark previousMark = exportFully(previousContent);
+    insertNewPayment();
+    refundOldEntrantPayment();
+
+    // when
+    StringWriter content = new StringWriter();
+    Optional<PaymentsHistoryExportMark> mark = exportIncrementally(previousMark,
+        previousContent.toString(), content);
+
+    // then
+    StringWriter fullContent = new StringWriter();
+    PaymentsHistoryExportMark fullMark = exportFully(fullContent);
+    assertThat(mark).isPresent();
+    assertThat(mark.get().getLastPaymentId()).isEqualTo(fullMark.getLastPaymentId());
+    assertThat(mark.get().getLastPaymentSubmittedTimestamp())
+        .isEqualTo(fullMark.getLastPaymentSubmittedTimestamp());
+    assertThat(content.toString()).isEqualTo(fullContent.toString())
+        .contains("SD84VSX")
+        .contains("QD84VSX,2019-11-05,£26.00,998,ext-payment-id-2,2,£37.00,REFUNDED");
+  }
+
+  @Test
+  public void shouldFallBackToFullExportWhenPaymentExportedBeforeMarkSucceedsAfterExport()
+      throws IOException {
+    // given
+    insertOldUnfinishedPayment();
+    StringWriter previousContent = new StringWriter();
+    PaymentsHistoryExportMark previousMark = exportFully(previousContent);
+    jdbcTemplate.update("UPDATE caz_payment.t_payment "
+        + "SET payment_provider_status = 'SUCCESS', update_timestamp = CURRENT_TIMESTAMP "
+        + "WHERE payment_id = ?", UUID.fromString(OLD_PAYMENT_ID));
+
+    // when
+    Optional<PaymentsHistoryExportMark> mark = exportIncrementally(previousMark,
+        previousContent.toString(), new StringWriter());
+
+    // then
+    assertThat(previousContent.toString()).doesNotContain("TD84VSX");
+    assertThat(mark).isEmpty();
+  }
+
+  @Test
+  public void shouldFindMarkOfReorderedAccountUsers() throws IOException {
+    // given
+    PaymentsHistoryExportMark mark = exportFully(new StringWriter()).toBuilder()
+        .fileName("Payment-history-export.csv")
+        .build();
+    paymentsHistoryExportMarkRepository.save(mark);
+    List<UUID> reorderedAccountUserIds = new ArrayList<>(ACCOUNT_USER_IDS);
+    Collections.reverse(reorderedAccountUserIds);
+
+    // when
+    Optional<PaymentsHistoryExportMark> result = paymentsHistoryExportMarkRepository
+        .find(ACCOUNT_ID, reorderedAccountUserIds);
+
+    // then
+    assertThat(result).isPresent();
+    assertThat(result.get().getAccountUserIds())
+        .containsExactlyInAnyOrderElementsOf(ACCOUNT_USER_IDS);
+    assertThat(result.get().toBuilder().accountUserIds(ACCOUNT_USER_IDS).build())
+        .isEqualTo(mark);
+  }
+
+  private PaymentsHistoryExportMark exportFully(StringWriter writer) throws IOException {
+    mockVccsCleanAirZonesCall();
+    mockAccountServiceGetAllUsersCall(ACCOUNT_ID.toString(), 200);
+    return csvWriter.writeCsvContent(ACCOUNT_ID, ACCOUNT_USER_IDS, writer);
+  }
+
+  private Optional<PaymentsHistoryExportMark> exportIncrementally(
+      PaymentsHistoryExportMark previousMark, String previousContent, StringWriter writer)
+      throws IOException {
+    mockVccsCleanAirZonesCall();
+    mockAccountServiceGetAllUsersCall(ACCOUNT_ID.toString(), 200);
+    return csvWriter.writeCsvContentIncrementally(ACCOUNT_ID, previousMark,
+        new BufferedReader(new StringReader(previousContent)), writer);
+  }
+
+  private void insertNewPayment() {
+    jdbcTemplate.update("INSERT INTO caz_payment.t_payment(payment_id, user_id, "
+        + "payment_provider_id, payment_method, payment_provider_status, total_paid, "
+        + "operator_id, payment_submitted_timestamp, payment_authorised_timestamp, "
+        + "central_reference_number, entries_count) "
+        + "VALUES ('b71b72a5-902f-4a16-a91d-1a4463b801db', "
+        + "'88732cca-a5c7-4ad6-a60d-7edede935915', 'ext-payment-id-4', 'CREDIT_DEBIT_CARD', "
+        + "'SUCCESS', 900, '24f630ec-47c6-4cd0-b8aa-1e05a1463492', '2019-11-26T20:38:08.272Z', "
+        + "'2019-11-26T20:39:08.272Z', 2001, 1)");
+    insertEntrantPayment("f5c9e0a2-2f4b-4c1e-9d3a-6b7e8f9a0b1c", "SD84VSX", "2019-11-07",
+        "PAID", "b71b72a5-902f-4a16-a91d-1a4463b801db");
+  }
+
+  private void insertOldUnfinishedPayment() {
+    jdbcTemplate.update("INSERT INTO caz_payment.t_payment(payment_id, user_id, "
+        + "payment_provider_id, payment_method, payment_provider_status, total_paid, "
+        + "operator_id, payment_submitted_timestamp, central_reference_number, entries_count) "
+        + "VALUES ('" + OLD_PAYMENT_ID + "', '3f319922-71d2-432c-9757-8e5f060c2447', "
+        + "'ext-payment-id-5', 'CREDIT_DEBIT_CARD', 'CREATED', 1000, "
+        + "'24f630ec-47c6-4cd0-b8aa-1e05a1463492', '2019-11-24T10:38:08.272Z', 2002, 1)");
+    insertEntrantPayment("0a6d2c4e-8f1b-4d3a-b5c7-e9f0a1b2c3d4", "TD84VSX", "2019-11-08",
+        "NOT_PAID", OLD_PAYMENT_ID);
+  }
+
+  private void insertEntrantPayment(String entrantPaymentId, String vrn, String travelDate,
+      String paymentStatus, String paymentId) {
+    jdbcTemplate.update("INSERT INTO caz_payment.t_clean_air_zone_entrant_payment("
+        + "clean_air_zone_entrant_payment_id, vrn, clean_air_zone_id, travel_date, tariff_code, "
+        + "charge, payment_status, update_actor) "
+        + "VALUES (?::uuid, ?, '53e03a28-0627-11ea-9511-ffaaee87e375', ?::date, 'tariff-1', "
+        + "900, ?, 'USER')", entrantPaymentId, vrn, travelDate, paymentStatus);
+    jdbcTemplate.update("INSERT INTO caz_payment.t_clean_air_zone_entrant_payment_match("
+        + "id, clean_air_zone_entrant_payment_id, payment_id, latest) "
+        + "VALUES (?, ?::uuid, ?::uuid, true)", UUID.randomUUID(), entrantPaymentId, paymentId);
+  }
+
+  private void refundOldEntrantPayment() {
+    jdbcTemplate.update("UPDATE caz_payment.t_clean_air_zone_entrant_payment "
+        + "SET payment_status = 'REFUNDED', update_actor = 'LA' "
+        + "WHERE clean_air_zone_entrant_payment_id = 'd572fea8-0f8d-11ea-bbdd-2b420f74f6f3'");
+  }
+}
@@ -24,4 +24,9 @@ INSERT INTO caz_payment.t_clean_air_zone_entrant_payment_match(
   ('74af34d6-255d-495d-bbce-aa5bcea9736d', '9cc2dd1a-905e-4eaf-af85-0b14f95aab89', 'b71b72a5-902f-4a16-a91d-1a4463b801db', true),
   ('26991ad9-c5c1-4173-a31e-88f7a98de8c0', '21b7049d-b978-482f-a882-4de6bb9d699c', 'dabc1391-ff31-427a-8000-69037deb2d3b', true),
   ('26991ad9-c5c1-4173-a31e-88f7a98de8c1', '21b7049d-b978-482f-a882-4de6bb9d699d', 'dabc1391-ff31-427a-8000-69037deb2d3a', true),
-  ('26991ad9-c5c1-4173-a31e-88f7a98de8c2', '21b7049d-b978-482f-a882-4de6bb9d699e', 'dabc1391-ff31-427a-8000-69037deb2d3b', true);
\ No newline at end of file
+  ('26991ad9-c5c1-4173-a31e-88f7a98de8c2', '21b7049d-b978-482f-a882-4de6bb9d699e', 'dabc1391-ff31-427a-8000-69037deb2d3b', true);
+
+-- entries count is maintained by the application when matches are inserted
+UPDATE caz_payment.t_payment pay
+SET entries_count = (SELECT COUNT(*) FROM caz_payment.t_clean_air_zone_entrant_payment_match
+    WHERE payment_id = pay.payment_id);
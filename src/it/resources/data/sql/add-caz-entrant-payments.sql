@@ -40,3 +40,7 @@ UPDATE caz_payment.t_clean_air_zone_entrant_payment
 SET tariff_code = 'tariff-2', update_actor = 'USER'
 WHERE clean_air_zone_entrant_payment_id = '21b7049d-b978-482f-a882-4de6bb9d699c';
 
+-- entries count is maintained by the application when matches are inserted
+UPDATE caz_payment.t_payment pay
+SET entries_count = (SELECT COUNT(*) FROM caz_payment.t_clean_air_zone_entrant_payment_match
+    WHERE payment_id = pay.payment_id);
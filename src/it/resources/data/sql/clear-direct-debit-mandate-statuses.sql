@@ -0,0 +1 @@
+DELETE FROM caz_payment.t_direct_debit_mandate_status;
@@ -30,3 +30,8 @@ VALUES
 ('2980b131-8679-4f45-b466-1d704219388c', 'd22c4d6c-0f8d-11ea-bbdd-7ff4b1cc8ff1', '485dc5d0-14e1-4007-997e-c2d3cf8b6d1e', true),
 -- for payment '282ccd65-1319-4b3b-a21c-dfe58809bedf'
 ('62127799-74b5-4587-9eb2-2d3e89468173', '057e7b23-10ac-4ed2-b21b-cf53abd653bd', '282ccd65-1319-4b3b-a21c-dfe58809bedf', true);
+
+-- entries count is maintained by the application when matches are inserted
+UPDATE caz_payment.t_payment pay
+SET entries_count = (SELECT COUNT(*) FROM caz_payment.t_clean_air_zone_entrant_payment_match
+    WHERE payment_id = pay.payment_id);
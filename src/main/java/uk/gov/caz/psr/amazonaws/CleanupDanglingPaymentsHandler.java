@@ -7,6 +7,7 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.time.Duration;
 import org.springframework.web.context.support.WebApplicationContextUtils;
 import uk.gov.caz.awslambda.AwsHelpers;
 import uk.gov.caz.psr.Application;
@@ -20,7 +21,8 @@ public class CleanupDanglingPaymentsHandler implements RequestStreamHandler {
   public void handleRequest(InputStream inputStream, OutputStream outputStream, Context context) {
     initializeHandlerIfNull();
     CleanupDanglingPaymentsService service = getBean(handler, CleanupDanglingPaymentsService.class);
-    service.updateStatusesOfDanglingPayments();
+    service.updateStatusesOfDanglingPayments(
+        Duration.ofMillis(context.getRemainingTimeInMillis()));
   }
 
   private void initializeHandlerIfNull() {
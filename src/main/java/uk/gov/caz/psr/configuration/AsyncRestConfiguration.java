@@ -40,8 +40,10 @@ public class AsyncRestConfiguration {
   public VccsRepository vccsRepository(ObjectMapper objectMapper,
       @Value("${services.vehicle-compliance-checker.root-url}") String vccsApiEndpoint,
       @Value("${services.read-timeout-seconds}") Integer readTimeoutSeconds,
-      @Value("${services.connection-timeout-seconds}") Integer connectTimeoutSeconds) {
-    return buildRetrofit(objectMapper, vccsApiEndpoint, readTimeoutSeconds, connectTimeoutSeconds)
+      @Value("${services.connection-timeout-seconds}") Integer connectTimeoutSeconds,
+      @Value("${services.call-timeout-seconds}") Integer callTimeoutSeconds) {
+    return buildRetrofit(objectMapper, vccsApiEndpoint, readTimeoutSeconds, connectTimeoutSeconds,
+        callTimeoutSeconds)
         .create(VccsRepository.class);
   }
 
@@ -54,9 +56,10 @@ public class AsyncRestConfiguration {
   public AccountsRepository accountsRepository(ObjectMapper objectMapper,
       @Value("${services.accounts.root-url}") String accountsApiEndpoint,
       @Value("${services.read-timeout-seconds}") Integer readTimeoutSeconds,
-      @Value("${services.connection-timeout-seconds}") Integer connectTimeoutSeconds) {
+      @Value("${services.connection-timeout-seconds}") Integer connectTimeoutSeconds,
+      @Value("${services.call-timeout-seconds}") Integer callTimeoutSeconds) {
     return buildRetrofit(objectMapper, accountsApiEndpoint, readTimeoutSeconds,
-        connectTimeoutSeconds)
+        connectTimeoutSeconds, callTimeoutSeconds)
         .create(AccountsRepository.class);
   }
 
@@ -67,8 +70,10 @@ public class AsyncRestConfiguration {
   public WhitelistRepository whitelistRepository(ObjectMapper objectMapper,
       @Value("${services.whitelist.root-url}") String whitelistRootUrl,
       @Value("${services.read-timeout-seconds}") Integer readTimeoutSeconds,
-      @Value("${services.connection-timeout-seconds}") Integer connectTimeoutSeconds) {
-    return buildRetrofit(objectMapper, whitelistRootUrl, readTimeoutSeconds, connectTimeoutSeconds)
+      @Value("${services.connection-timeout-seconds}") Integer connectTimeoutSeconds,
+      @Value("${services.call-timeout-seconds}") Integer callTimeoutSeconds) {
+    return buildRetrofit(objectMapper, whitelistRootUrl, readTimeoutSeconds, connectTimeoutSeconds,
+        callTimeoutSeconds)
         .create(WhitelistRepository.class);
   }
 
@@ -76,23 +81,26 @@ public class AsyncRestConfiguration {
    * Creates {@link Retrofit} based on the passed params with the Jackson converter.
    */
   private Retrofit buildRetrofit(ObjectMapper objectMapper, String rootUrl,
-      int readTimeoutSeconds, int connectTimeoutSeconds) {
+      int readTimeoutSeconds, int connectTimeoutSeconds, int callTimeoutSeconds) {
     return new Retrofit.Builder()
         .baseUrl(requireNonNull(HttpUrl.parse(formatUrl(rootUrl))))
         .addConverterFactory(JacksonConverterFactory.create(objectMapper))
-        .client(buildHttpClient(readTimeoutSeconds, connectTimeoutSeconds))
+        .client(buildHttpClient(readTimeoutSeconds, connectTimeoutSeconds, callTimeoutSeconds))
         .build();
   }
 
   /**
-   * Helper method to build HttpClient fot the request.
+   * Helper method to build HttpClient fot the request. The call timeout bounds the whole call,
+   * including retries and reading the response body.
    *
    * @return OkHttpClient with all needed attributes.
    */
-  private OkHttpClient buildHttpClient(int readTimeoutInSeconds, int connectTimeoutInSeconds) {
+  private OkHttpClient buildHttpClient(int readTimeoutInSeconds, int connectTimeoutInSeconds,
+      int callTimeoutInSeconds) {
     return new Builder()
         .readTimeout(readTimeoutInSeconds, TimeUnit.SECONDS)
         .connectTimeout(connectTimeoutInSeconds, TimeUnit.SECONDS)
+        .callTimeout(callTimeoutInSeconds, TimeUnit.SECONDS)
         .addInterceptor(chain -> {
           Request original = chain.request();
           Request withCorrelationIdHeader = original.newBuilder()
@@ -76,7 +76,7 @@ public interface AccountControllerApiSpec {
   @ApiResponses({
       @ApiResponse(code = 500, message = "Internal Server Error / No message available"),
       @ApiResponse(code = 400, message = "Bad Request (the request is missing a mandatory "
-          + "element)"),
+          + "element, or lastPaymentId is malformed or unknown)"),
       @ApiResponse(code = 404, message = "Account not found")
   })
   @ApiImplicitParams({
@@ -95,6 +95,11 @@ public interface AccountControllerApiSpec {
       @ApiImplicitParam(name = "pageSize",
           required = true,
           value = "The size of the page to retrieve",
+          paramType = "query"),
+      @ApiImplicitParam(name = "lastPaymentId",
+          required = false,
+          value = "The identifier of the last payment on the previous page, when provided the page "
+              + "is found by its keyset rather than by the offset of the page number",
           paramType = "query")
   })
   @GetMapping("/{accountId}/payments")
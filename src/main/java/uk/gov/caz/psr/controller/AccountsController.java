@@ -9,6 +9,7 @@ import lombok.AllArgsConstructor;
 import org.springframework.data.util.Pair;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
+import uk.gov.caz.psr.controller.exception.InvalidRequestPayloadException;
 import uk.gov.caz.psr.controller.util.QueryStringValidator;
 import uk.gov.caz.psr.dto.ChargeableAccountVehicleResponse;
 import uk.gov.caz.psr.dto.SuccessfulPaymentsResponse;
@@ -28,6 +29,7 @@ public class AccountsController implements AccountControllerApiSpec {
   private static final String PAGE_SIZE_QUERYSTRING_KEY = "pageSize";
   private static final String CLEAN_AIR_ZONE_ID_QUERYSTRING_KEY = "cleanAirZoneId";
   private static final String QUERY_QUERYSTRING_KEY = "query";
+  private static final String LAST_PAYMENT_ID_QUERYSTRING_KEY = "lastPaymentId";
 
   private final ChargeableVehiclesService chargeableVehiclesService;
   private final QueryStringValidator queryStringValidator;
@@ -62,16 +64,17 @@ public class AccountsController implements AccountControllerApiSpec {
 
     int pageNumber = Integer.parseInt(queryStrings.get("pageNumber"));
     int pageSize = Integer.parseInt(queryStrings.get("pageSize"));
+    UUID lastPaymentId = parseLastPaymentId(queryStrings);
 
     Pair<PaginationData, List<EnrichedPaymentSummary>> result;
 
     if (queryStrings.containsKey("accountUserId")) {
       UUID accountUserId = UUID.fromString(queryStrings.get("accountUserId"));
       result = retrieveSuccessfulPaymentsService
-          .retrieveForSingleUser(accountId, accountUserId, pageNumber, pageSize);
+          .retrieveForSingleUser(accountId, accountUserId, lastPaymentId, pageNumber, pageSize);
     } else {
       result = retrieveSuccessfulPaymentsService
-          .retrieveForAccount(accountId, pageNumber, pageSize);
+          .retrieveForAccount(accountId, lastPaymentId, pageNumber, pageSize);
     }
 
     PaginationData paginationData = result.getFirst();
@@ -85,4 +88,18 @@ public class AccountsController implements AccountControllerApiSpec {
         Collections.emptyList(),
         Arrays.asList(PAGE_NUMBER_QUERYSTRING_KEY, PAGE_SIZE_QUERYSTRING_KEY));
   }
+
+  /**
+   * Parses the optional identifier of the last payment on the previous page.
+   */
+  private UUID parseLastPaymentId(Map<String, String> queryStrings) {
+    if (!queryStrings.containsKey(LAST_PAYMENT_ID_QUERYSTRING_KEY)) {
+      return null;
+    }
+    try {
+      return UUID.fromString(queryStrings.get(LAST_PAYMENT_ID_QUERYSTRING_KEY));
+    } catch (IllegalArgumentException e) {
+      throw new InvalidRequestPayloadException("Invalid lastPaymentId");
+    }
+  }
 }
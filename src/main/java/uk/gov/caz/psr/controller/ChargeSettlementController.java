@@ -2,11 +2,15 @@ package uk.gov.caz.psr.controller;
 
 import static uk.gov.caz.psr.util.AttributesNormaliser.normalizeVrn;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.servlet.http.HttpServletResponse;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -15,6 +19,9 @@ import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.RestController;
 import uk.gov.caz.psr.controller.exception.PaymentInfoDtoValidationException;
 import uk.gov.caz.psr.controller.exception.PaymentStatusDtoValidationException;
+import uk.gov.caz.psr.dto.BulkPaymentStatusRequest;
+import uk.gov.caz.psr.dto.BulkPaymentStatusResponse;
+import uk.gov.caz.psr.dto.BulkPaymentStatusResponse.SinglePaymentStatus;
 import uk.gov.caz.psr.dto.PaymentInfoRequestV1;
 import uk.gov.caz.psr.dto.PaymentInfoRequestV2;
 import uk.gov.caz.psr.dto.PaymentInfoResponseV1;
@@ -24,13 +31,16 @@ import uk.gov.caz.psr.dto.PaymentStatusResponse;
 import uk.gov.caz.psr.dto.PaymentStatusUpdateRequest;
 import uk.gov.caz.psr.dto.PaymentUpdateSuccessResponse;
 import uk.gov.caz.psr.dto.validation.MaximumDateQueryRangeValidator;
+import uk.gov.caz.psr.model.PaymentInfoSlice;
 import uk.gov.caz.psr.model.PaymentStatus;
+import uk.gov.caz.psr.model.VehicleEntry;
 import uk.gov.caz.psr.model.info.EntrantPaymentMatchInfo;
 import uk.gov.caz.psr.service.ChargeSettlementPaymentInfoService;
 import uk.gov.caz.psr.service.ChargeSettlementService;
 import uk.gov.caz.psr.service.PaymentStatusUpdateService;
 import uk.gov.caz.psr.util.EntrantPaymentInfoConverter;
 import uk.gov.caz.psr.util.PaymentInfoRequestConverter;
+import uk.gov.caz.psr.util.PaymentsInfoStreamWriter;
 
 /**
  * A controller which exposes endpoints dealing with charge settlement.
@@ -42,8 +52,12 @@ public class ChargeSettlementController implements ChargeSettlementControllerApi
 
   public static final String TIMESTAMP = "timestamp";
   public static final String PAYMENT_INFO_PATH_V1 = "/v1/charge-settlement/payment-info";
+  public static final String PAYMENT_INFO_STREAM_PATH_V1 =
+      "/v1/charge-settlement/payment-info/stream";
   public static final String PAYMENT_INFO_PATH_V2 = "/v2/charge-settlement/payment-info";
   public static final String PAYMENT_STATUS_PATH = "/v1/charge-settlement/payment-status";
+  public static final String BULK_PAYMENT_STATUS_PATH =
+      "/v1/charge-settlement/payment-status/bulk";
 
   private final PaymentStatusUpdateService paymentStatusUpdateService;
   private final ChargeSettlementService chargeSettlementService;
@@ -51,6 +65,7 @@ public class ChargeSettlementController implements ChargeSettlementControllerApi
   private final EntrantPaymentInfoConverter entrantPaymentInfoConverter;
   private final PaymentInfoRequestConverter paymentInfoRequestConverter;
   private final MaximumDateQueryRangeValidator maximumDateQueryRangeValidator;
+  private final ObjectMapper objectMapper;
 
   @Override
   public ResponseEntity<PaymentInfoResponseV1> getPaymentInfo(PaymentInfoRequestV1 request,
@@ -72,6 +87,36 @@ public class ChargeSettlementController implements ChargeSettlementControllerApi
     return ResponseEntity.ok(entrantPaymentInfoConverter.toPaymentInfoResponse(result));
   }
 
+  @Override
+  public void streamPaymentInfo(PaymentInfoRequestV1 request, BindingResult bindingResult,
+      UUID cleanAirZoneId, LocalDateTime timestamp, HttpServletResponse response) {
+    if (bindingResult.hasErrors()) {
+      throw new PaymentInfoDtoValidationException("paymentInfo.validationErrorTitle",
+          bindingResult);
+    }
+    request.validateParametersConjunction();
+
+    log.info("Got 'stream payment info' request: {}", request);
+
+    PaymentsInfoStreamWriter writer = new PaymentsInfoStreamWriter(objectMapper, response);
+    try {
+      chargeSettlementPaymentInfoService.streamPaymentInfo(
+          paymentInfoRequestConverter.toPaymentInfoRequestAttributes(request),
+          cleanAirZoneId,
+          vrnPayments -> writer.write(entrantPaymentInfoConverter.toPaymentsInfo(vrnPayments))
+      );
+    } catch (RuntimeException e) {
+      if (!writer.abort()) {
+        log.error("Streaming payment info failed after {} vrns, the response is truncated",
+            writer.getWrittenCount());
+      }
+      throw e;
+    }
+    writer.close();
+    log.info("Streamed payment info of {} vrns for payment-info request {}",
+        writer.getWrittenCount(), request);
+  }
+
   @Override
   public ResponseEntity<PaymentInfoResponseV2> getPaymentInfoV2(PaymentInfoRequestV2 request,
       BindingResult bindingResult, UUID cleanAirZoneId, LocalDateTime timestamp) {
@@ -84,6 +129,18 @@ public class ChargeSettlementController implements ChargeSettlementControllerApi
 
     log.info("Got 'get payment info v2' request: {}", request);
 
+    if (request.usesCursorPagination()) {
+      PaymentInfoSlice result = chargeSettlementPaymentInfoService.findPaymentInfoV2(
+          paymentInfoRequestConverter.toPaymentInfoRequestAttributes(request),
+          cleanAirZoneId,
+          request.decodeCursor(),
+          request.shouldIncludeTotalCount()
+      );
+      log.info("Found {} matching vehicle entrant payments for payment-info request {}",
+          result.getContent().size(), request);
+      return ResponseEntity.ok(entrantPaymentInfoConverter.toPaymentInfoResponseV2(result));
+    }
+
     Page<EntrantPaymentMatchInfo> result = chargeSettlementPaymentInfoService.findPaymentInfoV2(
         paymentInfoRequestConverter.toPaymentInfoRequestAttributes(request),
         cleanAirZoneId,
@@ -115,6 +172,38 @@ public class ChargeSettlementController implements ChargeSettlementControllerApi
         .orElseGet(() -> ResponseEntity.ok(PaymentStatusResponse.notFound()));
   }
 
+  @Override
+  public ResponseEntity<BulkPaymentStatusResponse> getPaymentStatuses(
+      BulkPaymentStatusRequest request, BindingResult bindingResult, UUID cleanAirZoneId,
+      LocalDateTime timestamp) {
+    if (bindingResult.hasErrors()) {
+      throw new PaymentStatusDtoValidationException(null,
+          "getPaymentStatus.validationErrorTitle", bindingResult);
+    }
+    log.info("Got 'get payment statuses' request for {} vehicle entries",
+        request.getVehicleEntries().size());
+
+    List<VehicleEntry> vehicleEntries = request.getVehicleEntries()
+        .stream()
+        .map(ChargeSettlementController::toVehicleEntry)
+        .collect(Collectors.toList());
+    Map<VehicleEntry, PaymentStatus> paymentStatuses = chargeSettlementService
+        .findChargeSettlements(cleanAirZoneId, vehicleEntries);
+
+    log.info("Found {} matching vehicle entrant payments for {} vehicle entries",
+        paymentStatuses.size(), vehicleEntries.size());
+    List<SinglePaymentStatus> results = vehicleEntries.stream()
+        .map(vehicleEntry -> SinglePaymentStatus.builder()
+            .vrn(vehicleEntry.getVrn())
+            .dateOfCazEntry(vehicleEntry.getDateOfCazEntry().toString())
+            .paymentStatus(Optional.ofNullable(paymentStatuses.get(vehicleEntry))
+                .map(PaymentStatusResponse::from)
+                .orElseGet(PaymentStatusResponse::notFound))
+            .build())
+        .collect(Collectors.toList());
+    return ResponseEntity.ok(BulkPaymentStatusResponse.builder().results(results).build());
+  }
+
   @Override
   public PaymentUpdateSuccessResponse updatePaymentStatus(PaymentStatusUpdateRequest request,
       BindingResult bindingResult, UUID cleanAirZoneId, LocalDateTime timestamp) {
@@ -127,4 +216,12 @@ public class ChargeSettlementController implements ChargeSettlementControllerApi
     paymentStatusUpdateService.process(request.toEntrantPaymentStatusUpdates(cleanAirZoneId));
     return new PaymentUpdateSuccessResponse();
   }
+
+  /**
+   * Maps {@link PaymentStatusRequest} to {@link VehicleEntry} with normalised VRN.
+   */
+  private static VehicleEntry toVehicleEntry(PaymentStatusRequest request) {
+    return new VehicleEntry(normalizeVrn(request.getVrn()),
+        LocalDate.parse(request.getDateOfCazEntry()));
+  }
 }
@@ -10,17 +10,21 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import java.time.LocalDateTime;
 import java.util.UUID;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import uk.gov.caz.correlationid.Constants;
+import uk.gov.caz.psr.dto.BulkPaymentStatusRequest;
+import uk.gov.caz.psr.dto.BulkPaymentStatusResponse;
 import uk.gov.caz.psr.dto.Headers;
 import uk.gov.caz.psr.dto.PaymentInfoErrorsResponse;
 import uk.gov.caz.psr.dto.PaymentInfoRequestV1;
@@ -80,6 +84,50 @@ public interface ChargeSettlementControllerApiSpec {
       @RequestHeader(Headers.X_API_KEY) UUID cleanAirZoneId,
       @RequestHeader(TIMESTAMP) @DateTimeFormat(iso = DATE_TIME) LocalDateTime timestamp);
 
+  /**
+   * Streaming counterpart of {@link #getPaymentInfo(PaymentInfoRequestV1, BindingResult, UUID,
+   * LocalDateTime)}. The body has the same shape as {@link PaymentInfoResponseV1}, but it is
+   * written to {@code response} one vrn at a time. Errors which occur before the response is
+   * committed are reported as usual, whereas an error after that leaves the body truncated (it is
+   * not a valid JSON document) under the already sent 200 status.
+   */
+  @ApiOperation(
+      value = "${swagger.operations.charge-settlement.payment-info-stream.description}",
+      response = PaymentInfoResponseV1.class
+  )
+  @ApiResponses({
+      @ApiResponse(code = 500, message = "Internal Server Error / No message available"),
+      @ApiResponse(code = 405, message = "Method Not Allowed / Request method 'XXX' not supported"),
+      @ApiResponse(code = 400, message = "Bad Request (the request is missing a mandatory "
+          + "element)", response = PaymentInfoErrorsResponse.class),
+      @ApiResponse(code = 401, message = "Unauthorized"),
+      @ApiResponse(code = 429, message = "Too many requests"),
+  })
+  @ApiImplicitParams({
+      @ApiImplicitParam(name = "timestamp",
+          required = true,
+          value = "ISO 8601 formatted datetime string indicating time that the request was "
+              + "initialised",
+          paramType = "header"),
+      @ApiImplicitParam(name = Constants.X_CORRELATION_ID_HEADER,
+          required = true,
+          value = "UUID formatted string to track the request through the enquiries stack",
+          paramType = "header"),
+      @ApiImplicitParam(name = Headers.X_API_KEY,
+          required = true, value = "API key used to access the service",
+          paramType = "header"),
+      @ApiImplicitParam(name = "Authorization",
+          required = true,
+          value = "OAuth 2.0 authorisation token",
+          paramType = "header")
+  })
+  @GetMapping(ChargeSettlementController.PAYMENT_INFO_STREAM_PATH_V1)
+  void streamPaymentInfo(
+      @Valid PaymentInfoRequestV1 paymentInfoRequest, BindingResult bindingResult,
+      @RequestHeader(Headers.X_API_KEY) UUID cleanAirZoneId,
+      @RequestHeader(TIMESTAMP) @DateTimeFormat(iso = DATE_TIME) LocalDateTime timestamp,
+      HttpServletResponse response);
+
   /**
    * Allows LAs to query and retrieve data about a payment that has been made via GOV.UK Pay in
    * relation to a vehicle that has entered their CAZ (a 'vehicle entrant').
@@ -166,6 +214,50 @@ public interface ChargeSettlementControllerApiSpec {
       @RequestHeader(TIMESTAMP) @DateTimeFormat(iso = DATE_TIME) LocalDateTime timestamp
   );
 
+  /**
+   * Allows LAs to determine in a single call whether many vehicles that have entered their CAZ have
+   * paid the charges they are liable for. Results are returned in the order of the requested
+   * vehicle entries.
+   *
+   * @return {@link BulkPaymentStatusResponse} wrapped in {@link ResponseEntity}.
+   */
+  @ApiOperation(
+      value = "${swagger.operations.charge-settlement.bulk-payment-status.description}",
+      response = BulkPaymentStatusResponse.class
+  )
+  @ApiResponses({
+      @ApiResponse(code = 500, message = "Internal Server Error / No message available"),
+      @ApiResponse(code = 405, message = "Method Not Allowed / Request method 'XXX' not supported"),
+      @ApiResponse(code = 400, message = "Bad Request (the request is missing a mandatory "
+          + "element)", response = PaymentStatusErrorsResponse.class),
+      @ApiResponse(code = 401, message = "Unauthorized"),
+      @ApiResponse(code = 429, message = "Too many requests"),
+  })
+  @ApiImplicitParams({
+      @ApiImplicitParam(name = "timestamp",
+          required = true,
+          value = "ISO 8601 formatted datetime string indicating time that the request was "
+              + "initialised",
+          paramType = "header"),
+      @ApiImplicitParam(name = Constants.X_CORRELATION_ID_HEADER,
+          required = true,
+          value = "UUID formatted string to track the request through the enquiries stack",
+          paramType = "header"),
+      @ApiImplicitParam(name = Headers.X_API_KEY,
+          required = true, value = "API key used to access the service",
+          paramType = "header"),
+      @ApiImplicitParam(name = "Authorization",
+          required = true,
+          value = "OAuth 2.0 authorisation token",
+          paramType = "header")
+  })
+  @PostMapping(ChargeSettlementController.BULK_PAYMENT_STATUS_PATH)
+  ResponseEntity<BulkPaymentStatusResponse> getPaymentStatuses(
+      @Valid @RequestBody BulkPaymentStatusRequest request, BindingResult bindingResult,
+      @RequestHeader(Headers.X_API_KEY) UUID cleanAirZoneId,
+      @RequestHeader(TIMESTAMP) @DateTimeFormat(iso = DATE_TIME) LocalDateTime timestamp
+  );
+
   /**
    * Allows Local Authorities to update the status of one or more paid CAZ charges to reflect any
    * action that is being taken with the payment (e.g. such as the processing of a refund or
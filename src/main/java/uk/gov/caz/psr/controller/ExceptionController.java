@@ -15,6 +15,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.MessageSource;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.validation.ObjectError;
@@ -23,6 +25,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import uk.gov.caz.GlobalExceptionHandler;
+import uk.gov.caz.psr.controller.exception.InvalidRequestPayloadException;
 import uk.gov.caz.psr.controller.exception.PaymentInfoDtoValidationException;
 import uk.gov.caz.psr.controller.exception.PaymentInfoPaymentMadeDateValidationException;
 import uk.gov.caz.psr.controller.exception.PaymentInfoVrnValidationException;
@@ -33,11 +36,13 @@ import uk.gov.caz.psr.dto.PaymentInfoErrorsResponse;
 import uk.gov.caz.psr.dto.PaymentStatusErrorResponse;
 import uk.gov.caz.psr.dto.PaymentStatusErrorsResponse;
 import uk.gov.caz.psr.dto.validation.PageNumberValidationException;
+import uk.gov.caz.psr.dto.validation.PaymentInfoCursorValidationException;
 import uk.gov.caz.psr.dto.validation.PaymentInfoMaxDateRangeValidationException;
 import uk.gov.caz.psr.model.ValidationError;
 import uk.gov.caz.psr.model.ValidationError.ValidationErrorBuilder;
 import uk.gov.caz.psr.repository.exception.NotUniqueVehicleEntrantPaymentFoundException;
 import uk.gov.caz.psr.service.exception.PaymentDoesNotExistException;
+import uk.gov.caz.psr.service.exception.VehicleEntrantsCaptureTimeoutException;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -47,6 +52,7 @@ public class ExceptionController extends GlobalExceptionHandler {
 
   private static final Locale LOCALE = Locale.ENGLISH;
   private static final String EMPTY = "must not be null";
+  private static final String CAPTURE_RETRY_AFTER_SECONDS = "1";
 
   private final MessageSource messageSource;
 
@@ -170,6 +176,19 @@ public class ExceptionController extends GlobalExceptionHandler {
         .from(Collections.singletonList(pageNumberErrorResponseWithField("page"))));
   }
 
+  /**
+   * Method to handle Exception when cursor is not correct.
+   *
+   * @param ex Exception object.
+   */
+  @ExceptionHandler(PaymentInfoCursorValidationException.class)
+  public ResponseEntity<PaymentInfoErrorsResponse> handleCursorValidation(
+      PaymentInfoCursorValidationException ex) {
+    log.info("PaymentInfoCursorValidationException occurred: {}", ex);
+    return ResponseEntity.badRequest().body(
+        PaymentInfoErrorsResponse.singleValidationErrorResponse("cursor", ex.getMessage()));
+  }
+
   /**
    * Exception handler that handles exceptions thrown when an obligatory header is missing.
    */
@@ -192,6 +211,16 @@ public class ExceptionController extends GlobalExceptionHandler {
         .body(createTypeMismatchErrorResponse(e));
   }
 
+  /**
+   * Exception handler that returns 400 error with the message when request parameters are invalid.
+   */
+  @ExceptionHandler(InvalidRequestPayloadException.class)
+  public ResponseEntity<GenericErrorResponse> handleException(InvalidRequestPayloadException e) {
+    log.warn("Invalid request parameters: {}", e.getMessage());
+    return ResponseEntity.badRequest()
+        .body(GenericErrorResponse.builder().message(e.getMessage()).build());
+  }
+
   /**
    * Exception handler that returns 400 error on invalid input format.
    */
@@ -210,6 +239,19 @@ public class ExceptionController extends GlobalExceptionHandler {
     return ResponseEntity.badRequest().body(exception.getMessage());
   }
 
+  /**
+   * Exception handler that returns 503 error with {@code Retry-After} header when buffered
+   * vehicle entrants have not been captured in time.
+   */
+  @ExceptionHandler(VehicleEntrantsCaptureTimeoutException.class)
+  public ResponseEntity<String> handleVehicleEntrantsCaptureTimeoutException(
+      VehicleEntrantsCaptureTimeoutException exception) {
+    log.warn("VehicleEntrantsCaptureTimeoutException occurred: {}", exception.getMessage());
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, CAPTURE_RETRY_AFTER_SECONDS)
+        .body(exception.getMessage());
+  }
+
   /**
    * Creates an instance of {@link GenericErrorResponse} based on {@link
    * MissingRequestHeaderException}.
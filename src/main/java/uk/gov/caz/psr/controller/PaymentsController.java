@@ -1,6 +1,7 @@
 package uk.gov.caz.psr.controller;
 
 import com.google.common.annotations.VisibleForTesting;
+import java.time.LocalDate;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -18,7 +19,6 @@ import uk.gov.caz.psr.dto.PaidPaymentsResponse;
 import uk.gov.caz.psr.dto.PaymentDetailsResponse;
 import uk.gov.caz.psr.dto.ReconcilePaymentResponse;
 import uk.gov.caz.psr.dto.ReferencesHistoryResponse;
-import uk.gov.caz.psr.model.EntrantPayment;
 import uk.gov.caz.psr.model.Payment;
 import uk.gov.caz.psr.service.GetPaidEntrantPaymentsService;
 import uk.gov.caz.psr.service.InitiatePaymentService;
@@ -76,8 +76,8 @@ public class PaymentsController implements PaymentsControllerApiSpec {
       PaidPaymentsRequest paymentsRequest) {
     paymentsRequest.validate();
 
-    Map<String, List<EntrantPayment>> results = getPaidEntrantPaymentsService
-        .getResults(new HashSet<>(paymentsRequest.getVrns()),
+    Map<String, List<LocalDate>> results = getPaidEntrantPaymentsService
+        .getPaidDates(new HashSet<>(paymentsRequest.getVrns()),
             paymentsRequest.getStartDate(), paymentsRequest.getEndDate(),
             paymentsRequest.getCleanAirZoneId());
 
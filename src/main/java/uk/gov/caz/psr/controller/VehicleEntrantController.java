@@ -2,12 +2,14 @@ package uk.gov.caz.psr.controller;
 
 import com.google.common.annotations.VisibleForTesting;
 import java.util.List;
+import java.util.Optional;
 import lombok.AllArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import uk.gov.caz.psr.dto.EntrantPaymentWithLatestPaymentDetailsDto;
 import uk.gov.caz.psr.dto.VehicleEntrantDto;
 import uk.gov.caz.psr.service.EntrantPaymentService;
+import uk.gov.caz.psr.service.VehicleEntrantCaptureBuffer;
 
 /**
  * A controller which deals with requests that informs about a vehicle entering a CAZ.
@@ -23,12 +25,15 @@ public class VehicleEntrantController implements VehicleEntrantControllerApiSpec
       "vehicle-entrants";
 
   private final EntrantPaymentService entrantPaymentService;
+  private final Optional<VehicleEntrantCaptureBuffer> vehicleEntrantCaptureBuffer;
 
   @Override
   public ResponseEntity<List<EntrantPaymentWithLatestPaymentDetailsDto>>
       createVehicleEntrantAndGetPaymentDetails(List<VehicleEntrantDto> vehicleEntrants) {
-    List<EntrantPaymentWithLatestPaymentDetailsDto> cazEntrantPaymentDtos = entrantPaymentService
-        .bulkProcess(vehicleEntrants);
+    List<EntrantPaymentWithLatestPaymentDetailsDto> cazEntrantPaymentDtos =
+        vehicleEntrantCaptureBuffer
+            .map(buffer -> buffer.process(vehicleEntrants))
+            .orElseGet(() -> entrantPaymentService.bulkProcess(vehicleEntrants));
 
     return ResponseEntity.ok(cazEntrantPaymentDtos);
   }
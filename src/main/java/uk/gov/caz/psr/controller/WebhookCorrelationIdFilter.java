@@ -0,0 +1,83 @@
+package uk.gov.caz.psr.controller;
+
+import static uk.gov.caz.correlationid.Constants.X_CORRELATION_ID_HEADER;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.UUID;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Creates the correlation id of webhook messages. Payment providers do not send {@code
+ * X-Correlation-ID} header, which is required by all the other endpoints, hence a new correlation
+ * id is added to the messages which come without one.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class WebhookCorrelationIdFilter extends OncePerRequestFilter {
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    String path = request.getRequestURI().substring(request.getContextPath().length());
+    return !path.startsWith(WebhooksController.BASE_PATH + "/");
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    if (request.getHeader(X_CORRELATION_ID_HEADER) != null) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    String correlationId = UUID.randomUUID().toString();
+    log.debug("Webhook message came without correlation id, using {}", correlationId);
+    filterChain.doFilter(new CorrelationIdRequest(request, correlationId), response);
+  }
+
+  /**
+   * {@link HttpServletRequest} with {@code X-Correlation-ID} header set to the given value.
+   */
+  private static class CorrelationIdRequest extends HttpServletRequestWrapper {
+
+    private final String correlationId;
+
+    CorrelationIdRequest(HttpServletRequest request, String correlationId) {
+      super(request);
+      this.correlationId = correlationId;
+    }
+
+    @Override
+    public String getHeader(String name) {
+      return X_CORRELATION_ID_HEADER.equalsIgnoreCase(name)
+          ? correlationId
+          : super.getHeader(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+      return X_CORRELATION_ID_HEADER.equalsIgnoreCase(name)
+          ? Collections.enumeration(Collections.singletonList(correlationId))
+          : super.getHeaders(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+      List<String> headerNames = new ArrayList<>(Collections.list(super.getHeaderNames()));
+      headerNames.add(X_CORRELATION_ID_HEADER);
+      return Collections.enumeration(headerNames);
+    }
+  }
+}
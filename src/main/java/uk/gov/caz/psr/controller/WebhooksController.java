@@ -0,0 +1,39 @@
+package uk.gov.caz.psr.controller;
+
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+import uk.gov.caz.psr.service.webhook.GoCardlessWebhookService;
+import uk.gov.caz.psr.service.webhook.GovUkPayWebhookService;
+
+/**
+ * Rest Controller with endpoints accepting webhook messages sent by payment providers.
+ */
+@RestController
+@AllArgsConstructor
+public class WebhooksController implements WebhooksControllerApiSpec {
+
+  public static final String BASE_PATH = "/v1/webhooks";
+  public static final String GOV_UK_PAY_PATH = "/gov-uk-pay/{cleanAirZoneId}";
+  public static final String GOV_UK_PAY_SIGNATURE_HEADER = "Pay-Signature";
+  public static final String GO_CARDLESS_PATH = "/go-cardless/{cleanAirZoneId}";
+  public static final String GO_CARDLESS_SIGNATURE_HEADER = "Webhook-Signature";
+
+  private final GovUkPayWebhookService govUkPayWebhookService;
+  private final GoCardlessWebhookService goCardlessWebhookService;
+
+  @Override
+  public ResponseEntity<Void> acceptGovUkPayMessage(UUID cleanAirZoneId, String signature,
+      String payload) {
+    govUkPayWebhookService.processWebhookMessage(cleanAirZoneId, payload, signature);
+    return ResponseEntity.ok().build();
+  }
+
+  @Override
+  public ResponseEntity<Void> acceptGoCardlessMessage(UUID cleanAirZoneId, String signature,
+      String payload) {
+    goCardlessWebhookService.processWebhookMessage(cleanAirZoneId, payload, signature);
+    return ResponseEntity.ok().build();
+  }
+}
@@ -0,0 +1,85 @@
+package uk.gov.caz.psr.controller;
+
+import static uk.gov.caz.correlationid.Constants.X_CORRELATION_ID_HEADER;
+import static uk.gov.caz.psr.controller.WebhooksController.BASE_PATH;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiImplicitParam;
+import io.swagger.annotations.ApiImplicitParams;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import java.util.UUID;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+/**
+ * Interface with swagger documentation for WebhooksController.
+ */
+@RequestMapping(value = BASE_PATH, produces = MediaType.APPLICATION_JSON_VALUE)
+@Api(value = BASE_PATH)
+public interface WebhooksControllerApiSpec {
+
+  /**
+   * Accepts a webhook message sent by GOV UK Pay when a payment changes its state.
+   *
+   * @param cleanAirZoneId Identifier of the Clean Air Zone whose GOV UK Pay account sent the
+   *     message.
+   * @param signature Signature of the message.
+   * @param payload Raw body of the message, the signature is verified against it.
+   */
+  @ApiOperation(value = "${swagger.operations.webhooks.gov-uk-pay.description}")
+  @ApiResponses({
+      @ApiResponse(code = 500, message = "Internal Server Error / No message available"),
+      @ApiResponse(code = 401, message = "Invalid signature"),
+      @ApiResponse(code = 400, message = "Invalid message"),
+      @ApiResponse(code = 200, message = "Message accepted"),})
+  @ApiImplicitParams({
+      @ApiImplicitParam(name = X_CORRELATION_ID_HEADER,
+          required = false,
+          value = "CorrelationID to track the request from the API gateway through"
+              + " the Enquiries stack, created if missing",
+          paramType = "header")
+  })
+  @PostMapping(value = WebhooksController.GOV_UK_PAY_PATH,
+      consumes = MediaType.APPLICATION_JSON_VALUE)
+  ResponseEntity<Void> acceptGovUkPayMessage(
+      @PathVariable("cleanAirZoneId") UUID cleanAirZoneId,
+      @RequestHeader(value = WebhooksController.GOV_UK_PAY_SIGNATURE_HEADER, required = false)
+          String signature,
+      @RequestBody String payload);
+
+  /**
+   * Accepts a webhook message sent by GoCardless when statuses of mandates change.
+   *
+   * @param cleanAirZoneId Identifier of the Clean Air Zone whose GoCardless account sent the
+   *     message.
+   * @param signature Signature of the message.
+   * @param payload Raw body of the message, the signature is verified against it.
+   */
+  @ApiOperation(value = "${swagger.operations.webhooks.go-cardless.description}")
+  @ApiResponses({
+      @ApiResponse(code = 500, message = "Internal Server Error / No message available"),
+      @ApiResponse(code = 401, message = "Invalid signature"),
+      @ApiResponse(code = 400, message = "Invalid message"),
+      @ApiResponse(code = 200, message = "Message accepted"),})
+  @ApiImplicitParams({
+      @ApiImplicitParam(name = X_CORRELATION_ID_HEADER,
+          required = false,
+          value = "CorrelationID to track the request from the API gateway through"
+              + " the Enquiries stack, created if missing",
+          paramType = "header")
+  })
+  @PostMapping(value = WebhooksController.GO_CARDLESS_PATH,
+      consumes = MediaType.APPLICATION_JSON_VALUE)
+  ResponseEntity<Void> acceptGoCardlessMessage(
+      @PathVariable("cleanAirZoneId") UUID cleanAirZoneId,
+      @RequestHeader(value = WebhooksController.GO_CARDLESS_SIGNATURE_HEADER, required = false)
+          String signature,
+      @RequestBody String payload);
+}
@@ -0,0 +1,29 @@
+package uk.gov.caz.psr.dto;
+
+import io.swagger.annotations.ApiModelProperty;
+import java.util.List;
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * A value object which is used as a request for getting payment statuses of many vehicle entries
+ * at once.
+ */
+@Value
+@Builder
+public class BulkPaymentStatusRequest {
+
+  /**
+   * The maximum number of vehicle entries that can be queried in a single request.
+   */
+  public static final int MAX_VEHICLE_ENTRIES = 5000;
+
+  @ApiModelProperty(value = "${swagger.model.descriptions.bulk-payment-status.vehicle-entries}")
+  @NotEmpty
+  @Size(max = MAX_VEHICLE_ENTRIES)
+  @Valid
+  List<PaymentStatusRequest> vehicleEntries;
+}
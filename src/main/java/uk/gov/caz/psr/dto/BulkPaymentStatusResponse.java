@@ -0,0 +1,36 @@
+package uk.gov.caz.psr.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import io.swagger.annotations.ApiModelProperty;
+import java.util.List;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * A value object which represents the response of the bulk payment status lookup. Results are
+ * returned in the same order as vehicle entries in the request.
+ */
+@Value
+@Builder
+public class BulkPaymentStatusResponse {
+
+  @ApiModelProperty(value = "${swagger.model.descriptions.bulk-payment-status.results}")
+  List<SinglePaymentStatus> results;
+
+  /**
+   * Payment status of a single vehicle entry.
+   */
+  @Value
+  @Builder
+  public static class SinglePaymentStatus {
+
+    @ApiModelProperty(value = "${swagger.model.descriptions.payment-status.vrn}")
+    String vrn;
+
+    @ApiModelProperty(value = "${swagger.model.descriptions.payment-status.date-of-caz-entry}")
+    String dateOfCazEntry;
+
+    @JsonUnwrapped
+    PaymentStatusResponse paymentStatus;
+  }
+}
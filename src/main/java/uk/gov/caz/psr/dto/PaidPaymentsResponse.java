@@ -10,7 +10,6 @@ import java.util.Map;
 import java.util.stream.Collectors;
 import lombok.Builder;
 import lombok.Value;
-import uk.gov.caz.psr.model.EntrantPayment;
 
 /**
  * Class that represents the returned JSON when client asks for days that are already paid.
@@ -28,7 +27,7 @@ public class PaidPaymentsResponse {
   /**
    * Converts provided collection to {@link PaidPaymentsResponse}.
    */
-  public static PaidPaymentsResponse from(Map<String, List<EntrantPayment>> results) {
+  public static PaidPaymentsResponse from(Map<String, List<LocalDate>> results) {
     List<PaidPaymentsResult> mappedResults = results.entrySet()
         .stream()
         .map(entry -> buildPaidPaymentResultFrom(entry.getKey(), entry.getValue()))
@@ -39,23 +38,13 @@ public class PaidPaymentsResponse {
   }
 
   /**
-   * Builds {@link PaidPaymentsResult} based on provided VRN and list of {@link EntrantPayment}.
+   * Builds {@link PaidPaymentsResult} based on provided VRN and list of its paid days.
    */
   private static PaidPaymentsResult buildPaidPaymentResultFrom(String vrn,
-      List<EntrantPayment> entrantPayments) {
+      List<LocalDate> paidDates) {
     return PaidPaymentsResult.builder()
         .vrn(vrn)
-        .paidDates(collectTravelDates(entrantPayments)).build();
-  }
-
-  /**
-   * Maps list of {@link EntrantPayment} to list of its travel date.
-   */
-  private static List<LocalDate> collectTravelDates(List<EntrantPayment> entrantPayments) {
-    return entrantPayments
-        .stream()
-        .map(EntrantPayment::getTravelDate)
-        .collect(Collectors.toList());
+        .paidDates(paidDates).build();
   }
 
   /**
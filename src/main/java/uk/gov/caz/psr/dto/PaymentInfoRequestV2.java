@@ -2,11 +2,14 @@ package uk.gov.caz.psr.dto;
 
 import io.swagger.annotations.ApiModelProperty;
 import java.util.Optional;
+import javax.validation.constraints.Size;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 import uk.gov.caz.psr.dto.validation.PageNumberValidationException;
+import uk.gov.caz.psr.dto.validation.PaymentInfoCursorValidationException;
 import uk.gov.caz.psr.dto.validation.constraint.AtLeastOneParameterPresent;
 import uk.gov.caz.psr.dto.validation.constraint.FromAndToDatesInChronologicalOrder;
+import uk.gov.caz.psr.model.PaymentInfoCursor;
 
 @Value
 @EqualsAndHashCode(callSuper = true)
@@ -16,9 +19,22 @@ public class PaymentInfoRequestV2 extends PaymentInfoRequestV1 {
 
   private static final int DEFAULT_PAGE_NUMBER = 0;
 
+  /**
+   * The value of {@code cursor} which denotes the first page in the cursor-based pagination.
+   */
+  public static final String FIRST_PAGE_CURSOR = "*";
+
   @ApiModelProperty(value = "${swagger.model.descriptions.payment-info-request.page}")
   Integer page;
 
+  @ApiModelProperty(value = "${swagger.model.descriptions.payment-info-request.cursor}")
+  @Size(min = 1, max = 255)
+  String cursor;
+
+  @ApiModelProperty(
+      value = "${swagger.model.descriptions.payment-info-request.include-total-count}")
+  Boolean includeTotalCount;
+
   /**
    * Gets the requested page number.
    */
@@ -26,6 +42,30 @@ public class PaymentInfoRequestV2 extends PaymentInfoRequestV1 {
     return Optional.ofNullable(page).orElse(DEFAULT_PAGE_NUMBER);
   }
 
+  /**
+   * Returns true if the client asked for the cursor-based pagination.
+   */
+  public boolean usesCursorPagination() {
+    return cursor != null;
+  }
+
+  /**
+   * Returns true if the client asked for the total number of pages in the cursor-based pagination.
+   */
+  public boolean shouldIncludeTotalCount() {
+    return Boolean.TRUE.equals(includeTotalCount);
+  }
+
+  /**
+   * Gets the decoded cursor, null if the first page is requested.
+   */
+  public PaymentInfoCursor decodeCursor() {
+    if (cursor == null || FIRST_PAGE_CURSOR.equals(cursor)) {
+      return null;
+    }
+    return PaymentInfoCursor.decode(cursor);
+  }
+
   /**
    * Throws exception when paymentMadeDate has detected attributes conjunction or page number is not
    * correct.
@@ -33,6 +73,26 @@ public class PaymentInfoRequestV2 extends PaymentInfoRequestV1 {
   public void validate() {
     validateParametersConjunction();
     validatePageNumber();
+    validateCursor();
+  }
+
+  /**
+   * Throws {@link PaymentInfoCursorValidationException} if both page number and cursor are provided
+   * or the cursor cannot be decoded.
+   */
+  private void validateCursor() {
+    if (cursor == null) {
+      return;
+    }
+    if (page != null) {
+      throw new PaymentInfoCursorValidationException(
+          "Cursor cannot be used in conjunction with page number");
+    }
+    try {
+      decodeCursor();
+    } catch (IllegalArgumentException e) {
+      throw new PaymentInfoCursorValidationException("Invalid cursor");
+    }
   }
 
   /**
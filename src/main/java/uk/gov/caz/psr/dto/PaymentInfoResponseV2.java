@@ -1,5 +1,7 @@
 package uk.gov.caz.psr.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import io.swagger.annotations.ApiModelProperty;
 import java.util.List;
 import lombok.EqualsAndHashCode;
@@ -14,10 +16,25 @@ import lombok.Value;
 public class PaymentInfoResponseV2 extends PaymentInfoResponseV1 {
 
   @ApiModelProperty(value = "${swagger.model.descriptions.payment-info.pages}")
-  int pages;
+  @JsonInclude(Include.NON_NULL)
+  Integer pages;
+
+  @ApiModelProperty(value = "${swagger.model.descriptions.payment-info.next-cursor}")
+  @JsonInclude(Include.NON_NULL)
+  String nextCursor;
 
   public PaymentInfoResponseV2(List<PaymentsInfo> paymentsInfo, int pages) {
+    this(paymentsInfo, Integer.valueOf(pages), null);
+  }
+
+  /**
+   * Creates the response for the cursor-based pagination, {@code pages} is null when the client
+   * has not asked for the total count and {@code nextCursor} is null on the last page.
+   */
+  public PaymentInfoResponseV2(List<PaymentsInfo> paymentsInfo, Integer pages,
+      String nextCursor) {
     super(paymentsInfo);
     this.pages = pages;
+    this.nextCursor = nextCursor;
   }
 }
\ No newline at end of file
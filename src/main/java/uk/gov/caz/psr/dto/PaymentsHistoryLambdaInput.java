@@ -8,6 +8,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.apache.commons.collections.CollectionUtils;
+import uk.gov.caz.psr.model.generatecsv.CsvExportFormat;
 
 /**
  * Class that keeps input object parameters for Lambda which exporting payment history.
@@ -38,6 +39,17 @@ public class PaymentsHistoryLambdaInput {
    */
   private List<UUID> accountUserIds;
 
+  /**
+   * Whether the previous export of payment history for the same users should be merged with the
+   * changes since instead of exporting the whole history.
+   */
+  private boolean incremental;
+
+  /**
+   * Format of the exported file, uncompressed csv if not set.
+   */
+  private CsvExportFormat format;
+
   /**
    * Validates this dto.
    */
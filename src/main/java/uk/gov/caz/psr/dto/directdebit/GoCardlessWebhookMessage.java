@@ -0,0 +1,52 @@
+package uk.gov.caz.psr.dto.directdebit;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Value object representing a webhook message sent by GoCardless, which contains a batch of events.
+ * See https://developer.gocardless.com/api-reference/#appendix-webhooks for reference.
+ */
+@Value
+@Builder
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class GoCardlessWebhookMessage {
+
+  List<Event> events;
+
+  /**
+   * A single event, e.g. a change of the status of a mandate.
+   */
+  @Value
+  @Builder
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class Event {
+
+    /**
+     * The type of the resource of mandate events.
+     */
+    public static final String MANDATES_RESOURCE_TYPE = "mandates";
+
+    String id;
+    @JsonProperty("created_at")
+    String createdAt;
+    @JsonProperty("resource_type")
+    String resourceType;
+    String action;
+    Links links;
+  }
+
+  /**
+   * Identifiers of resources the event relates to.
+   */
+  @Value
+  @Builder
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class Links {
+
+    String mandate;
+  }
+}
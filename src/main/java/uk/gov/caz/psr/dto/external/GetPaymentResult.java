@@ -1,5 +1,6 @@
 package uk.gov.caz.psr.dto.external;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.Map;
 import lombok.Builder;
@@ -14,6 +15,7 @@ import uk.gov.caz.psr.model.ExternalPaymentStatus;
 @Value
 @Builder
 @Slf4j
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class GetPaymentResult {
 
   int amount;
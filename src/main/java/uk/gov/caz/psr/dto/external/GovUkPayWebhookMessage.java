@@ -0,0 +1,36 @@
+package uk.gov.caz.psr.dto.external;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Value object representing a webhook message sent by gov-uk pay when a payment changes its
+ * state. See https://docs.payments.service.gov.uk/webhooks for reference.
+ */
+@Value
+@Builder
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class GovUkPayWebhookMessage {
+
+  /**
+   * The type of the resource of payment events.
+   */
+  public static final String PAYMENT_RESOURCE_TYPE = "payment";
+
+  @JsonProperty("webhook_message_id")
+  String webhookMessageId;
+  @JsonProperty("created_date")
+  String createdDate;
+  @JsonProperty("resource_id")
+  String resourceId;
+  @JsonProperty("resource_type")
+  String resourceType;
+  @JsonProperty("event_type")
+  String eventType;
+  /**
+   * The payment in the state after the event, the same as returned by GET /v1/payments/{id}.
+   */
+  GetPaymentResult resource;
+}
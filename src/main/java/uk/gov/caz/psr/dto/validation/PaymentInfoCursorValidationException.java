@@ -0,0 +1,8 @@
+package uk.gov.caz.psr.dto.validation;
+
+public class PaymentInfoCursorValidationException extends RuntimeException {
+
+  public PaymentInfoCursorValidationException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,31 @@
+package uk.gov.caz.psr.model;
+
+import lombok.Value;
+
+/**
+ * Outcome of a single run of the dangling payments cleanup.
+ */
+@Value
+public class DanglingPaymentsCleanupSummary {
+
+  /**
+   * The number of dangling payments which have been found.
+   */
+  int found;
+
+  /**
+   * The number of dangling payments whose status has been checked in GOV UK Pay.
+   */
+  int processed;
+
+  /**
+   * The number of dangling payments which could not be processed due to an error.
+   */
+  int skipped;
+
+  /**
+   * The number of dangling payments which have not been processed because the time budget of the
+   * run has been exhausted. They will be processed by a subsequent run.
+   */
+  int leftOver;
+}
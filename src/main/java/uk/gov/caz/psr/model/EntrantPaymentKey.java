@@ -0,0 +1,36 @@
+package uk.gov.caz.psr.model;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import lombok.Value;
+
+/**
+ * Natural key of {@link EntrantPayment}, i.e. a triple of Clean Air Zone ID, VRN and travel date
+ * which is unique in {@code T_CLEAN_AIR_ZONE_ENTRANT_PAYMENT}.
+ */
+@Value
+public class EntrantPaymentKey {
+
+  /**
+   * Clean Air Zone ID.
+   */
+  UUID cleanAirZoneId;
+
+  /**
+   * Vehicle registration number.
+   */
+  String vrn;
+
+  /**
+   * The date of vehicle entrance to the Clean Air Zone.
+   */
+  LocalDate travelDate;
+
+  /**
+   * Creates the key of the passed {@code entrantPayment}.
+   */
+  public static EntrantPaymentKey from(EntrantPayment entrantPayment) {
+    return new EntrantPaymentKey(entrantPayment.getCleanAirZoneId(), entrantPayment.getVrn(),
+        entrantPayment.getTravelDate());
+  }
+}
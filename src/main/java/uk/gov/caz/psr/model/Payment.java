@@ -79,8 +79,7 @@ public class Payment {
   String emailAddress;
 
   /**
-   * An identifier of the Clean Air Zone. A transient field, not saved in the database. This value
-   * is non-null only when a new payment is initiated.
+   * An identifier of the Clean Air Zone which all entrant payments of this payment belong to.
    */
   UUID cleanAirZoneId;
 
@@ -0,0 +1,55 @@
+package uk.gov.caz.psr.model;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import lombok.Value;
+
+/**
+ * An opaque position in the keyset-paginated payment-info results. It points to the last returned
+ * entrant payment, i.e. the next page starts right after the (vrn, entrant payment id) pair.
+ */
+@Value
+public class PaymentInfoCursor {
+
+  private static final String SEPARATOR = "|";
+
+  /**
+   * Vehicle registration number of the last returned entrant payment.
+   */
+  String vrn;
+
+  /**
+   * Identifier of the last returned entrant payment.
+   */
+  UUID entrantPaymentId;
+
+  /**
+   * Encodes this cursor to an opaque, URL-safe string.
+   */
+  public String encode() {
+    String rawCursor = entrantPaymentId + SEPARATOR + vrn;
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(rawCursor.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decodes the cursor previously created by {@link PaymentInfoCursor#encode()}.
+   *
+   * @param encodedCursor An opaque cursor.
+   * @return An instance of {@link PaymentInfoCursor}.
+   * @throws IllegalArgumentException if {@code encodedCursor} is not a valid cursor.
+   */
+  public static PaymentInfoCursor decode(String encodedCursor) {
+    Preconditions.checkArgument(encodedCursor != null, "Cursor cannot be null");
+    String rawCursor = new String(Base64.getUrlDecoder().decode(encodedCursor),
+        StandardCharsets.UTF_8);
+    List<String> parts = Splitter.on(SEPARATOR).limit(2).splitToList(rawCursor);
+    Preconditions.checkArgument(parts.size() == 2 && !parts.get(1).isEmpty(),
+        "Malformed cursor");
+    return new PaymentInfoCursor(parts.get(1), UUID.fromString(parts.get(0)));
+  }
+}
@@ -0,0 +1,29 @@
+package uk.gov.caz.psr.model;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Value;
+import uk.gov.caz.psr.model.info.EntrantPaymentMatchInfo;
+
+/**
+ * A single page of payment-info results fetched with the keyset (cursor-based) pagination.
+ */
+@Value
+@Builder
+public class PaymentInfoSlice {
+
+  /**
+   * Entrant payments that belong to this page.
+   */
+  List<EntrantPaymentMatchInfo> content;
+
+  /**
+   * The cursor pointing to the next page, null if this is the last page.
+   */
+  PaymentInfoCursor nextCursor;
+
+  /**
+   * The total number of pages, null if the client has not asked for it.
+   */
+  Integer totalPages;
+}
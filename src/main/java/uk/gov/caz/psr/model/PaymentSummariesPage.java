@@ -0,0 +1,24 @@
+package uk.gov.caz.psr.model;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * A page of {@link PaymentSummary} objects along with the total number of payments.
+ */
+@Value
+@Builder
+public class PaymentSummariesPage {
+
+  /**
+   * Payment summaries on the page.
+   */
+  List<PaymentSummary> paymentSummaries;
+
+  /**
+   * The total number of payments, null if it could not be computed with the page (i.e. the page is
+   * empty).
+   */
+  Integer totalPaymentsCount;
+}
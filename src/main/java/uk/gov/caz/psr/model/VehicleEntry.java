@@ -0,0 +1,22 @@
+package uk.gov.caz.psr.model;
+
+import java.time.LocalDate;
+import lombok.Value;
+
+/**
+ * Identifies a single entry of a vehicle into a Clean Air Zone, i.e. a pair of VRN and the date
+ * on which the vehicle entered the zone.
+ */
+@Value
+public class VehicleEntry {
+
+  /**
+   * Vehicle registration number.
+   */
+  String vrn;
+
+  /**
+   * The date of vehicle entrance to the Clean Air Zone.
+   */
+  LocalDate dateOfCazEntry;
+}
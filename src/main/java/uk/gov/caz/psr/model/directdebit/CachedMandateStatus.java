@@ -0,0 +1,31 @@
+package uk.gov.caz.psr.model.directdebit;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.Builder;
+import lombok.Value;
+import uk.gov.caz.psr.dto.AccountDirectDebitMandatesResponse.DirectDebitMandate.DirectDebitMandateStatus;
+
+/**
+ * Value class representing the latest known status of a direct debit mandate along with the
+ * account and Clean Air Zone the mandate belongs to.
+ */
+@Value
+@Builder(toBuilder = true)
+public class CachedMandateStatus {
+
+  String paymentProviderMandateId;
+  UUID accountId;
+  UUID cleanAirZoneId;
+
+  /**
+   * The status of the mandate, {@code null} if not known yet.
+   */
+  DirectDebitMandateStatus status;
+
+  /**
+   * The time at which {@code status} was known to be up to date, {@code null} if the status is
+   * not known yet.
+   */
+  LocalDateTime statusTimestamp;
+}
@@ -0,0 +1,37 @@
+package uk.gov.caz.psr.model.generatecsv;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Format of the file to which payment history is exported.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum CsvExportFormat {
+  /**
+   * Uncompressed csv.
+   */
+  CSV("csv", null),
+  /**
+   * Csv compressed with gzip.
+   */
+  CSV_GZIP("csv.gz", "gzip");
+
+  /**
+   * Extension of the file name, without the leading dot.
+   */
+  private final String fileExtension;
+
+  /**
+   * Value of {@code Content-Encoding} of the file or {@code null} if the content is not encoded.
+   */
+  private final String contentEncoding;
+
+  /**
+   * Returns whether the content is compressed.
+   */
+  public boolean isCompressed() {
+    return contentEncoding != null;
+  }
+}
@@ -0,0 +1,65 @@
+package uk.gov.caz.psr.model.generatecsv;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * A high-water mark of the payment history exported for a set of users of an account. It lets the
+ * next export of the same users reuse the exported file.
+ */
+@Value
+@Builder(toBuilder = true)
+public class PaymentsHistoryExportMark {
+
+  /**
+   * An identifier of the account.
+   */
+  UUID accountId;
+
+  /**
+   * Sorted list of account user ids whose payment history has been exported.
+   */
+  List<UUID> accountUserIds;
+
+  /**
+   * Name of the exported file in S3.
+   */
+  String fileName;
+
+  /**
+   * Submission timestamp of the newest exported payment, null if no payment has been exported.
+   */
+  LocalDateTime lastPaymentSubmittedTimestamp;
+
+  /**
+   * Identifier of the newest exported payment, null if no payment has been exported.
+   */
+  UUID lastPaymentId;
+
+  /**
+   * Whether the exported file contains the columns of statuses set by Local Authorities.
+   */
+  boolean localAuthorityColumns;
+
+  /**
+   * A hash of the payer and Clean Air Zone names used in the exported file.
+   */
+  String enrichmentDataHash;
+
+  /**
+   * Database timestamp taken before the exported payments were queried.
+   */
+  LocalDateTime exportedTimestamp;
+
+  /**
+   * Checks whether any payment has been exported.
+   *
+   * @return true if any payment has been exported.
+   */
+  public boolean hasLastPayment() {
+    return lastPaymentId != null;
+  }
+}
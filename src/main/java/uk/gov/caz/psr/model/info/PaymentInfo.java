@@ -55,4 +55,7 @@ public class PaymentInfo {
 
   @Column(name = "telephone_payment")
   private boolean telephonePayment;
+
+  @Column(name = "clean_air_zone_id")
+  private UUID cleanAirZoneId;
 }
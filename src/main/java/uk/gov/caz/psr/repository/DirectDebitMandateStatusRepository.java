@@ -0,0 +1,171 @@
+package uk.gov.caz.psr.repository;
+
+import com.google.common.base.Preconditions;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import uk.gov.caz.psr.dto.AccountDirectDebitMandatesResponse.DirectDebitMandate.DirectDebitMandateStatus;
+import uk.gov.caz.psr.model.directdebit.CachedMandateStatus;
+
+/**
+ * A class which handles managing data in {@code T_DIRECT_DEBIT_MANDATE_STATUS} table.
+ */
+@Repository
+@AllArgsConstructor
+public class DirectDebitMandateStatusRepository {
+
+  private static final String ALL_ATTRIBUTES = "payment_provider_mandate_id, account_id, "
+      + "clean_air_zone_id, status, status_timestamp ";
+
+  static final String SELECT_BY_MANDATE_IDS_SQL = "SELECT " + ALL_ATTRIBUTES
+      + "FROM caz_payment.t_direct_debit_mandate_status "
+      + "WHERE payment_provider_mandate_id = ANY(?)";
+
+  static final String UPSERT_SQL = "INSERT INTO caz_payment.t_direct_debit_mandate_status "
+      + "(" + ALL_ATTRIBUTES + ") "
+      + "VALUES (?, ?, ?, ?, ?) "
+      + "ON CONFLICT (payment_provider_mandate_id) DO UPDATE SET "
+      + "account_id = EXCLUDED.account_id, "
+      + "clean_air_zone_id = EXCLUDED.clean_air_zone_id, "
+      + "status = COALESCE(EXCLUDED.status, t_direct_debit_mandate_status.status), "
+      + "status_timestamp = COALESCE(EXCLUDED.status_timestamp, "
+      + "t_direct_debit_mandate_status.status_timestamp)";
+
+  static final String UPDATE_STATUSES_SQL = "UPDATE caz_payment.t_direct_debit_mandate_status s "
+      + "SET status = u.status, status_timestamp = u.status_timestamp "
+      + "FROM unnest(?, ?, ?) AS u(payment_provider_mandate_id, status, status_timestamp) "
+      + "WHERE s.payment_provider_mandate_id = u.payment_provider_mandate_id "
+      + "AND s.clean_air_zone_id = ? "
+      + "AND (s.status_timestamp IS NULL OR s.status_timestamp < u.status_timestamp) "
+      + "RETURNING s.payment_provider_mandate_id, s.account_id, s.clean_air_zone_id, s.status, "
+      + "s.status_timestamp";
+
+  private static final RowMapper<CachedMandateStatus> ROW_MAPPER = new CachedMandateStatusMapper();
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Finds the cached statuses of mandates identified by {@code paymentProviderMandateIds}.
+   *
+   * @param paymentProviderMandateIds Identifiers of mandates in GoCardless.
+   * @return A map from a mandate identifier to its cached status. Mandates which are not cached
+   *     are absent in the map.
+   * @throws NullPointerException if {@code paymentProviderMandateIds} is null
+   */
+  public Map<String, CachedMandateStatus> findByMandateIds(
+      Collection<String> paymentProviderMandateIds) {
+    Preconditions.checkNotNull(paymentProviderMandateIds,
+        "paymentProviderMandateIds cannot be null");
+    Map<String, CachedMandateStatus> result = new HashMap<>();
+    if (paymentProviderMandateIds.isEmpty()) {
+      return result;
+    }
+
+    jdbcTemplate.query(connection -> {
+      PreparedStatement preparedStatement = connection.prepareStatement(SELECT_BY_MANDATE_IDS_SQL);
+      preparedStatement.setArray(1,
+          connection.createArrayOf("varchar", paymentProviderMandateIds.toArray()));
+      return preparedStatement;
+    }, (RowCallbackHandler) resultSet -> {
+      CachedMandateStatus status = ROW_MAPPER.mapRow(resultSet, resultSet.getRow());
+      result.put(status.getPaymentProviderMandateId(), status);
+    });
+    return result;
+  }
+
+  /**
+   * Inserts or updates {@code statuses}. A {@code null} status of an already existing mandate
+   * does not overwrite its known status.
+   *
+   * @param statuses Statuses of mandates to be saved.
+   * @throws NullPointerException if {@code statuses} is null
+   */
+  public void upsert(List<CachedMandateStatus> statuses) {
+    Preconditions.checkNotNull(statuses, "statuses cannot be null");
+    if (statuses.isEmpty()) {
+      return;
+    }
+
+    jdbcTemplate.batchUpdate(UPSERT_SQL, statuses, statuses.size(),
+        (preparedStatement, status) -> {
+          preparedStatement.setString(1, status.getPaymentProviderMandateId());
+          preparedStatement.setObject(2, status.getAccountId());
+          preparedStatement.setObject(3, status.getCleanAirZoneId());
+          preparedStatement.setString(4,
+              status.getStatus() == null ? null : status.getStatus().name());
+          preparedStatement.setTimestamp(5, status.getStatusTimestamp() == null ? null
+              : Timestamp.valueOf(status.getStatusTimestamp()));
+        });
+  }
+
+  /**
+   * Updates statuses of the known mandates of the given Clean Air Zone with a single statement.
+   * A status is updated only if it is older than the new one, so that a delayed or redelivered
+   * status change does not overwrite a more recent one.
+   *
+   * @param cleanAirZoneId Identifier of the Clean Air Zone the mandates belong to.
+   * @param statuses New statuses of mandates along with the time at which they were changed.
+   * @return The updated statuses. Mandates which are not known or whose known status is not
+   *     older than the new one are absent in the result.
+   * @throws NullPointerException if any of the arguments is null
+   */
+  public List<CachedMandateStatus> updateStatuses(UUID cleanAirZoneId,
+      List<CachedMandateStatus> statuses) {
+    Preconditions.checkNotNull(cleanAirZoneId, "cleanAirZoneId cannot be null");
+    Preconditions.checkNotNull(statuses, "statuses cannot be null");
+    if (statuses.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    List<String> mandateIds = new ArrayList<>(statuses.size());
+    List<String> mandateStatuses = new ArrayList<>(statuses.size());
+    List<Timestamp> statusTimestamps = new ArrayList<>(statuses.size());
+    for (CachedMandateStatus status : statuses) {
+      mandateIds.add(status.getPaymentProviderMandateId());
+      mandateStatuses.add(status.getStatus().name());
+      statusTimestamps.add(Timestamp.valueOf(status.getStatusTimestamp()));
+    }
+    return jdbcTemplate.query(connection -> {
+      PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_STATUSES_SQL);
+      preparedStatement.setArray(1, connection.createArrayOf("varchar", mandateIds.toArray()));
+      preparedStatement.setArray(2,
+          connection.createArrayOf("varchar", mandateStatuses.toArray()));
+      preparedStatement.setArray(3,
+          connection.createArrayOf("timestamp", statusTimestamps.toArray()));
+      preparedStatement.setObject(4, cleanAirZoneId);
+      return preparedStatement;
+    }, ROW_MAPPER);
+  }
+
+  /**
+   * A class which maps the results obtained from the database to instances of {@link
+   * CachedMandateStatus} class.
+   */
+  private static class CachedMandateStatusMapper implements RowMapper<CachedMandateStatus> {
+
+    @Override
+    public CachedMandateStatus mapRow(ResultSet resultSet, int i) throws SQLException {
+      String status = resultSet.getString("status");
+      Timestamp statusTimestamp = resultSet.getTimestamp("status_timestamp");
+      return CachedMandateStatus.builder()
+          .paymentProviderMandateId(resultSet.getString("payment_provider_mandate_id"))
+          .accountId(UUID.fromString(resultSet.getString("account_id")))
+          .cleanAirZoneId(UUID.fromString(resultSet.getString("clean_air_zone_id")))
+          .status(status == null ? null : DirectDebitMandateStatus.valueOf(status))
+          .statusTimestamp(statusTimestamp == null ? null : statusTimestamp.toLocalDateTime())
+          .build();
+    }
+  }
+}
@@ -1,9 +1,18 @@
 package uk.gov.caz.psr.repository;
 
 import com.google.common.base.Preconditions;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.jdbc.support.KeyHolder;
@@ -33,6 +42,17 @@ public class EntrantPaymentMatchRepository {
       + "SET latest = false "
       + "WHERE clean_air_zone_entrant_payment_id = ?";
 
+  private static final String UPDATE_LATEST_TO_FALSE_FOR_ALL_SQL = "UPDATE "
+      + "CAZ_PAYMENT.T_CLEAN_AIR_ZONE_ENTRANT_PAYMENT_MATCH "
+      + "SET latest = false "
+      + "WHERE clean_air_zone_entrant_payment_id = ANY (?)";
+
+  private static final String INSERT_ALL_SQL = "INSERT INTO "
+      + "CAZ_PAYMENT.T_CLEAN_AIR_ZONE_ENTRANT_PAYMENT_MATCH ("
+      + Columns.ENTRANT_PAYMENT_ID + ", " + Columns.PAYMENT_ID + ", " + Columns.LATEST + ") "
+      + "SELECT * FROM unnest(?::uuid[], ?::uuid[], ?::boolean[]) "
+      + "RETURNING " + Columns.ID + ", " + Columns.ENTRANT_PAYMENT_ID + ", " + Columns.PAYMENT_ID;
+
   private final SimpleJdbcInsert simpleJdbcInsert;
   private final JdbcTemplate jdbcTemplate;
 
@@ -63,6 +83,45 @@ public class EntrantPaymentMatchRepository {
         .build();
   }
 
+  /**
+   * Inserts {@code entrantPaymentMatches} into the database with a single statement.
+   *
+   * @return {@code entrantPaymentMatches} with their identifiers set, in the same order.
+   */
+  public List<EntrantPaymentMatch> insert(List<EntrantPaymentMatch> entrantPaymentMatches) {
+    Preconditions.checkNotNull(entrantPaymentMatches, "'entrantPaymentMatches' cannot be null");
+    Preconditions.checkArgument(entrantPaymentMatches.stream()
+            .allMatch(entrantPaymentMatch -> entrantPaymentMatch.getId() == null),
+        "'entrantPaymentMatch' cannot have ID");
+    if (entrantPaymentMatches.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    Map<List<UUID>, UUID> insertedIds = new HashMap<>();
+    jdbcTemplate.query(connection -> {
+      PreparedStatement preparedStatement = connection.prepareStatement(INSERT_ALL_SQL);
+      preparedStatement.setArray(1, connection.createArrayOf("uuid", entrantPaymentMatches
+          .stream().map(EntrantPaymentMatch::getVehicleEntrantPaymentId).toArray()));
+      preparedStatement.setArray(2, connection.createArrayOf("uuid", entrantPaymentMatches
+          .stream().map(EntrantPaymentMatch::getPaymentId).toArray()));
+      preparedStatement.setArray(3, connection.createArrayOf("bool", entrantPaymentMatches
+          .stream().map(EntrantPaymentMatch::isLatest).toArray()));
+      return preparedStatement;
+    }, (RowCallbackHandler) resultSet -> insertedIds.put(
+        Arrays.asList(UUID.fromString(resultSet.getString(Columns.ENTRANT_PAYMENT_ID)),
+            UUID.fromString(resultSet.getString(Columns.PAYMENT_ID))),
+        UUID.fromString(resultSet.getString(Columns.ID))));
+    log.info("Inserted {} row(s) into T_CLEAN_AIR_ZONE_ENTRANT_PAYMENT_MATCH table",
+        insertedIds.size());
+
+    return entrantPaymentMatches.stream()
+        .map(entrantPaymentMatch -> entrantPaymentMatch.toBuilder()
+            .id(insertedIds.get(Arrays.asList(entrantPaymentMatch.getVehicleEntrantPaymentId(),
+                entrantPaymentMatch.getPaymentId())))
+            .build())
+        .collect(Collectors.toList());
+  }
+
   /**
    * Sets {@code false} in 'latest' column for rows with {@code clean_air_zone_entrant_payment_id}
    * equal to {@code entrantPaymentId}.
@@ -74,6 +133,27 @@ public class EntrantPaymentMatchRepository {
         + "to false", cnt);
   }
 
+  /**
+   * Sets {@code false} in 'latest' column for rows with {@code clean_air_zone_entrant_payment_id}
+   * equal to any of {@code entrantPaymentIds} with a single statement.
+   */
+  public void updateLatestToFalseFor(Collection<UUID> entrantPaymentIds) {
+    Preconditions.checkNotNull(entrantPaymentIds, "'entrantPaymentIds' cannot be null");
+    if (entrantPaymentIds.isEmpty()) {
+      return;
+    }
+
+    int cnt = jdbcTemplate.update(connection -> {
+      PreparedStatement preparedStatement = connection.prepareStatement(
+          UPDATE_LATEST_TO_FALSE_FOR_ALL_SQL);
+      preparedStatement.setArray(1, connection.createArrayOf("uuid",
+          entrantPaymentIds.toArray()));
+      return preparedStatement;
+    });
+    log.info("For {} row(s) in T_CLEAN_AIR_ZONE_ENTRANT_PAYMENT_MATCH table 'latest' has been set "
+        + "to false", cnt);
+  }
+
   /**
    * Converts {@code entrantPaymentMatch} into a map of attributes which will be saved in the
    * database.
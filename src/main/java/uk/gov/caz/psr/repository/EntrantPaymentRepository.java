@@ -3,15 +3,22 @@ package uk.gov.caz.psr.repository;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
@@ -20,6 +27,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 import uk.gov.caz.psr.model.EntrantPayment;
+import uk.gov.caz.psr.model.EntrantPaymentKey;
 import uk.gov.caz.psr.model.EntrantPaymentUpdateActor;
 import uk.gov.caz.psr.model.InternalPaymentStatus;
 import uk.gov.caz.psr.repository.exception.NotUniqueVehicleEntrantPaymentFoundException;
@@ -106,22 +114,85 @@ public class EntrantPaymentRepository {
       + "update_timestamp = CURRENT_TIMESTAMP "
       + "WHERE " + EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ENTRANT_PAYMENT_ID + " = ?";
 
-  private static final String FIND_ALL_PAID_BY_VRN_DATE_RANGE_AND_CAZ_ID =
+  private static final String FIND_ALL_PAID_BY_VRNS_DATE_RANGE_AND_CAZ_ID =
       selectAllColumns() + " WHERE "
           + EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ID + " = ? AND "
-          + EntrantPaymentColumns.COL_VRN + " = ? AND "
+          + EntrantPaymentColumns.COL_VRN + " = ANY(?) AND "
           + EntrantPaymentColumns.COL_TRAVEL_DATE + " BETWEEN ? AND ? AND "
           + EntrantPaymentColumns.COL_PAYMENT_STATUS + " = "
           + "\'" + InternalPaymentStatus.PAID.toString() + "\'";
 
+  private static final String ENTRANT_PAYMENT_KEYS =
+      "unnest(?::uuid[], ?::varchar[], ?::date[]) AS entrant_key(clean_air_zone_id, vrn, "
+          + "travel_date) ";
+
+  private static final String SELECT_BY_KEYS_SQL =
+      selectAllColumns()
+          + "INNER JOIN " + ENTRANT_PAYMENT_KEYS
+          + "ON ep." + EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ID + " = entrant_key."
+          + EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ID
+          + " AND ep." + EntrantPaymentColumns.COL_VRN + " = entrant_key."
+          + EntrantPaymentColumns.COL_VRN
+          + " AND ep." + EntrantPaymentColumns.COL_TRAVEL_DATE + " = entrant_key."
+          + EntrantPaymentColumns.COL_TRAVEL_DATE;
+
+  private static final String INSERT_IF_NOT_EXISTS_SQL =
+      "INSERT INTO caz_payment.t_clean_air_zone_entrant_payment ("
+          + EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ID + ", "
+          + EntrantPaymentColumns.COL_VRN + ", "
+          + EntrantPaymentColumns.COL_TRAVEL_DATE + ", "
+          + EntrantPaymentColumns.COL_PAYMENT_STATUS + ", "
+          + EntrantPaymentColumns.COL_UPDATE_ACTOR + ", "
+          + EntrantPaymentColumns.COL_VEHICLE_ENTRANT_CAPTURED + ") "
+          + "SELECT entrant_key.clean_air_zone_id, entrant_key.vrn, entrant_key.travel_date, "
+          + "?, ?, ? FROM " + ENTRANT_PAYMENT_KEYS
+          + "ON CONFLICT (" + EntrantPaymentColumns.COL_TRAVEL_DATE + ", "
+          + EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ID + ", "
+          + EntrantPaymentColumns.COL_VRN + ") DO NOTHING";
+
+  private static final String MARK_AS_VEHICLE_ENTRANT_CAPTURED_SQL =
+      "UPDATE caz_payment.t_clean_air_zone_entrant_payment ep "
+          + "SET " + EntrantPaymentColumns.COL_VEHICLE_ENTRANT_CAPTURED + " = true, "
+          + EntrantPaymentColumns.COL_UPDATE_ACTOR + " = ?, "
+          + "update_timestamp = CURRENT_TIMESTAMP "
+          + "FROM " + ENTRANT_PAYMENT_KEYS
+          + "WHERE ep." + EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ID + " = entrant_key."
+          + EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ID
+          + " AND ep." + EntrantPaymentColumns.COL_VRN + " = entrant_key."
+          + EntrantPaymentColumns.COL_VRN
+          + " AND ep." + EntrantPaymentColumns.COL_TRAVEL_DATE + " = entrant_key."
+          + EntrantPaymentColumns.COL_TRAVEL_DATE
+          + " AND ep." + EntrantPaymentColumns.COL_VEHICLE_ENTRANT_CAPTURED + " IS FALSE";
+
+  private static final String INSERT_ALL_SQL =
+      "INSERT INTO caz_payment.t_clean_air_zone_entrant_payment ("
+          + EntrantPaymentColumns.COL_VRN + ", "
+          + EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ID + ", "
+          + EntrantPaymentColumns.COL_TRAVEL_DATE + ", "
+          + EntrantPaymentColumns.COL_TARIFF_CODE + ", "
+          + EntrantPaymentColumns.COL_CHARGE + ", "
+          + EntrantPaymentColumns.COL_PAYMENT_STATUS + ", "
+          + EntrantPaymentColumns.COL_UPDATE_ACTOR + ", "
+          + EntrantPaymentColumns.COL_VEHICLE_ENTRANT_CAPTURED + ") "
+          + "SELECT * FROM unnest(?::varchar[], ?::uuid[], ?::date[], ?::varchar[], ?::int[], "
+          + "?::varchar[], ?::varchar[], ?::boolean[]) "
+          + "RETURNING " + EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ENTRANT_PAYMENT_ID + ", "
+          + EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ID + ", "
+          + EntrantPaymentColumns.COL_VRN + ", "
+          + EntrantPaymentColumns.COL_TRAVEL_DATE;
+
+  private static final int UPDATE_BATCH_SIZE = 500;
+
   private final JdbcTemplate jdbcTemplate;
   private final SimpleJdbcInsert simpleJdbcInsert;
+  private final PaidDaysIndex paidDaysIndex;
 
   /**
    * Creates a new instance of this class.
    */
-  public EntrantPaymentRepository(JdbcTemplate jdbcTemplate) {
+  public EntrantPaymentRepository(JdbcTemplate jdbcTemplate, PaidDaysIndex paidDaysIndex) {
     this.jdbcTemplate = jdbcTemplate;
+    this.paidDaysIndex = paidDaysIndex;
     this.simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
         .withSchemaName("caz_payment")
         .withTableName("t_clean_air_zone_entrant_payment")
@@ -139,27 +210,68 @@ public class EntrantPaymentRepository {
   }
 
   /**
-   * Inserts the passed {@code entrantPayments} into the database.
+   * Inserts the passed {@code entrantPayments} into the database with a single statement.
    *
    * @param entrantPayments A list of {@link EntrantPayment} instances.
-   * @return A list of {@link EntrantPayment} with their internal identifiers set.
+   * @return A list of {@link EntrantPayment} with their internal identifiers set, in the same
+   *     order as {@code entrantPayments}.
    * @throws NullPointerException     if {@code vehicleEntrantPayments} is null.
    * @throws IllegalArgumentException if {@code vehicleEntrantPayments} is empty.
    * @throws IllegalArgumentException if {@code vehicleEntrantPayments} contains at least one object
-   *                                  whose payment id is null.
+   *                                  whose entrant payment id is not null.
    */
-  @Transactional
   public List<EntrantPayment> insert(List<EntrantPayment> entrantPayments) {
     Preconditions.checkNotNull(entrantPayments, "Entrant payments cannot be null");
     Preconditions.checkArgument(!entrantPayments.isEmpty(), "Entrant payments "
         + "cannot be empty");
+    Preconditions.checkArgument(entrantPayments.stream()
+            .allMatch(entrantPayment -> entrantPayment.getCleanAirZoneEntrantPaymentId() == null),
+        "Entrant payment cannot have non-null ID");
 
-    List<EntrantPayment> result = new ArrayList<>(entrantPayments.size());
-    for (EntrantPayment entrantPayment : entrantPayments) {
-      EntrantPayment insertedEntrantPayment = insert(entrantPayment);
-      result.add(insertedEntrantPayment);
-    }
-    return result;
+    Map<EntrantPaymentKey, UUID> insertedIds = new HashMap<>();
+    jdbcTemplate.query(connection -> {
+      PreparedStatement preparedStatement = connection.prepareStatement(INSERT_ALL_SQL);
+      setInsertParameters(preparedStatement, entrantPayments);
+      return preparedStatement;
+    }, (RowCallbackHandler) resultSet -> insertedIds.put(
+        new EntrantPaymentKey(
+            UUID.fromString(resultSet.getString(EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ID)),
+            resultSet.getString(EntrantPaymentColumns.COL_VRN),
+            LocalDate.parse(resultSet.getString(EntrantPaymentColumns.COL_TRAVEL_DATE))),
+        UUID.fromString(
+            resultSet.getString(EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ENTRANT_PAYMENT_ID))));
+    paidDaysIndex.update(entrantPayments);
+
+    return entrantPayments.stream()
+        .map(entrantPayment -> entrantPayment.toBuilder()
+            .cleanAirZoneEntrantPaymentId(
+                insertedIds.get(EntrantPaymentKey.from(entrantPayment)))
+            .build())
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Binds attributes of {@code entrantPayments} as parallel arrays to {@link #INSERT_ALL_SQL}.
+   */
+  private static void setInsertParameters(PreparedStatement preparedStatement,
+      List<EntrantPayment> entrantPayments) throws SQLException {
+    Connection connection = preparedStatement.getConnection();
+    preparedStatement.setArray(1, connection.createArrayOf("varchar",
+        entrantPayments.stream().map(EntrantPayment::getVrn).toArray()));
+    preparedStatement.setArray(2, connection.createArrayOf("uuid",
+        entrantPayments.stream().map(EntrantPayment::getCleanAirZoneId).toArray()));
+    preparedStatement.setArray(3, connection.createArrayOf("date",
+        entrantPayments.stream().map(EntrantPayment::getTravelDate).toArray()));
+    preparedStatement.setArray(4, connection.createArrayOf("varchar",
+        entrantPayments.stream().map(EntrantPayment::getTariffCode).toArray()));
+    preparedStatement.setArray(5, connection.createArrayOf("int4",
+        entrantPayments.stream().map(EntrantPayment::getCharge).toArray()));
+    preparedStatement.setArray(6, connection.createArrayOf("varchar", entrantPayments.stream()
+        .map(entrantPayment -> entrantPayment.getInternalPaymentStatus().name()).toArray()));
+    preparedStatement.setArray(7, connection.createArrayOf("varchar", entrantPayments.stream()
+        .map(entrantPayment -> entrantPayment.getUpdateActor().name()).toArray()));
+    preparedStatement.setArray(8, connection.createArrayOf("bool",
+        entrantPayments.stream().map(EntrantPayment::isVehicleEntrantCaptured).toArray()));
   }
 
   /**
@@ -178,6 +290,7 @@ public class EntrantPaymentRepository {
     KeyHolder keyHolder = simpleJdbcInsert.executeAndReturnKeyHolder(
         toSqlParameters(entrantPayment));
     UUID id = (UUID) keyHolder.getKeys().get("clean_air_zone_entrant_payment_id");
+    paidDaysIndex.update(Collections.singletonList(entrantPayment));
     return entrantPayment.toBuilder()
         .cleanAirZoneEntrantPaymentId(id)
         .build();
@@ -202,7 +315,9 @@ public class EntrantPaymentRepository {
   }
 
   /**
-   * Updates the database with the passed {@link EntrantPayment} instances.
+   * Updates the database with the passed {@link EntrantPayment} instances. Updates are sent to the
+   * database in JDBC batches. Paid days of the vehicles are updated in {@link PaidDaysIndex} once
+   * the transaction commits.
    *
    * @param entrantPayments A list of {@link EntrantPayment} which are to be updated in the
    *     database.
@@ -211,14 +326,18 @@ public class EntrantPaymentRepository {
   @Transactional
   public void update(List<EntrantPayment> entrantPayments) {
     Preconditions.checkNotNull(entrantPayments, "Entrant payments cannot be null");
-
-    for (EntrantPayment entrantPayment : entrantPayments) {
-      update(entrantPayment);
+    if (entrantPayments.isEmpty()) {
+      return;
     }
+
+    jdbcTemplate.batchUpdate(UPDATE_SQL, entrantPayments, UPDATE_BATCH_SIZE,
+        EntrantPaymentRepository::setUpdateParameters);
+    paidDaysIndex.update(entrantPayments);
   }
 
   /**
-   * Updates the database with the passed {@link EntrantPayment} instance.
+   * Updates the database with the passed {@link EntrantPayment} instance and its paid day in
+   * {@link PaidDaysIndex}.
    *
    * @param entrantPayment An instance of {@link EntrantPayment} which is to be updated in the
    *     database.
@@ -227,16 +346,23 @@ public class EntrantPaymentRepository {
   public void update(EntrantPayment entrantPayment) {
     Preconditions.checkNotNull(entrantPayment, "Entrant payments cannot be null");
 
-    jdbcTemplate.update(UPDATE_SQL, preparedStatementSetter -> {
-      preparedStatementSetter.setString(1, entrantPayment.getInternalPaymentStatus()
-          .name());
-      preparedStatementSetter.setString(2, entrantPayment.getCaseReference());
-      preparedStatementSetter.setString(3, entrantPayment.getUpdateActor().name());
-      preparedStatementSetter.setString(4, entrantPayment.getTariffCode());
-      preparedStatementSetter.setBoolean(5, entrantPayment.isVehicleEntrantCaptured());
-      preparedStatementSetter.setInt(6, entrantPayment.getCharge());
-      preparedStatementSetter.setObject(7, entrantPayment.getCleanAirZoneEntrantPaymentId());
-    });
+    jdbcTemplate.update(UPDATE_SQL,
+        preparedStatement -> setUpdateParameters(preparedStatement, entrantPayment));
+    paidDaysIndex.update(Collections.singletonList(entrantPayment));
+  }
+
+  /**
+   * Binds attributes of {@code entrantPayment} to {@link #UPDATE_SQL}.
+   */
+  private static void setUpdateParameters(PreparedStatement preparedStatement,
+      EntrantPayment entrantPayment) throws SQLException {
+    preparedStatement.setString(1, entrantPayment.getInternalPaymentStatus().name());
+    preparedStatement.setString(2, entrantPayment.getCaseReference());
+    preparedStatement.setString(3, entrantPayment.getUpdateActor().name());
+    preparedStatement.setString(4, entrantPayment.getTariffCode());
+    preparedStatement.setBoolean(5, entrantPayment.isVehicleEntrantCaptured());
+    preparedStatement.setInt(6, entrantPayment.getCharge());
+    preparedStatement.setObject(7, entrantPayment.getCleanAirZoneEntrantPaymentId());
   }
 
   /**
@@ -295,6 +421,102 @@ public class EntrantPaymentRepository {
     return Optional.of(results.iterator().next());
   }
 
+  /**
+   * Inserts a new, captured {@link EntrantPayment} with the passed {@code internalPaymentStatus}
+   * and {@code updateActor} for every key from {@code keys} which does not exist in the database
+   * yet. Existing records are left intact. All records are inserted with a single statement.
+   *
+   * @param keys A collection of {@link EntrantPaymentKey} for which records are to be created.
+   * @param internalPaymentStatus The status of newly created records.
+   * @param updateActor The actor of newly created records.
+   * @return The number of inserted records.
+   * @throws NullPointerException if any of the arguments is null.
+   */
+  public int insertCapturedIfNotExist(Collection<EntrantPaymentKey> keys,
+      InternalPaymentStatus internalPaymentStatus, EntrantPaymentUpdateActor updateActor) {
+    Preconditions.checkNotNull(keys, "keys cannot be null");
+    Preconditions.checkNotNull(internalPaymentStatus, "internalPaymentStatus cannot be null");
+    Preconditions.checkNotNull(updateActor, "updateActor cannot be null");
+    if (keys.isEmpty()) {
+      return 0;
+    }
+
+    return jdbcTemplate.update(connection -> {
+      PreparedStatement preparedStatement = connection.prepareStatement(
+          INSERT_IF_NOT_EXISTS_SQL);
+      preparedStatement.setString(1, internalPaymentStatus.name());
+      preparedStatement.setString(2, updateActor.name());
+      preparedStatement.setBoolean(3, true);
+      setKeys(preparedStatement, 4, keys);
+      return preparedStatement;
+    });
+  }
+
+  /**
+   * Sets {@code vehicle_entrant_captured} flag and the passed {@code updateActor} on all records
+   * identified by {@code keys} which have not been captured yet. All records are updated with a
+   * single statement.
+   *
+   * @param keys A collection of {@link EntrantPaymentKey} of records which are to be updated.
+   * @param updateActor The actor of the update.
+   * @return The number of updated records.
+   * @throws NullPointerException if any of the arguments is null.
+   */
+  public int markAsVehicleEntrantCaptured(Collection<EntrantPaymentKey> keys,
+      EntrantPaymentUpdateActor updateActor) {
+    Preconditions.checkNotNull(keys, "keys cannot be null");
+    Preconditions.checkNotNull(updateActor, "updateActor cannot be null");
+    if (keys.isEmpty()) {
+      return 0;
+    }
+
+    return jdbcTemplate.update(connection -> {
+      PreparedStatement preparedStatement = connection.prepareStatement(
+          MARK_AS_VEHICLE_ENTRANT_CAPTURED_SQL);
+      preparedStatement.setString(1, updateActor.name());
+      setKeys(preparedStatement, 2, keys);
+      return preparedStatement;
+    });
+  }
+
+  /**
+   * Finds all {@link EntrantPayment} entities identified by the passed {@code keys} with a single
+   * query. Keys which do not match any record are omitted in the result.
+   *
+   * @param keys A collection of {@link EntrantPaymentKey}.
+   * @return A list of matching {@link EntrantPayment} entities.
+   * @throws NullPointerException if {@code keys} is null.
+   */
+  public List<EntrantPayment> findAllByKeys(Collection<EntrantPaymentKey> keys) {
+    Preconditions.checkNotNull(keys, "keys cannot be null");
+    if (keys.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    return jdbcTemplate.query(connection -> {
+      PreparedStatement preparedStatement = connection.prepareStatement(SELECT_BY_KEYS_SQL);
+      setKeys(preparedStatement, 1, keys);
+      return preparedStatement;
+    }, ROW_MAPPER);
+  }
+
+  /**
+   * Binds {@code keys} as three parallel arrays (caz ids, vrns and travel dates) starting from the
+   * parameter at {@code firstParameterIndex}.
+   */
+  private static void setKeys(PreparedStatement preparedStatement, int firstParameterIndex,
+      Collection<EntrantPaymentKey> keys) throws SQLException {
+    Object[] cleanAirZoneIds = keys.stream().map(EntrantPaymentKey::getCleanAirZoneId).toArray();
+    Object[] vrns = keys.stream().map(EntrantPaymentKey::getVrn).toArray();
+    Object[] travelDates = keys.stream().map(EntrantPaymentKey::getTravelDate).toArray();
+    Connection connection = preparedStatement.getConnection();
+    preparedStatement.setArray(firstParameterIndex,
+        connection.createArrayOf("uuid", cleanAirZoneIds));
+    preparedStatement.setArray(firstParameterIndex + 1, connection.createArrayOf("varchar", vrns));
+    preparedStatement.setArray(firstParameterIndex + 2,
+        connection.createArrayOf("date", travelDates));
+  }
+
   /**
    * Finds number of instances of a VRN in the EntrantPayment table.
    *
@@ -338,30 +560,36 @@ public class EntrantPaymentRepository {
   }
 
   /**
-   * Finds collection of paid {@link EntrantPayment} for a specific vrn, cazId and date range. If no
-   * element is found empty collection is returned.
+   * Finds paid {@link EntrantPayment}s of all {@code vrns} in the given CAZ and date range with a
+   * single query. VRNs are bound as one array parameter, hence the query does not change with the
+   * number of VRNs.
    *
-   * @param vrn provided VRN number
+   * @param vrns provided VRN numbers
    * @param startDate provided date from which search is done
-   * @param endDate privded date to which search is done
+   * @param endDate provided date to which search is done
    * @param cleanAirZoneId provided CAZ ID
-   * @return a list of found {@EntrantPayment}.
+   * @return a map from a VRN to the list of its paid {@link EntrantPayment}s. VRNs without any
+   *     paid entrant payment are absent in the map.
    */
-  public List<EntrantPayment> findAllPaidByVrnAndDateRangeAndCazId(String vrn, LocalDate startDate,
-      LocalDate endDate, UUID cleanAirZoneId) {
+  public Map<String, List<EntrantPayment>> findAllPaidByVrnsAndDateRangeAndCazId(
+      Collection<String> vrns, LocalDate startDate, LocalDate endDate, UUID cleanAirZoneId) {
+    Preconditions.checkNotNull(vrns, "vrns cannot be null");
     Preconditions.checkNotNull(cleanAirZoneId, "cleanAirZoneId cannot be null");
     Preconditions.checkNotNull(startDate, "startDate cannot be null");
     Preconditions.checkNotNull(endDate, "endDate cannot be null");
-    Preconditions.checkArgument(!Strings.isNullOrEmpty(vrn), "VRN cannot be empty");
+    if (vrns.isEmpty()) {
+      return new HashMap<>();
+    }
 
-    return jdbcTemplate.query(
-        FIND_ALL_PAID_BY_VRN_DATE_RANGE_AND_CAZ_ID,
-        preparedStatementSetter -> {
-          preparedStatementSetter.setObject(1, cleanAirZoneId);
-          preparedStatementSetter.setObject(2, vrn);
-          preparedStatementSetter.setObject(3, startDate);
-          preparedStatementSetter.setObject(4, endDate);
-        }, ROW_MAPPER);
+    return jdbcTemplate.query(connection -> {
+      PreparedStatement preparedStatement = connection.prepareStatement(
+          FIND_ALL_PAID_BY_VRNS_DATE_RANGE_AND_CAZ_ID);
+      preparedStatement.setObject(1, cleanAirZoneId);
+      preparedStatement.setArray(2, connection.createArrayOf("varchar", vrns.toArray()));
+      preparedStatement.setObject(3, startDate);
+      preparedStatement.setObject(4, endDate);
+      return preparedStatement;
+    }, ROW_MAPPER).stream().collect(Collectors.groupingBy(EntrantPayment::getVrn));
   }
 
   /**
@@ -369,6 +597,25 @@ public class EntrantPaymentRepository {
    */
   static class EntrantPaymentRowMapper implements RowMapper<EntrantPayment> {
 
+    private final String cleanAirZoneIdColumn;
+
+    /**
+     * Creates a mapper of rows in which the Clean Air Zone of the entrant payment is in its own
+     * column.
+     */
+    EntrantPaymentRowMapper() {
+      this(EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ID);
+    }
+
+    /**
+     * Creates a mapper of rows in which the Clean Air Zone of the entrant payment is in the column
+     * labelled {@code cleanAirZoneIdColumn}, e.g. when joined with a table which also has a {@code
+     * clean_air_zone_id} column.
+     */
+    EntrantPaymentRowMapper(String cleanAirZoneIdColumn) {
+      this.cleanAirZoneIdColumn = cleanAirZoneIdColumn;
+    }
+
     /**
      * Maps {@link ResultSet} to {@link EntrantPayment}.
      */
@@ -380,7 +627,7 @@ public class EntrantPaymentRepository {
                   resultSet.getString(EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ENTRANT_PAYMENT_ID)))
           .vrn(resultSet.getString(EntrantPaymentColumns.COL_VRN))
           .cleanAirZoneId(
-              UUID.fromString(resultSet.getString(EntrantPaymentColumns.COL_CLEAN_AIR_ZONE_ID)))
+              UUID.fromString(resultSet.getString(cleanAirZoneIdColumn)))
           .travelDate(LocalDate.parse(resultSet.getString(EntrantPaymentColumns.COL_TRAVEL_DATE)))
           .tariffCode(resultSet.getString(EntrantPaymentColumns.COL_TARIFF_CODE))
           .charge(resultSet.getInt(EntrantPaymentColumns.COL_CHARGE))
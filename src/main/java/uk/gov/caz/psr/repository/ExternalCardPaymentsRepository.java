@@ -10,6 +10,7 @@ import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
@@ -120,6 +121,7 @@ public class ExternalCardPaymentsRepository {
     } catch (RestClientResponseException e) {
       log.error("Error while creating the payment for '{}': {}. Response body: {}", payment.getId(),
           e.getMessage(), e.getResponseBodyAsString());
+      invalidateCredentialsIfRejected(e);
       throw e;
     } catch (RestClientException e) {
       log.error("Error while creating the payment for '{}': {}", payment.getId(), e.getMessage());
@@ -129,6 +131,16 @@ public class ExternalCardPaymentsRepository {
     }
   }
 
+  /**
+   * Invalidates the cached API keys if GOV UK Pay has rejected the used one, as it might have been
+   * rotated in the meantime.
+   */
+  private void invalidateCredentialsIfRejected(RestClientResponseException e) {
+    if (e.getRawStatusCode() == HttpStatus.UNAUTHORIZED.value()) {
+      credentialRetrievalManager.invalidateCachedCredentials();
+    }
+  }
+
   /**
    * Converts a status returned from the GOV UK Pay service to {@link ExternalPaymentStatus}. If the
    * value does not match any existing one, {@link IllegalArgumentException} is rethrown.
@@ -163,6 +175,10 @@ public class ExternalCardPaymentsRepository {
     } catch (NotFound e) {
       log.error("Payment with id '{}' not found", id);
       return Optional.empty();
+    } catch (RestClientResponseException e) {
+      log.error("Error while getting the payment by id '{}'", id);
+      invalidateCredentialsIfRejected(e);
+      throw e;
     } catch (RestClientException e) {
       log.error("Error while getting the payment by id '{}'", id);
       throw e;
@@ -0,0 +1,336 @@
+package uk.gov.caz.psr.repository;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.BitFieldSubCommands;
+import org.springframework.data.redis.connection.BitFieldSubCommands.BitFieldType;
+import org.springframework.data.redis.connection.RedisStringCommands.BitOperation;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import uk.gov.caz.psr.model.EntrantPayment;
+import uk.gov.caz.psr.model.InternalPaymentStatus;
+
+/**
+ * An index of paid days of vehicles kept in Redis. There is one bitmap per Clean Air Zone and VRN,
+ * in which the bit at {@code 1 + (day - FIRST_INDEXED_DAY)} is set iff the entrant payment for
+ * that day is paid. The bit at offset 0 is set once the bitmap has been built from the database,
+ * so that a missing (or expired) bitmap is distinguished from a vehicle without paid days.
+ *
+ * <p>Keys of bitmaps contain the Clean Air Zone identifier as a hash tag, hence bitmaps of all
+ * vehicles of the given CAZ are kept on the same node of the cluster and can be read with a single
+ * pipeline. The index is a cache: every failure is logged and the database should be used
+ * instead.</p>
+ */
+@Repository
+@Slf4j
+public class PaidDaysIndex {
+
+  /**
+   * The first day which can be kept in the index.
+   */
+  public static final LocalDate FIRST_INDEXED_DAY = LocalDate.of(2020, 1, 1);
+
+  /**
+   * The last day which can be kept in the index.
+   */
+  public static final LocalDate LAST_INDEXED_DAY = FIRST_INDEXED_DAY.plusDays((1 << 16) - 2);
+
+  private static final long BUILT_MARKER_OFFSET = 0;
+  // the widest unsigned integer supported by BITFIELD
+  private static final int MAX_BITS_PER_GET = 63;
+  // a rebuilt bitmap is removed right after merging, the expiration covers a failed removal
+  private static final Expiration REBUILT_BITMAP_EXPIRATION = Expiration.seconds(60);
+
+  private final StringRedisTemplate redisTemplate;
+  private final boolean enabled;
+  private final Duration ttl;
+
+  /**
+   * Creates an instance of {@link PaidDaysIndex}.
+   */
+  @Autowired
+  public PaidDaysIndex(StringRedisTemplate redisTemplate,
+      @Value("${application.paid-days-index.enabled:false}") boolean enabled,
+      @Value("${application.paid-days-index.ttl-hours:24}") long ttlHours) {
+    this(redisTemplate, enabled, Duration.ofHours(ttlHours));
+  }
+
+  @VisibleForTesting
+  PaidDaysIndex(StringRedisTemplate redisTemplate, boolean enabled, Duration ttl) {
+    this.redisTemplate = redisTemplate;
+    this.enabled = enabled;
+    this.ttl = ttl;
+  }
+
+  /**
+   * Checks whether paid days between {@code startDate} and {@code endDate} (inclusive) can be
+   * read from the index.
+   */
+  public boolean covers(LocalDate startDate, LocalDate endDate) {
+    return enabled && !startDate.isBefore(FIRST_INDEXED_DAY) && !endDate.isAfter(LAST_INDEXED_DAY)
+        && !startDate.isAfter(endDate);
+  }
+
+  /**
+   * Reads paid days between {@code startDate} and {@code endDate} (inclusive) of {@code vrns} in
+   * the given Clean Air Zone with a single pipeline.
+   *
+   * @return A map from a VRN to the list of its paid days. VRNs which are not indexed are absent
+   *     in the map; if the index cannot be read, the map is empty.
+   */
+  public Map<String, List<LocalDate>> findPaidDays(UUID cleanAirZoneId, Collection<String> vrns,
+      LocalDate startDate, LocalDate endDate) {
+    Map<String, List<LocalDate>> result = new HashMap<>();
+    if (!covers(startDate, endDate) || vrns.isEmpty()) {
+      return result;
+    }
+    List<String> orderedVrns = new ArrayList<>(vrns);
+    BitFieldSubCommands readRange = readRangeCommand(startDate, endDate);
+    try {
+      List<Object> bitFields = redisTemplate.executePipelined(
+          (RedisCallback<Object>) connection -> {
+            for (String vrn : orderedVrns) {
+              connection.bitField(key(cleanAirZoneId, vrn), readRange);
+            }
+            return null;
+          });
+      for (int i = 0; i < orderedVrns.size(); i++) {
+        @SuppressWarnings("unchecked")
+        List<Long> values = (List<Long>) bitFields.get(i);
+        if (values != null && values.get(0) == 1) {
+          result.put(orderedVrns.get(i), toPaidDays(values, startDate, endDate));
+        }
+      }
+    } catch (DataAccessException e) {
+      log.warn("Cannot read paid days index of Clean Air Zone '{}': {}", cleanAirZoneId,
+          e.getMessage());
+      result.clear();
+    }
+    return result;
+  }
+
+  /**
+   * Merges bitmaps built from {@code paidDays}, which must contain all paid days of the vehicles
+   * read from the database, into bitmaps of {@code vrns} in the given Clean Air Zone.
+   *
+   * <p>Every rebuilt bitmap is written to a short-lived temporary key and OR-ed into the indexed
+   * one, which also sets the marker bit. Hence a bit set by {@link #update(Collection)} of a
+   * payment committed after the database was read is never lost. A bit cleared in the meantime
+   * may be set again, i.e. the index may err on the side of a paid day until the bitmap is
+   * updated or expires.</p>
+   */
+  public void rebuild(UUID cleanAirZoneId, Collection<String> vrns,
+      Map<String, List<LocalDate>> paidDays) {
+    if (!enabled || vrns.isEmpty()) {
+      return;
+    }
+    long ttlSeconds = ttl.getSeconds();
+    String rebuildId = UUID.randomUUID().toString();
+    try {
+      redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+        for (String vrn : vrns) {
+          byte[] key = key(cleanAirZoneId, vrn);
+          byte[] rebuiltKey = rebuiltKey(cleanAirZoneId, vrn, rebuildId);
+          connection.set(rebuiltKey, toBitmap(paidDays.get(vrn)), REBUILT_BITMAP_EXPIRATION,
+              SetOption.upsert());
+          connection.bitOp(BitOperation.OR, key, key, rebuiltKey);
+          connection.del(rebuiltKey);
+          connection.expire(key, ttlSeconds);
+        }
+        return null;
+      });
+    } catch (DataAccessException e) {
+      log.warn("Cannot rebuild paid days index of Clean Air Zone '{}': {}", cleanAirZoneId,
+          e.getMessage());
+    }
+  }
+
+  /**
+   * Sets or clears paid days of {@code entrantPayments} according to their statuses. If called
+   * within a transaction, the index is updated once the transaction commits.
+   */
+  public void update(Collection<EntrantPayment> entrantPayments) {
+    if (!enabled || entrantPayments.isEmpty()) {
+      return;
+    }
+    List<EntrantPayment> indexable = new ArrayList<>();
+    for (EntrantPayment entrantPayment : entrantPayments) {
+      if (isIndexable(entrantPayment.getTravelDate())) {
+        indexable.add(entrantPayment);
+      }
+    }
+    if (indexable.isEmpty()) {
+      return;
+    }
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          setPaidDays(indexable);
+        }
+      });
+    } else {
+      setPaidDays(indexable);
+    }
+  }
+
+  /**
+   * Sets bits of {@code entrantPayments} with a single pipeline. If it fails, the affected
+   * bitmaps are removed, so that they are rebuilt upon the next read.
+   */
+  private void setPaidDays(List<EntrantPayment> entrantPayments) {
+    long ttlSeconds = ttl.getSeconds();
+    try {
+      redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+        for (EntrantPayment entrantPayment : entrantPayments) {
+          byte[] key = key(entrantPayment.getCleanAirZoneId(), entrantPayment.getVrn());
+          connection.setBit(key, offsetOf(entrantPayment.getTravelDate()),
+              entrantPayment.getInternalPaymentStatus() == InternalPaymentStatus.PAID);
+          connection.expire(key, ttlSeconds);
+        }
+        return null;
+      });
+    } catch (DataAccessException e) {
+      log.warn("Cannot update paid days index, removing {} affected bitmaps: {}",
+          entrantPayments.size(), e.getMessage());
+      removeQuietly(entrantPayments);
+    }
+  }
+
+  /**
+   * Removes bitmaps of vehicles of {@code entrantPayments}, errors are only logged.
+   */
+  private void removeQuietly(List<EntrantPayment> entrantPayments) {
+    try {
+      redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+        for (EntrantPayment entrantPayment : entrantPayments) {
+          connection.del(key(entrantPayment.getCleanAirZoneId(), entrantPayment.getVrn()));
+        }
+        return null;
+      });
+    } catch (DataAccessException e) {
+      log.error("Cannot remove bitmaps from paid days index, they may be stale for up to {}",
+          ttl, e);
+    }
+  }
+
+  /**
+   * Builds BITFIELD sub-commands which read the marker bit and bits of days between {@code
+   * startDate} and {@code endDate}.
+   */
+  @VisibleForTesting
+  static BitFieldSubCommands readRangeCommand(LocalDate startDate, LocalDate endDate) {
+    BitFieldSubCommands commands = BitFieldSubCommands.create()
+        .get(BitFieldType.unsigned(1)).valueAt(BUILT_MARKER_OFFSET);
+    long offset = offsetOf(startDate);
+    long lastOffset = offsetOf(endDate);
+    while (offset <= lastOffset) {
+      int bits = (int) Math.min(MAX_BITS_PER_GET, lastOffset - offset + 1);
+      commands = commands.get(BitFieldType.unsigned(bits)).valueAt(offset);
+      offset += bits;
+    }
+    return commands;
+  }
+
+  /**
+   * Converts values returned by {@link #readRangeCommand(LocalDate, LocalDate)} to paid days.
+   */
+  @VisibleForTesting
+  static List<LocalDate> toPaidDays(List<Long> values, LocalDate startDate, LocalDate endDate) {
+    List<LocalDate> paidDays = new ArrayList<>();
+    LocalDate day = startDate;
+    for (int i = 1; i < values.size(); i++) {
+      int bits = (int) Math.min(MAX_BITS_PER_GET,
+          endDate.toEpochDay() - day.toEpochDay() + 1);
+      long value = values.get(i);
+      for (int bit = 0; bit < bits; bit++) {
+        if (((value >>> (bits - 1 - bit)) & 1) == 1) {
+          paidDays.add(day.plusDays(bit));
+        }
+      }
+      day = day.plusDays(bits);
+    }
+    return paidDays;
+  }
+
+  /**
+   * Builds a bitmap with the marker bit and bits of {@code paidDays} set.
+   */
+  @VisibleForTesting
+  static byte[] toBitmap(List<LocalDate> paidDays) {
+    long maxOffset = BUILT_MARKER_OFFSET;
+    if (paidDays != null) {
+      for (LocalDate paidDay : paidDays) {
+        if (isIndexable(paidDay)) {
+          maxOffset = Math.max(maxOffset, offsetOf(paidDay));
+        }
+      }
+    }
+    byte[] bitmap = new byte[(int) (maxOffset / 8) + 1];
+    setBit(bitmap, BUILT_MARKER_OFFSET);
+    if (paidDays != null) {
+      for (LocalDate paidDay : paidDays) {
+        if (isIndexable(paidDay)) {
+          setBit(bitmap, offsetOf(paidDay));
+        }
+      }
+    }
+    return bitmap;
+  }
+
+  /**
+   * Sets the bit at {@code offset}, counting from the most significant bit of the first byte as
+   * Redis does.
+   */
+  private static void setBit(byte[] bitmap, long offset) {
+    bitmap[(int) (offset / 8)] |= (byte) (0x80 >>> (offset % 8));
+  }
+
+  /**
+   * Checks whether {@code day} can be kept in the index.
+   */
+  private static boolean isIndexable(LocalDate day) {
+    return !day.isBefore(FIRST_INDEXED_DAY) && !day.isAfter(LAST_INDEXED_DAY);
+  }
+
+  /**
+   * Gets the offset of the bit of {@code day}.
+   */
+  private static long offsetOf(LocalDate day) {
+    return 1 + day.toEpochDay() - FIRST_INDEXED_DAY.toEpochDay();
+  }
+
+  /**
+   * Gets the key of the bitmap of {@code vrn} in the given Clean Air Zone.
+   */
+  private static byte[] key(UUID cleanAirZoneId, String vrn) {
+    return ("paid-days:{" + cleanAirZoneId + "}:" + vrn).getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Gets the temporary key of the bitmap of {@code vrn} in the given Clean Air Zone rebuilt by
+   * the rebuild identified by {@code rebuildId}. It shares the hash tag with the indexed key, as
+   * both are used by a single BITOP.
+   */
+  private static byte[] rebuiltKey(UUID cleanAirZoneId, String vrn, String rebuildId) {
+    return ("paid-days-rebuilt:{" + cleanAirZoneId + "}:" + vrn + ":" + rebuildId)
+        .getBytes(StandardCharsets.UTF_8);
+  }
+}
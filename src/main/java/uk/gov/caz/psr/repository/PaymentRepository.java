@@ -1,12 +1,20 @@
 package uk.gov.caz.psr.repository;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
@@ -15,6 +23,7 @@ import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
@@ -37,8 +46,13 @@ public class PaymentRepository {
   private static final PaymentFindByIdMapper PAYMENT_ROW_MAPPER =
       new PaymentFindByIdMapper(Collections.emptyList());
 
-  private static final RowMapper<UUID> PAYMENT_ID_MAPPER = (rs, i) -> UUID
-      .fromString(rs.getString(1));
+  /**
+   * The lowest possible identifier, used to fetch the first chunk of dangling payments.
+   */
+  private static final UUID FIRST_PAYMENT_ID = new UUID(0, 0);
+
+  private static final PaymentWithEntrantPaymentsExtractor PAYMENT_WITH_ENTRANT_PAYMENTS_EXTRACTOR =
+      new PaymentWithEntrantPaymentsExtractor();
 
   private final JdbcTemplate jdbcTemplate;
   private final SimpleJdbcInsert simpleJdbcInsert;
@@ -62,6 +76,7 @@ public class PaymentRepository {
     private static final String PAYMENT_SUBMITTED_TIMESTAMP = "payment_submitted_timestamp";
     private static final String PAYMENT_AUTHORISED_TIMESTAMP = "payment_authorised_timestamp";
     private static final String EMAIL_CONFIRMATION_SENT = "email_confirmation_sent";
+    private static final String CLEAN_AIR_ZONE_ID = "clean_air_zone_id";
   }
 
   /**
@@ -79,7 +94,7 @@ public class PaymentRepository {
         .usingGeneratedKeyColumns(Columns.PAYMENT_ID, Columns.REFERENCE_NUMBER)
         .usingColumns(Columns.PAYMENT_METHOD, Columns.TOTAL_PAID, Columns.PAYMENT_PROVIDER_STATUS,
             Columns.USER_ID, Columns.PAYMENT_MANDATE_PROVIDER_ID, Columns.TELEPHONE_PAYMENT,
-            Columns.OPERATOR_ID);
+            Columns.OPERATOR_ID, Columns.CLEAN_AIR_ZONE_ID);
     this.entrantPaymentRepository = entrantPaymentRepository;
   }
 
@@ -143,7 +158,8 @@ public class PaymentRepository {
   }
 
   /**
-   * Finds a given payment by its internal identifier passed as {@code id}.
+   * Finds a given payment by its internal identifier passed as {@code id}. The payment and its
+   * entrant payments are fetched with a single query.
    *
    * @param id An internal identifier of the payment.
    * @return An instance of {@link Payment} class wrapped in {@link Optional} if the payment is
@@ -153,39 +169,78 @@ public class PaymentRepository {
   public Optional<Payment> findById(UUID id) {
     Preconditions.checkNotNull(id, "ID cannot be null");
 
-    List<EntrantPayment> entrantPayments =
-        entrantPaymentRepository.findByPaymentId(id);
-    List<Payment> results = jdbcTemplate.query(Sql.SELECT_BY_ID,
-        preparedStatement -> preparedStatement.setObject(1, id),
-        new PaymentFindByIdMapper(entrantPayments));
-    if (results.isEmpty()) {
-      return Optional.empty();
+    return Optional.ofNullable(findByIds(Collections.singletonList(id)).get(id));
+  }
+
+  /**
+   * Finds payments by their internal identifiers passed as {@code ids}. The payments and their
+   * entrant payments are fetched with a single query.
+   *
+   * @param ids A collection of internal identifiers of payments.
+   * @return A map from an internal identifier to the found {@link Payment} with its entrant
+   *     payments. Payments which are not found are absent in the map.
+   * @throws NullPointerException if {@code ids} is null
+   */
+  public Map<UUID, Payment> findByIds(Collection<UUID> ids) {
+    Preconditions.checkNotNull(ids, "IDs cannot be null");
+    if (ids.isEmpty()) {
+      return Collections.emptyMap();
     }
-    Payment payment = results.iterator().next();
 
-    return Optional.of(payment);
+    return jdbcTemplate.query(connection -> {
+      PreparedStatement preparedStatement = connection.prepareStatement(
+          Sql.SELECT_WITH_ENTRANT_PAYMENTS_BY_IDS);
+      preparedStatement.setArray(1, connection.createArrayOf("uuid", ids.toArray()));
+      return preparedStatement;
+    }, PAYMENT_WITH_ENTRANT_PAYMENTS_EXTRACTOR);
   }
 
   /**
-   * Finds a given payment by central reference number passed as {@code referenceNumber}.
+   * Finds a given payment by its identifier in the payment provider passed as {@code externalId}.
+   * The payment and its entrant payments are fetched with a single query.
+   *
+   * @param externalId An identifier of the payment in the payment provider.
+   * @return An instance of {@link Payment} class with its entrant payments wrapped in {@link
+   *     Optional} if the payment is found, {@link Optional#empty()} otherwise.
+   * @throws IllegalArgumentException if {@code externalId} is null or empty
+   */
+  public Optional<Payment> findByExternalId(String externalId) {
+    Preconditions.checkArgument(!Strings.isNullOrEmpty(externalId),
+        "externalId cannot be null or empty");
+
+    Map<UUID, Payment> payments = jdbcTemplate.query(
+        Sql.SELECT_WITH_ENTRANT_PAYMENTS_BY_EXTERNAL_ID,
+        preparedStatement -> preparedStatement.setString(1, externalId),
+        PAYMENT_WITH_ENTRANT_PAYMENTS_EXTRACTOR);
+    if (payments.size() > 1) {
+      throw new IllegalStateException("Found more than one payment with external id = "
+          + externalId);
+    }
+    return payments.values().stream().findFirst();
+  }
+
+  /**
+   * Finds a given payment by central reference number passed as {@code referenceNumber}. The
+   * payment and its entrant payments are fetched with a single query.
    *
    * @param referenceNumber central reference number.
-   * @return An instance of {@link Payment} class wrapped in {@link Optional} if the payment is
-   *     found, {@link Optional#empty()} otherwise.
+   * @return An instance of {@link Payment} class wrapped in {@link Optional}.
    * @throws NullPointerException if {@code referenceNumber} is null
+   * @throws ReferenceNumberNotFound if the payment is not found
    */
   public Optional<Payment> findByReferenceNumber(Long referenceNumber) {
     Preconditions.checkNotNull(referenceNumber, "referenceNumber cannot be null");
 
-    UUID paymentId = jdbcTemplate.query(Sql.SELECT_PAYMENT_ID_BY_REFERENCE_NUMBER,
-        rs -> rs.next() ? PAYMENT_ID_MAPPER.mapRow(rs, 1) : null,
-        referenceNumber);
+    Map<UUID, Payment> payments = jdbcTemplate.query(
+        Sql.SELECT_WITH_ENTRANT_PAYMENTS_BY_REFERENCE_NUMBER,
+        preparedStatement -> preparedStatement.setLong(1, referenceNumber),
+        PAYMENT_WITH_ENTRANT_PAYMENTS_EXTRACTOR);
 
-    if (paymentId == null) {
+    if (payments.isEmpty()) {
       throw new ReferenceNumberNotFound();
     }
 
-    return findById(paymentId);
+    return payments.values().stream().findFirst();
   }
 
   /**
@@ -210,25 +265,151 @@ public class PaymentRepository {
   }
 
   /**
-   * Finds all unfinished payments done in GOV UK Pay service.
+   * Finds the latest {@link Payment}s associated with the {@link EntrantPayment}s identified by
+   * {@code entrantPaymentIds} with a single query.
+   *
+   * @param entrantPaymentIds A collection of entrant payment identifiers.
+   * @return A map from an entrant payment identifier to its latest {@link Payment}. Entrant
+   *     payments without any payment are absent in the map.
+   * @throws NullPointerException if {@code entrantPaymentIds} is null.
+   * @throws IllegalStateException if more than one payment is found for an entrant payment.
+   */
+  public Map<UUID, Payment> findByEntrantPayments(Collection<UUID> entrantPaymentIds) {
+    Preconditions.checkNotNull(entrantPaymentIds, "entrantPaymentIds cannot be null");
+    Map<UUID, Payment> result = new HashMap<>();
+    if (entrantPaymentIds.isEmpty()) {
+      return result;
+    }
+
+    jdbcTemplate.query(connection -> {
+          PreparedStatement preparedStatement = connection.prepareStatement(
+              Sql.FIND_BY_ENTRANT_PAYMENT_IDS_SQL);
+          preparedStatement.setArray(1,
+              connection.createArrayOf("uuid", entrantPaymentIds.toArray()));
+          return preparedStatement;
+        },
+        resultSet -> {
+          UUID entrantPaymentId = UUID.fromString(
+              resultSet.getString("clean_air_zone_entrant_payment_id"));
+          Payment previous = result.put(entrantPaymentId,
+              PAYMENT_ROW_MAPPER.mapRow(resultSet, resultSet.getRow()));
+          if (previous != null) {
+            throw new IllegalStateException("Found more than one payments for entrant payment id = "
+                + entrantPaymentId);
+          }
+        }
+    );
+    return result;
+  }
+
+  /**
+   * Finds the first chunk of unfinished payments done in GOV UK Pay service whose status is due to
+   * be checked.
+   *
+   * @param dueBefore Time at or before which the next status check of a payment must be scheduled
+   *     for the payment to be returned.
+   * @param limit The maximum number of returned payments.
+   * @return A list of {@link Payment} which were done in GOV UK Pay service, but were not finished,
+   *     with their Clean Air Zone identifiers set, ordered by their identifiers.
+   */
+  public List<Payment> findDanglingPayments(LocalDateTime dueBefore, int limit) {
+    return findDanglingPayments(dueBefore, FIRST_PAYMENT_ID, limit);
+  }
+
+  /**
+   * Finds the next chunk of unfinished payments done in GOV UK Pay service whose status is due to
+   * be checked.
    *
-   * @return A list of {@link Payment} which were done in GOV UK Pay service, but were not finished.
+   * @param dueBefore Time at or before which the next status check of a payment must be scheduled
+   *     for the payment to be returned.
+   * @param afterPaymentId The identifier of the last payment of the previous chunk.
+   * @param limit The maximum number of returned payments.
+   * @return A list of {@link Payment} which were done in GOV UK Pay service, but were not finished,
+   *     with their Clean Air Zone identifiers set, ordered by their identifiers.
+   * @throws NullPointerException if {@code dueBefore} or {@code afterPaymentId} is null
+   * @throws IllegalArgumentException if {@code limit} is not positive
    */
-  public List<Payment> findDanglingPayments() {
-    return jdbcTemplate.query(Sql.SELECT_DANGLING_PAYMENTS, (PreparedStatementSetter) null,
+  public List<Payment> findDanglingPayments(LocalDateTime dueBefore, UUID afterPaymentId,
+      int limit) {
+    Preconditions.checkNotNull(dueBefore, "dueBefore cannot be null");
+    Preconditions.checkNotNull(afterPaymentId, "afterPaymentId cannot be null");
+    Preconditions.checkArgument(limit > 0, "limit must be positive");
+
+    return jdbcTemplate.query(Sql.SELECT_DANGLING_PAYMENTS,
+        preparedStatement -> {
+          preparedStatement.setTimestamp(1, Timestamp.valueOf(dueBefore));
+          preparedStatement.setObject(2, afterPaymentId);
+          preparedStatement.setInt(3, limit);
+        },
         PAYMENT_ROW_MAPPER);
   }
 
   /**
-   * Sets {@code payment.confirmationEmailSent} to true.
+   * Records an attempt to check the status of the payment identified by {@code paymentId} and
+   * schedules the next one with an exponential backoff: the n-th subsequent check happens {@code
+   * initialDelay * 2^n} after now, but not later than {@code maxDelay} after now.
+   *
+   * @param paymentId Identifier of the payment.
+   * @param initialDelay Delay of the check following the first attempt.
+   * @param maxDelay The maximum delay of the next check.
+   * @throws NullPointerException if any of the arguments is null
+   */
+  public void scheduleNextStatusCheck(UUID paymentId, Duration initialDelay, Duration maxDelay) {
+    Preconditions.checkNotNull(paymentId, "paymentId cannot be null");
+    Preconditions.checkNotNull(initialDelay, "initialDelay cannot be null");
+    Preconditions.checkNotNull(maxDelay, "maxDelay cannot be null");
+
+    jdbcTemplate.update(Sql.SCHEDULE_NEXT_STATUS_CHECK, preparedStatementSetter -> {
+      preparedStatementSetter.setLong(1, initialDelay.getSeconds());
+      preparedStatementSetter.setLong(2, maxDelay.getSeconds());
+      preparedStatementSetter.setObject(3, paymentId);
+    });
+  }
+
+  /**
+   * Sets {@code payment.confirmationEmailSent} to true unless it is already set. The update locks
+   * the row, so when the payment is processed concurrently (e.g. by a webhook and the status
+   * poller) only one of the callers marks it.
    *
    * @param paymentId Identifier of the payment.
+   * @return true if the flag has been set by this call, false if it had already been set.
    */
-  public void markSentConfirmationEmail(UUID paymentId) {
+  public boolean markSentConfirmationEmail(UUID paymentId) {
     Preconditions.checkNotNull(paymentId, "paymentId cannot be null");
 
-    jdbcTemplate.update(Sql.SET_EMAIL_CONFIRMATION_SENT, preparedStatementSetter -> {
+    return jdbcTemplate.update(Sql.SET_EMAIL_CONFIRMATION_SENT, preparedStatementSetter -> {
       preparedStatementSetter.setObject(1, paymentId);
+    }) > 0;
+  }
+
+  /**
+   * Sets {@code payment.confirmationEmailSent} back to false, e.g. when the email could not be
+   * sent after the payment has been marked.
+   *
+   * @param paymentId Identifier of the payment.
+   */
+  public void unmarkSentConfirmationEmail(UUID paymentId) {
+    Preconditions.checkNotNull(paymentId, "paymentId cannot be null");
+
+    jdbcTemplate.update(Sql.UNSET_EMAIL_CONFIRMATION_SENT, preparedStatementSetter -> {
+      preparedStatementSetter.setObject(1, paymentId);
+    });
+  }
+
+  /**
+   * Increases the number of entrant payments matched with the payment, i.e. {@code
+   * entries_count}, by {@code count}. It is stored on the payment so that listings and exports do
+   * not need to count the matches of each payment.
+   *
+   * @param paymentId Identifier of the payment.
+   * @param count The number of newly matched entrant payments.
+   */
+  public void increaseEntriesCount(UUID paymentId, int count) {
+    Preconditions.checkNotNull(paymentId, "paymentId cannot be null");
+
+    jdbcTemplate.update(Sql.INCREASE_ENTRIES_COUNT, preparedStatementSetter -> {
+      preparedStatementSetter.setInt(1, count);
+      preparedStatementSetter.setObject(2, paymentId);
     });
   }
 
@@ -244,7 +425,8 @@ public class PaymentRepository {
         .addValue(Columns.PAYMENT_METHOD, payment.getPaymentMethod().name())
         .addValue(Columns.USER_ID, payment.getUserId())
         .addValue(Columns.OPERATOR_ID, payment.getOperatorId())
-        .addValue(Columns.PAYMENT_MANDATE_PROVIDER_ID, payment.getPaymentProviderMandateId());
+        .addValue(Columns.PAYMENT_MANDATE_PROVIDER_ID, payment.getPaymentProviderMandateId())
+        .addValue(Columns.CLEAN_AIR_ZONE_ID, payment.getCleanAirZoneId());
   }
 
   /**
@@ -265,7 +447,8 @@ public class PaymentRepository {
         + "payment.operator_id, "
         + "payment.payment_provider_mandate_id, "
         + "payment.payment_provider_id, "
-        + "payment.email_confirmation_sent "
+        + "payment.email_confirmation_sent, "
+        + "payment.clean_air_zone_id "
         + "FROM caz_payment.t_clean_air_zone_entrant_payment entrant_payment "
         + "INNER JOIN caz_payment.t_clean_air_zone_entrant_payment_match entrant_payment_match "
         + "ON entrant_payment.clean_air_zone_entrant_payment_id = "
@@ -275,6 +458,28 @@ public class PaymentRepository {
         + "ON entrant_payment_match.payment_id = payment.payment_id "
         + "WHERE entrant_payment.clean_air_zone_entrant_payment_id = ?";
 
+    static final String FIND_BY_ENTRANT_PAYMENT_IDS_SQL = "SELECT "
+        + "entrant_payment_match.clean_air_zone_entrant_payment_id, "
+        + "payment.payment_id, "
+        + "payment.payment_method, "
+        + "payment.total_paid, "
+        + "payment.telephone_payment, "
+        + "payment.payment_submitted_timestamp, "
+        + "payment.payment_authorised_timestamp, "
+        + "payment.payment_provider_status, "
+        + "payment.central_reference_number, "
+        + "payment.user_id, "
+        + "payment.operator_id, "
+        + "payment.payment_provider_mandate_id, "
+        + "payment.payment_provider_id, "
+        + "payment.email_confirmation_sent, "
+        + "payment.clean_air_zone_id "
+        + "FROM caz_payment.t_clean_air_zone_entrant_payment_match entrant_payment_match "
+        + "INNER JOIN caz_payment.t_payment payment "
+        + "ON entrant_payment_match.payment_id = payment.payment_id "
+        + "WHERE entrant_payment_match.clean_air_zone_entrant_payment_id = ANY (?) "
+        + "AND entrant_payment_match.latest IS TRUE";
+
     static final String UPDATE = "UPDATE caz_payment.t_payment "
         + "SET payment_provider_id = ?, "
         + "payment_submitted_timestamp = ?, "
@@ -285,6 +490,15 @@ public class PaymentRepository {
 
     static final String SET_EMAIL_CONFIRMATION_SENT = "UPDATE caz_payment.t_payment "
         + "SET email_confirmation_sent = true "
+        + "WHERE payment_id = ? "
+        + "AND email_confirmation_sent = false";
+
+    static final String UNSET_EMAIL_CONFIRMATION_SENT = "UPDATE caz_payment.t_payment "
+        + "SET email_confirmation_sent = false "
+        + "WHERE payment_id = ?";
+
+    static final String INCREASE_ENTRIES_COUNT = "UPDATE caz_payment.t_payment "
+        + "SET entries_count = entries_count + ? "
         + "WHERE payment_id = ?";
 
     private static final String ALL_PAYMENT_ATTRIBUTES =
@@ -292,25 +506,108 @@ public class PaymentRepository {
             + " total_paid, payment_provider_status, user_id, operator_id,"
             + " payment_provider_mandate_id, payment_submitted_timestamp, "
             + " payment_authorised_timestamp, telephone_payment,"
-            + " email_confirmation_sent ";
+            + " email_confirmation_sent, clean_air_zone_id ";
 
     static final String SELECT_DANGLING_PAYMENTS =
-        "SELECT " + ALL_PAYMENT_ATTRIBUTES + "FROM caz_payment.t_payment " + "WHERE "
+        "SELECT " + ALL_PAYMENT_ATTRIBUTES
+            + "FROM caz_payment.t_payment " + "WHERE "
             // only GOV UK Pay payment
             + "payment_provider_id IS NOT NULL "
-            // only the one which is submitted more than 90 minutes ago; if
-            // payment_submitted_timestamp
-            // is NULL, the record is not included
-            + "AND payment_submitted_timestamp + INTERVAL '90 minutes' < NOW() "
             // only the one whose status is not 'final'
-            + "AND payment_provider_status NOT IN ('SUCCESS', 'FAILED', 'CANCELLED', 'ERROR')";
+            + "AND payment_provider_status NOT IN ('SUCCESS', 'FAILED', 'CANCELLED', 'ERROR') "
+            // only the one whose status check is due; the first check is scheduled 90 minutes
+            // after the payment is submitted, if payment_submitted_timestamp is NULL, the record
+            // is not included
+            + "AND next_status_check_timestamp <= ? "
+            + "AND payment_id > ? "
+            + "ORDER BY payment_id "
+            + "LIMIT ?";
+
+    static final String SCHEDULE_NEXT_STATUS_CHECK = "UPDATE caz_payment.t_payment "
+        + "SET next_status_check_timestamp = NOW() "
+        + "+ LEAST(? * POWER(2, status_check_attempts), ?) * INTERVAL '1 second', "
+        + "status_check_attempts = status_check_attempts + 1 "
+        + "WHERE payment_id = ?";
 
-    static final String SELECT_BY_ID =
-        "SELECT " + ALL_PAYMENT_ATTRIBUTES + "FROM caz_payment.t_payment " + "WHERE payment_id = ?";
+    // 'clean_air_zone_id' of the payment may be null (e.g. for payments made before it was
+    // added), hence entrant payments are mapped from their own column under a separate alias
+    static final String ENTRANT_PAYMENT_CLEAN_AIR_ZONE_ID = "entrant_payment_clean_air_zone_id";
 
-    static final String SELECT_PAYMENT_ID_BY_REFERENCE_NUMBER =
-        "SELECT payment_id FROM caz_payment.t_payment WHERE central_reference_number = ?";
+    private static final String SELECT_WITH_ENTRANT_PAYMENTS = "SELECT "
+        + "payment.payment_id, "
+        + "payment.payment_method, "
+        + "payment.payment_provider_id, "
+        + "payment.central_reference_number, "
+        + "payment.total_paid, "
+        + "payment.payment_provider_status, "
+        + "payment.user_id, "
+        + "payment.operator_id, "
+        + "payment.payment_provider_mandate_id, "
+        + "payment.payment_submitted_timestamp, "
+        + "payment.payment_authorised_timestamp, "
+        + "payment.telephone_payment, "
+        + "payment.email_confirmation_sent, "
+        + "payment.clean_air_zone_id, "
+        + "entrant_payment.clean_air_zone_entrant_payment_id, "
+        + "entrant_payment.clean_air_zone_id AS " + ENTRANT_PAYMENT_CLEAN_AIR_ZONE_ID + ", "
+        + "entrant_payment.vrn, "
+        + "entrant_payment.travel_date, "
+        + "entrant_payment.tariff_code, "
+        + "entrant_payment.charge, "
+        + "entrant_payment.payment_status, "
+        + "entrant_payment.update_actor, "
+        + "entrant_payment.vehicle_entrant_captured, "
+        + "entrant_payment.case_reference "
+        + "FROM caz_payment.t_payment payment "
+        + "LEFT JOIN caz_payment.t_clean_air_zone_entrant_payment_match entrant_payment_match "
+        + "ON entrant_payment_match.payment_id = payment.payment_id "
+        + "LEFT JOIN caz_payment.t_clean_air_zone_entrant_payment entrant_payment "
+        + "ON entrant_payment.clean_air_zone_entrant_payment_id = "
+        + "entrant_payment_match.clean_air_zone_entrant_payment_id ";
+
+    static final String SELECT_WITH_ENTRANT_PAYMENTS_BY_IDS = SELECT_WITH_ENTRANT_PAYMENTS
+        + "WHERE payment.payment_id = ANY (?)";
+
+    static final String SELECT_WITH_ENTRANT_PAYMENTS_BY_EXTERNAL_ID = SELECT_WITH_ENTRANT_PAYMENTS
+        + "WHERE payment.payment_provider_id = ?";
+
+    static final String SELECT_WITH_ENTRANT_PAYMENTS_BY_REFERENCE_NUMBER =
+        SELECT_WITH_ENTRANT_PAYMENTS + "WHERE payment.central_reference_number = ?";
+
+  }
 
+  /**
+   * A class which maps the rows of payments joined with their entrant payments to instances of
+   * {@link Payment} class with their entrant payments set, in a single pass over the results.
+   */
+  private static class PaymentWithEntrantPaymentsExtractor implements
+      ResultSetExtractor<Map<UUID, Payment>> {
+
+    private static final EntrantPaymentRepository.EntrantPaymentRowMapper
+        ENTRANT_PAYMENT_ROW_MAPPER = new EntrantPaymentRepository.EntrantPaymentRowMapper(
+            Sql.ENTRANT_PAYMENT_CLEAN_AIR_ZONE_ID);
+
+    @Override
+    public Map<UUID, Payment> extractData(ResultSet resultSet) throws SQLException {
+      Map<UUID, Payment> payments = new LinkedHashMap<>();
+      Map<UUID, List<EntrantPayment>> entrantPayments = new HashMap<>();
+      while (resultSet.next()) {
+        UUID paymentId = UUID.fromString(resultSet.getString(Columns.PAYMENT_ID));
+        if (!payments.containsKey(paymentId)) {
+          payments.put(paymentId, PAYMENT_ROW_MAPPER.mapRow(resultSet, resultSet.getRow()));
+          entrantPayments.put(paymentId, new ArrayList<>());
+        }
+        // payments without any entrant payment have a single row with nulls of entrant payment
+        if (resultSet.getString("clean_air_zone_entrant_payment_id") != null) {
+          entrantPayments.get(paymentId)
+              .add(ENTRANT_PAYMENT_ROW_MAPPER.mapRow(resultSet, resultSet.getRow()));
+        }
+      }
+      payments.replaceAll((paymentId, payment) -> payment.toBuilder()
+          .entrantPayments(entrantPayments.get(paymentId))
+          .build());
+      return payments;
+    }
   }
 
   /**
@@ -343,6 +640,7 @@ public class PaymentRepository {
           .paymentProviderMandateId(resultSet.getString(Columns.PAYMENT_MANDATE_PROVIDER_ID))
           .telephonePayment(resultSet.getBoolean(Columns.TELEPHONE_PAYMENT))
           .emailConfirmationSent(resultSet.getBoolean(Columns.EMAIL_CONFIRMATION_SENT))
+          .cleanAirZoneId(nullIfAbsentOrUuidFrom(resultSet.getString(Columns.CLEAN_AIR_ZONE_ID)))
           .entrantPayments(entrantPayments)
           .build();
     }
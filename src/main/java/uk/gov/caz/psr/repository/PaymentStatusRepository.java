@@ -1,10 +1,14 @@
 package uk.gov.caz.psr.repository;
 
 import com.google.common.base.Preconditions;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -14,6 +18,7 @@ import uk.gov.caz.psr.model.EntrantPaymentUpdateActor;
 import uk.gov.caz.psr.model.InternalPaymentStatus;
 import uk.gov.caz.psr.model.PaymentMethod;
 import uk.gov.caz.psr.model.PaymentStatus;
+import uk.gov.caz.psr.model.VehicleEntry;
 
 @Repository
 @AllArgsConstructor
@@ -24,6 +29,11 @@ public class PaymentStatusRepository {
   private static final PaymentStatusRowMapper ROW_MAPPER =
       new PaymentStatusRowMapper();
 
+  private static final String EXCLUDE_NOT_CAPTURED_WITH_FAILED_PAYMENT_CONDITION =
+      "(entrant_payment.vehicle_entrant_captured is true OR "
+      + "entrant_payment.update_actor != '" + EntrantPaymentUpdateActor.USER.name() + "' OR "
+      + "entrant_payment.payment_status != 'NOT_PAID')";
+
   static final String SELECT_BY_ENTRY_DATE_AND_VRN_AND_CAZ_ID_SQL = "SELECT "
       + "entrant_payment.payment_status, "
       + "entrant_payment.case_reference, "
@@ -43,9 +53,31 @@ public class PaymentStatusRepository {
       + "entrant_payment.vrn = ? AND "
       + "entrant_payment.travel_date = ? AND "
       // exclude not captured with failed payment records.
-      + "(entrant_payment.vehicle_entrant_captured is true OR "
-      + "entrant_payment.update_actor != '" + EntrantPaymentUpdateActor.USER.name() + "' OR "
-      + "entrant_payment.payment_status != 'NOT_PAID')";
+      + EXCLUDE_NOT_CAPTURED_WITH_FAILED_PAYMENT_CONDITION;
+
+  static final String SELECT_BY_ENTRY_DATES_AND_VRNS_AND_CAZ_ID_SQL = "SELECT "
+      + "entrant_payment.vrn, "
+      + "entrant_payment.travel_date, "
+      + "entrant_payment.payment_status, "
+      + "entrant_payment.case_reference, "
+      + "payment.payment_provider_id, "
+      + "payment.central_reference_number, "
+      + "payment.payment_method, "
+      + "payment.payment_provider_mandate_id, "
+      + "payment.telephone_payment "
+      + "FROM unnest(?::varchar[], ?::date[]) AS vehicle_entry(vrn, travel_date) "
+      + "INNER JOIN caz_payment.t_clean_air_zone_entrant_payment entrant_payment "
+      + "ON entrant_payment.vrn = vehicle_entry.vrn "
+      + "AND entrant_payment.travel_date = vehicle_entry.travel_date "
+      + "LEFT OUTER JOIN caz_payment.t_clean_air_zone_entrant_payment_match entrant_payment_match "
+      + "ON entrant_payment.clean_air_zone_entrant_payment_id = "
+      + "entrant_payment_match.clean_air_zone_entrant_payment_id "
+      + "AND entrant_payment_match.latest = true "
+      + "LEFT OUTER JOIN caz_payment.t_payment payment "
+      + "ON entrant_payment_match.payment_id = payment.payment_id "
+      + "WHERE entrant_payment.clean_air_zone_id = ? AND "
+      // exclude not captured with failed payment records.
+      + EXCLUDE_NOT_CAPTURED_WITH_FAILED_PAYMENT_CONDITION;
 
   /**
    * Finds collection of matching records in join table. To represent the found records we are
@@ -73,6 +105,47 @@ public class PaymentStatusRepository {
     );
   }
 
+  /**
+   * Finds payment statuses of all passed vehicle entries in the given clean air zone in a single
+   * query. Vehicle entries for which there are no matching records are absent from the returned
+   * map.
+   *
+   * @param cazId provided clean air zone ID
+   * @param vehicleEntries collection of pairs of VRN and date of vehicle entrance to clean air
+   *     zone
+   * @return A map of the found payment status for every matched vehicle entry.
+   */
+  public Map<VehicleEntry, PaymentStatus> findByCazIdAndVehicleEntries(UUID cazId,
+      Collection<VehicleEntry> vehicleEntries) {
+    Preconditions.checkNotNull(cazId, "CAZ ID cannot be null");
+    Preconditions.checkNotNull(vehicleEntries, "vehicleEntries cannot be null");
+
+    if (vehicleEntries.isEmpty()) {
+      return Collections.emptyMap();
+    }
+
+    Object[] vrns = vehicleEntries.stream().map(VehicleEntry::getVrn).toArray();
+    Object[] datesOfCazEntry = vehicleEntries.stream().map(VehicleEntry::getDateOfCazEntry)
+        .toArray();
+    Map<VehicleEntry, PaymentStatus> result = new HashMap<>();
+    jdbcTemplate.query(connection -> {
+          PreparedStatement preparedStatement = connection.prepareStatement(
+              SELECT_BY_ENTRY_DATES_AND_VRNS_AND_CAZ_ID_SQL);
+          preparedStatement.setArray(1, connection.createArrayOf("varchar", vrns));
+          preparedStatement.setArray(2, connection.createArrayOf("date", datesOfCazEntry));
+          preparedStatement.setObject(3, cazId);
+          return preparedStatement;
+        },
+        resultSet -> {
+          VehicleEntry vehicleEntry = new VehicleEntry(resultSet.getString("vrn"),
+              resultSet.getDate("travel_date").toLocalDate());
+          // keep the first record in the same way as the single payment status lookup does
+          result.putIfAbsent(vehicleEntry, ROW_MAPPER.mapRow(resultSet, resultSet.getRow()));
+        }
+    );
+    return result;
+  }
+
   /**
    * A class which maps the results obtained from the database to instances of {@link PaymentStatus}
    * class.
@@ -4,12 +4,15 @@ import com.google.common.base.Preconditions;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import uk.gov.caz.psr.model.PaymentSummariesPage;
 import uk.gov.caz.psr.model.PaymentSummary;
 
 /**
@@ -22,50 +25,123 @@ public class PaymentSummaryRepository {
   private final JdbcTemplate jdbcTemplate;
   private static final PaymentSummaryMapper ROW_MAPPER = new PaymentSummaryMapper();
 
-  private static final String SELECT_PAGINATED_PAYMENTS_SUMMARIES = "SELECT "
-      + "t_payment.payment_id, "
-      + "t_payment.total_paid, "
-      + "t_payment.user_id as payer_id, "
-      + "t_payment.insert_timestamp as payment_date, "
-      + "(SELECT COUNT(*) FROM caz_payment.t_clean_air_zone_entrant_payment_match "
-      + "WHERE t_payment.payment_id = t_clean_air_zone_entrant_payment_match.payment_id) "
-      + "AS entries_count "
+  private static final String SELECT_PAYMENT_SUMMARIES_PAGE_TEMPLATE = "SELECT payment_id, "
+      + "total_paid, "
+      + "user_id AS payer_id, "
+      + "insert_timestamp AS payment_date, "
+      + "clean_air_zone_id, "
+      + "entries_count, "
+      + "COUNT(*) OVER () AS matching_payments_count "
       + "FROM caz_payment.t_payment "
       + "WHERE user_id = ANY (?) "
       + "AND payment_provider_status = 'SUCCESS' "
-      + "ORDER BY t_payment.insert_timestamp DESC "
+      + "%s"
+      + "ORDER BY insert_timestamp DESC, payment_id DESC "
       + "LIMIT ? "
       + "OFFSET ?";
 
+  private static final String SELECT_PAYMENT_SUMMARIES_PAGE = String.format(
+      SELECT_PAYMENT_SUMMARIES_PAGE_TEMPLATE, "");
+
+  private static final String SELECT_PAYMENT_SUMMARIES_PAGE_AFTER_PAYMENT = String.format(
+      SELECT_PAYMENT_SUMMARIES_PAGE_TEMPLATE,
+      "AND (insert_timestamp, payment_id) < "
+          + "(SELECT insert_timestamp, payment_id FROM caz_payment.t_payment "
+          + "WHERE payment_id = ?) ");
+
+  private static final String SELECT_SUCCESSFUL_PAYMENT_OF_USER_IDS_EXISTS = "SELECT EXISTS ("
+      + "SELECT 1 FROM caz_payment.t_payment "
+      + "WHERE payment_id = ? "
+      + "AND user_id = ANY (?) "
+      + "AND payment_provider_status = 'SUCCESS')";
+
   private static final String SELECT_PAYMENT_SUMMARIES_COUNT_FOR_USER_IDS = "SELECT count(*) "
       + "FROM caz_payment.t_payment "
       + "WHERE user_id = ANY (?) "
       + "AND payment_provider_status = 'SUCCESS'";
 
   /**
-   * Method responsible for fetching paginated payments data for the provided users.
+   * Method responsible for fetching a page of payments data for the provided users with a single
+   * query. Payments are ordered from the latest one. If {@code lastPaymentId} is provided, the
+   * page is found by the keyset of that payment, otherwise by the offset of {@code pageNumber}.
+   * The total number of payments is computed by the same query unless the page is empty.
    *
    * @param userIds List of the user ids.
+   * @param lastPaymentId ID of the last payment on page {@code pageNumber - 1}, may be null.
    * @param pageNumber page number
    * @param pageSize page size
-   * @return List of {@link PaymentSummary}.
+   * @return {@link PaymentSummariesPage}.
    */
-  public List<PaymentSummary> getPaginatedPaymentSummaryForUserIds(List<UUID> userIds,
+  public PaymentSummariesPage getPaymentSummariesPage(List<UUID> userIds, UUID lastPaymentId,
       int pageNumber, int pageSize) {
     Preconditions.checkNotNull(userIds, "userIds cannot be null.");
 
-    return jdbcTemplate.query(connection -> {
+    List<Integer> matchingPaymentsCounts = new ArrayList<>(1);
+    List<PaymentSummary> paymentSummaries = jdbcTemplate.query(connection -> {
+      PreparedStatement preparedStatement = connection.prepareStatement(lastPaymentId == null
+          ? SELECT_PAYMENT_SUMMARIES_PAGE
+          : SELECT_PAYMENT_SUMMARIES_PAGE_AFTER_PAYMENT);
+      int index = 1;
+      preparedStatement.setArray(index++, connection.createArrayOf("uuid", userIds.toArray()));
+      if (lastPaymentId != null) {
+        preparedStatement.setObject(index++, lastPaymentId);
+      }
+      preparedStatement.setInt(index++, pageSize);
+      preparedStatement.setInt(index, lastPaymentId == null ? pageNumber * pageSize : 0);
+      return preparedStatement;
+    }, (resultSet, i) -> {
+      if (i == 0) {
+        matchingPaymentsCounts.add(resultSet.getInt("matching_payments_count"));
+      }
+      return ROW_MAPPER.mapRow(resultSet, i);
+    });
+
+    return PaymentSummariesPage.builder()
+        .paymentSummaries(paymentSummaries)
+        .totalPaymentsCount(matchingPaymentsCounts.isEmpty()
+            ? null
+            : toTotalPaymentsCount(matchingPaymentsCounts.get(0), lastPaymentId, pageNumber,
+                pageSize))
+        .build();
+  }
+
+  /**
+   * Computes the total number of payments from the number of payments matched by the page query.
+   * With a keyset, payments of previous pages are not matched.
+   */
+  private static int toTotalPaymentsCount(int matchingPaymentsCount, UUID lastPaymentId,
+      int pageNumber, int pageSize) {
+    return lastPaymentId == null
+        ? matchingPaymentsCount
+        : pageNumber * pageSize + matchingPaymentsCount;
+  }
+
+  /**
+   * Checks whether {@code paymentId} identifies a successful payment of the provided users, i.e.
+   * whether it can be used to find the next page of their payments.
+   *
+   * @param userIds List of the user ids.
+   * @param paymentId ID of the payment.
+   * @return true if the payment is a successful payment of any of the users.
+   */
+  public boolean isSuccessfulPaymentOfUsers(List<UUID> userIds, UUID paymentId) {
+    Preconditions.checkNotNull(userIds, "userIds cannot be null.");
+    Preconditions.checkNotNull(paymentId, "paymentId cannot be null.");
+
+    List<Boolean> result = jdbcTemplate.query(connection -> {
       PreparedStatement preparedStatement = connection.prepareStatement(
-          SELECT_PAGINATED_PAYMENTS_SUMMARIES);
-      preparedStatement.setArray(1, connection.createArrayOf("uuid", userIds.toArray()));
-      preparedStatement.setInt(2, pageSize);
-      preparedStatement.setInt(3, pageNumber * pageSize);
+          SELECT_SUCCESSFUL_PAYMENT_OF_USER_IDS_EXISTS);
+      preparedStatement.setObject(1, paymentId);
+      preparedStatement.setArray(2, connection.createArrayOf("uuid", userIds.toArray()));
       return preparedStatement;
-    }, ROW_MAPPER);
+    }, (resultSet, i) -> resultSet.getBoolean(1));
+
+    return result.iterator().next();
   }
 
   /**
-   * Method responsible for getting payments count for the provided users.
+   * Method responsible for getting payments count for the provided users. It is only needed when
+   * the count cannot be computed with the page.
    *
    * @param userIds list of the user ids.
    * @return payments count.
@@ -97,6 +173,9 @@ public class PaymentSummaryRepository {
           .payerId(UUID.fromString(resultSet.getString("payer_id")))
           .entriesCount(resultSet.getInt("entries_count"))
           .paymentDate(resultSet.getDate("payment_date").toLocalDate())
+          .cleanAirZoneId(Optional.ofNullable(resultSet.getString("clean_air_zone_id"))
+              .map(UUID::fromString)
+              .orElse(null))
           .build();
     }
   }
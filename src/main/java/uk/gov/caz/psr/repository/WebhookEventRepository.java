@@ -0,0 +1,43 @@
+package uk.gov.caz.psr.repository;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * A class which handles managing data in {@code T_PAYMENT_PROVIDER_WEBHOOK_EVENT} table, which
+ * keeps identifiers of webhook events that have already been applied.
+ */
+@Repository
+@AllArgsConstructor
+public class WebhookEventRepository {
+
+  static final String INSERT_IF_ABSENT_SQL = "INSERT INTO "
+      + "caz_payment.t_payment_provider_webhook_event (payment_provider, event_id) "
+      + "VALUES (?, ?) "
+      + "ON CONFLICT DO NOTHING";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Registers the event identified by {@code eventId} and sent by {@code paymentProvider} unless
+   * it has already been registered. To be called in the same transaction in which the event is
+   * applied, so that the event is not registered if applying it fails.
+   *
+   * @param paymentProvider Name of the payment provider which sent the event.
+   * @param eventId Identifier of the event in the payment provider.
+   * @return true if the event has been registered, false if it had already been registered.
+   * @throws IllegalArgumentException if {@code paymentProvider} or {@code eventId} is null or
+   *     empty
+   */
+  public boolean registerIfAbsent(String paymentProvider, String eventId) {
+    Preconditions.checkArgument(!Strings.isNullOrEmpty(paymentProvider),
+        "paymentProvider cannot be null or empty");
+    Preconditions.checkArgument(!Strings.isNullOrEmpty(eventId),
+        "eventId cannot be null or empty");
+
+    return jdbcTemplate.update(INSERT_IF_ABSENT_SQL, paymentProvider, eventId) == 1;
+  }
+}
@@ -4,7 +4,10 @@ import com.google.common.base.Preconditions;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -19,6 +22,7 @@ import uk.gov.caz.psr.model.InternalPaymentStatus;
 import uk.gov.caz.psr.model.PaymentAuditData;
 import uk.gov.caz.psr.model.PaymentModification;
 import uk.gov.caz.psr.model.PaymentModificationStatus;
+import uk.gov.caz.psr.model.generatecsv.PaymentsHistoryExportMark;
 
 /**
  * Repository for persisting information about Logged Action.
@@ -123,6 +127,112 @@ public class PaymentDetailRepository {
     }, PAYMENT_MODIFICATION_ROW_MAPPER);
   }
 
+  /**
+   * Gets payment audit details of successful payments made by the given account users for
+   * updateActor and provided payment statuses, ordered by the time of the modification.
+   *
+   * @param accountUserIds List of account user IDs
+   * @param updateActor Describes which actor is responsible for updating the state of Entrant
+   *     Payment
+   * @param paymentStatuses List of statuses to get from the DB
+   * @return list of found {@link PaymentModification}
+   */
+  public List<PaymentModification> findAllForAccountUsersPaymentsHistory(
+      List<UUID> accountUserIds, EntrantPaymentUpdateActor updateActor,
+      List<InternalPaymentStatus> paymentStatuses) {
+    Preconditions.checkNotNull(accountUserIds, "accountUserIds cannot be null");
+    Preconditions.checkNotNull(updateActor, "updateActor cannot be null");
+    Preconditions.checkNotNull(paymentStatuses, "paymentStatuses cannot be null");
+
+    return jdbcTemplate.query(connection -> {
+      PreparedStatement preparedStatement = connection.prepareStatement(
+          Sql.FIND_ALL_FOR_ACCOUNT_USERS_PAYMENTS_HISTORY);
+      preparedStatement.setArray(1, connection.createArrayOf("uuid", accountUserIds.toArray()));
+      preparedStatement.setString(2, updateActor.toString());
+      preparedStatement.setArray(3, connection.createArrayOf("varchar", paymentStatuses.toArray()));
+      return preparedStatement;
+    }, PAYMENT_MODIFICATION_ROW_MAPPER);
+  }
+
+  /**
+   * Gets payment audit details of successful payments made by the account users of {@code mark}
+   * for updateActor and provided payment statuses, ordered by the time of the modification.
+   * Only payments exported after {@code mark} or listed in {@code paymentIds} are included.
+   *
+   * @param mark {@link PaymentsHistoryExportMark} of the previous export of the payment history
+   * @param paymentIds Collection of IDs of payments exported before {@code mark} to include
+   * @param updateActor Describes which actor is responsible for updating the state of Entrant
+   *     Payment
+   * @param paymentStatuses List of statuses to get from the DB
+   * @return list of found {@link PaymentModification}
+   */
+  public List<PaymentModification> findAllForAccountUsersPaymentsHistoryAfterMark(
+      PaymentsHistoryExportMark mark, Collection<UUID> paymentIds,
+      EntrantPaymentUpdateActor updateActor, List<InternalPaymentStatus> paymentStatuses) {
+    checkMark(mark);
+    Preconditions.checkNotNull(paymentIds, "paymentIds cannot be null");
+    Preconditions.checkNotNull(updateActor, "updateActor cannot be null");
+    Preconditions.checkNotNull(paymentStatuses, "paymentStatuses cannot be null");
+
+    return jdbcTemplate.query(connection -> {
+      PreparedStatement preparedStatement = connection.prepareStatement(
+          Sql.FIND_ALL_FOR_ACCOUNT_USERS_PAYMENTS_HISTORY_AFTER_MARK);
+      preparedStatement.setArray(1,
+          connection.createArrayOf("uuid", mark.getAccountUserIds().toArray()));
+      preparedStatement.setString(2, updateActor.toString());
+      preparedStatement.setArray(3, connection.createArrayOf("varchar", paymentStatuses.toArray()));
+      preparedStatement.setTimestamp(4,
+          Timestamp.valueOf(mark.getLastPaymentSubmittedTimestamp()));
+      preparedStatement.setObject(5, mark.getLastPaymentId());
+      preparedStatement.setArray(6, connection.createArrayOf("uuid", paymentIds.toArray()));
+      return preparedStatement;
+    }, PAYMENT_MODIFICATION_ROW_MAPPER);
+  }
+
+  /**
+   * Gets IDs of successful payments made by the account users of {@code mark} which have been
+   * exported before {@code mark}, but have been updated or modified by updateActor with one of
+   * provided payment statuses after {@code since}.
+   *
+   * @param mark {@link PaymentsHistoryExportMark} of the previous export of the payment history
+   * @param since the time after which changes are looked up
+   * @param updateActor Describes which actor is responsible for updating the state of Entrant
+   *     Payment
+   * @param paymentStatuses List of statuses to get from the DB
+   * @return list of IDs of changed payments
+   */
+  public List<UUID> findAccountUsersPaymentIdsChangedSince(PaymentsHistoryExportMark mark,
+      LocalDateTime since, EntrantPaymentUpdateActor updateActor,
+      List<InternalPaymentStatus> paymentStatuses) {
+    checkMark(mark);
+    Preconditions.checkNotNull(since, "since cannot be null");
+    Preconditions.checkNotNull(updateActor, "updateActor cannot be null");
+    Preconditions.checkNotNull(paymentStatuses, "paymentStatuses cannot be null");
+
+    return jdbcTemplate.query(connection -> {
+      PreparedStatement preparedStatement = connection.prepareStatement(
+          Sql.FIND_ACCOUNT_USERS_PAYMENT_IDS_CHANGED_SINCE);
+      preparedStatement.setArray(1,
+          connection.createArrayOf("uuid", mark.getAccountUserIds().toArray()));
+      preparedStatement.setTimestamp(2,
+          Timestamp.valueOf(mark.getLastPaymentSubmittedTimestamp()));
+      preparedStatement.setObject(3, mark.getLastPaymentId());
+      preparedStatement.setTimestamp(4, Timestamp.valueOf(since));
+      preparedStatement.setTimestamp(5, Timestamp.valueOf(since));
+      preparedStatement.setString(6, updateActor.toString());
+      preparedStatement.setArray(7, connection.createArrayOf("varchar", paymentStatuses.toArray()));
+      return preparedStatement;
+    }, (resultSet, i) -> UUID.fromString(resultSet.getString("payment_id")));
+  }
+
+  /**
+   * Checks that {@code mark} has the last exported payment.
+   */
+  private static void checkMark(PaymentsHistoryExportMark mark) {
+    Preconditions.checkNotNull(mark, "mark cannot be null");
+    Preconditions.checkArgument(mark.hasLastPayment(), "mark must have the last payment");
+  }
+
   /**
    * Gets payment audit details for paymentId, updateActor and provided payment statuses.
    *
@@ -226,6 +336,49 @@ public class PaymentDetailRepository {
         + "AND t_detail.update_actor = ? "
         + "AND t_detail.payment_status = any (?);";
 
+    private static final String SELECT_ACCOUNT_USERS_PAYMENTS_HISTORY = "SELECT "
+        + "t_detail.payment_id, "
+        + "t_detail.charge, "
+        + "t_detail.travel_date, "
+        + "t_detail.case_reference, "
+        + "t_detail.entrant_payment_update_timestamp, "
+        + "t_detail.payment_status, "
+        + "t_master.vrn "
+        + "FROM caz_payment_audit.t_clean_air_zone_payment_detail t_detail "
+        + "INNER JOIN caz_payment_audit.t_clean_air_zone_payment_master t_master ON "
+        + "t_detail.clean_air_zone_payment_master_id = t_master.clean_air_zone_payment_master_id "
+        + "INNER JOIN caz_payment.t_payment t_payment ON "
+        + "t_payment.payment_id = t_detail.payment_id "
+        + "AND t_payment.user_id = ANY (?) "
+        + "AND t_payment.payment_provider_status = 'SUCCESS' "
+        + "WHERE t_detail.update_actor = ? "
+        + "AND t_detail.payment_status = any (?) ";
+
+    static final String FIND_ALL_FOR_ACCOUNT_USERS_PAYMENTS_HISTORY =
+        SELECT_ACCOUNT_USERS_PAYMENTS_HISTORY
+            + "ORDER BY t_detail.entrant_payment_update_timestamp";
+
+    static final String FIND_ALL_FOR_ACCOUNT_USERS_PAYMENTS_HISTORY_AFTER_MARK =
+        SELECT_ACCOUNT_USERS_PAYMENTS_HISTORY
+            + "AND ((t_payment.payment_submitted_timestamp, t_payment.payment_id) > (?, ?) "
+            + "OR t_payment.payment_id = ANY (?)) "
+            + "ORDER BY t_detail.entrant_payment_update_timestamp";
+
+    // payments exported before the mark which have been updated, e.g. authorised, or modified
+    // by an actor since
+    static final String FIND_ACCOUNT_USERS_PAYMENT_IDS_CHANGED_SINCE = "SELECT "
+        + "t_payment.payment_id "
+        + "FROM caz_payment.t_payment t_payment "
+        + "WHERE t_payment.user_id = ANY (?) "
+        + "AND t_payment.payment_provider_status = 'SUCCESS' "
+        + "AND (t_payment.payment_submitted_timestamp, t_payment.payment_id) <= (?, ?) "
+        + "AND (t_payment.update_timestamp > ? "
+        + "OR t_payment.payment_id IN (SELECT t_detail.payment_id "
+        + "FROM caz_payment_audit.t_clean_air_zone_payment_detail t_detail "
+        + "WHERE t_detail.inserttimestamp > ? "
+        + "AND t_detail.update_actor = ? "
+        + "AND t_detail.payment_status = any (?)))";
+
     private static final String SELECT_PAYMENT_STATUSES_SQL =
         "SELECT vrn, clean_air_zone_id, travel_date, payment_id, payment_status "
             + "FROM caz_payment_audit.t_clean_air_zone_payment_detail t_detail "
@@ -0,0 +1,49 @@
+package uk.gov.caz.psr.repository.generatecsv;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import uk.gov.caz.psr.model.generatecsv.CsvEntrantPayment;
+
+/**
+ * Repository fragment which streams entrant payments for CSV Export with a forward-only cursor,
+ * so that the export does not need to hold the whole payment history in memory.
+ */
+public interface CsvEntrantPaymentQueryRepository {
+
+  /**
+   * Returns a stream of entrant payments of successful payments made by {@code accountUserIds}
+   * which is backed by a forward-only database cursor reading {@code fetchSize} rows at a time.
+   * The order of the results is the same as in {@link
+   * CsvEntrantPaymentRepository#findAllForAccountUsers(List)}. Needs to be called within a
+   * transaction and the stream must be closed after use.
+   *
+   * @param accountUserIds List of account user ids whose payments are streamed.
+   * @param fetchSize the number of rows fetched from the database in a single round trip
+   * @return A stream of matching {@link CsvEntrantPayment}.
+   */
+  Stream<CsvEntrantPayment> streamAllForAccountUsers(List<UUID> accountUserIds, int fetchSize);
+
+  /**
+   * Returns a stream of entrant payments of successful payments made by {@code accountUserIds}
+   * after the payment submitted at {@code paymentSubmittedTimestamp} with {@code paymentId}, i.e.
+   * submitted later or at the same time, but with a greater identifier. Apart from that the
+   * stream behaves as the one returned by {@link
+   * CsvEntrantPaymentQueryRepository#streamAllForAccountUsers(List, int)}.
+   *
+   * @param accountUserIds List of account user ids whose payments are streamed.
+   * @param paymentSubmittedTimestamp Submission timestamp of the payment.
+   * @param paymentId Identifier of the payment.
+   * @param fetchSize the number of rows fetched from the database in a single round trip
+   * @return A stream of matching {@link CsvEntrantPayment}.
+   */
+  Stream<CsvEntrantPayment> streamAllForAccountUsersAfterPayment(List<UUID> accountUserIds,
+      LocalDateTime paymentSubmittedTimestamp, UUID paymentId, int fetchSize);
+
+  /**
+   * Detaches all entities loaded so far, so that they can be garbage collected while the stream
+   * returned by any of the methods of this repository is being consumed.
+   */
+  void detachAll();
+}
@@ -0,0 +1,51 @@
+package uk.gov.caz.psr.repository.generatecsv;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import lombok.AllArgsConstructor;
+import org.hibernate.jpa.QueryHints;
+import uk.gov.caz.psr.model.generatecsv.CsvEntrantPayment;
+
+/**
+ * Implementation of {@link CsvEntrantPaymentQueryRepository} based on a native query.
+ */
+@AllArgsConstructor
+public class CsvEntrantPaymentQueryRepositoryImpl implements CsvEntrantPaymentQueryRepository {
+
+  private final EntityManager entityManager;
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Stream<CsvEntrantPayment> streamAllForAccountUsers(List<UUID> accountUserIds,
+      int fetchSize) {
+    return entityManager.createNativeQuery(
+        CsvEntrantPaymentRepository.FIND_ALL_FOR_ACCOUNT_USERS_SQL, CsvEntrantPayment.class)
+        .setParameter(1, accountUserIds)
+        .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+        .setHint(QueryHints.HINT_READONLY, true)
+        .getResultStream();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Stream<CsvEntrantPayment> streamAllForAccountUsersAfterPayment(List<UUID> accountUserIds,
+      LocalDateTime paymentSubmittedTimestamp, UUID paymentId, int fetchSize) {
+    return entityManager.createNativeQuery(
+        CsvEntrantPaymentRepository.FIND_ALL_FOR_ACCOUNT_USERS_AFTER_PAYMENT_SQL,
+        CsvEntrantPayment.class)
+        .setParameter(1, accountUserIds)
+        .setParameter(2, paymentSubmittedTimestamp)
+        .setParameter(3, paymentId)
+        .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+        .setHint(QueryHints.HINT_READONLY, true)
+        .getResultStream();
+  }
+
+  @Override
+  public void detachAll() {
+    entityManager.clear();
+  }
+}
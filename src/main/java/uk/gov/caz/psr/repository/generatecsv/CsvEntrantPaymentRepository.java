@@ -1,5 +1,6 @@
 package uk.gov.caz.psr.repository.generatecsv;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.Modifying;
@@ -12,25 +13,57 @@ import uk.gov.caz.psr.model.generatecsv.CsvEntrantPayment;
  * A class which handles managing data in {@code EntrantPayment} table for CSV Export.
  */
 @Repository
-public interface CsvEntrantPaymentRepository extends CrudRepository<CsvEntrantPayment, Integer> {
+public interface CsvEntrantPaymentRepository extends CrudRepository<CsvEntrantPayment, Integer>,
+    CsvEntrantPaymentQueryRepository {
 
-  @Modifying
-  @Query(value = "SELECT t_entrant.clean_air_zone_entrant_payment_id, "
+  /**
+   * A part of queries which selects entrant payments of successful payments.
+   */
+  String SELECT_SUCCESSFUL_SQL = "SELECT t_entrant.clean_air_zone_entrant_payment_id, "
       + "t_match.id as clean_air_zone_entrant_payment_match_id, t_payment.payment_id, "
       + "t_payment.user_id, t_payment.payment_submitted_timestamp, t_entrant.clean_air_zone_id, "
       + "t_entrant.vrn, t_entrant.travel_date,t_entrant.charge, t_payment.central_reference_number,"
-      + "t_payment.payment_provider_id as payment_provider_id, t_payment.total_paid,"
-      + "(SELECT COUNT(*) FROM caz_payment.t_clean_air_zone_entrant_payment_match "
-      + "WHERE t_payment.payment_id = t_clean_air_zone_entrant_payment_match.payment_id) "
-      + "AS entries_count "
+      + "t_payment.payment_provider_id as payment_provider_id, t_payment.total_paid, "
+      + "t_payment.entries_count "
       + "FROM caz_payment.t_clean_air_zone_entrant_payment as t_entrant "
       + "JOIN caz_payment.t_clean_air_zone_entrant_payment_match as t_match ON "
       + "t_match.clean_air_zone_entrant_payment_id = t_entrant.clean_air_zone_entrant_payment_id "
       + "JOIN caz_payment.t_payment as t_payment ON t_payment.payment_id = t_match.payment_id "
-      + "WHERE t_payment.user_id in (?1) "
-      + "AND t_payment.payment_provider_status = 'SUCCESS'"
-      + "ORDER BY t_payment.payment_submitted_timestamp DESC, t_entrant.vrn ASC, "
-      + "t_entrant.travel_date ASC",
-      nativeQuery = true)
+      + "WHERE t_payment.payment_provider_status = 'SUCCESS' ";
+
+  /**
+   * The order of entrant payments in CSV Export.
+   */
+  String ORDER_BY_SQL = "ORDER BY t_payment.payment_submitted_timestamp DESC, t_entrant.vrn ASC, "
+      + "t_entrant.travel_date ASC";
+
+  /**
+   * A query which selects all entrant payments of successful payments made by the given users.
+   */
+  String FIND_ALL_FOR_ACCOUNT_USERS_SQL = SELECT_SUCCESSFUL_SQL
+      + "AND t_payment.user_id in (?1) "
+      + ORDER_BY_SQL;
+
+  /**
+   * A query which selects entrant payments of successful payments made by the given users after
+   * the given payment, i.e. submitted later or at the same time, but with a greater identifier.
+   */
+  String FIND_ALL_FOR_ACCOUNT_USERS_AFTER_PAYMENT_SQL = SELECT_SUCCESSFUL_SQL
+      + "AND t_payment.user_id in (?1) "
+      + "AND (t_payment.payment_submitted_timestamp, t_payment.payment_id) > (?2, ?3) "
+      + ORDER_BY_SQL;
+
+  /**
+   * A query which selects entrant payments of the given successful payments.
+   */
+  String FIND_ALL_FOR_PAYMENTS_SQL = SELECT_SUCCESSFUL_SQL
+      + "AND t_payment.payment_id in (?1) "
+      + ORDER_BY_SQL;
+
+  @Modifying
+  @Query(value = FIND_ALL_FOR_ACCOUNT_USERS_SQL, nativeQuery = true)
   List<CsvEntrantPayment> findAllForAccountUsers(List<UUID> accountUserIds);
+
+  @Query(value = FIND_ALL_FOR_PAYMENTS_SQL, nativeQuery = true)
+  List<CsvEntrantPayment> findAllForPayments(Collection<UUID> paymentIds);
 }
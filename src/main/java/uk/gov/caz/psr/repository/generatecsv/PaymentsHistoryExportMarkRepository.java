@@ -0,0 +1,141 @@
+package uk.gov.caz.psr.repository.generatecsv;
+
+import com.google.common.base.Preconditions;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import uk.gov.caz.psr.model.generatecsv.PaymentsHistoryExportMark;
+
+/**
+ * A class which handles managing data in {@code T_PAYMENTS_HISTORY_EXPORT_MARK} table, which keeps
+ * the newest exported payment for a set of users of an account.
+ */
+@Repository
+@AllArgsConstructor
+public class PaymentsHistoryExportMarkRepository {
+
+  static final String SELECT_CURRENT_TIMESTAMP_SQL = "SELECT LOCALTIMESTAMP";
+
+  static final String SELECT_BY_ACCOUNT_USERS_SQL = "SELECT file_name, "
+      + "last_payment_submitted_timestamp, "
+      + "last_payment_id, "
+      + "local_authority_columns, "
+      + "enrichment_data_hash, "
+      + "exported_timestamp "
+      + "FROM caz_payment.t_payments_history_export_mark "
+      + "WHERE account_id = ? "
+      + "AND account_user_ids = ?";
+
+  static final String UPSERT_SQL = "INSERT INTO caz_payment.t_payments_history_export_mark "
+      + "(account_id, account_user_ids, file_name, last_payment_submitted_timestamp, "
+      + "last_payment_id, local_authority_columns, enrichment_data_hash, exported_timestamp) "
+      + "VALUES (?, ?, ?, ?, ?, ?, ?, ?) "
+      + "ON CONFLICT (account_id, account_user_ids) DO UPDATE "
+      + "SET file_name = EXCLUDED.file_name, "
+      + "last_payment_submitted_timestamp = EXCLUDED.last_payment_submitted_timestamp, "
+      + "last_payment_id = EXCLUDED.last_payment_id, "
+      + "local_authority_columns = EXCLUDED.local_authority_columns, "
+      + "enrichment_data_hash = EXCLUDED.enrichment_data_hash, "
+      + "exported_timestamp = EXCLUDED.exported_timestamp";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Returns the current timestamp of the database, to which timestamps of payments and their
+   * modifications can be compared.
+   *
+   * @return the current timestamp of the database.
+   */
+  public LocalDateTime getCurrentTimestamp() {
+    return jdbcTemplate.queryForObject(SELECT_CURRENT_TIMESTAMP_SQL, Timestamp.class)
+        .toLocalDateTime();
+  }
+
+  /**
+   * Finds the mark of the payment history exported for {@code accountUserIds} of the account,
+   * regardless of the order of the users.
+   *
+   * @param accountId An identifier of the account.
+   * @param accountUserIds List of account user ids whose payment history has been exported.
+   * @return {@link PaymentsHistoryExportMark} if the payment history has been exported.
+   */
+  public Optional<PaymentsHistoryExportMark> find(UUID accountId, List<UUID> accountUserIds) {
+    Preconditions.checkNotNull(accountId, "accountId cannot be null");
+    Preconditions.checkNotNull(accountUserIds, "accountUserIds cannot be null");
+
+    List<UUID> sortedAccountUserIds = sorted(accountUserIds);
+    List<PaymentsHistoryExportMark> results = jdbcTemplate.query(connection -> {
+      PreparedStatement preparedStatement = connection.prepareStatement(
+          SELECT_BY_ACCOUNT_USERS_SQL);
+      preparedStatement.setObject(1, accountId);
+      preparedStatement.setArray(2,
+          connection.createArrayOf("uuid", sortedAccountUserIds.toArray()));
+      return preparedStatement;
+    }, (resultSet, i) -> mapRow(resultSet, accountId, sortedAccountUserIds));
+    return results.stream().findFirst();
+  }
+
+  /**
+   * Inserts {@code mark} or replaces the mark of the same users of the account.
+   *
+   * @param mark {@link PaymentsHistoryExportMark} to save.
+   * @throws IllegalArgumentException if no payment has been exported.
+   */
+  public void save(PaymentsHistoryExportMark mark) {
+    Preconditions.checkNotNull(mark, "mark cannot be null");
+    Preconditions.checkArgument(mark.hasLastPayment(), "mark must have the last payment");
+
+    jdbcTemplate.update(connection -> {
+      PreparedStatement preparedStatement = connection.prepareStatement(UPSERT_SQL);
+      preparedStatement.setObject(1, mark.getAccountId());
+      preparedStatement.setArray(2,
+          connection.createArrayOf("uuid", sorted(mark.getAccountUserIds()).toArray()));
+      preparedStatement.setString(3, mark.getFileName());
+      preparedStatement.setTimestamp(4,
+          Timestamp.valueOf(mark.getLastPaymentSubmittedTimestamp()));
+      preparedStatement.setObject(5, mark.getLastPaymentId());
+      preparedStatement.setBoolean(6, mark.isLocalAuthorityColumns());
+      preparedStatement.setString(7, mark.getEnrichmentDataHash());
+      preparedStatement.setTimestamp(8, Timestamp.valueOf(mark.getExportedTimestamp()));
+      return preparedStatement;
+    });
+  }
+
+  /**
+   * Sorts {@code accountUserIds}, so that a set of users is always stored in the same way.
+   */
+  private static List<UUID> sorted(List<UUID> accountUserIds) {
+    return accountUserIds.stream()
+        .distinct()
+        .sorted(Comparator.comparing(UUID::toString))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Maps a row of {@code T_PAYMENTS_HISTORY_EXPORT_MARK} to {@link PaymentsHistoryExportMark}.
+   */
+  private static PaymentsHistoryExportMark mapRow(ResultSet resultSet, UUID accountId,
+      List<UUID> accountUserIds) throws SQLException {
+    return PaymentsHistoryExportMark.builder()
+        .accountId(accountId)
+        .accountUserIds(accountUserIds)
+        .fileName(resultSet.getString("file_name"))
+        .lastPaymentSubmittedTimestamp(
+            resultSet.getTimestamp("last_payment_submitted_timestamp").toLocalDateTime())
+        .lastPaymentId(UUID.fromString(resultSet.getString("last_payment_id")))
+        .localAuthorityColumns(resultSet.getBoolean("local_authority_columns"))
+        .enrichmentDataHash(resultSet.getString("enrichment_data_hash"))
+        .exportedTimestamp(resultSet.getTimestamp("exported_timestamp").toLocalDateTime())
+        .build();
+  }
+}
@@ -0,0 +1,46 @@
+package uk.gov.caz.psr.repository.jpa;
+
+import java.util.List;
+import java.util.stream.Stream;
+import org.springframework.data.jpa.domain.Specification;
+import uk.gov.caz.psr.model.info.EntrantPaymentMatchInfo;
+
+/**
+ * Repository fragment with queries which cannot be expressed by {@link
+ * org.springframework.data.jpa.repository.JpaSpecificationExecutor}, i.e. fetching a limited number
+ * of payment-info records without issuing an additional {@code COUNT} query and streaming them
+ * with a forward-only cursor.
+ */
+public interface EntrantPaymentMatchInfoQueryRepository {
+
+  /**
+   * Returns at most {@code limit} entities matching the given {@link Specification}. The order
+   * of the results is determined by the specification.
+   *
+   * @param specification the specification of entities to fetch
+   * @param limit the maximum number of returned entities
+   * @return A list of matching {@link EntrantPaymentMatchInfo}.
+   */
+  List<EntrantPaymentMatchInfo> findAll(Specification<EntrantPaymentMatchInfo> specification,
+      int limit);
+
+  /**
+   * Returns a stream of entities matching the given {@link Specification} which is backed by a
+   * forward-only database cursor reading {@code fetchSize} rows at a time. The order of the
+   * results is determined by the specification. Needs to be called within a transaction and the
+   * stream must be closed after use.
+   *
+   * @param specification the specification of entities to fetch
+   * @param fetchSize the number of rows fetched from the database in a single round trip
+   * @return A stream of matching {@link EntrantPaymentMatchInfo}.
+   */
+  Stream<EntrantPaymentMatchInfo> streamAll(Specification<EntrantPaymentMatchInfo> specification,
+      int fetchSize);
+
+  /**
+   * Detaches all entities loaded so far, so that they can be garbage collected while the stream
+   * returned by {@link EntrantPaymentMatchInfoQueryRepository#streamAll(Specification, int)} is
+   * being consumed.
+   */
+  void detachAll();
+}
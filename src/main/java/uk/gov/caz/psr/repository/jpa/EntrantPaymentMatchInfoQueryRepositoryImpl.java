@@ -0,0 +1,62 @@
+package uk.gov.caz.psr.repository.jpa;
+
+import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import lombok.AllArgsConstructor;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.data.jpa.domain.Specification;
+import uk.gov.caz.psr.model.info.EntrantPaymentMatchInfo;
+
+/**
+ * Implementation of {@link EntrantPaymentMatchInfoQueryRepository} based on the Criteria API.
+ */
+@AllArgsConstructor
+public class EntrantPaymentMatchInfoQueryRepositoryImpl implements
+    EntrantPaymentMatchInfoQueryRepository {
+
+  private final EntityManager entityManager;
+
+  @Override
+  public List<EntrantPaymentMatchInfo> findAll(
+      Specification<EntrantPaymentMatchInfo> specification, int limit) {
+    return createQuery(specification)
+        .setMaxResults(limit)
+        .getResultList();
+  }
+
+  @Override
+  public Stream<EntrantPaymentMatchInfo> streamAll(
+      Specification<EntrantPaymentMatchInfo> specification, int fetchSize) {
+    return createQuery(specification)
+        .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+        .setHint(QueryHints.HINT_READONLY, true)
+        .getResultStream();
+  }
+
+  @Override
+  public void detachAll() {
+    entityManager.clear();
+  }
+
+  /**
+   * Creates a query which selects entities matching {@code specification}.
+   */
+  private TypedQuery<EntrantPaymentMatchInfo> createQuery(
+      Specification<EntrantPaymentMatchInfo> specification) {
+    CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<EntrantPaymentMatchInfo> criteriaQuery = criteriaBuilder
+        .createQuery(EntrantPaymentMatchInfo.class);
+    Root<EntrantPaymentMatchInfo> root = criteriaQuery.from(EntrantPaymentMatchInfo.class);
+    Predicate predicate = specification.toPredicate(root, criteriaQuery, criteriaBuilder);
+    if (predicate != null) {
+      criteriaQuery.where(predicate);
+    }
+    return entityManager.createQuery(criteriaQuery.select(root));
+  }
+}
@@ -10,5 +10,5 @@ import uk.gov.caz.psr.model.info.EntrantPaymentMatchInfo;
  */
 public interface EntrantPaymentMatchInfoRepository extends
     PagingAndSortingRepository<EntrantPaymentMatchInfo, UUID>,
-    JpaSpecificationExecutor<EntrantPaymentMatchInfo> {
+    JpaSpecificationExecutor<EntrantPaymentMatchInfo>, EntrantPaymentMatchInfoQueryRepository {
 }
@@ -10,7 +10,6 @@ import org.springframework.stereotype.Service;
 import retrofit2.Response;
 import uk.gov.caz.definitions.dto.accounts.VehiclesResponseDto;
 import uk.gov.caz.psr.dto.accounts.UserDetailsResponse;
-import uk.gov.caz.psr.model.EntrantPayment;
 import uk.gov.caz.psr.repository.AccountsRepository;
 import uk.gov.caz.psr.service.exception.AccountNotFoundException;
 import uk.gov.caz.psr.service.exception.AccountVehiclesBadRequest;
@@ -58,14 +57,15 @@ public class AccountService {
   }
 
   /**
-   * Gets entrant payments for a list of VRNs in a 13 day payment window.
+   * Gets paid days for a list of VRNs in a 13 day payment window.
    *
-   * @param vrns map of VRNs against entrant payments
+   * @param vrns list of VRNs
    * @param cleanAirZoneId an identitier for the clean air zone
+   * @return map of VRNs against their paid days
    */
-  public Map<String, List<EntrantPayment>> getPaidEntrantPayments(
+  public Map<String, List<LocalDate>> getPaidDates(
       List<String> vrns, UUID cleanAirZoneId) {
-    return getPaidEntrantPaymentsService.getResults(
+    return getPaidEntrantPaymentsService.getPaidDates(
         new HashSet<>(vrns),
         LocalDate.now().minusDays(6),
         LocalDate.now().plusDays(6),
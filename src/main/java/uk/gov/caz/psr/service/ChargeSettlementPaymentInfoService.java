@@ -1,7 +1,11 @@
 package uk.gov.caz.psr.service;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -9,14 +13,20 @@ import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Order;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import uk.gov.caz.psr.controller.exception.PaymentInfoVrnValidationException;
+import uk.gov.caz.psr.model.PaymentInfoCursor;
 import uk.gov.caz.psr.model.PaymentInfoRequestAttributes;
+import uk.gov.caz.psr.model.PaymentInfoSlice;
+import uk.gov.caz.psr.model.info.EntrantPaymentInfo;
 import uk.gov.caz.psr.model.info.EntrantPaymentMatchInfo;
 import uk.gov.caz.psr.repository.EntrantPaymentRepository;
 import uk.gov.caz.psr.repository.jpa.EntrantPaymentMatchInfoRepository;
 import uk.gov.caz.psr.service.paymentinfo.CazIdSpecification;
 import uk.gov.caz.psr.service.paymentinfo.LatestPaymentInfoSpecification;
 import uk.gov.caz.psr.service.paymentinfo.OmitNotPaidPaymentInfoSpecification;
+import uk.gov.caz.psr.service.paymentinfo.OrderByVrnAndPaymentSpecification;
+import uk.gov.caz.psr.service.paymentinfo.PaymentInfoKeysetSpecification;
 import uk.gov.caz.psr.service.paymentinfo.PaymentInfoSpecification;
 import uk.gov.caz.psr.util.AttributesNormaliser;
 
@@ -30,6 +40,9 @@ public class ChargeSettlementPaymentInfoService {
       = new OmitNotPaidPaymentInfoSpecification();
   private static final LatestPaymentInfoSpecification LATEST_PAYMENT_INFO_SPECIFICATION =
       new LatestPaymentInfoSpecification();
+  private static final OrderByVrnAndPaymentSpecification ORDER_BY_VRN_AND_PAYMENT_SPECIFICATION =
+      new OrderByVrnAndPaymentSpecification();
+  private static final int STREAMING_FETCH_SIZE = 500;
 
   private final EntrantPaymentMatchInfoRepository entrantPaymentMatchInfoRepository;
   private final EntrantPaymentRepository entrantPaymentRepository;
@@ -65,6 +78,51 @@ public class ChargeSettlementPaymentInfoService {
     return entrantPaymentMatchInfoRepository.findAll(specification);
   }
 
+  /**
+   * Streams payment information based on {@code attributes} and {@code cazId}. Records are read
+   * with a forward-only cursor ordered by vrn and payment and passed to {@code vrnPaymentsConsumer}
+   * one vrn at a time, so that the memory footprint does not depend on the number of matching
+   * records. Entities passed to the consumer are detached once it returns.
+   *
+   * @param attributes {@link PaymentInfoRequestAttributes}
+   * @param cazId for payment
+   * @param vrnPaymentsConsumer the consumer of all {@link EntrantPaymentMatchInfo} of a single
+   *     vrn
+   */
+  @Transactional(readOnly = true)
+  public void streamPaymentInfo(PaymentInfoRequestAttributes attributes, UUID cazId,
+      Consumer<List<EntrantPaymentMatchInfo>> vrnPaymentsConsumer) {
+    throwIfNonExistentVrn(cazId, attributes.getVrn());
+    Specification<EntrantPaymentMatchInfo> specification = getSpecification(attributes, cazId)
+        .and(ORDER_BY_VRN_AND_PAYMENT_SPECIFICATION);
+
+    try (Stream<EntrantPaymentMatchInfo> stream = entrantPaymentMatchInfoRepository
+        .streamAll(specification, STREAMING_FETCH_SIZE)) {
+      List<EntrantPaymentMatchInfo> vrnPayments = new ArrayList<>();
+      Iterator<EntrantPaymentMatchInfo> iterator = stream.iterator();
+      while (iterator.hasNext()) {
+        EntrantPaymentMatchInfo entrantPaymentMatchInfo = iterator.next();
+        if (!vrnPayments.isEmpty() && !vrnOf(vrnPayments.get(0))
+            .equals(vrnOf(entrantPaymentMatchInfo))) {
+          vrnPaymentsConsumer.accept(vrnPayments);
+          vrnPayments = new ArrayList<>();
+          entrantPaymentMatchInfoRepository.detachAll();
+        }
+        vrnPayments.add(entrantPaymentMatchInfo);
+      }
+      if (!vrnPayments.isEmpty()) {
+        vrnPaymentsConsumer.accept(vrnPayments);
+      }
+    }
+  }
+
+  /**
+   * Returns vrn of the passed {@code entrantPaymentMatchInfo}.
+   */
+  private static String vrnOf(EntrantPaymentMatchInfo entrantPaymentMatchInfo) {
+    return entrantPaymentMatchInfo.getEntrantPaymentInfo().getVrn();
+  }
+
   /**
    * Finds payment information based on {@code attributes} and {@code cazId}.
    *
@@ -80,6 +138,52 @@ public class ChargeSettlementPaymentInfoService {
     return entrantPaymentMatchInfoRepository.findAll(specification, buildPageRequest(pageNumber));
   }
 
+  /**
+   * Finds a single page of payment information based on {@code attributes} and {@code cazId}
+   * using the keyset pagination on (vrn, entrant payment id). Contrary to {@link
+   * ChargeSettlementPaymentInfoService#findPaymentInfoV2(PaymentInfoRequestAttributes, UUID,
+   * int)} the total number of records is computed only if {@code includeTotalCount} is set.
+   *
+   * @param attributes {@link PaymentInfoRequestAttributes}
+   * @param cazId for payment
+   * @param cursor position after which the page starts, null for the first page
+   * @param includeTotalCount whether the total number of pages should be computed
+   * @return An instance of {@link PaymentInfoSlice}
+   */
+  public PaymentInfoSlice findPaymentInfoV2(PaymentInfoRequestAttributes attributes,
+      UUID cazId, PaymentInfoCursor cursor, boolean includeTotalCount) {
+    throwIfNonExistentVrn(cazId, attributes.getVrn());
+    Specification<EntrantPaymentMatchInfo> specification = getSpecification(attributes, cazId);
+
+    // one extra record is fetched to find out whether there is a next page
+    List<EntrantPaymentMatchInfo> result = entrantPaymentMatchInfoRepository.findAll(
+        specification.and(PaymentInfoKeysetSpecification.after(cursor)), pageSize + 1);
+    boolean hasNextPage = result.size() > pageSize;
+    List<EntrantPaymentMatchInfo> content = hasNextPage ? result.subList(0, pageSize) : result;
+
+    return PaymentInfoSlice.builder()
+        .content(content)
+        .nextCursor(hasNextPage ? toCursor(content.get(content.size() - 1)) : null)
+        .totalPages(includeTotalCount ? countPages(specification) : null)
+        .build();
+  }
+
+  /**
+   * Creates {@link PaymentInfoCursor} which points to the passed {@code entrantPaymentMatchInfo}.
+   */
+  private PaymentInfoCursor toCursor(EntrantPaymentMatchInfo entrantPaymentMatchInfo) {
+    EntrantPaymentInfo entrantPaymentInfo = entrantPaymentMatchInfo.getEntrantPaymentInfo();
+    return new PaymentInfoCursor(entrantPaymentInfo.getVrn(), entrantPaymentInfo.getId());
+  }
+
+  /**
+   * Computes the number of pages of records matching {@code specification}.
+   */
+  private int countPages(Specification<EntrantPaymentMatchInfo> specification) {
+    long count = entrantPaymentMatchInfoRepository.count(specification);
+    return (int) ((count + pageSize - 1) / pageSize);
+  }
+
   private Specification<EntrantPaymentMatchInfo> getSpecification(
       PaymentInfoRequestAttributes attributes, UUID cazId) {
     return specifications.stream()
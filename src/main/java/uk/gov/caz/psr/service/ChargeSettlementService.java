@@ -2,11 +2,15 @@ package uk.gov.caz.psr.service;
 
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 import uk.gov.caz.psr.model.PaymentStatus;
+import uk.gov.caz.psr.model.VehicleEntry;
 import uk.gov.caz.psr.repository.PaymentStatusRepository;
 
 /**
@@ -36,4 +40,19 @@ public class ChargeSettlementService {
 
     return paymentStatuses.stream().findFirst();
   }
+
+  /**
+   * Method that call internal repository and detects if the payments were done against the CAZ
+   * entries represented by the passed vehicle entries. All entries are resolved in a single query.
+   *
+   * @param cazId          provided clean air zone ID
+   * @param vehicleEntries pairs of VRN and date of CAZ entry for which payment info is searched
+   * @return A map of {@link PaymentStatus} for every found vehicle entry. Entries which cannot be
+   *     found are absent from the map.
+   */
+  public Map<VehicleEntry, PaymentStatus> findChargeSettlements(UUID cazId,
+      List<VehicleEntry> vehicleEntries) {
+    return paymentStatusRepository.findByCazIdAndVehicleEntries(cazId,
+        new LinkedHashSet<>(vehicleEntries));
+  }
 }
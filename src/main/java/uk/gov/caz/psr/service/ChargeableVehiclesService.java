@@ -13,7 +13,6 @@ import uk.gov.caz.definitions.dto.accounts.VehiclesResponseDto.VehicleWithCharge
 import uk.gov.caz.definitions.dto.accounts.VehiclesResponseDto.VehicleWithCharges.VehicleCharge;
 import uk.gov.caz.psr.model.ChargeableVehicle;
 import uk.gov.caz.psr.model.ChargeableVehiclesPage;
-import uk.gov.caz.psr.model.EntrantPayment;
 
 /**
  * Service responsible for getting and processing chargeable vehicles from the Accounts API.
@@ -26,7 +25,9 @@ public class ChargeableVehiclesService {
   private final AccountService accountService;
 
   /**
-   * Method which retrieve Chargeable Vehicles page with its paid dates.
+   * Method which retrieve Chargeable Vehicles page with its paid dates. Paid dates are looked up
+   * for VRNs of the page, hence they can only be fetched once the page is returned by the Accounts
+   * Service.
    *
    * @param accountId selected account identifier
    * @param cazId selected Clean Air Zone ID
@@ -40,14 +41,13 @@ public class ChargeableVehiclesService {
     ChargeableVehiclesPage chargeableVehiclesPage = getPageOfChargeableVehicles(accountId,
         cazId, query, pageNumber, pageSize);
 
-    Map<String, List<EntrantPayment>> entrantPaymentsForVrns = accountService
-        .getPaidEntrantPayments(getVrns(chargeableVehiclesPage.getChargeableVehicles()), cazId);
+    Map<String, List<LocalDate>> paidDatesForVrns = accountService
+        .getPaidDates(getVrns(chargeableVehiclesPage.getChargeableVehicles()), cazId);
 
     return chargeableVehiclesPage.toBuilder().chargeableVehicles(
         chargeableVehiclesPage.getChargeableVehicles().stream()
             .map(chargeableVehicle -> chargeableVehicle.toBuilder()
-                .paidDates(
-                    collectPaidDatesForVrn(chargeableVehicle.getVrn(), entrantPaymentsForVrns))
+                .paidDates(paidDatesForVrns.get(chargeableVehicle.getVrn()))
                 .build())
             .collect(Collectors.toList()))
         .build();
@@ -92,21 +92,4 @@ public class ChargeableVehiclesService {
         .filter(cachedCharge -> cachedCharge.getCazId().equals(cazId))
         .iterator().next();
   }
-
-  /**
-   * Collect paid travel dates for provided list of {@link EntrantPayment}.
-   */
-  private List<LocalDate> collectPaidDates(List<EntrantPayment> entrantPayments) {
-    return entrantPayments.stream()
-        .map(EntrantPayment::getTravelDate)
-        .collect(Collectors.toList());
-  }
-
-  /**
-   * Maps list of {@link EntrantPayment} to list of its travel date.
-   */
-  private List<LocalDate> collectPaidDatesForVrn(String vrn,
-      Map<String, List<EntrantPayment>> entrantPaymentsForVrns) {
-    return collectPaidDates(entrantPaymentsForVrns.get(vrn));
-  }
 }
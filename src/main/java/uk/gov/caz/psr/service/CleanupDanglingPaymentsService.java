@@ -1,47 +1,299 @@
 package uk.gov.caz.psr.service;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.RateLimiter;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import lombok.AllArgsConstructor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import uk.gov.caz.psr.model.DanglingPaymentsCleanupSummary;
 import uk.gov.caz.psr.model.Payment;
 import uk.gov.caz.psr.repository.PaymentRepository;
 
 /**
  * Service responsible for updating statuses of old, unfinished payments.
+ *
+ * <p>Payments are processed in parallel by a bounded pool of workers. Requests to GOV UK Pay are
+ * limited per Clean Air Zone (both in terms of concurrency and rate), as every CAZ uses its own
+ * API key with its own quota. Processing stops once the time budget is exhausted; payments which
+ * have not been started by then are left for a subsequent run.</p>
+ *
+ * <p>Only payments whose status check is due are fetched, in chunks. After every check which
+ * does not finish the payment, the next one is scheduled with an exponential backoff, so that
+ * payments which stay unfinished in GOV UK Pay for a long time are polled less and less
+ * frequently.</p>
  */
 @Service
-@AllArgsConstructor
 @Slf4j
 public class CleanupDanglingPaymentsService {
 
+  private static final UUID UNKNOWN_CLEAN_AIR_ZONE = new UUID(0, 0);
+
   private final PaymentRepository paymentRepository;
   private final CleanupDanglingPaymentService cleanupDanglingPaymentService;
+  private final int workerThreads;
+  private final int maxConcurrentRequestsPerCaz;
+  private final double maxRequestsPerSecondPerCaz;
+  private final Duration defaultTimeBudget;
+  private final Duration deadlineMargin;
+  private final int chunkSize;
+  private final Duration initialBackoff;
+  private final Duration maxBackoff;
+
+  /**
+   * Creates an instance of {@link CleanupDanglingPaymentsService}.
+   */
+  @Autowired
+  public CleanupDanglingPaymentsService(PaymentRepository paymentRepository,
+      CleanupDanglingPaymentService cleanupDanglingPaymentService,
+      @Value("${application.dangling-payments-cleanup.worker-threads:2}") int workerThreads,
+      @Value("${application.dangling-payments-cleanup.max-concurrent-requests-per-caz:1}")
+          int maxConcurrentRequestsPerCaz,
+      @Value("${application.dangling-payments-cleanup.max-requests-per-second-per-caz:5}")
+          double maxRequestsPerSecondPerCaz,
+      @Value("${application.dangling-payments-cleanup.time-budget-seconds:600}")
+          long defaultTimeBudgetSeconds,
+      @Value("${application.dangling-payments-cleanup.deadline-margin-seconds:45}")
+          long deadlineMarginSeconds,
+      @Value("${application.dangling-payments-cleanup.chunk-size:500}") int chunkSize,
+      @Value("${application.dangling-payments-cleanup.initial-backoff-seconds:900}")
+          long initialBackoffSeconds,
+      @Value("${application.dangling-payments-cleanup.max-backoff-seconds:86400}")
+          long maxBackoffSeconds) {
+    this(paymentRepository, cleanupDanglingPaymentService, workerThreads,
+        maxConcurrentRequestsPerCaz, maxRequestsPerSecondPerCaz,
+        Duration.ofSeconds(defaultTimeBudgetSeconds), Duration.ofSeconds(deadlineMarginSeconds),
+        chunkSize, Duration.ofSeconds(initialBackoffSeconds),
+        Duration.ofSeconds(maxBackoffSeconds));
+  }
+
+  @VisibleForTesting
+  CleanupDanglingPaymentsService(PaymentRepository paymentRepository,
+      CleanupDanglingPaymentService cleanupDanglingPaymentService, int workerThreads,
+      int maxConcurrentRequestsPerCaz, double maxRequestsPerSecondPerCaz,
+      Duration defaultTimeBudget, Duration deadlineMargin, int chunkSize, Duration initialBackoff,
+      Duration maxBackoff) {
+    Preconditions.checkArgument(workerThreads > 0, "workerThreads must be positive");
+    Preconditions.checkArgument(maxConcurrentRequestsPerCaz > 0,
+        "maxConcurrentRequestsPerCaz must be positive");
+    Preconditions.checkArgument(maxRequestsPerSecondPerCaz > 0,
+        "maxRequestsPerSecondPerCaz must be positive");
+    Preconditions.checkArgument(chunkSize > 0, "chunkSize must be positive");
+    this.paymentRepository = paymentRepository;
+    this.cleanupDanglingPaymentService = cleanupDanglingPaymentService;
+    this.workerThreads = workerThreads;
+    this.maxConcurrentRequestsPerCaz = maxConcurrentRequestsPerCaz;
+    this.maxRequestsPerSecondPerCaz = maxRequestsPerSecondPerCaz;
+    this.defaultTimeBudget = defaultTimeBudget;
+    this.deadlineMargin = deadlineMargin;
+    this.chunkSize = chunkSize;
+    this.initialBackoff = initialBackoff;
+    this.maxBackoff = maxBackoff;
+  }
 
   /**
    * Finds old and unfinished payments in the database, checks their statuses in the gov uk pay
-   * service and updates them in the database accordingly.
+   * service and updates them in the database accordingly. Uses the configured time budget.
    */
-  public void updateStatusesOfDanglingPayments() {
-    log.info("Cleaning up dangling payments - start");
+  public DanglingPaymentsCleanupSummary updateStatusesOfDanglingPayments() {
+    return processWithTimeBudget(defaultTimeBudget);
+  }
+
+  /**
+   * Finds old and unfinished payments in the database, checks their statuses in the gov uk pay
+   * service and updates them in the database accordingly. No payment is started later than the
+   * configured margin before {@code availableTime} elapses, so that the payments which are being
+   * processed can finish in time.
+   *
+   * @param availableTime Time after which the caller is terminated (e.g. remaining time of a
+   *     Lambda invocation).
+   */
+  public DanglingPaymentsCleanupSummary updateStatusesOfDanglingPayments(Duration availableTime) {
+    Duration timeBudget = availableTime.minus(deadlineMargin);
+    return processWithTimeBudget(timeBudget.isNegative() ? Duration.ZERO : timeBudget);
+  }
+
+  /**
+   * Processes dangling payments provided that their processing starts within {@code timeBudget}.
+   */
+  private DanglingPaymentsCleanupSummary processWithTimeBudget(Duration timeBudget) {
+    log.info("Cleaning up dangling payments - start, time budget: {}s", timeBudget.getSeconds());
     Stopwatch stopwatch = Stopwatch.createStarted();
-    List<Payment> danglingPayments = paymentRepository.findDanglingPayments();
-    log.info("Found {} dangling payments", danglingPayments.size());
-    for (Payment danglingPayment : danglingPayments) {
-      processDanglingPayment(danglingPayment);
+    CleanupRun run = new CleanupRun(System.nanoTime() + timeBudget.toNanos());
+    LocalDateTime dueBefore = LocalDateTime.now();
+    int found = 0;
+    ExecutorService workers = Executors.newFixedThreadPool(workerThreads);
+    try {
+      List<Payment> chunk = paymentRepository.findDanglingPayments(dueBefore, chunkSize);
+      while (!chunk.isEmpty()) {
+        found += chunk.size();
+        log.info("Found {} dangling payments which are due to be checked", chunk.size());
+        processChunk(workers, run, chunk);
+        if (chunk.size() < chunkSize || run.remainingNanos() == 0) {
+          break;
+        }
+        UUID lastPaymentId = chunk.get(chunk.size() - 1).getId();
+        chunk = paymentRepository.findDanglingPayments(dueBefore, lastPaymentId, chunkSize);
+      }
+    } finally {
+      workers.shutdownNow();
     }
-    log.info("Cleaning up dangling payments - finish, the execution took {}ms",
-        stopwatch.elapsed(TimeUnit.MILLISECONDS));
+
+    DanglingPaymentsCleanupSummary summary = new DanglingPaymentsCleanupSummary(found,
+        run.processed.get(), run.skipped.get(), run.leftOver.get());
+    log.info("Cleaning up dangling payments - finish, the execution took {}ms: {}",
+        stopwatch.elapsed(TimeUnit.MILLISECONDS), summary);
+    return summary;
   }
 
-  private void processDanglingPayment(Payment danglingPayment) {
+  /**
+   * Processes {@code chunk} of dangling payments by {@code workers} and waits until all of them
+   * are processed. Payments that have not been started yet complete immediately once the deadline
+   * has passed, hence the wait is bounded by the deadline and the time of processing of the
+   * payments that are in progress.
+   */
+  private void processChunk(ExecutorService workers, CleanupRun run, List<Payment> chunk) {
+    List<Callable<Void>> tasks = interleaveByCleanAirZone(chunk).stream()
+        .map(danglingPayment -> (Callable<Void>) () -> {
+          run.process(danglingPayment);
+          return null;
+        })
+        .collect(Collectors.toList());
     try {
-      cleanupDanglingPaymentService.processDanglingPayment(danglingPayment);
-    } catch (Exception e) {
-      log.error("Error while processing the dangling payment with id '{}'", danglingPayment.getId(),
-          e);
+      workers.invokeAll(tasks);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.error("Interrupted while waiting for dangling payments to be processed");
+    }
+  }
+
+  /**
+   * Orders {@code payments} so that consecutive ones belong to different Clean Air Zones whenever
+   * possible, hence workers are not all waiting for the limits of the same CAZ.
+   */
+  private List<Payment> interleaveByCleanAirZone(List<Payment> payments) {
+    Map<UUID, Deque<Payment>> byCleanAirZone = new LinkedHashMap<>();
+    for (Payment payment : payments) {
+      byCleanAirZone.computeIfAbsent(payment.getCleanAirZoneId(), id -> new ArrayDeque<>())
+          .add(payment);
+    }
+    List<Payment> result = new ArrayList<>(payments.size());
+    while (result.size() < payments.size()) {
+      for (Deque<Payment> cleanAirZonePayments : byCleanAirZone.values()) {
+        if (!cleanAirZonePayments.isEmpty()) {
+          result.add(cleanAirZonePayments.poll());
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * State of a single cleanup run.
+   */
+  private class CleanupRun {
+
+    private final long deadlineNanos;
+    private final Map<UUID, Semaphore> concurrencyLimits = new ConcurrentHashMap<>();
+    private final Map<UUID, RateLimiter> rateLimits = new ConcurrentHashMap<>();
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger leftOver = new AtomicInteger();
+
+    private CleanupRun(long deadlineNanos) {
+      this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Processes {@code danglingPayment} if the limits of its CAZ allow to do so before the
+     * deadline, otherwise leaves it for a subsequent run.
+     */
+    private void process(Payment danglingPayment) {
+      if (remainingNanos() == 0) {
+        leftOver.incrementAndGet();
+        return;
+      }
+      UUID key = cleanAirZoneKey(danglingPayment);
+      Semaphore concurrencyLimit = concurrencyLimits.computeIfAbsent(key,
+          id -> new Semaphore(maxConcurrentRequestsPerCaz));
+      RateLimiter rateLimit = rateLimits.computeIfAbsent(key,
+          id -> RateLimiter.create(maxRequestsPerSecondPerCaz));
+      try {
+        if (!concurrencyLimit.tryAcquire(remainingNanos(), TimeUnit.NANOSECONDS)) {
+          leftOver.incrementAndGet();
+          return;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        leftOver.incrementAndGet();
+        return;
+      }
+      try {
+        if (!rateLimit.tryAcquire(remainingNanos(), TimeUnit.NANOSECONDS)) {
+          leftOver.incrementAndGet();
+          return;
+        }
+        try {
+          cleanupDanglingPaymentService.processDanglingPayment(danglingPayment);
+          processed.incrementAndGet();
+        } catch (Exception e) {
+          log.error("Error while processing the dangling payment with id '{}'",
+              danglingPayment.getId(), e);
+          skipped.incrementAndGet();
+        }
+        scheduleNextStatusCheck(danglingPayment);
+      } finally {
+        concurrencyLimit.release();
+      }
+    }
+
+    /**
+     * Schedules the next status check of {@code danglingPayment} after an attempt to process it.
+     * If the payment has been finished, it is no longer fetched regardless of the schedule.
+     */
+    private void scheduleNextStatusCheck(Payment danglingPayment) {
+      try {
+        paymentRepository.scheduleNextStatusCheck(danglingPayment.getId(), initialBackoff,
+            maxBackoff);
+      } catch (Exception e) {
+        log.error("Error while scheduling the next status check of the dangling payment with "
+            + "id '{}'", danglingPayment.getId(), e);
+      }
+    }
+
+    /**
+     * Returns the time left until the deadline, never negative.
+     */
+    private long remainingNanos() {
+      return Math.max(0, deadlineNanos - System.nanoTime());
+    }
+
+    /**
+     * Returns the key under which limits of {@code payment} are kept. Payments whose CAZ is
+     * unknown share the limits.
+     */
+    private UUID cleanAirZoneKey(Payment payment) {
+      return payment.getCleanAirZoneId() == null ? UNKNOWN_CLEAN_AIR_ZONE
+          : payment.getCleanAirZoneId();
     }
   }
 }
@@ -1,10 +1,10 @@
 package uk.gov.caz.psr.service;
 
 import java.util.List;
+import java.util.UUID;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import uk.gov.caz.psr.model.Payment;
 import uk.gov.caz.psr.model.SingleEntrantPayment;
 import uk.gov.caz.psr.model.directdebit.DirectDebitPayment;
@@ -21,28 +21,24 @@ import uk.gov.caz.psr.service.directdebit.DirectDebitPaymentService;
 public class CreateDirectDebitPaymentService {
 
   private final PaymentRepository paymentRepository;
-  private final InitiateEntrantPaymentsService initiateEntrantPaymentsService;
+  private final PaymentInitiationPhaseService paymentInitiationPhaseService;
   private final DirectDebitPaymentFinalizer directDebitPaymentFinalizer;
   private final DirectDebitPaymentService directDebitPaymentService;
 
   /**
-   * Creates Payment in Payment Provider, inserts Payment details into database.
+   * Creates Payment in Payment Provider, inserts Payment details into database. The method is
+   * deliberately not transactional: the payment with its entrant payments is committed before the
+   * payment is collected and finalized afterwards, hence no database connection is held during
+   * the call to the Payment Provider. If the collection fails, the payment is marked as failed.
    */
-  @Transactional
   public Payment createPayment(Payment payment, List<SingleEntrantPayment> entrantPayments) {
     try {
       log.info("Create DirectPayment process: start");
       Payment paymentWithInternalId = initializePaymentWithEntrants(payment, entrantPayments);
-      DirectDebitPayment directDebitPayment = directDebitPaymentService
-          .collectPayment(paymentWithInternalId.getId(), payment.getCleanAirZoneId(),
-              paymentWithInternalId.getTotalPaid(), paymentWithInternalId.getReferenceNumber(),
-              paymentWithInternalId.getPaymentProviderMandateId());
-
-      Payment paymentWithExternalId = directDebitPaymentFinalizer
-          .finalizeSuccessfulPayment(paymentWithInternalId,
-              directDebitPayment.getPaymentId(),
-              payment.getEmailAddress());
-      return paymentWithExternalId;
+      DirectDebitPayment directDebitPayment = collectPayment(paymentWithInternalId,
+          payment.getCleanAirZoneId());
+      return finalizePayment(paymentWithInternalId, directDebitPayment,
+          payment.getEmailAddress());
     } finally {
       log.info("Create DirectPayment process: finish");
     }
@@ -53,12 +49,55 @@ public class CreateDirectDebitPaymentService {
    */
   private Payment initializePaymentWithEntrants(Payment payment,
       List<SingleEntrantPayment> entrantPayments) {
-    Payment paymentWithInternalId = paymentRepository.insert(payment);
-    initiateEntrantPaymentsService.processEntrantPaymentsForPayment(paymentWithInternalId.getId(),
-        payment.getCleanAirZoneId(), entrantPayments);
+    Payment paymentWithInternalId = paymentInitiationPhaseService.insertWithEntrantPayments(
+        payment, entrantPayments);
 
     // Trying to get created payment with matched entrant payments.
     return paymentRepository.findById(paymentWithInternalId.getId())
         .orElseThrow(() -> new RuntimeException("Payment initialization failed"));
   }
+
+  /**
+   * Collects {@code payment} in the Payment Provider. Marks it as failed in the database if the
+   * collection does not succeed.
+   */
+  private DirectDebitPayment collectPayment(Payment payment, UUID cleanAirZoneId) {
+    try {
+      return directDebitPaymentService.collectPayment(payment.getId(), cleanAirZoneId,
+          payment.getTotalPaid(), payment.getReferenceNumber(),
+          payment.getPaymentProviderMandateId());
+    } catch (RuntimeException e) {
+      log.error("Error while collecting payment '{}'", payment.getId());
+      compensate(payment, e);
+      throw e;
+    }
+  }
+
+  /**
+   * Saves the details of the successfully collected {@code payment}. The payment cannot be marked
+   * as failed at this point, hence the failure is only reported.
+   */
+  private Payment finalizePayment(Payment payment, DirectDebitPayment directDebitPayment,
+      String email) {
+    try {
+      return directDebitPaymentFinalizer.finalizeSuccessfulPayment(payment,
+          directDebitPayment.getPaymentId(), email);
+    } catch (RuntimeException e) {
+      log.error("Payment '{}' has been collected as '{}', but its details cannot be saved",
+          payment.getId(), directDebitPayment.getPaymentId(), e);
+      throw e;
+    }
+  }
+
+  /**
+   * Marks {@code payment} as failed, the failure of which is attached to {@code cause}.
+   */
+  private void compensate(Payment payment, RuntimeException cause) {
+    try {
+      paymentInitiationPhaseService.markAsFailed(payment);
+    } catch (RuntimeException e) {
+      log.error("Cannot mark payment '{}' as failed", payment.getId(), e);
+      cause.addSuppressed(e);
+    }
+  }
 }
@@ -1,16 +1,27 @@
 package uk.gov.caz.psr.service;
 
+import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import uk.gov.caz.psr.dto.EntrantPaymentWithLatestPaymentDetailsDto;
 import uk.gov.caz.psr.dto.VehicleEntrantDto;
 import uk.gov.caz.psr.model.EntrantPayment;
+import uk.gov.caz.psr.model.EntrantPaymentKey;
 import uk.gov.caz.psr.model.EntrantPaymentUpdateActor;
 import uk.gov.caz.psr.model.InternalPaymentStatus;
 import uk.gov.caz.psr.model.Payment;
@@ -31,175 +42,97 @@ public class EntrantPaymentService {
    * Method receives a collection of (cazId, cazEntryTimestamp, vrn) and accordingly creates or
    * updates data in {@code T_CLEAN_AIR_ZONE_ENTRANT_PAYMENT}.
    *
+   * <p>The whole batch is processed with a constant number of statements: missing {@link
+   * EntrantPayment}s are inserted with a single statement, all not-yet-captured ones are marked as
+   * captured with another one, and then all entrant payments of the batch along with the latest
+   * payments of the paid ones are fetched with two queries.</p>
+   *
    * @param vehicleEntrants list of objects.
    * @return List of {@link EntrantPaymentWithLatestPaymentDetailsDto}.
    */
   @Transactional
   public List<EntrantPaymentWithLatestPaymentDetailsDto> bulkProcess(
       List<VehicleEntrantDto> vehicleEntrants) {
-    List<EntrantPaymentWithLatestPaymentDetailsDto> result = new ArrayList<>();
-
-    for (VehicleEntrantDto vehicleEntrantDto : vehicleEntrants) {
-      Optional<EntrantPayment> entrantPayment = fetchEntrantPaymentFromRepository(
-          vehicleEntrantDto);
-
-      if (thereIsNoExisting(entrantPayment)) {
-        processNewEntrant(result, vehicleEntrantDto);
-      } else {
-        processExistingEntrant(result, entrantPayment.orElse(null)); // <- orElse is for Sonar
-      }
+    if (vehicleEntrants.isEmpty()) {
+      return new ArrayList<>();
     }
 
-    return result;
-  }
-
-  /**
-   * Tries to fetch {@link EntrantPayment} from DB on this CAZ, day and VRN. It is possible that
-   * there is no entry yet and then it returns Optional.empty().
-   */
-  private Optional<EntrantPayment> fetchEntrantPaymentFromRepository(
-      VehicleEntrantDto vehicleEntrantDto) {
-
-    return entrantPaymentRepository.findOneByVrnAndCazEntryDate(
-        vehicleEntrantDto.getCleanZoneId(),
-        vehicleEntrantDto.getVrn(),
-        LocalDateTime.from(vehicleEntrantDto.getCazEntryTimestamp().atZone(GMT_ZONE_ID)
-            .withZoneSameInstant(UK_ZONE_ID)).toLocalDate()
-    ).map(entrantPayment -> entrantPayment.toBuilder()
-        .cazEntryTimestamp(vehicleEntrantDto.getCazEntryTimestamp())
-        .build()
-    );
+    Set<EntrantPaymentKey> keys = vehicleEntrants.stream()
+        .map(this::toEntrantPaymentKey)
+        .collect(toCollection(LinkedHashSet::new));
+
+    entrantPaymentRepository.insertCapturedIfNotExist(keys, InternalPaymentStatus.NOT_PAID,
+        EntrantPaymentUpdateActor.VCCS_API);
+    entrantPaymentRepository.markAsVehicleEntrantCaptured(keys,
+        EntrantPaymentUpdateActor.VCCS_API);
+
+    Map<EntrantPaymentKey, EntrantPayment> entrantPaymentsByKey = entrantPaymentRepository
+        .findAllByKeys(keys)
+        .stream()
+        .collect(toMap(EntrantPaymentKey::from, Function.identity()));
+    Map<UUID, Payment> latestPayments = findLatestPaymentsOfPaid(entrantPaymentsByKey.values());
+
+    return vehicleEntrants.stream()
+        .map(vehicleEntrantDto -> toResult(vehicleEntrantDto, entrantPaymentsByKey,
+            latestPayments))
+        .collect(toList());
   }
 
   /**
-   * Returns true if {@link EntrantPayment} is not present for this day and CAZ. It has not been
-   * paid in advance and this is first entrance on this day.
+   * Creates {@link EntrantPaymentKey} from incoming DTO. The travel date is the date of the entry
+   * in the UK time zone.
    */
-  private boolean thereIsNoExisting(Optional<EntrantPayment> record) {
-    return !record.isPresent();
-  }
-
-  /**
-   * If {@link EntrantPayment} is not present at all it means it was not paid in advance or this is
-   * first vehicle entry in this CAZ on this day. In this case we are sure that there are no
-   * payments so we can quickly add new {@link EntrantPayment} to the DB and return DTO without any
-   * payment details.
-   */
-  private void processNewEntrant(List<EntrantPaymentWithLatestPaymentDetailsDto> result,
-      VehicleEntrantDto vehicleEntrantDto) {
-    EntrantPayment entrantPayment = addNewEntrantPayment(vehicleEntrantDto);
-    addToResultWithoutPaymentDetails(entrantPayment, result);
-  }
-
-  /**
-   * If {@link EntrantPayment} is present it means that it was either paid in advance (or at least
-   * it was tried to be paid) or this is not-the-first vehicle entry in this CAZ on this day. In
-   * this case we need to check if vehicle entrance hasn't been already captured (if this is first
-   * entry but paid in advance case) and if no, mark it as captured. Following that we need to check
-   * if it has been "PAID" and if yes try to fetch corresponding "latest" {@link Payment} entity.
-   * Finally if everything is present and only then we can fetch PaymentMethod (if entrant is
-   * "PAID"). Else we return "null" as PaymentMethod.
-   */
-  private void processExistingEntrant(List<EntrantPaymentWithLatestPaymentDetailsDto> result,
-      EntrantPayment entrantPayment) {
-    markAsVehicleEntrantCapturedIfNotAlreadySo(entrantPayment);
-    if (isPaid(entrantPayment)) {
-      processWithPotentialPayment(result, entrantPayment);
-    } else {
-      addToResultWithoutPaymentDetails(entrantPayment, result);
-    }
+  private EntrantPaymentKey toEntrantPaymentKey(VehicleEntrantDto vehicleEntrantDto) {
+    return new EntrantPaymentKey(vehicleEntrantDto.getCleanZoneId(), vehicleEntrantDto.getVrn(),
+        toTravelDate(vehicleEntrantDto.getCazEntryTimestamp()));
   }
 
   /**
-   * Forges new {@link EntrantPayment} entity for this CAZ and day and saves to the DB.
+   * Converts the passed {@code cazEntryTimestamp} (in GMT) to the date in the UK time zone.
    */
-  private EntrantPayment addNewEntrantPayment(VehicleEntrantDto vehicleEntrantDto) {
-    EntrantPayment entrantPayment = buildNewEntrantPayment(vehicleEntrantDto);
-    return entrantPaymentRepository.insert(entrantPayment);
+  private LocalDate toTravelDate(LocalDateTime cazEntryTimestamp) {
+    return LocalDateTime.from(cazEntryTimestamp.atZone(GMT_ZONE_ID)
+        .withZoneSameInstant(UK_ZONE_ID)).toLocalDate();
   }
 
   /**
-   * Creates new {@link EntrantPayment} from incoming DTO. Status will be "NOT_PAID", it will be
-   * "captured" because we know this request comes from ANPR through VCCS.
+   * Fetches the latest {@link Payment} of every "PAID" {@link EntrantPayment} with a single query.
+   * Only for such entrants we may return PaymentMethod. Entrant payments without a matching
+   * payment are absent in the resulting map.
    */
-  private EntrantPayment buildNewEntrantPayment(VehicleEntrantDto vehicleEntrantDto) {
-    return EntrantPayment.builder()
-        .vrn(vehicleEntrantDto.getVrn())
-        .cleanAirZoneId(vehicleEntrantDto.getCleanZoneId())
-        .travelDate(LocalDateTime.from(vehicleEntrantDto.getCazEntryTimestamp().atZone(GMT_ZONE_ID)
-            .withZoneSameInstant(UK_ZONE_ID)).toLocalDate())
-        .cazEntryTimestamp(vehicleEntrantDto.getCazEntryTimestamp())
-        .vehicleEntrantCaptured(true)
-        .updateActor(EntrantPaymentUpdateActor.VCCS_API)
-        .internalPaymentStatus(InternalPaymentStatus.NOT_PAID)
-        .build();
+  private Map<UUID, Payment> findLatestPaymentsOfPaid(Collection<EntrantPayment> entrantPayments) {
+    List<UUID> paidEntrantPaymentIds = entrantPayments.stream()
+        .filter(this::isPaid)
+        .map(EntrantPayment::getCleanAirZoneEntrantPaymentId)
+        .collect(toList());
+    return paymentRepository.findByEntrantPayments(paidEntrantPaymentIds);
   }
 
   /**
-   * Maps {@link EntrantPayment} to {@link EntrantPaymentWithLatestPaymentDetailsDto} and puts into
-   * resulting list. Skips all {@link Payment} properties because there is no Payment or {@link
-   * EntrantPayment} is not "PAID". Payment properties in DTO will be "null".
-   */
-  private void addToResultWithoutPaymentDetails(
-      EntrantPayment entrantPayment, List<EntrantPaymentWithLatestPaymentDetailsDto> result) {
-    result
-        .add(EntrantPaymentWithLatestPaymentDetailsDto.fromEntrantPaymentOnly(entrantPayment));
-  }
-
-  /**
-   * If "vehicleEntrantCaptured" flag is not already true on {@link EntrantPayment} it will be
-   * updated to "true" meaning that we indeed had vehicle entrance on this day in this CAZ.
-   */
-  private void markAsVehicleEntrantCapturedIfNotAlreadySo(EntrantPayment entrantPayment) {
-    if (!entrantPayment.isVehicleEntrantCaptured()) {
-      EntrantPayment entrantPaymentToUpdate = entrantPayment.toBuilder()
-          .vehicleEntrantCaptured(true)
-          .updateActor(EntrantPaymentUpdateActor.VCCS_API)
-          .build();
-      entrantPaymentRepository.update(entrantPaymentToUpdate);
-    }
-  }
-
-  /**
-   * Returns true if {@link EntrantPayment} has been paid. Only for such entrants we may return
-   * PaymentMethod if {@link Payment} record is present.
+   * Returns true if {@link EntrantPayment} has been paid.
    */
   private boolean isPaid(EntrantPayment entrantPayment) {
     return entrantPayment.getInternalPaymentStatus() == InternalPaymentStatus.PAID;
   }
 
   /**
-   * If {@link EntrantPayment} is present and is "PAID" we try to fetch corresponding matching
-   * latest {@link Payment} record. If it is present we can fetch PaymentMethod to return. If it is
-   * not present we will return "null" as PaymentMethod.
+   * Maps {@link EntrantPayment} matching {@code vehicleEntrantDto} and its potential latest {@link
+   * Payment} to {@link EntrantPaymentWithLatestPaymentDetailsDto}. The entry timestamp is taken
+   * from the request as it is not persisted.
    */
-  private void processWithPotentialPayment(List<EntrantPaymentWithLatestPaymentDetailsDto> result,
-      EntrantPayment entrantPayment) {
-    Optional<Payment> payment = findLatestPaymentIfPresent(entrantPayment);
-    if (payment.isPresent()) {
-      addToResultWithPaymentDetails(entrantPayment, payment.get(), result);
-    } else {
-      addToResultWithoutPaymentDetails(entrantPayment, result);
+  private EntrantPaymentWithLatestPaymentDetailsDto toResult(VehicleEntrantDto vehicleEntrantDto,
+      Map<EntrantPaymentKey, EntrantPayment> entrantPaymentsByKey,
+      Map<UUID, Payment> latestPayments) {
+    EntrantPaymentKey key = toEntrantPaymentKey(vehicleEntrantDto);
+    EntrantPayment entrantPayment = entrantPaymentsByKey.get(key);
+    if (entrantPayment == null) {
+      throw new IllegalStateException("Entrant payment has not been found for " + key);
     }
-  }
-
-  /**
-   * Tries to find corresponding "latest" {@link Payment} record for {@link EntrantPayment}. It is
-   * possible that there is no Payment yet and the it returns Optional.empty().
-   */
-  private Optional<Payment> findLatestPaymentIfPresent(EntrantPayment entrantPayment) {
-    return paymentRepository
-        .findByEntrantPayment(entrantPayment.getCleanAirZoneEntrantPaymentId());
-  }
-
-  /**
-   * Maps {@link EntrantPayment} and {@link Payment}
-   * to {@link EntrantPaymentWithLatestPaymentDetailsDto} and puts into resulting list.
-   */
-  private void addToResultWithPaymentDetails(
-      EntrantPayment entrantPayment, Payment payment,
-      List<EntrantPaymentWithLatestPaymentDetailsDto> result) {
-    result.add(
-        EntrantPaymentWithLatestPaymentDetailsDto.from(entrantPayment, payment));
+    return EntrantPaymentWithLatestPaymentDetailsDto.from(
+        entrantPayment.toBuilder()
+            .cazEntryTimestamp(vehicleEntrantDto.getCazEntryTimestamp())
+            .build(),
+        latestPayments.get(entrantPayment.getCleanAirZoneEntrantPaymentId())
+    );
   }
 }
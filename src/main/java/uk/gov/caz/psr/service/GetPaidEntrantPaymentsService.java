@@ -1,6 +1,9 @@
 package uk.gov.caz.psr.service;
 
 import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -8,40 +11,96 @@ import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import uk.gov.caz.psr.model.EntrantPayment;
 import uk.gov.caz.psr.repository.EntrantPaymentRepository;
+import uk.gov.caz.psr.repository.PaidDaysIndex;
 
 /**
- * Class responsible for fetching PAID EntrantPayments for provided VRNs in provided CAZ ID and
- * returning it.
+ * Class responsible for fetching days paid for by provided VRNs in provided CAZ ID and returning
+ * them.
  */
 @Service
 @AllArgsConstructor
+@Slf4j
 public class GetPaidEntrantPaymentsService {
 
   private final EntrantPaymentRepository entrantPaymentRepository;
+  private final PaidDaysIndex paidDaysIndex;
 
   /**
-   * Method receives a collection of VRNs, date range and CleanAirZone ID for which it is supposed
-   * to fetch collection of PAID {@link EntrantPayment}, and then return information which VRNs in
-   * provided CAZ has already paid for the entrance.
+   * Gets paid days of {@code vrns} in the given date range and CAZ. Paid days are read from
+   * {@link PaidDaysIndex}; vehicles which are not indexed yet are read from the database and their
+   * bitmaps are rebuilt.
    *
    * @param vrns provided list of VRNs.
    * @param startDate first day in date range.
    * @param endDate last day in date range.
    * @param cleanAirZoneId CAZ in which the payments are checked.
-   * @return Map with VRN as a key and list of {@link EntrantPayment} as value.
+   * @return Map with VRN as a key and list of paid days as value.
    */
-  public Map<String, List<EntrantPayment>> getResults(Set<String> vrns, LocalDate startDate,
+  public Map<String, List<LocalDate>> getPaidDates(Set<String> vrns, LocalDate startDate,
       LocalDate endDate, UUID cleanAirZoneId) {
+    Map<String, List<LocalDate>> paidDates = new HashMap<>(paidDaysIndex
+        .findPaidDays(cleanAirZoneId, vrns, startDate, endDate));
+    Set<String> notIndexedVrns = new HashSet<>(vrns);
+    notIndexedVrns.removeAll(paidDates.keySet());
+
+    if (!notIndexedVrns.isEmpty()) {
+      log.info("{} of {} VRNs are not in paid days index, reading them from the database",
+          notIndexedVrns.size(), vrns.size());
+      paidDates.putAll(paidDaysIndex.covers(startDate, endDate)
+          ? findAndIndexPaidDates(notIndexedVrns, startDate, endDate, cleanAirZoneId)
+          : findPaidDates(notIndexedVrns, startDate, endDate, cleanAirZoneId));
+    }
 
     return vrns.stream()
         .collect(
             Collectors.toMap(
                 Function.identity(),
-                vrn -> entrantPaymentRepository.findAllPaidByVrnAndDateRangeAndCazId(vrn, startDate,
-                    endDate, cleanAirZoneId)
+                vrn -> paidDates.getOrDefault(vrn, Collections.emptyList())
+            )
+        );
+  }
+
+  /**
+   * Reads all paid days of {@code vrns} from the database, rebuilds their bitmaps and returns paid
+   * days in the given date range.
+   */
+  private Map<String, List<LocalDate>> findAndIndexPaidDates(Set<String> vrns,
+      LocalDate startDate, LocalDate endDate, UUID cleanAirZoneId) {
+    Map<String, List<LocalDate>> allPaidDates = findPaidDates(vrns,
+        PaidDaysIndex.FIRST_INDEXED_DAY, PaidDaysIndex.LAST_INDEXED_DAY, cleanAirZoneId);
+    paidDaysIndex.rebuild(cleanAirZoneId, vrns, allPaidDates);
+
+    return allPaidDates.entrySet()
+        .stream()
+        .collect(
+            Collectors.toMap(
+                Map.Entry::getKey,
+                entry -> entry.getValue().stream()
+                    .filter(day -> !day.isBefore(startDate) && !day.isAfter(endDate))
+                    .collect(Collectors.toList())
+            )
+        );
+  }
+
+  /**
+   * Reads paid days of {@code vrns} in the given date range from the database.
+   */
+  private Map<String, List<LocalDate>> findPaidDates(Set<String> vrns, LocalDate startDate,
+      LocalDate endDate, UUID cleanAirZoneId) {
+    return entrantPaymentRepository
+        .findAllPaidByVrnsAndDateRangeAndCazId(vrns, startDate, endDate, cleanAirZoneId)
+        .entrySet()
+        .stream()
+        .collect(
+            Collectors.toMap(
+                Map.Entry::getKey,
+                entry -> entry.getValue().stream()
+                    .map(EntrantPayment::getTravelDate)
+                    .collect(Collectors.toList())
             )
         );
   }
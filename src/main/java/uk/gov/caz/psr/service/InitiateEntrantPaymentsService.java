@@ -3,17 +3,21 @@ package uk.gov.caz.psr.service;
 import static uk.gov.caz.psr.util.AttributesNormaliser.normalizeVrn;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import uk.gov.caz.psr.controller.exception.EntrantPaymentAlreadyPaidException;
 import uk.gov.caz.psr.model.EntrantPayment;
+import uk.gov.caz.psr.model.EntrantPaymentKey;
 import uk.gov.caz.psr.model.EntrantPaymentMatch;
 import uk.gov.caz.psr.model.EntrantPaymentUpdateActor;
 import uk.gov.caz.psr.model.ExternalPaymentStatus;
@@ -40,63 +44,57 @@ public class InitiateEntrantPaymentsService {
   /**
    * Processes {@link EntrantPayment}s when a new payment is initiated by inserting or updating
    * {@link EntrantPayment} entities alongside with inserting or updating {@link
-   * EntrantPaymentMatch}es.
+   * EntrantPaymentMatch}es. Existing entrant payments are fetched with a single query, validated
+   * and then all entities are written with batched statements, hence the number of round trips
+   * does not depend on the number of entrant payments.
    */
   void processEntrantPaymentsForPayment(UUID paymentId, UUID cleanAirZoneId,
       List<SingleEntrantPayment> entrantPayments) {
-
-    Map<String, List<SingleEntrantPayment>> groupedByVrn = entrantPayments.stream()
-        .collect(Collectors.groupingBy(SingleEntrantPayment::getVrn));
-
-    for (Entry<String, List<SingleEntrantPayment>> vrnWithPayment : groupedByVrn.entrySet()) {
-      processEntrantPaymentsForVrn(paymentId, cleanAirZoneId, vrnWithPayment.getKey(),
-          vrnWithPayment.getValue());
+    Map<EntrantPaymentKey, EntrantPayment> currentEntrantPayments = fetchMatchingEntrantPayments(
+        cleanAirZoneId, entrantPayments);
+
+    List<EntrantPayment> toBeInserted = new ArrayList<>();
+    List<EntrantPayment> toBeUpdated = new ArrayList<>();
+    for (SingleEntrantPayment singleEntrantPayment : entrantPayments) {
+      EntrantPayment entrantPayment = currentEntrantPayments.get(
+          toKey(cleanAirZoneId, singleEntrantPayment));
+      if (entrantPayment == null) {
+        toBeInserted.add(buildEntrantPayment(singleEntrantPayment.getTravelDate(),
+            singleEntrantPayment.getCharge(), singleEntrantPayment.getVrn(),
+            singleEntrantPayment.getTariffCode(), cleanAirZoneId));
+      } else {
+        processRelatedPayment(entrantPayment);
+        toBeUpdated.add(buildUpdatedEntrantPayment(singleEntrantPayment.getTariffCode(),
+            singleEntrantPayment.getCharge(), entrantPayment));
+      }
     }
-  }
 
-  /**
-   * Process all 'transactions' (in a data sense, see {@code InitiatePaymentRequest}) related to a
-   * particular {@code vrn}.
-   */
-  private void processEntrantPaymentsForVrn(UUID paymentId, UUID cleanAirZoneId, String vrn,
-      List<SingleEntrantPayment> entrantPayments) {
-    List<EntrantPayment> currentEntrantPayments = fetchMatchingEntrantPayments(
-        cleanAirZoneId, vrn, entrantPayments);
-    for (SingleEntrantPayment entrantPayment : entrantPayments) {
-      processEntrantPayment(paymentId, cleanAirZoneId, vrn, currentEntrantPayments, entrantPayment);
-    }
+    List<UUID> cleanAirZoneEntrantPaymentIds = new ArrayList<>(entrantPayments.size());
+    cleanAirZoneEntrantPaymentIds.addAll(updateEntrantPayments(toBeUpdated));
+    cleanAirZoneEntrantPaymentIds.addAll(insertEntrantPayments(toBeInserted));
+    matchPaymentWithEntrantPayments(paymentId, cleanAirZoneEntrantPaymentIds);
   }
 
   /**
-   * Finds matching entrant payments for {@code cleanAirZoneId} and {@code vrn} in {@code
-   * entrantPayments}.
+   * Finds entrant payments for {@code cleanAirZoneId} which match {@code entrantPayments} with a
+   * single query.
    */
-  private List<EntrantPayment> fetchMatchingEntrantPayments(UUID cleanAirZoneId, String vrn,
-      List<SingleEntrantPayment> entrantPayments) {
-    List<LocalDate> travelDates = entrantPayments.stream().map(SingleEntrantPayment::getTravelDate)
-        .collect(Collectors.toList());
-    return entrantPaymentRepository.findByVrnAndCazEntryDates(cleanAirZoneId, vrn, travelDates);
+  private Map<EntrantPaymentKey, EntrantPayment> fetchMatchingEntrantPayments(
+      UUID cleanAirZoneId, List<SingleEntrantPayment> entrantPayments) {
+    Set<EntrantPaymentKey> keys = entrantPayments.stream()
+        .map(singleEntrantPayment -> toKey(cleanAirZoneId, singleEntrantPayment))
+        .collect(Collectors.toCollection(LinkedHashSet::new));
+    return entrantPaymentRepository.findAllByKeys(keys)
+        .stream()
+        .collect(Collectors.toMap(EntrantPaymentKey::from, Function.identity()));
   }
 
   /**
-   * Process a single 'transaction' (in a data sense, see {@code InitiatePaymentRequest}).
+   * Creates the key of an entrant payment which matches {@code singleEntrantPayment}.
    */
-  private void processEntrantPayment(UUID paymentId, UUID cleanAirZoneId, String vrn,
-      List<EntrantPayment> currentEntrantPayments, SingleEntrantPayment singleEntrantPayment) {
-    Optional<EntrantPayment> entrantPayment = findMatchingEntrantPayment(
-        singleEntrantPayment.getTravelDate(), currentEntrantPayments);
-    UUID cleanAirZoneEntrantPaymentId;
-    if (entrantPayment.isPresent()) {
-      processRelatedPayment(entrantPayment.get());
-      cleanAirZoneEntrantPaymentId = updateEntrantPayment(singleEntrantPayment.getTariffCode(),
-          singleEntrantPayment.getCharge(), entrantPayment.get());
-      entrantPaymentMatchRepository.updateLatestToFalseFor(cleanAirZoneEntrantPaymentId);
-    } else {
-      cleanAirZoneEntrantPaymentId = insertEntrantPayment(cleanAirZoneId, vrn,
-          singleEntrantPayment.getTariffCode(), singleEntrantPayment.getCharge(),
-          singleEntrantPayment.getTravelDate());
-    }
-    matchPaymentWithEntrantPayment(paymentId, cleanAirZoneEntrantPaymentId);
+  private EntrantPaymentKey toKey(UUID cleanAirZoneId, SingleEntrantPayment singleEntrantPayment) {
+    return new EntrantPaymentKey(cleanAirZoneId, singleEntrantPayment.getVrn(),
+        singleEntrantPayment.getTravelDate());
   }
 
   /**
@@ -115,7 +113,10 @@ public class InitiateEntrantPaymentsService {
     ExternalPaymentStatus relatedPaymentStatus = paymentRepository
         .findByEntrantPayment(entrantPayment.getCleanAirZoneEntrantPaymentId())
         .filter(payment -> {
-          boolean isDanglingPayment = payment.getExternalPaymentStatus().isNotFinished();
+          // payments without an external id have never reached the payment provider (their
+          // initiation has been interrupted), hence there is nothing to reconcile them with
+          boolean isDanglingPayment = payment.getExternalId() != null
+              && payment.getExternalPaymentStatus().isNotFinished();
           log.info("The related payment for entrant '{}' is {}",
               entrantPayment.getCleanAirZoneEntrantPaymentId(),
               isDanglingPayment ? "a dangling one" : "not a dangling one");
@@ -132,42 +133,62 @@ public class InitiateEntrantPaymentsService {
   }
 
   /**
-   * Inserts a new {@link EntrantPaymentMatch} records that match a payment with entrants.
+   * Inserts new {@link EntrantPaymentMatch} records that match a payment with entrants and updates
+   * the number of entries of the payment accordingly.
    */
-  private void matchPaymentWithEntrantPayment(UUID paymentId, UUID cleanAirZoneEntrantPaymentId) {
-    EntrantPaymentMatch entrantPaymentMatch = EntrantPaymentMatch.builder()
-        .paymentId(paymentId)
-        .vehicleEntrantPaymentId(cleanAirZoneEntrantPaymentId)
-        .latest(true)
-        .build();
-    entrantPaymentMatchRepository.insert(entrantPaymentMatch);
+  private void matchPaymentWithEntrantPayments(UUID paymentId,
+      List<UUID> cleanAirZoneEntrantPaymentIds) {
+    List<EntrantPaymentMatch> entrantPaymentMatches = cleanAirZoneEntrantPaymentIds.stream()
+        .map(cleanAirZoneEntrantPaymentId -> EntrantPaymentMatch.builder()
+            .paymentId(paymentId)
+            .vehicleEntrantPaymentId(cleanAirZoneEntrantPaymentId)
+            .latest(true)
+            .build())
+        .collect(Collectors.toList());
+    entrantPaymentMatchRepository.insert(entrantPaymentMatches);
+    paymentRepository.increaseEntriesCount(paymentId, entrantPaymentMatches.size());
   }
 
   /**
-   * Inserts a new instance of {@link EntrantPayment} based on the passed arguments and returns its
-   * identifier.
+   * Inserts {@code entrantPayments} and returns their identifiers.
    */
-  private UUID insertEntrantPayment(UUID cleanAirZoneId, String vrn, String tariffCode,
-      int chargePerDay, LocalDate travelDate) {
-    EntrantPayment toBeInserted = buildEntrantPayment(travelDate, chargePerDay,
-        vrn, tariffCode, cleanAirZoneId);
-    EntrantPayment inserted = entrantPaymentRepository.insert(toBeInserted);
-    return inserted.getCleanAirZoneEntrantPaymentId();
+  private List<UUID> insertEntrantPayments(List<EntrantPayment> entrantPayments) {
+    if (entrantPayments.isEmpty()) {
+      return Collections.emptyList();
+    }
+    return entrantPaymentRepository.insert(entrantPayments)
+        .stream()
+        .map(EntrantPayment::getCleanAirZoneEntrantPaymentId)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Updates {@code entrantPayments}, marks their current matches as not being the latest ones and
+   * returns their identifiers.
+   */
+  private List<UUID> updateEntrantPayments(List<EntrantPayment> entrantPayments) {
+    if (entrantPayments.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<UUID> cleanAirZoneEntrantPaymentIds = entrantPayments.stream()
+        .map(EntrantPayment::getCleanAirZoneEntrantPaymentId)
+        .collect(Collectors.toList());
+    entrantPaymentRepository.update(entrantPayments);
+    entrantPaymentMatchRepository.updateLatestToFalseFor(cleanAirZoneEntrantPaymentIds);
+    return cleanAirZoneEntrantPaymentIds;
   }
 
   /**
-   * Updates an existing {@link EntrantPayment} by setting charge, tariff code and the update actor.
-   * Once the update has been made, the identifier of the entity is returned.
+   * Builds an updated version of an existing {@link EntrantPayment} by setting charge, tariff code
+   * and the update actor.
    */
-  private UUID updateEntrantPayment(String tariffCode, int chargePerDay,
+  private EntrantPayment buildUpdatedEntrantPayment(String tariffCode, int chargePerDay,
       EntrantPayment entrantPayment) {
-    EntrantPayment toBeUpdated = entrantPayment.toBuilder()
+    return entrantPayment.toBuilder()
         .updateActor(EntrantPaymentUpdateActor.USER)
         .charge(chargePerDay)
         .tariffCode(tariffCode)
         .build();
-    entrantPaymentRepository.update(toBeUpdated);
-    return toBeUpdated.getCleanAirZoneEntrantPaymentId();
   }
 
   /**
@@ -185,15 +206,4 @@ public class InitiateEntrantPaymentsService {
         .tariffCode(tariffCode)
         .build();
   }
-
-  /**
-   * Finds an entrant payment in the passed {@code currentEntrantPayments} whose travel date is
-   * equal to {@code travelDate}.
-   */
-  private Optional<EntrantPayment> findMatchingEntrantPayment(LocalDate travelDate,
-      List<EntrantPayment> currentEntrantPayments) {
-    return currentEntrantPayments.stream()
-        .filter(entrantPayment -> travelDate.equals(entrantPayment.getTravelDate()))
-        .findFirst();
-  }
 }
@@ -1,10 +1,9 @@
-
 package uk.gov.caz.psr.service;
 
 import java.util.List;
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import uk.gov.caz.psr.model.Payment;
 import uk.gov.caz.psr.model.SingleEntrantPayment;
 import uk.gov.caz.psr.repository.ExternalCardPaymentsRepository;
@@ -13,26 +12,53 @@ import uk.gov.caz.psr.repository.PaymentRepository;
 /**
  * A service which is responsible creating Payment in GOV.UK PAY
  */
+@Slf4j
 @Service
 @AllArgsConstructor
 public class InitiatePaymentService {
 
   private final ExternalCardPaymentsRepository externalCardPaymentsRepository;
   private final PaymentRepository paymentRepository;
-  private final InitiateEntrantPaymentsService initiateEntrantPaymentsService;
+  private final PaymentInitiationPhaseService paymentInitiationPhaseService;
 
   /**
-   * Creates Payment in GOV.UK PAY, inserts Payment details into database.
+   * Creates Payment in GOV.UK PAY, inserts Payment details into database. The method is
+   * deliberately not transactional: the payment with its entrant payments is committed before
+   * GOV.UK PAY is called and the external details are saved afterwards, hence no database
+   * connection is held during the call. If the call fails, the payment is marked as failed.
    */
-  @Transactional
   public Payment createPayment(Payment payment, List<SingleEntrantPayment> entrantPayments,
       String returnUrl) {
-    Payment paymentWithInternalId = paymentRepository.insert(payment);
-    Payment paymentWithExternalId = externalCardPaymentsRepository.create(paymentWithInternalId,
-        returnUrl);
-    initiateEntrantPaymentsService.processEntrantPaymentsForPayment(paymentWithInternalId.getId(),
-        payment.getCleanAirZoneId(), entrantPayments);
+    Payment paymentWithInternalId = paymentInitiationPhaseService.insertWithEntrantPayments(
+        payment, entrantPayments);
+    Payment paymentWithExternalId = createExternalPayment(paymentWithInternalId, returnUrl);
     paymentRepository.update(paymentWithExternalId);
     return paymentWithExternalId;
   }
+
+  /**
+   * Creates {@code payment} in GOV.UK PAY. Marks it as failed in the database if the call does
+   * not succeed.
+   */
+  private Payment createExternalPayment(Payment payment, String returnUrl) {
+    try {
+      return externalCardPaymentsRepository.create(payment, returnUrl);
+    } catch (RuntimeException e) {
+      log.error("Error while creating payment '{}' in GOV.UK PAY", payment.getId());
+      compensate(payment, e);
+      throw e;
+    }
+  }
+
+  /**
+   * Marks {@code payment} as failed, the failure of which is attached to {@code cause}.
+   */
+  private void compensate(Payment payment, RuntimeException cause) {
+    try {
+      paymentInitiationPhaseService.markAsFailed(payment);
+    } catch (RuntimeException e) {
+      log.error("Cannot mark payment '{}' as failed", payment.getId(), e);
+      cause.addSuppressed(e);
+    }
+  }
 }
@@ -0,0 +1,52 @@
+package uk.gov.caz.psr.service;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gov.caz.psr.model.ExternalPaymentStatus;
+import uk.gov.caz.psr.model.Payment;
+import uk.gov.caz.psr.model.SingleEntrantPayment;
+import uk.gov.caz.psr.repository.PaymentRepository;
+
+/**
+ * Groups the database writes which are performed while a payment is being initiated, so that each
+ * of them is run in its own, short transaction and no database connection is held while the
+ * payment provider is being called.
+ */
+@Slf4j
+@Service
+@AllArgsConstructor
+public class PaymentInitiationPhaseService {
+
+  private final PaymentRepository paymentRepository;
+  private final InitiateEntrantPaymentsService initiateEntrantPaymentsService;
+
+  /**
+   * Inserts {@code payment} into the database and assigns {@code entrantPayments} to it.
+   *
+   * @return {@code payment} with its internal identifier and reference number.
+   */
+  @Transactional
+  public Payment insertWithEntrantPayments(Payment payment,
+      List<SingleEntrantPayment> entrantPayments) {
+    Payment paymentWithInternalId = paymentRepository.insert(payment);
+    initiateEntrantPaymentsService.processEntrantPaymentsForPayment(paymentWithInternalId.getId(),
+        payment.getCleanAirZoneId(), entrantPayments);
+    return paymentWithInternalId;
+  }
+
+  /**
+   * Compensates a payment whose creation in the payment provider has failed by setting its
+   * external status to {@link ExternalPaymentStatus#ERROR}, so that its entrant payments can be
+   * paid by another payment.
+   */
+  @Transactional
+  public void markAsFailed(Payment payment) {
+    log.warn("Marking payment '{}' as failed", payment.getId());
+    paymentRepository.update(payment.toBuilder()
+        .externalPaymentStatus(ExternalPaymentStatus.ERROR)
+        .build());
+  }
+}
@@ -90,8 +90,8 @@ public class ReconcilePaymentStatusService {
    * @return a {@link UUID} representing a Clean Air Zone.
    */
   private UUID getCleanAirZoneId(Payment payment) {
-    Preconditions.checkArgument(!payment.getEntrantPayments().isEmpty(),
-        "CAZ entrant payments should not be empty");
-    return payment.getEntrantPayments().iterator().next().getCleanAirZoneId();
+    Preconditions.checkArgument(payment.getCleanAirZoneId() != null,
+        "Clean Air Zone ID of the payment should not be null");
+    return payment.getCleanAirZoneId();
   }
 }
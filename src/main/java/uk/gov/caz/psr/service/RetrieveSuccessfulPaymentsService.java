@@ -10,6 +10,7 @@ import lombok.AllArgsConstructor;
 import org.springframework.data.util.Pair;
 import org.springframework.stereotype.Service;
 import retrofit2.Response;
+import uk.gov.caz.psr.controller.exception.InvalidRequestPayloadException;
 import uk.gov.caz.psr.dto.accounts.AccountUserResponse;
 import uk.gov.caz.psr.dto.accounts.AccountUsersResponse;
 import uk.gov.caz.psr.model.EnrichedPaymentSummary;
@@ -17,29 +18,30 @@ import uk.gov.caz.psr.model.EntrantPaymentUpdateActor;
 import uk.gov.caz.psr.model.InternalPaymentStatus;
 import uk.gov.caz.psr.model.PaginationData;
 import uk.gov.caz.psr.model.PaymentModificationStatus;
+import uk.gov.caz.psr.model.PaymentSummariesPage;
 import uk.gov.caz.psr.model.PaymentSummary;
-import uk.gov.caz.psr.model.PaymentToCleanAirZoneMapping;
 import uk.gov.caz.psr.repository.AccountsRepository;
 import uk.gov.caz.psr.repository.PaymentSummaryRepository;
-import uk.gov.caz.psr.repository.PaymentToCleanAirZoneMappingRepository;
 import uk.gov.caz.psr.repository.audit.PaymentDetailRepository;
+import uk.gov.caz.psr.service.UpstreamCallExecutor.PendingCall;
 import uk.gov.caz.psr.util.CurrencyFormatter;
 
 /**
  * Service responsible for fetching users information from AccountsAPI, fetching information about
  * payments of those users from the database, getting information about CleanAirZones from VCCS API,
- * and finally, integration of those data.
+ * and finally, integration of those data. Independent calls are executed concurrently by {@link
+ * UpstreamCallExecutor}.
  */
 @Service
 @AllArgsConstructor
 public class RetrieveSuccessfulPaymentsService {
 
   private final AccountsRepository accountsRepository;
-  private final PaymentToCleanAirZoneMappingRepository paymentToCleanAirZoneMappingRepository;
   private final PaymentSummaryRepository paymentSummaryRepository;
   private final PaymentDetailRepository paymentDetailRepository;
   private final CurrencyFormatter currencyFormatter;
   private final VehicleComplianceRetrievalService vehicleComplianceRetrievalService;
+  private final UpstreamCallExecutor upstreamCallExecutor;
 
   /**
    * Method fetches list of users associated with the provided account and selects the user with the
@@ -47,16 +49,25 @@ public class RetrieveSuccessfulPaymentsService {
    *
    * @param accountId Account of which users are going to be fetched
    * @param accountUserId Specific account which data are going to be fetched
+   * @param lastPaymentId ID of the last payment on the previous page, may be null
    * @param pageNumber page number
    * @param pageSize page size
    */
   public Pair<PaginationData, List<EnrichedPaymentSummary>> retrieveForSingleUser(UUID accountId,
-      UUID accountUserId, int pageNumber, int pageSize) {
-    List<AccountUserResponse> accountUsers = getAccountUsers(accountId);
-    List<AccountUserResponse> selectedAccountUser = accountUsers.stream()
-        .filter(accountUserResponse -> accountUserResponse.getAccountUserId().equals(accountUserId))
-        .collect(Collectors.toList());
-    return retrieveForSelectedUsers(selectedAccountUser, pageNumber, pageSize);
+      UUID accountUserId, UUID lastPaymentId, int pageNumber, int pageSize) {
+    PendingCall<Map<UUID, String>> cleanAirZonesIdToNameMap = submitCleanAirZonesLookup();
+    try {
+      List<AccountUserResponse> accountUsers = getAccountUsers(accountId);
+      List<AccountUserResponse> selectedAccountUser = accountUsers.stream()
+          .filter(accountUserResponse -> accountUserResponse.getAccountUserId()
+              .equals(accountUserId))
+          .collect(Collectors.toList());
+      return retrieveForSelectedUsers(selectedAccountUser, cleanAirZonesIdToNameMap,
+          lastPaymentId, pageNumber, pageSize);
+    } catch (RuntimeException e) {
+      cleanAirZonesIdToNameMap.cancel();
+      throw e;
+    }
   }
 
   /**
@@ -64,58 +75,69 @@ public class RetrieveSuccessfulPaymentsService {
    * users associated with the account.
    *
    * @param accountId Account of which users are going to be fetched
+   * @param lastPaymentId ID of the last payment on the previous page, may be null
    * @param pageNumber page number
    * @param pageSize page size
    */
   public Pair<PaginationData, List<EnrichedPaymentSummary>> retrieveForAccount(UUID accountId,
-      int pageNumber, int pageSize) {
-    List<AccountUserResponse> accountUsers = getAccountUsers(accountId);
-    return retrieveForSelectedUsers(accountUsers, pageNumber, pageSize);
+      UUID lastPaymentId, int pageNumber, int pageSize) {
+    PendingCall<Map<UUID, String>> cleanAirZonesIdToNameMap = submitCleanAirZonesLookup();
+    try {
+      List<AccountUserResponse> accountUsers = getAccountUsers(accountId);
+      return retrieveForSelectedUsers(accountUsers, cleanAirZonesIdToNameMap, lastPaymentId,
+          pageNumber, pageSize);
+    } catch (RuntimeException e) {
+      cleanAirZonesIdToNameMap.cancel();
+      throw e;
+    }
   }
 
   /**
    * Method receives list of users for which the payment data are going to be fetched from the
-   * database.
+   * database. The page of payments, their clean air zones and the total count are fetched with a
+   * single query, concurrently with the lookup of names of clean air zones.
    *
    * @param accountUsers list of users
+   * @param cleanAirZonesIdToNameMap pending lookup of names of clean air zones
+   * @param lastPaymentId ID of the last payment on the previous page, may be null
    * @param pageNumber page number
    * @param pageSize page size
    */
   private Pair<PaginationData, List<EnrichedPaymentSummary>> retrieveForSelectedUsers(
-      List<AccountUserResponse> accountUsers, int pageNumber, int pageSize) {
+      List<AccountUserResponse> accountUsers,
+      PendingCall<Map<UUID, String>> cleanAirZonesIdToNameMap, UUID lastPaymentId,
+      int pageNumber, int pageSize) {
     List<UUID> userIds = getUserIds(accountUsers);
     Map<UUID, String> accountIdToAccountNameMap = getAccountIdToAccountNameMap(accountUsers);
 
-    List<PaymentSummary> paymentSummaries = composePaymentSummaries(userIds, pageNumber, pageSize);
+    PaymentSummariesPage paymentSummariesPage = paymentSummaryRepository
+        .getPaymentSummariesPage(userIds, lastPaymentId, pageNumber, pageSize);
+    List<PaymentSummary> paymentSummaries = paymentSummariesPage.getPaymentSummaries();
+    if (paymentSummaries.isEmpty() && lastPaymentId != null
+        && !paymentSummaryRepository.isSuccessfulPaymentOfUsers(userIds, lastPaymentId)) {
+      // an unknown keyset matches no payments, which must not be mistaken for the last page
+      throw new InvalidRequestPayloadException("Unknown lastPaymentId");
+    }
+    Map<UUID, List<PaymentModificationStatus>> matchingPaymentModificationStatuses =
+        findPaymentModifiedStatusesByPaymentId(paymentSummaries);
+
     List<EnrichedPaymentSummary> enrichedPaymentSummaries = enrichPaymentSummaries(
-        paymentSummaries, accountIdToAccountNameMap);
-    PaginationData paginationData = getPaginationData(userIds, pageNumber, pageSize);
+        paymentSummaries, accountIdToAccountNameMap, cleanAirZonesIdToNameMap.await(),
+        matchingPaymentModificationStatuses);
+    PaginationData paginationData = getPaginationData(paymentSummariesPage, userIds, pageNumber,
+        pageSize);
 
     return Pair.of(paginationData, enrichedPaymentSummaries);
   }
 
   /**
-   * Method receives userIds list whose payments are going to be fetched from DB, and composes it
-   * with clean air zone ids.
-   *
-   * @param userIds list of userIds
-   * @param pageNumber page number
-   * @param pageSize page size
-   * @return list of {@link PaymentSummary}.
+   * Submits the lookup of names of clean air zones, which does not depend on the account. It runs
+   * concurrently with the lookup of users of the account and the database queries; it is cancelled
+   * if any of them fails.
    */
-  private List<PaymentSummary> composePaymentSummaries(List<UUID> userIds, int pageNumber,
-      int pageSize) {
-    Map<UUID, UUID> paymentIdToCazIdMap = getPaymentIdToCleanAirZoneIdMap(userIds);
-
-    List<PaymentSummary> paymentSummaries = paymentSummaryRepository
-        .getPaginatedPaymentSummaryForUserIds(userIds, pageNumber, pageSize);
-
-    return paymentSummaries
-        .stream()
-        .map(paymentSummary -> paymentSummary.toBuilder()
-            .cleanAirZoneId(paymentIdToCazIdMap.get(paymentSummary.getPaymentId()))
-            .build())
-        .collect(Collectors.toList());
+  private PendingCall<Map<UUID, String>> submitCleanAirZonesLookup() {
+    return upstreamCallExecutor.submit("Clean air zones lookup",
+        vehicleComplianceRetrievalService::getCleanAirZoneIdToCleanAirZoneNameMap);
   }
 
   /**
@@ -156,16 +178,20 @@ public class RetrieveSuccessfulPaymentsService {
   }
 
   /**
-   * Based on the provided users ids, the counting queries are triggered on the database in order to
-   * return pagination information.
+   * Builds pagination information based on the total count of payments returned with the page. If
+   * the page is empty, the counting query is triggered on the database.
    *
+   * @param paymentSummariesPage page of payments
    * @param userIds list of user ids
    * @param pageNumber page number
    * @param pageSize page size
    * @return {@link PaginationData} object.
    */
-  private PaginationData getPaginationData(List<UUID> userIds, int pageNumber, int pageSize) {
-    int totalPaymentsCount = paymentSummaryRepository.getTotalPaymentsCountForUserIds(userIds);
+  private PaginationData getPaginationData(PaymentSummariesPage paymentSummariesPage,
+      List<UUID> userIds, int pageNumber, int pageSize) {
+    int totalPaymentsCount = paymentSummariesPage.getTotalPaymentsCount() == null
+        ? paymentSummaryRepository.getTotalPaymentsCountForUserIds(userIds)
+        : paymentSummariesPage.getTotalPaymentsCount();
     int pageCount = totalPaymentsCount / pageSize + ((totalPaymentsCount % pageSize == 0) ? 0 : 1);
 
     return PaginationData.builder()
@@ -177,36 +203,19 @@ public class RetrieveSuccessfulPaymentsService {
   }
 
   /**
-   * Helper method which queries the database for the paymentId and cleanAirZone association and
-   * then returns map with paymentId as key and cleanAirZoneId as value (e.g.
-   * '9cc2dd1a-905e-4eaf-af85-0b14f95aab89' => '43ea77cc-93cb-4df3-b731-5244c0de9cc8').
-   *
-   * @param userIds collection of userIds for whose payments database is queried.
-   * @return map
-   */
-  private Map<UUID, UUID> getPaymentIdToCleanAirZoneIdMap(List<UUID> userIds) {
-    List<PaymentToCleanAirZoneMapping> mappings = paymentToCleanAirZoneMappingRepository
-        .getPaymentToCleanAirZoneMapping(userIds);
-    return mappings.stream().collect(Collectors
-        .toMap(PaymentToCleanAirZoneMapping::getPaymentId,
-            PaymentToCleanAirZoneMapping::getCleanAirZoneId));
-  }
-
-  /**
-   * Method receives {@link PaymentSummary} collection along with helper collection which has stored
-   * mapping between cleanAirZoneID and cleanAirZone name.
+   * Method receives {@link PaymentSummary} collection along with helper collections which have
+   * stored mapping between cleanAirZoneID and cleanAirZone name and modifications of payments.
    *
    * @param paymentSummaries collection of {@link PaymentSummary}
    * @param accountIdToNameMap helper collection
+   * @param cleanAirZonesIdToNameMap helper collection
+   * @param matchingPaymentModificationStatuses modifications grouped by payment id
    * @return collection of {@link EnrichedPaymentSummary} with all data.
    */
   private List<EnrichedPaymentSummary> enrichPaymentSummaries(
-      List<PaymentSummary> paymentSummaries, Map<UUID, String> accountIdToNameMap) {
-    Map<UUID, String> cleanAirZonesIdToNameMap = vehicleComplianceRetrievalService
-        .getCleanAirZoneIdToCleanAirZoneNameMap();
-    Map<UUID, List<PaymentModificationStatus>> matchingPaymentModificationStatuses =
-        findPaymentModifiedStatusesByPaymentId(paymentSummaries);
-
+      List<PaymentSummary> paymentSummaries, Map<UUID, String> accountIdToNameMap,
+      Map<UUID, String> cleanAirZonesIdToNameMap,
+      Map<UUID, List<PaymentModificationStatus>> matchingPaymentModificationStatuses) {
     return paymentSummaries.stream()
         .map(paymentSummary -> EnrichedPaymentSummary.builder()
             .paymentId(paymentSummary.getPaymentId())
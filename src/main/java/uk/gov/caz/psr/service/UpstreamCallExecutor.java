@@ -0,0 +1,164 @@
+package uk.gov.caz.psr.service;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.caz.psr.service.exception.ExternalServiceCallException;
+
+/**
+ * Executes independent HTTP calls to other services concurrently with the work of the submitting
+ * thread, so that the latency of a request is the latency of its slowest call rather than the sum
+ * of all of them. Database queries are not meant to be submitted here, as they would compete for
+ * the small connection pool instead of running in parallel.
+ *
+ * <p>Calls are executed by a bounded pool of workers with the MDC (and hence the correlation id)
+ * of the submitting thread. Every call has to complete within the configured timeout counted from
+ * its submission. A call whose result is no longer needed, e.g. because a sibling call has failed,
+ * should be cancelled.</p>
+ */
+@Component
+@Slf4j
+public class UpstreamCallExecutor {
+
+  private final ExecutorService workers;
+  private final Duration timeout;
+
+  /**
+   * Creates an instance of {@link UpstreamCallExecutor}.
+   */
+  @Autowired
+  public UpstreamCallExecutor(
+      @Value("${application.upstream-calls.worker-threads:16}") int workerThreads,
+      @Value("${application.upstream-calls.timeout-millis:10000}") long timeoutMillis) {
+    this(newWorkers(workerThreads), Duration.ofMillis(timeoutMillis));
+  }
+
+  @VisibleForTesting
+  UpstreamCallExecutor(ExecutorService workers, Duration timeout) {
+    this.workers = workers;
+    this.timeout = timeout;
+  }
+
+  /**
+   * Submits {@code call} for execution with the MDC of the current thread.
+   *
+   * @param callName name of the call used in error messages.
+   * @param call the call to be executed.
+   * @return {@link PendingCall} whose result can be awaited.
+   */
+  public <T> PendingCall<T> submit(String callName, Supplier<T> call) {
+    Map<String, String> context = MDC.getCopyOfContextMap();
+    long deadline = System.nanoTime() + timeout.toNanos();
+    Future<T> future = workers.submit(() -> callWithContext(call, context));
+    return new PendingCall<>(callName, future, deadline);
+  }
+
+  /**
+   * Executes {@code call} with {@code context} set as MDC and restores the previous MDC
+   * afterwards.
+   */
+  private static <T> T callWithContext(Supplier<T> call, Map<String, String> context) {
+    Map<String, String> previous = MDC.getCopyOfContextMap();
+    setContext(context);
+    try {
+      return call.get();
+    } finally {
+      setContext(previous);
+    }
+  }
+
+  /**
+   * Replaces the MDC of the current thread with {@code context}.
+   */
+  private static void setContext(Map<String, String> context) {
+    if (context == null) {
+      MDC.clear();
+    } else {
+      MDC.setContextMap(context);
+    }
+  }
+
+  /**
+   * Creates a pool of {@code workerThreads} daemon threads.
+   */
+  private static ExecutorService newWorkers(int workerThreads) {
+    Preconditions.checkArgument(workerThreads > 0, "workerThreads must be positive");
+    return Executors.newFixedThreadPool(workerThreads, runnable -> {
+      Thread thread = new Thread(runnable, "upstream-call");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Stops the workers.
+   */
+  @PreDestroy
+  public void shutdown() {
+    workers.shutdownNow();
+  }
+
+  /**
+   * A call submitted to {@link UpstreamCallExecutor}.
+   */
+  public static class PendingCall<T> {
+
+    private final String callName;
+    private final Future<T> future;
+    private final long deadline;
+
+    private PendingCall(String callName, Future<T> future, long deadline) {
+      this.callName = callName;
+      this.future = future;
+      this.deadline = deadline;
+    }
+
+    /**
+     * Waits for the result of the call.
+     *
+     * @return the result of the call.
+     * @throws ExternalServiceCallException if the call has not completed before its timeout.
+     * @throws RuntimeException thrown by the call.
+     */
+    public T await() {
+      try {
+        return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      } catch (TimeoutException e) {
+        future.cancel(true);
+        log.error("Call '{}' has not completed in time", callName);
+        throw new ExternalServiceCallException(callName + " has not completed in time");
+      } catch (InterruptedException e) {
+        future.cancel(true);
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for " + callName, e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new IllegalStateException(e.getCause());
+      }
+    }
+
+    /**
+     * Cancels the call, interrupting it if it is running. Does nothing if it has already
+     * completed.
+     */
+    public void cancel() {
+      future.cancel(true);
+    }
+  }
+}
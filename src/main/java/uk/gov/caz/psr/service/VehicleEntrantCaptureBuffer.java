@@ -0,0 +1,322 @@
+package uk.gov.caz.psr.service;
+
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import uk.gov.caz.correlationid.Constants;
+import uk.gov.caz.psr.dto.EntrantPaymentWithLatestPaymentDetailsDto;
+import uk.gov.caz.psr.dto.VehicleEntrantDto;
+import uk.gov.caz.psr.service.exception.VehicleEntrantsCaptureTimeoutException;
+
+/**
+ * An in-process buffer of vehicle entrant captures. Captures coming from concurrent requests are
+ * collected for a short period of time and processed together with a single call to {@link
+ * EntrantPaymentService#bulkProcess(List)}, which coalesces captures of the same vehicle in the
+ * same CAZ on the same day into a single database write. Callers still receive the payment details
+ * of their own entrants synchronously, at the cost of waiting for the next flush.
+ *
+ * <p>If the merged call fails, the entrants of each request are processed again separately, so
+ * that an invalid entrant fails only the request it came from. A request which has not been
+ * processed within the maximum wait time is withdrawn from the buffer and never written.</p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "application.vehicle-entrants.capture-buffer.enabled",
+    havingValue = "true")
+public class VehicleEntrantCaptureBuffer {
+
+  private final EntrantPaymentService entrantPaymentService;
+  private final int maxBatchSize;
+  private final long maxWaitMillis;
+  private final BlockingQueue<PendingRequest> pendingRequests = new LinkedBlockingQueue<>();
+  private final AtomicInteger pendingEntrantsCount = new AtomicInteger();
+  private final ScheduledExecutorService flushExecutor;
+
+  /**
+   * Creates an instance of {@link VehicleEntrantCaptureBuffer} and schedules periodic flushes.
+   */
+  @Autowired
+  public VehicleEntrantCaptureBuffer(EntrantPaymentService entrantPaymentService,
+      @Value("${application.vehicle-entrants.capture-buffer.flush-interval-millis:50}")
+          long flushIntervalMillis,
+      @Value("${application.vehicle-entrants.capture-buffer.max-batch-size:1000}") int maxBatchSize,
+      @Value("${application.vehicle-entrants.capture-buffer.max-wait-millis:10000}")
+          long maxWaitMillis) {
+    this(entrantPaymentService, maxBatchSize, maxWaitMillis,
+        Executors.newSingleThreadScheduledExecutor(runnable -> {
+          Thread thread = new Thread(runnable, "vehicle-entrant-capture-buffer");
+          thread.setDaemon(true);
+          return thread;
+        }));
+    flushExecutor.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  @VisibleForTesting
+  VehicleEntrantCaptureBuffer(EntrantPaymentService entrantPaymentService, int maxBatchSize,
+      long maxWaitMillis, ScheduledExecutorService flushExecutor) {
+    Preconditions.checkArgument(maxBatchSize > 0, "maxBatchSize must be positive");
+    this.entrantPaymentService = entrantPaymentService;
+    this.maxBatchSize = maxBatchSize;
+    this.maxWaitMillis = maxWaitMillis;
+    this.flushExecutor = flushExecutor;
+  }
+
+  /**
+   * Adds {@code vehicleEntrants} to the buffer and waits until they are processed.
+   *
+   * @param vehicleEntrants list of objects.
+   * @return List of {@link EntrantPaymentWithLatestPaymentDetailsDto} in the same order as
+   *     {@code vehicleEntrants}.
+   * @throws VehicleEntrantsCaptureTimeoutException if the entrants have not been processed
+   *     within the maximum wait time, in which case none of them is written.
+   */
+  public List<EntrantPaymentWithLatestPaymentDetailsDto> process(
+      List<VehicleEntrantDto> vehicleEntrants) {
+    PendingRequest request = submit(vehicleEntrants);
+    try {
+      return request.getResult().get(maxWaitMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      request.withdraw();
+      throw new VehicleEntrantsCaptureTimeoutException(
+          "Interrupted while waiting for vehicle entrants capture");
+    } catch (TimeoutException e) {
+      if (request.withdraw()) {
+        throw new VehicleEntrantsCaptureTimeoutException(
+            "Vehicle entrants have not been captured in time");
+      }
+      // the request is being processed, its result is about to be available
+      return await(request);
+    } catch (ExecutionException e) {
+      throw rethrow(e.getCause());
+    }
+  }
+
+  /**
+   * Puts {@code vehicleEntrants} into the buffer along with the MDC of the current thread and
+   * requests a flush if the buffer is full.
+   */
+  @VisibleForTesting
+  PendingRequest submit(List<VehicleEntrantDto> vehicleEntrants) {
+    PendingRequest request = new PendingRequest(vehicleEntrants, MDC.getCopyOfContextMap());
+    pendingRequests.add(request);
+    if (pendingEntrantsCount.addAndGet(vehicleEntrants.size()) >= maxBatchSize) {
+      flushExecutor.execute(this::flush);
+    }
+    return request;
+  }
+
+  /**
+   * Processes all buffered requests in batches of about {@code maxBatchSize} entrants, skipping
+   * the withdrawn ones.
+   */
+  @VisibleForTesting
+  synchronized void flush() {
+    List<PendingRequest> batch = new ArrayList<>();
+    int batchEntrantsCount = 0;
+    PendingRequest request;
+    while ((request = pendingRequests.poll()) != null) {
+      pendingEntrantsCount.addAndGet(-request.getVehicleEntrants().size());
+      if (!request.claim()) {
+        continue;
+      }
+      batch.add(request);
+      batchEntrantsCount += request.getVehicleEntrants().size();
+      if (batchEntrantsCount >= maxBatchSize) {
+        processBatch(batch);
+        batch = new ArrayList<>();
+        batchEntrantsCount = 0;
+      }
+    }
+    if (!batch.isEmpty()) {
+      processBatch(batch);
+    }
+  }
+
+  /**
+   * Processes {@code batch} with a single call to {@link EntrantPaymentService#bulkProcess(List)}
+   * and completes the futures of its requests. If the call fails, each request is processed
+   * separately.
+   */
+  private void processBatch(List<PendingRequest> batch) {
+    if (batch.size() == 1) {
+      processSeparately(batch.get(0));
+      return;
+    }
+    List<VehicleEntrantDto> vehicleEntrants = batch.stream()
+        .flatMap(request -> request.getVehicleEntrants().stream())
+        .collect(toList());
+    List<EntrantPaymentWithLatestPaymentDetailsDto> results;
+    try {
+      results = callWithContext(() -> entrantPaymentService.bulkProcess(vehicleEntrants),
+          mergedContext(batch));
+    } catch (RuntimeException e) {
+      log.warn("Error while processing a batch of {} vehicle entrants from {} requests, "
+          + "processing the requests separately", vehicleEntrants.size(), batch.size(), e);
+      batch.forEach(this::processSeparately);
+      return;
+    }
+    int offset = 0;
+    for (PendingRequest request : batch) {
+      int size = request.getVehicleEntrants().size();
+      request.getResult().complete(new ArrayList<>(results.subList(offset, offset + size)));
+      offset += size;
+    }
+  }
+
+  /**
+   * Processes entrants of {@code request} on their own with the MDC of the request.
+   */
+  private void processSeparately(PendingRequest request) {
+    try {
+      request.getResult().complete(callWithContext(
+          () -> entrantPaymentService.bulkProcess(request.getVehicleEntrants()),
+          request.getContext()));
+    } catch (RuntimeException e) {
+      callWithContext(() -> {
+        log.error("Error while processing {} vehicle entrants",
+            request.getVehicleEntrants().size(), e);
+        return null;
+      }, request.getContext());
+      request.getResult().completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Builds the MDC of a merged call: the MDC of the first request with correlation ids of all
+   * requests of {@code batch}.
+   */
+  private static Map<String, String> mergedContext(List<PendingRequest> batch) {
+    Map<String, String> context = batch.get(0).getContext() == null
+        ? new HashMap<>()
+        : new HashMap<>(batch.get(0).getContext());
+    String correlationIds = batch.stream()
+        .map(PendingRequest::getContext)
+        .filter(Objects::nonNull)
+        .map(requestContext -> requestContext.get(Constants.X_CORRELATION_ID_HEADER))
+        .filter(Objects::nonNull)
+        .distinct()
+        .collect(joining(","));
+    if (!correlationIds.isEmpty()) {
+      context.put(Constants.X_CORRELATION_ID_HEADER, correlationIds);
+    }
+    return context;
+  }
+
+  /**
+   * Executes {@code call} with {@code context} set as MDC and restores the previous MDC
+   * afterwards.
+   */
+  private static <T> T callWithContext(Supplier<T> call, Map<String, String> context) {
+    Map<String, String> previous = MDC.getCopyOfContextMap();
+    setContext(context);
+    try {
+      return call.get();
+    } finally {
+      setContext(previous);
+    }
+  }
+
+  /**
+   * Replaces the MDC of the current thread with {@code context}.
+   */
+  private static void setContext(Map<String, String> context) {
+    if (context == null) {
+      MDC.clear();
+    } else {
+      MDC.setContextMap(context);
+    }
+  }
+
+  /**
+   * Waits for the result of {@code request} which is being processed.
+   */
+  private static List<EntrantPaymentWithLatestPaymentDetailsDto> await(PendingRequest request) {
+    try {
+      return request.getResult().join();
+    } catch (CompletionException e) {
+      throw rethrow(e.getCause());
+    }
+  }
+
+  /**
+   * Returns {@code cause} of a failed request as an unchecked exception to be rethrown.
+   */
+  private static RuntimeException rethrow(Throwable cause) {
+    if (cause instanceof RuntimeException) {
+      return (RuntimeException) cause;
+    }
+    return new IllegalStateException(cause);
+  }
+
+  /**
+   * Processes the remaining captures and stops the flushing thread.
+   */
+  @PreDestroy
+  public void shutdown() {
+    flushExecutor.shutdown();
+    flush();
+  }
+
+  /**
+   * Entrants of a single request waiting in the buffer along with the future of their results.
+   * A request is either claimed for processing by the flushing thread or withdrawn by the
+   * waiting caller, whichever happens first.
+   */
+  @RequiredArgsConstructor
+  @Getter
+  @VisibleForTesting
+  static class PendingRequest {
+
+    private final List<VehicleEntrantDto> vehicleEntrants;
+    private final Map<String, String> context;
+    private final CompletableFuture<List<EntrantPaymentWithLatestPaymentDetailsDto>> result =
+        new CompletableFuture<>();
+    @Getter(AccessLevel.NONE)
+    private final AtomicBoolean taken = new AtomicBoolean();
+
+    /**
+     * Claims the request for processing, returns false if it has been withdrawn.
+     */
+    boolean claim() {
+      return taken.compareAndSet(false, true);
+    }
+
+    /**
+     * Withdraws the request from processing, returns false if it has been claimed.
+     */
+    boolean withdraw() {
+      return taken.compareAndSet(false, true);
+    }
+  }
+}
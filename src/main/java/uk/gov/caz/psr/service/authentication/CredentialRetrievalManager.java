@@ -6,40 +6,91 @@ import com.amazonaws.services.secretsmanager.model.GetSecretValueResult;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 /**
  * Class for managing the external repository of secrets used by the application.
+ *
+ * <p>Secrets are cached in memory, so that AWS Secrets Manager is not called for every payment
+ * operation. A cached secret is reloaded in the background once it is older than {@code
+ * aws.secrets-cache.refresh-after-write-seconds}; until the reload completes (or if it fails) the
+ * previous value is served. A secret older than {@code
+ * aws.secrets-cache.expire-after-write-seconds} is not served any more and has to be loaded again.
+ * Concurrent requests for a secret which is not cached result in a single call to AWS Secrets
+ * Manager.</p>
  */
 @Slf4j
 @Service
 public class CredentialRetrievalManager {
 
+  private static final String CACHE_NAME = "secrets";
+
   private final AWSSecretsManager client;
   private final ObjectMapper objectMapper;
   private final String secretName;
   private final String directDebitSecretName;
+  private final String cardWebhookSecretName;
+  private final String directDebitWebhookSecretName;
+  private final ExecutorService refreshExecutor;
+  private final LoadingCache<String, Map<String, String>> secretsCache;
 
   /**
    * Constructor for manager class of the external secrets repository.
    *
    * @param awsSecretsManager an instance of {@link AWSSecretsManager}
    * @param objectMapper an instance of {@link ObjectMapper}
+   * @param refreshAfterWriteSeconds the age of a cached secret after which it is reloaded in the
+   *     background
+   * @param expireAfterWriteSeconds the age of a cached secret after which it is not served any
+   *     more
+   * @param meterRegistry registry of the cache hit/miss metrics
    */
   public CredentialRetrievalManager(AWSSecretsManager awsSecretsManager, ObjectMapper objectMapper,
       @Value("${aws.secret-name}") String cardSecretName,
-      @Value("${aws.direct-debit-secret-name}") String directDebitSecretName) {
+      @Value("${aws.direct-debit-secret-name}") String directDebitSecretName,
+      @Value("${aws.card-webhook-secret-name}") String cardWebhookSecretName,
+      @Value("${aws.direct-debit-webhook-secret-name}") String directDebitWebhookSecretName,
+      @Value("${aws.secrets-cache.refresh-after-write-seconds:300}") long refreshAfterWriteSeconds,
+      @Value("${aws.secrets-cache.expire-after-write-seconds:3600}") long expireAfterWriteSeconds,
+      MeterRegistry meterRegistry) {
+    Preconditions.checkArgument(refreshAfterWriteSeconds < expireAfterWriteSeconds,
+        "Secrets must be refreshed before they expire");
     this.client = awsSecretsManager;
     this.objectMapper = objectMapper;
     this.secretName = cardSecretName;
     this.directDebitSecretName = directDebitSecretName;
+    this.cardWebhookSecretName = cardWebhookSecretName;
+    this.directDebitWebhookSecretName = directDebitWebhookSecretName;
+    this.refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "secrets-cache-refresh");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.secretsCache = CacheBuilder.newBuilder()
+        .refreshAfterWrite(refreshAfterWriteSeconds, TimeUnit.SECONDS)
+        .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+        .recordStats()
+        .build(CacheLoader.asyncReloading(CacheLoader.from(this::loadSecretsValue),
+            refreshExecutor));
+    GuavaCacheMetrics.monitor(meterRegistry, secretsCache, CACHE_NAME);
   }
 
   /**
@@ -62,6 +113,46 @@ public class CredentialRetrievalManager {
     return getApiKeyUsingSecret(cleanAirZoneId, directDebitSecretName);
   }
 
+  /**
+   * Gets the secret which GOV UK Pay uses to sign webhook messages sent for a given Clean Air Zone
+   * (each CAZ has its own GOV UK Pay account).
+   *
+   * @param cleanAirZoneId Clean Air Zone identifier.
+   * @return Webhook signing secret wrapped in {@link Optional}.
+   */
+  public Optional<String> getCardWebhookSigningSecret(UUID cleanAirZoneId) {
+    return getApiKeyUsingSecret(cleanAirZoneId, cardWebhookSecretName);
+  }
+
+  /**
+   * Gets the secret which GoCardless uses to sign webhook messages sent for a given Clean Air Zone
+   * (each CAZ has one GoCardless account).
+   *
+   * @param cleanAirZoneId Clean Air Zone identifier.
+   * @return Webhook endpoint secret wrapped in {@link Optional}.
+   */
+  public Optional<String> getDirectDebitWebhookSigningSecret(UUID cleanAirZoneId) {
+    return getApiKeyUsingSecret(cleanAirZoneId, directDebitWebhookSecretName);
+  }
+
+  /**
+   * Removes all cached secrets, so that they are loaded from AWS Secrets Manager on the next
+   * access. To be called when a credential is known to have been rotated, e.g. when it is rejected
+   * by the payment provider.
+   */
+  public void invalidateCachedCredentials() {
+    log.info("Invalidating cached credentials");
+    secretsCache.invalidateAll();
+  }
+
+  /**
+   * Stops the thread which refreshes the cached secrets.
+   */
+  @PreDestroy
+  public void shutdown() {
+    refreshExecutor.shutdownNow();
+  }
+
   private Optional<String> getApiKeyUsingSecret(UUID cleanAirZoneId, String directDebitSecretName) {
     String generatedSecretKey = generateSecretKey(cleanAirZoneId);
     Map<String, String> secrets = getSecretsValue(directDebitSecretName);
@@ -75,7 +166,26 @@ public class CredentialRetrievalManager {
     }
   }
 
+  /**
+   * Gets the parsed secret from the cache, loading it if necessary. An unparseable secret is not
+   * cached and is treated as an empty one.
+   */
   private Map<String, String> getSecretsValue(String secretName) {
+    try {
+      return secretsCache.getUnchecked(secretName);
+    } catch (UncheckedExecutionException e) {
+      if (e.getCause() instanceof UnparseableSecretException) {
+        return Collections.emptyMap();
+      }
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private Map<String, String> loadSecretsValue(String secretName) {
+    log.info("Loading secret '{}' from AWS Secrets Manager", secretName);
     GetSecretValueResult getSecretValueResult = getGetSecretValueFor(secretName);
 
     // this is a sample code provided by AWS in AWS Secret Manager console view
@@ -87,7 +197,7 @@ public class CredentialRetrievalManager {
       return objectMapper.readValue(secretString, new TypeReference<Map<String, String>>() {});
     } catch (JsonProcessingException e) {
       log.error("Error while parsing AWS secrets:", e);
-      return Collections.emptyMap();
+      throw new UnparseableSecretException();
     }
   }
 
@@ -101,4 +211,15 @@ public class CredentialRetrievalManager {
     String cleanAirZoneStr = cleanAirZoneId.toString();
     return cleanAirZoneStr.replace("-", "");
   }
+
+  /**
+   * Signals that the secret returned by AWS Secrets Manager is not a valid JSON object. Thrown
+   * from the cache loader so that the previously cached value is kept on a failed refresh.
+   */
+  private static class UnparseableSecretException extends RuntimeException {
+
+    UnparseableSecretException() {
+      super("AWS secret cannot be parsed");
+    }
+  }
 }
@@ -3,21 +3,79 @@ package uk.gov.caz.psr.service.directdebit;
 import static uk.gov.caz.psr.util.Strings.mask;
 
 import com.gocardless.GoCardlessClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collections;
+import java.util.Map;
 import java.util.UUID;
-import lombok.AllArgsConstructor;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import uk.gov.caz.psr.service.authentication.CredentialRetrievalManager;
 
-@AllArgsConstructor
+/**
+ * Provides {@link GoCardlessClient}s dedicated for Clean Air Zones. A client is created once per
+ * CAZ and reused by subsequent calls until the access token of the CAZ changes. All clients share
+ * the default connection pool of the underlying HTTP client, hence connections (and TLS sessions)
+ * to GoCardless are reused across requests.
+ */
 @Slf4j
 public abstract class AbstractGoCardlessClientFactory {
 
   private final CredentialRetrievalManager credentialRetrievalManager;
+  private final Map<UUID, CachedClient> clients = new ConcurrentHashMap<>();
+  private final Counter createdClients;
+  private final Counter reusedClients;
 
   /**
-   * Creates a new instance of {@link GoCardlessClient} dedicated for the given CAZ.
+   * Creates an instance of this class and registers the client metrics in {@code meterRegistry}.
    */
-  public abstract GoCardlessClient createClientFor(UUID cleanAirZoneId);
+  protected AbstractGoCardlessClientFactory(CredentialRetrievalManager credentialRetrievalManager,
+      MeterRegistry meterRegistry) {
+    this.credentialRetrievalManager = credentialRetrievalManager;
+    this.createdClients = meterRegistry.counter("gocardless.clients.created");
+    this.reusedClients = meterRegistry.counter("gocardless.clients.reused");
+    meterRegistry.gaugeMapSize("gocardless.clients.live", Collections.emptyList(),
+        clients);
+  }
+
+  /**
+   * Returns an instance of {@link GoCardlessClient} dedicated for the given CAZ. The instance is
+   * reused if it was created with the current access token of the CAZ, otherwise a new one is
+   * created.
+   */
+  public GoCardlessClient createClientFor(UUID cleanAirZoneId) {
+    String accessToken = getAccessTokenFor(cleanAirZoneId);
+    return clients.compute(cleanAirZoneId, (id, cachedClient) -> {
+      if (cachedClient != null && cachedClient.getAccessToken().equals(accessToken)) {
+        reusedClients.increment();
+        return cachedClient;
+      }
+      log.info("{} GoCardless client for CAZ '{}'",
+          cachedClient == null ? "Creating" : "Access token has changed, recreating", id);
+      createdClients.increment();
+      return new CachedClient(accessToken, buildClient(accessToken));
+    }).getClient();
+  }
+
+  /**
+   * Creates a new instance of {@link GoCardlessClient} which uses {@code accessToken}.
+   */
+  protected abstract GoCardlessClient buildClient(String accessToken);
+
+  /**
+   * Returns the number of clients which are currently cached.
+   */
+  public int getLiveClientsCount() {
+    return clients.size();
+  }
+
+  /**
+   * Returns the number of times a cached client has been reused.
+   */
+  public long getReusedClientsCount() {
+    return (long) reusedClients.count();
+  }
 
   /**
    * Gets the access token from the AWS SM for the given CAZ. If absent, {@link
@@ -38,4 +96,14 @@ public abstract class AbstractGoCardlessClientFactory {
     log.info("Direct Debit GoCardless access token for CAZ '{}': {}", cleanAirZoneId,
         mask(accessToken));
   }
+
+  /**
+   * A client along with the access token it has been created with.
+   */
+  @Value
+  private static class CachedClient {
+
+    String accessToken;
+    GoCardlessClient client;
+  }
 }
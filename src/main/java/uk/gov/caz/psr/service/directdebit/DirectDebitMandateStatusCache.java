@@ -0,0 +1,118 @@
+package uk.gov.caz.psr.service.directdebit;
+
+import static java.util.stream.Collectors.toList;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.caz.psr.dto.AccountDirectDebitMandatesResponse.DirectDebitMandate.DirectDebitMandateStatus;
+import uk.gov.caz.psr.model.directdebit.CachedMandateStatus;
+import uk.gov.caz.psr.repository.DirectDebitMandateStatusRepository;
+
+/**
+ * Keeps the latest known statuses of direct debit mandates, which are updated by GoCardless
+ * webhook events and by fetching mandates from GoCardless. A status is considered fresh, i.e. it
+ * can be used instead of fetching the mandate from GoCardless, if it is not older than {@code
+ * application.direct-debit.mandate-status-max-age-seconds}.
+ */
+@Component
+@Slf4j
+public class DirectDebitMandateStatusCache {
+
+  private final DirectDebitMandateStatusRepository directDebitMandateStatusRepository;
+  private final Duration maxAge;
+
+  /**
+   * Creates an instance of {@link DirectDebitMandateStatusCache}.
+   */
+  @Autowired
+  public DirectDebitMandateStatusCache(
+      DirectDebitMandateStatusRepository directDebitMandateStatusRepository,
+      @Value("${application.direct-debit.mandate-status-max-age-seconds:3600}")
+          long maxAgeSeconds) {
+    this(directDebitMandateStatusRepository, Duration.ofSeconds(maxAgeSeconds));
+  }
+
+  @VisibleForTesting
+  DirectDebitMandateStatusCache(
+      DirectDebitMandateStatusRepository directDebitMandateStatusRepository, Duration maxAge) {
+    this.directDebitMandateStatusRepository = directDebitMandateStatusRepository;
+    this.maxAge = maxAge;
+  }
+
+  /**
+   * Gets the fresh statuses of mandates identified by {@code paymentProviderMandateIds}.
+   *
+   * @return A map from a mandate identifier to its status. Mandates whose status is not known or
+   *     is too old are absent in the map.
+   */
+  public Map<String, DirectDebitMandateStatus> getFreshStatuses(
+      Collection<String> paymentProviderMandateIds) {
+    LocalDateTime freshAfter = LocalDateTime.now().minus(maxAge);
+    Map<String, DirectDebitMandateStatus> result = new HashMap<>();
+    directDebitMandateStatusRepository.findByMandateIds(paymentProviderMandateIds).values()
+        .stream()
+        .filter(cached -> cached.getStatus() != null && cached.getStatusTimestamp() != null
+            && cached.getStatusTimestamp().isAfter(freshAfter))
+        .forEach(cached -> result.put(cached.getPaymentProviderMandateId(), cached.getStatus()));
+    return result;
+  }
+
+  /**
+   * Saves the current statuses of mandates of the given account, e.g. just fetched from GoCardless.
+   *
+   * @param accountId Identifier of the account the mandates belong to.
+   * @param statuses Mandates along with their statuses and Clean Air Zones.
+   */
+  public void putAll(UUID accountId, List<CachedMandateStatus> statuses) {
+    LocalDateTime now = LocalDateTime.now();
+    directDebitMandateStatusRepository.upsert(statuses.stream()
+        .map(status -> status.toBuilder().accountId(accountId).statusTimestamp(now).build())
+        .collect(toList()));
+  }
+
+  /**
+   * Registers a newly created mandate whose status is not known yet, so that subsequent webhook
+   * events can be associated with its account.
+   */
+  public void registerMandate(UUID accountId, UUID cleanAirZoneId,
+      String paymentProviderMandateId) {
+    directDebitMandateStatusRepository.upsert(Collections.singletonList(
+        CachedMandateStatus.builder()
+            .paymentProviderMandateId(paymentProviderMandateId)
+            .accountId(accountId)
+            .cleanAirZoneId(cleanAirZoneId)
+            .build()));
+  }
+
+  /**
+   * Updates statuses of the known mandates of the given Clean Air Zone upon status changes
+   * reported by GoCardless. A change which is older than the known status is ignored.
+   *
+   * @param cleanAirZoneId Identifier of the Clean Air Zone the mandates belong to.
+   * @param changes New statuses of mandates along with the time at which they were changed.
+   * @return The updated statuses along with the accounts the mandates belong to. Mandates which
+   *     are not known or whose known status is more recent are absent in the result.
+   */
+  public List<CachedMandateStatus> applyStatusChanges(UUID cleanAirZoneId,
+      List<CachedMandateStatus> changes) {
+    List<CachedMandateStatus> updated = directDebitMandateStatusRepository
+        .updateStatuses(cleanAirZoneId, changes);
+    if (updated.size() < changes.size()) {
+      log.warn("Statuses of {} mandates of Clean Air Zone '{}' have not been updated as the "
+          + "mandates are unknown or their statuses are more recent",
+          changes.size() - updated.size(), cleanAirZoneId);
+    }
+    return updated;
+  }
+}
@@ -0,0 +1,326 @@
+package uk.gov.caz.psr.service.directdebit;
+
+import com.gocardless.GoCardlessClient;
+import com.gocardless.errors.GoCardlessApiException;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.caz.psr.dto.AccountDirectDebitMandatesResponse.DirectDebitMandate;
+import uk.gov.caz.psr.dto.AccountDirectDebitMandatesResponse.DirectDebitMandate.DirectDebitMandateStatus;
+import uk.gov.caz.psr.service.exception.ExternalServiceCallException;
+
+/**
+ * Fetches current statuses of direct debit mandates from GoCardless.
+ *
+ * <p>Mandates are fetched concurrently by a bounded pool of workers with the MDC (and hence the
+ * correlation id) of the calling thread. The number of concurrent requests is limited per Clean
+ * Air Zone, as every CAZ uses its own GoCardless access token. Mandates of a CAZ wait in its queue
+ * until one of its requests completes, rather than in the pool, so that a CAZ with many mandates
+ * does not hold the workers needed by the other ones. Statuses which have not been fetched before
+ * the deadline are not waited for. Latency of requests is recorded per CAZ in {@code
+ * gocardless.mandates.fetch} timer.</p>
+ */
+@Component
+@Slf4j
+public class DirectDebitMandateStatusFetcher {
+
+  private static final String FETCH_TIMER_NAME = "gocardless.mandates.fetch";
+
+  private final AbstractGoCardlessClientFactory goCardlessClientFactory;
+  private final MeterRegistry meterRegistry;
+  private final ExecutorService workers;
+  private final int maxConcurrentRequestsPerCaz;
+  private final Duration timeout;
+  private final Map<UUID, CleanAirZoneQueue> queuesPerCaz = new ConcurrentHashMap<>();
+
+  /**
+   * Creates an instance of {@link DirectDebitMandateStatusFetcher}.
+   */
+  @Autowired
+  public DirectDebitMandateStatusFetcher(AbstractGoCardlessClientFactory goCardlessClientFactory,
+      MeterRegistry meterRegistry,
+      @Value("${application.direct-debit.mandate-status-fetch.worker-threads:8}")
+          int workerThreads,
+      @Value("${application.direct-debit.mandate-status-fetch.max-concurrent-requests-per-caz:4}")
+          int maxConcurrentRequestsPerCaz,
+      @Value("${application.direct-debit.mandate-status-fetch.timeout-millis:5000}")
+          long timeoutMillis) {
+    this(goCardlessClientFactory, meterRegistry, newWorkers(workerThreads),
+        maxConcurrentRequestsPerCaz, Duration.ofMillis(timeoutMillis));
+  }
+
+  @VisibleForTesting
+  DirectDebitMandateStatusFetcher(AbstractGoCardlessClientFactory goCardlessClientFactory,
+      MeterRegistry meterRegistry, ExecutorService workers, int maxConcurrentRequestsPerCaz,
+      Duration timeout) {
+    Preconditions.checkArgument(maxConcurrentRequestsPerCaz > 0,
+        "maxConcurrentRequestsPerCaz must be positive");
+    this.goCardlessClientFactory = goCardlessClientFactory;
+    this.meterRegistry = meterRegistry;
+    this.workers = workers;
+    this.maxConcurrentRequestsPerCaz = maxConcurrentRequestsPerCaz;
+    this.timeout = timeout;
+  }
+
+  /**
+   * Fetches current statuses of {@code mandates} from GoCardless.
+   *
+   * @return A map from a mandate identifier to its current status. Mandates whose status has not
+   *     been fetched in time are absent in the map.
+   * @throws ExternalServiceCallException if GoCardless responds with an error.
+   */
+  public Map<String, DirectDebitMandateStatus> fetchStatuses(List<DirectDebitMandate> mandates) {
+    long deadline = System.nanoTime() + timeout.toNanos();
+    Map<String, String> context = MDC.getCopyOfContextMap();
+    Map<UUID, List<DirectDebitMandate>> mandatesByCaz = mandates.stream()
+        .collect(Collectors.groupingBy(DirectDebitMandate::getCleanAirZoneId, LinkedHashMap::new,
+            Collectors.toList()));
+    Map<UUID, Map<String, Future<FetchedStatus>>> futuresByCaz = new LinkedHashMap<>();
+    mandatesByCaz.forEach((cleanAirZoneId, mandatesOfCaz) -> {
+      CleanAirZoneQueue queue = queuesPerCaz.computeIfAbsent(cleanAirZoneId,
+          id -> new CleanAirZoneQueue(workers, maxConcurrentRequestsPerCaz));
+      Map<String, Future<FetchedStatus>> futures = new LinkedHashMap<>();
+      for (DirectDebitMandate mandate : mandatesOfCaz) {
+        FutureTask<FetchedStatus> task = new FutureTask<>(
+            () -> fetchBeforeDeadline(mandate, deadline, context));
+        futures.put(mandate.getPaymentProviderMandateId(), task);
+        queue.submit(task);
+      }
+      futuresByCaz.put(cleanAirZoneId, futures);
+    });
+
+    Map<String, DirectDebitMandateStatus> result = new HashMap<>();
+    try {
+      futuresByCaz.forEach((cleanAirZoneId, futures) ->
+          collect(cleanAirZoneId, futures, deadline, result));
+    } finally {
+      futuresByCaz.values().forEach(futures -> futures.values()
+          .forEach(future -> future.cancel(true)));
+    }
+    return result;
+  }
+
+  /**
+   * Waits until {@code deadline} for statuses of mandates of the given Clean Air Zone and puts the
+   * fetched ones into {@code result}.
+   */
+  private void collect(UUID cleanAirZoneId, Map<String, Future<FetchedStatus>> futures,
+      long deadline, Map<String, DirectDebitMandateStatus> result) {
+    long slowestLookupNanos = 0;
+    int timedOut = 0;
+    for (Entry<String, Future<FetchedStatus>> entry : futures.entrySet()) {
+      FetchedStatus fetchedStatus = await(entry.getValue(), deadline);
+      if (fetchedStatus == null) {
+        timedOut++;
+        continue;
+      }
+      result.put(entry.getKey(), fetchedStatus.getStatus());
+      slowestLookupNanos = Math.max(slowestLookupNanos, fetchedStatus.getElapsedNanos());
+    }
+    log.info("Fetched {} statuses of mandates of Clean Air Zone '{}' ({} not fetched in time), "
+            + "the slowest request took {} ms", futures.size() - timedOut, cleanAirZoneId,
+        timedOut, TimeUnit.NANOSECONDS.toMillis(slowestLookupNanos));
+  }
+
+  /**
+   * Waits until {@code deadline} for the result of {@code future}. Returns null if the result is
+   * not available in time.
+   */
+  private FetchedStatus await(Future<FetchedStatus> future, long deadline) {
+    try {
+      return future.get(remainingNanos(deadline), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while fetching statuses of mandates", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Fetches the status of {@code mandate} with {@code context} set as MDC unless {@code deadline}
+   * has passed while the mandate was waiting in the queue, in which case null is returned.
+   */
+  private FetchedStatus fetchBeforeDeadline(DirectDebitMandate mandate, long deadline,
+      Map<String, String> context) {
+    if (remainingNanos(deadline) == 0) {
+      return null;
+    }
+    Map<String, String> previous = MDC.getCopyOfContextMap();
+    setContext(context);
+    try {
+      long start = System.nanoTime();
+      DirectDebitMandateStatus status = fetch(mandate);
+      long elapsedNanos = System.nanoTime() - start;
+      fetchTimer(mandate.getCleanAirZoneId()).record(elapsedNanos, TimeUnit.NANOSECONDS);
+      return new FetchedStatus(status, elapsedNanos);
+    } finally {
+      setContext(previous);
+    }
+  }
+
+  /**
+   * Replaces the MDC of the current thread with {@code context}.
+   */
+  private static void setContext(Map<String, String> context) {
+    if (context == null) {
+      MDC.clear();
+    } else {
+      MDC.setContextMap(context);
+    }
+  }
+
+  /**
+   * Fetches the current status of a mandate from GoCardless.
+   */
+  private DirectDebitMandateStatus fetch(DirectDebitMandate mandate) {
+    GoCardlessClient client = goCardlessClientFactory.createClientFor(mandate.getCleanAirZoneId());
+
+    try {
+      com.gocardless.resources.Mandate goCardlessMandate = client
+          .mandates()
+          .get(mandate.getPaymentProviderMandateId())
+          .execute();
+
+      log.info("Successfully got mandate for id {}", mandate.getDirectDebitMandateId());
+
+      return DirectDebitMandateStatus.valueOf(goCardlessMandate.getStatus().name());
+    } catch (GoCardlessApiException e) {
+      log.error("GoCardless exception while trying to get the mandate for id {} "
+          + "with exception: {}", mandate.getDirectDebitMandateId(), e.getErrorMessage());
+      throw new ExternalServiceCallException(e.getErrorMessage());
+    }
+  }
+
+  /**
+   * Gets the timer of requests made on behalf of the given Clean Air Zone.
+   */
+  private Timer fetchTimer(UUID cleanAirZoneId) {
+    return meterRegistry.timer(FETCH_TIMER_NAME, "cleanAirZoneId", String.valueOf(cleanAirZoneId));
+  }
+
+  /**
+   * Returns the number of nanoseconds left until {@code deadline}, zero if it has passed.
+   */
+  private static long remainingNanos(long deadline) {
+    return Math.max(0, deadline - System.nanoTime());
+  }
+
+  /**
+   * Creates a pool of {@code workerThreads} daemon threads.
+   */
+  private static ExecutorService newWorkers(int workerThreads) {
+    Preconditions.checkArgument(workerThreads > 0, "workerThreads must be positive");
+    return Executors.newFixedThreadPool(workerThreads, runnable -> {
+      Thread thread = new Thread(runnable, "mandate-status-fetcher");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Stops the workers.
+   */
+  @PreDestroy
+  public void shutdown() {
+    workers.shutdownNow();
+  }
+
+  /**
+   * Mandates of a single Clean Air Zone waiting to be fetched. A mandate is handed over to the
+   * workers only when a permit of the CAZ is available, so the workers never wait for permits.
+   * The permit is released, and the next mandate handed over, when the fetch completes.
+   */
+  private static class CleanAirZoneQueue {
+
+    private final ExecutorService workers;
+    private final Semaphore permits;
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+    CleanAirZoneQueue(ExecutorService workers, int maxConcurrentRequests) {
+      this.workers = workers;
+      this.permits = new Semaphore(maxConcurrentRequests);
+    }
+
+    /**
+     * Queues {@code task} and hands it over to the workers if a permit is available.
+     */
+    void submit(Runnable task) {
+      pending.add(task);
+      drain();
+    }
+
+    /**
+     * Hands queued tasks over to the workers as long as permits are available.
+     */
+    private void drain() {
+      while (!pending.isEmpty() && permits.tryAcquire()) {
+        Runnable task = pending.poll();
+        if (task == null) {
+          permits.release();
+          continue;
+        }
+        try {
+          workers.execute(() -> {
+            try {
+              task.run();
+            } finally {
+              permits.release();
+              drain();
+            }
+          });
+        } catch (RejectedExecutionException e) {
+          // the workers are being shut down, the status is reported as not fetched in time
+          permits.release();
+          log.warn("Unable to fetch the status of a mandate, the workers are shut down");
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * A status fetched from GoCardless along with the duration of the request.
+   */
+  @AllArgsConstructor
+  @Getter
+  private static class FetchedStatus {
+
+    private final DirectDebitMandateStatus status;
+    private final long elapsedNanos;
+  }
+}
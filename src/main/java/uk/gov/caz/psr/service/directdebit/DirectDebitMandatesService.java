@@ -9,6 +9,7 @@ import com.gocardless.services.RedirectFlowService.RedirectFlowCreateRequest.Sch
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.EnumSet;
@@ -35,6 +36,7 @@ import uk.gov.caz.psr.dto.accounts.CreateDirectDebitMandateRequest;
 import uk.gov.caz.psr.dto.accounts.CreateDirectDebitMandateResponse;
 import uk.gov.caz.psr.dto.accounts.DirectDebitMandatesUpdateRequest;
 import uk.gov.caz.psr.dto.accounts.DirectDebitMandatesUpdateRequest.SingleDirectDebitMandateUpdate;
+import uk.gov.caz.psr.model.directdebit.CachedMandateStatus;
 import uk.gov.caz.psr.model.directdebit.CleanAirZoneWithMandates;
 import uk.gov.caz.psr.model.directdebit.Mandate;
 import uk.gov.caz.psr.repository.AccountsRepository;
@@ -62,6 +64,8 @@ public class DirectDebitMandatesService {
   private final VccsRepository vccsRepository;
   private final AccountsRepository accountsRepository;
   private final AbstractGoCardlessClientFactory goCardlessClientFactory;
+  private final DirectDebitMandateStatusCache directDebitMandateStatusCache;
+  private final DirectDebitMandateStatusFetcher directDebitMandateStatusFetcher;
 
   /**
    * Obtains the registered direct debit mandates for the given account by its identifier {@code
@@ -140,12 +144,15 @@ public class DirectDebitMandatesService {
           .withSessionToken(sessionToken)
           .execute();
 
+      String mandateId = extractMandateId(redirectFlow);
+      UUID accountId = extractAccountIdFromMetadata(redirectFlow);
       createMandateInAccountsService(
           cleanAirZoneId,
-          extractMandateId(redirectFlow),
-          extractAccountIdFromMetadata(redirectFlow),
+          mandateId,
+          accountId,
           extractAccountUserIdFromMetadata(redirectFlow)
       );
+      directDebitMandateStatusCache.registerMandate(accountId, cleanAirZoneId, mandateId);
 
       log.info("Successfully created mandate for caz {}", cleanAirZoneId);
     } catch (GoCardlessApiException e) {
@@ -284,13 +291,13 @@ public class DirectDebitMandatesService {
   }
 
   /**
-   * For every mandate whose status is in {@link #CACHEABLE_STATUSES} fetches its current status
-   * from GOV UK Pay service and create a new instance of {@link Mandate} with it and data from
-   * {@link DirectDebitMandate}.
+   * For every mandate whose status is not in {@link #CACHEABLE_STATUSES} gets its current status
+   * (from {@link DirectDebitMandateStatusCache} if fresh, from GoCardless otherwise) and create a
+   * new instance of {@link Mandate} with it and data from {@link DirectDebitMandate}.
    */
   private List<Mandate> toMandates(List<DirectDebitMandate> mandates, UUID accountId) {
     List<MandateWithCachedAndActualStatuses> mandatesWithExternallyFetchedStatus =
-        mandatesWithExternallyFetchedStatus(mandates);
+        mandatesWithExternallyFetchedStatus(mandates, accountId);
     List<Mandate> mandatesWithCachedStatus = mandatesWithCachedStatus(mandates);
 
     updateMandateStatuses(accountId, mandatesWithExternallyFetchedStatus);
@@ -384,14 +391,69 @@ public class DirectDebitMandatesService {
 
   /**
    * Selects only those mandates which does not have a cacheable status from the provided {@code
-   * mandates} and maps it to {@link Mandate}.
+   * mandates} and maps it to {@link Mandate}. Statuses which are not fresh in {@link
+   * DirectDebitMandateStatusCache} are fetched from GoCardless concurrently and saved in the cache.
+   * If a status is not fetched in time, the one kept by the accounts service is used.
    */
   private List<MandateWithCachedAndActualStatuses> mandatesWithExternallyFetchedStatus(
-      List<DirectDebitMandate> mandates) {
-    return mandates.stream()
+      List<DirectDebitMandate> mandates, UUID accountId) {
+    List<DirectDebitMandate> mandatesToCheck = mandates.stream()
         .filter(DirectDebitMandatesService::shouldFetchStatusExternally)
-        .map(mandate -> toMandateWithBothStatuses(mandate, fetchExternalStatusOf(mandate)))
         .collect(Collectors.toList());
+    if (mandatesToCheck.isEmpty()) {
+      return Collections.emptyList();
+    }
+    Map<String, DirectDebitMandateStatus> freshStatuses = directDebitMandateStatusCache
+        .getFreshStatuses(mandatesToCheck.stream()
+            .map(DirectDebitMandate::getPaymentProviderMandateId)
+            .collect(Collectors.toList()));
+    Map<String, DirectDebitMandateStatus> fetchedStatuses = directDebitMandateStatusFetcher
+        .fetchStatuses(mandatesToCheck.stream()
+            .filter(mandate -> !freshStatuses.containsKey(mandate.getPaymentProviderMandateId()))
+            .collect(Collectors.toList()));
+
+    List<MandateWithCachedAndActualStatuses> result = new ArrayList<>(mandatesToCheck.size());
+    List<CachedMandateStatus> statusesToCache = new ArrayList<>();
+    int notFetchedInTime = 0;
+    for (DirectDebitMandate mandate : mandatesToCheck) {
+      String mandateId = mandate.getPaymentProviderMandateId();
+      DirectDebitMandateStatus status = freshStatuses.get(mandateId);
+      if (status == null) {
+        status = fetchedStatuses.get(mandateId);
+        if (status != null) {
+          statusesToCache.add(CachedMandateStatus.builder()
+              .paymentProviderMandateId(mandateId)
+              .cleanAirZoneId(mandate.getCleanAirZoneId())
+              .status(status)
+              .build());
+        } else {
+          status = statusNotFetchedInTime(mandate);
+          notFetchedInTime++;
+        }
+      }
+      result.add(toMandateWithBothStatuses(mandate, status));
+    }
+    log.info("Used {} cached and {} fetched statuses of mandates of account '{}', {} statuses "
+            + "have not been fetched in time", freshStatuses.size(), statusesToCache.size(),
+        accountId, notFetchedInTime);
+    if (!statusesToCache.isEmpty()) {
+      directDebitMandateStatusCache.putAll(accountId, statusesToCache);
+    }
+    return result;
+  }
+
+  /**
+   * Gets the status kept by the accounts service of a mandate whose current status has not been
+   * fetched in time.
+   */
+  private DirectDebitMandateStatus statusNotFetchedInTime(DirectDebitMandate mandate) {
+    if (mandate.getStatus() == null) {
+      throw new ExternalServiceCallException("Status of mandate "
+          + mandate.getDirectDebitMandateId() + " has not been fetched in time");
+    }
+    log.warn("Status of mandate {} has not been fetched in time, using '{}' instead",
+        mandate.getDirectDebitMandateId(), mandate.getStatus());
+    return mandate.getStatus();
   }
 
   /**
@@ -409,28 +471,6 @@ public class DirectDebitMandatesService {
         .build();
   }
 
-  /**
-   * Fetches the current status of a mandate from the external service.
-   */
-  private DirectDebitMandateStatus fetchExternalStatusOf(DirectDebitMandate mandate) {
-    GoCardlessClient client = goCardlessClientFactory.createClientFor(mandate.getCleanAirZoneId());
-
-    try {
-      com.gocardless.resources.Mandate goCardlessMandate = client
-          .mandates()
-          .get(mandate.getPaymentProviderMandateId())
-          .execute();
-
-      log.info("Successfully got mandate for id {}", mandate.getDirectDebitMandateId());
-
-      return DirectDebitMandateStatus.valueOf(goCardlessMandate.getStatus().name());
-    } catch (GoCardlessApiException e) {
-      log.error("GoCardless exception while trying to get the mandate for id {} "
-          + "with exception: {}", mandate.getDirectDebitMandateId(), e.getErrorMessage());
-      throw new ExternalServiceCallException(e.getErrorMessage());
-    }
-  }
-
   /**
    * Quietly returns contents of the error body.
    */
@@ -3,7 +3,7 @@ package uk.gov.caz.psr.service.directdebit;
 import com.gocardless.GoCardlessClient;
 import com.gocardless.GoCardlessClient.Environment;
 import com.google.common.annotations.VisibleForTesting;
-import java.util.UUID;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
@@ -25,15 +25,15 @@ public class GoCardlessClientFactory extends AbstractGoCardlessClientFactory {
    */
   public GoCardlessClientFactory(@Value("${services.use.live.direct.debit.provider.client:false}")
       boolean useLiveClient,
-      CredentialRetrievalManager credentialRetrievalManager) {
-    super(credentialRetrievalManager);
+      CredentialRetrievalManager credentialRetrievalManager, MeterRegistry meterRegistry) {
+    super(credentialRetrievalManager, meterRegistry);
     this.goCardlessEnvironment = useLiveClient ? Environment.LIVE : Environment.SANDBOX;
     log.debug("Using {} GoCardless environment", goCardlessEnvironment);
   }
 
   @Override
-  public GoCardlessClient createClientFor(UUID cleanAirZoneId) {
-    return GoCardlessClient.newBuilder(getAccessTokenFor(cleanAirZoneId))
+  protected GoCardlessClient buildClient(String accessToken) {
+    return GoCardlessClient.newBuilder(accessToken)
         .withEnvironment(goCardlessEnvironment)
         .build();
   }
@@ -1,7 +1,7 @@
 package uk.gov.caz.psr.service.directdebit;
 
 import com.gocardless.GoCardlessClient;
-import java.util.UUID;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
@@ -18,14 +18,14 @@ public class TestGoCardlessClientFactory extends AbstractGoCardlessClientFactory
 
   public TestGoCardlessClientFactory(
       CredentialRetrievalManager credentialRetrievalManager,
-      @Value("${services.go-cardless.root-url}") String rootUrl) {
-    super(credentialRetrievalManager);
+      @Value("${services.go-cardless.root-url}") String rootUrl, MeterRegistry meterRegistry) {
+    super(credentialRetrievalManager, meterRegistry);
     this.rootUrl = rootUrl;
   }
 
   @Override
-  public GoCardlessClient createClientFor(UUID cleanAirZoneId) {
-    return GoCardlessClient.newBuilder(getAccessTokenFor(cleanAirZoneId))
+  protected GoCardlessClient buildClient(String accessToken) {
+    return GoCardlessClient.newBuilder(accessToken)
         .withBaseUrl(rootUrl)
         .build();
   }
@@ -0,0 +1,17 @@
+package uk.gov.caz.psr.service.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import uk.gov.caz.ApplicationRuntimeException;
+
+/**
+ * Exception class which is thrown when a webhook message cannot be proven to be sent by the
+ * payment provider.
+ */
+@ResponseStatus(value = HttpStatus.UNAUTHORIZED)
+public class InvalidWebhookSignatureException extends ApplicationRuntimeException {
+
+  public InvalidWebhookSignatureException(String message) {
+    super(message);
+  }
+}
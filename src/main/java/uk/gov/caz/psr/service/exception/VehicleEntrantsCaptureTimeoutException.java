@@ -0,0 +1,19 @@
+package uk.gov.caz.psr.service.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import uk.gov.caz.ApplicationRuntimeException;
+
+/**
+ * Exception class which will be used to throw exception when buffered vehicle entrants have not
+ * been captured in time. None of the entrants has been written, hence the request can be retried.
+ */
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+public class VehicleEntrantsCaptureTimeoutException extends ApplicationRuntimeException {
+
+  private static final long serialVersionUID = 3542098417322905197L;
+
+  public VehicleEntrantsCaptureTimeoutException(String message) {
+    super(message);
+  }
+}
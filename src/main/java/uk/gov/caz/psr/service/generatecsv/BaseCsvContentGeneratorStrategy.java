@@ -25,12 +25,17 @@ public class BaseCsvContentGeneratorStrategy implements CsvContentGeneratorStrat
     List<String[]> csvRows = new ArrayList<>();
 
     for (EnrichedCsvEntrantPayment enrichedCsvEntrantPayment : enrichedCsvEntrantPayments) {
-      csvRows.add(new String[]{getRow(enrichedCsvEntrantPayment)});
+      csvRows.add(generateCsvRow(enrichedCsvEntrantPayment));
     }
 
     return csvRows;
   }
 
+  @Override
+  public String[] generateCsvRow(EnrichedCsvEntrantPayment enrichedCsvEntrantPayment) {
+    return new String[]{getRow(enrichedCsvEntrantPayment)};
+  }
+
   private String getRow(EnrichedCsvEntrantPayment enrichedCsvEntrantPayment) {
     return String.join(",",
         safeToString(enrichedCsvEntrantPayment.getDateOfPayment()),
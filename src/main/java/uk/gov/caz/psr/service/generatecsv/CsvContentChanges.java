@@ -0,0 +1,30 @@
+package uk.gov.caz.psr.service.generatecsv;
+
+import java.util.List;
+import java.util.Map;
+import lombok.Value;
+import uk.gov.caz.psr.model.generatecsv.PaymentsHistoryExportMark;
+
+/**
+ * Changes of the payment history since its previous export, apart from the rows of new payments
+ * which are streamed.
+ */
+@Value
+public class CsvContentChanges {
+
+  /**
+   * The header row, the same as in the previous export.
+   */
+  String[] header;
+
+  /**
+   * Current rows of payments which have changed since the previous export, by their payment
+   * references. They replace the rows of these payments in the previous export.
+   */
+  Map<String, List<String[]>> changedRowsByPaymentReference;
+
+  /**
+   * {@link PaymentsHistoryExportMark} of the export including the changes.
+   */
+  PaymentsHistoryExportMark mark;
+}
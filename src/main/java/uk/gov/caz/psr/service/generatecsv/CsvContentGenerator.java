@@ -1,28 +1,39 @@
 package uk.gov.caz.psr.service.generatecsv;
 
+import static uk.gov.caz.psr.util.Strings.safeToString;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import retrofit2.Response;
 import uk.gov.caz.definitions.dto.CleanAirZoneDto;
-import uk.gov.caz.definitions.dto.CleanAirZonesDto;
 import uk.gov.caz.psr.dto.accounts.AccountUserResponse;
 import uk.gov.caz.psr.dto.accounts.AccountUsersResponse;
 import uk.gov.caz.psr.model.EntrantPaymentUpdateActor;
 import uk.gov.caz.psr.model.InternalPaymentStatus;
 import uk.gov.caz.psr.model.PaymentModification;
 import uk.gov.caz.psr.model.generatecsv.CsvEntrantPayment;
-import uk.gov.caz.psr.model.generatecsv.EnrichedCsvEntrantPayment;
-import uk.gov.caz.psr.model.generatecsv.EnrichedCsvEntrantPayment.EnrichedCsvEntrantPaymentBuilder;
+import uk.gov.caz.psr.model.generatecsv.PaymentsHistoryExportMark;
+import uk.gov.caz.psr.model.generatecsv.PaymentsHistoryExportMark.PaymentsHistoryExportMarkBuilder;
 import uk.gov.caz.psr.repository.AccountsRepository;
 import uk.gov.caz.psr.repository.VccsRepository;
 import uk.gov.caz.psr.repository.audit.PaymentDetailRepository;
 import uk.gov.caz.psr.repository.generatecsv.CsvEntrantPaymentRepository;
+import uk.gov.caz.psr.repository.generatecsv.PaymentsHistoryExportMarkRepository;
 
 /**
  * Generates content for csv file.
@@ -31,148 +42,206 @@ import uk.gov.caz.psr.repository.generatecsv.CsvEntrantPaymentRepository;
 @AllArgsConstructor
 public class CsvContentGenerator {
 
-  private static final String ADMINISTRATOR = "Administrator";
-  private static final String DELETED_USER = "Deleted user";
+  private static final int STREAMING_FETCH_SIZE = 1000;
+  // changes committed shortly before the previous export started may have not been seen by it
+  private static final Duration CHANGES_OVERLAP = Duration.ofMinutes(15);
+  // identifiers are compared as strings, which gives the same order as in the database
+  private static final Comparator<CsvEntrantPayment> PAYMENT_ORDER = Comparator
+      .comparing(CsvEntrantPayment::getDateOfPayment)
+      .thenComparing(entrantPayment -> entrantPayment.getPaymentId().toString());
+  private static final List<InternalPaymentStatus> MODIFICATION_STATUSES = Arrays.asList(
+      InternalPaymentStatus.REFUNDED, InternalPaymentStatus.CHARGEBACK,
+      InternalPaymentStatus.FAILED);
 
   private final AccountsRepository accountsRepository;
   private final CsvEntrantPaymentRepository csvEntrantPaymentRepository;
   private final PaymentDetailRepository paymentDetailRepository;
   private final VccsRepository vccsRepository;
   private final CsvContentGeneratorStrategyFactory csvContentGeneratorStrategyFactory;
+  private final PaymentsHistoryExportMarkRepository paymentsHistoryExportMarkRepository;
 
   /**
-   * Generate {@link List} of String[] which contains csv rows.
+   * Generates csv rows and passes them to {@code csvRowConsumer} one at a time, header first.
+   * Entrant payments are read with a forward-only cursor and enriched one by one with
+   * {@link CsvEntrantPaymentEnricher}, so that the memory footprint does not depend on the size of
+   * the payment history.
    *
    * @param accountId ID of Account.
    * @param accountUserIds List of account user ids for which we should generate payment
    *     history.
-   * @return {@link List} of String[] which contains csv rows.
+   * @param csvRowConsumer the consumer of String[] which contains a single csv row.
+   * @return {@link PaymentsHistoryExportMark} of the generated payment history without the file
+   *     name.
    */
-  public List<String[]> generateCsvRows(UUID accountId, List<UUID> accountUserIds) {
-    List<String[]> csvRows = new ArrayList<>();
-    List<AccountUserResponse> accountUsers = getAccountUsers(accountId);
-    List<CsvEntrantPayment> entrantPayments = csvEntrantPaymentRepository.findAllForAccountUsers(
-        accountUserIds);
-    List<EnrichedCsvEntrantPayment> enrichedEntrantPayments = enrichEntrantPayments(
-        entrantPayments, accountUsers);
+  @Transactional(readOnly = true)
+  public PaymentsHistoryExportMark streamCsvRows(UUID accountId, List<UUID> accountUserIds,
+      Consumer<String[]> csvRowConsumer) {
+    LocalDateTime exportedTimestamp = paymentsHistoryExportMarkRepository.getCurrentTimestamp();
+    List<PaymentModification> paymentModifications = paymentDetailRepository
+        .findAllForAccountUsersPaymentsHistory(accountUserIds, EntrantPaymentUpdateActor.LA,
+            MODIFICATION_STATUSES);
 
+    // modifications are fetched for the statuses which make the strategy include LA columns
+    boolean localAuthorityColumns = !paymentModifications.isEmpty();
     CsvContentGeneratorStrategy strategy = csvContentGeneratorStrategyFactory
-        .createStrategy(enrichedEntrantPayments);
-
-    csvRows.add(strategy.generateCsvHeader());
-    csvRows.addAll(strategy.generateCsvContent(enrichedEntrantPayments));
+        .createStrategy(localAuthorityColumns);
+    CsvEntrantPaymentEnricher enricher = createEnricher(accountId, paymentModifications);
+
+    csvRowConsumer.accept(strategy.generateCsvHeader());
+    CsvEntrantPayment lastPayment;
+    try (Stream<CsvEntrantPayment> entrantPayments = csvEntrantPaymentRepository
+        .streamAllForAccountUsers(accountUserIds, STREAMING_FETCH_SIZE)) {
+      lastPayment = streamCsvRows(entrantPayments, strategy, enricher, csvRowConsumer);
+    }
 
-    return csvRows;
+    return withLastPayment(PaymentsHistoryExportMark.builder(), lastPayment)
+        .accountId(accountId)
+        .accountUserIds(accountUserIds)
+        .localAuthorityColumns(localAuthorityColumns)
+        .enrichmentDataHash(enricher.getEnrichmentDataHash())
+        .exportedTimestamp(exportedTimestamp)
+        .build();
   }
 
   /**
-   * Method performs an API call to the accounts service in order to get users information.
+   * Generates the changes of the payment history since its export marked by {@code
+   * previousMark}. The header and rows of payments made after the previous export are passed to
+   * {@code csvRowConsumer} one at a time. Rows of payments exported before, which have been
+   * authorised or modified by the Local Authorities since, are returned to replace their rows in
+   * the previous export. Only these payments are queried, hence the cost of the export depends on
+   * the size of the changes rather than on the size of the payment history.
    *
-   * @param accountId ID of the account of which users are going to be fetched.
-   * @return list of fetched users.
+   * @param accountId ID of Account.
+   * @param previousMark {@link PaymentsHistoryExportMark} of the previous export.
+   * @param csvRowConsumer the consumer of String[] which contains a single csv row.
+   * @return {@link CsvContentChanges} or empty if rows of the previous export are out of date,
+   *     e.g. because of changed columns or user names, in which case nothing is passed to
+   *     {@code csvRowConsumer}.
    */
-  private List<AccountUserResponse> getAccountUsers(UUID accountId) {
-    Response<AccountUsersResponse> accountUsersBody = accountsRepository.getAllUsersSync(accountId);
-    return accountUsersBody.body().getUsers();
-  }
+  @Transactional(readOnly = true)
+  public Optional<CsvContentChanges> streamChangedCsvRows(UUID accountId,
+      PaymentsHistoryExportMark previousMark, Consumer<String[]> csvRowConsumer) {
+    LocalDateTime exportedTimestamp = paymentsHistoryExportMarkRepository.getCurrentTimestamp();
+    List<UUID> changedPaymentIds = paymentDetailRepository.findAccountUsersPaymentIdsChangedSince(
+        previousMark, previousMark.getExportedTimestamp().minus(CHANGES_OVERLAP),
+        EntrantPaymentUpdateActor.LA, MODIFICATION_STATUSES);
+    List<PaymentModification> paymentModifications = paymentDetailRepository
+        .findAllForAccountUsersPaymentsHistoryAfterMark(previousMark, changedPaymentIds,
+            EntrantPaymentUpdateActor.LA, MODIFICATION_STATUSES);
+    CsvEntrantPaymentEnricher enricher = createEnricher(accountId, paymentModifications);
+    if (!isPreviousExportUpToDate(previousMark, paymentModifications, enricher)) {
+      return Optional.empty();
+    }
 
-  /**
-   * Method which enrich provided {@code CsvEntrantPayment} list with data from External APIs and
-   * collect it as {@code EnrichedCsvEntrantPayment}.
-   */
-  private List<EnrichedCsvEntrantPayment> enrichEntrantPayments(
-      List<CsvEntrantPayment> entrantPayments, List<AccountUserResponse> accountUsers) {
+    CsvContentGeneratorStrategy strategy = csvContentGeneratorStrategyFactory
+        .createStrategy(previousMark.isLocalAuthorityColumns());
+    Map<String, List<String[]>> changedRows = generateChangedRows(changedPaymentIds, strategy,
+        enricher);
+
+    String[] header = strategy.generateCsvHeader();
+    csvRowConsumer.accept(header);
+    CsvEntrantPayment lastPayment;
+    try (Stream<CsvEntrantPayment> entrantPayments = csvEntrantPaymentRepository
+        .streamAllForAccountUsersAfterPayment(previousMark.getAccountUserIds(),
+            previousMark.getLastPaymentSubmittedTimestamp(), previousMark.getLastPaymentId(),
+            STREAMING_FETCH_SIZE)) {
+      lastPayment = streamCsvRows(entrantPayments, strategy, enricher, csvRowConsumer);
+    }
 
-    Response<CleanAirZonesDto> cleanAirZonesResponse = vccsRepository.findCleanAirZonesSync();
-    List<UUID> paymentIds = getPaymentIds(entrantPayments);
-    List<PaymentModification> paymentModifications = paymentDetailRepository
-        .findAllForPaymentsHistory(paymentIds, EntrantPaymentUpdateActor.LA,
-            Arrays.asList(InternalPaymentStatus.REFUNDED, InternalPaymentStatus.CHARGEBACK,
-                InternalPaymentStatus.FAILED));
-    return entrantPayments.stream()
-        .map(entrantPayment -> enrichEntrantPayment(entrantPayment, accountUsers,
-            cleanAirZonesResponse, paymentModifications))
-        .collect(Collectors.toList());
+    PaymentsHistoryExportMark mark = withLastPayment(previousMark.toBuilder(), lastPayment)
+        .exportedTimestamp(exportedTimestamp)
+        .build();
+    return Optional.of(new CsvContentChanges(header, changedRows, mark));
   }
 
   /**
-   * Method which enrich provided {@code CsvEntrantPayment} with data from External APIs and returns
-   * it as {@code EnrichedCsvEntrantPayment}.
+   * Passes rows of {@code entrantPayments} to {@code csvRowConsumer} and returns the entrant
+   * payment of the last payment, i.e. the one submitted most recently, or null if there are no
+   * entrant payments.
    */
-  private EnrichedCsvEntrantPayment enrichEntrantPayment(CsvEntrantPayment entrantPayment,
-      List<AccountUserResponse> accountUsers, Response<CleanAirZonesDto> cleanAirZones,
-      List<PaymentModification> paymentModifications) {
-    Optional<PaymentModification> paymentModification = getModification(paymentModifications,
-        entrantPayment);
-
-    EnrichedCsvEntrantPaymentBuilder enrichedCsvEntrantPayment = EnrichedCsvEntrantPayment.builder()
-        .paymentId(entrantPayment.getPaymentId())
-        .dateOfPayment(entrantPayment.getDateOfPayment().toLocalDate())
-        .paymentMadeBy(getPayerName(entrantPayment.getUserId(), accountUsers))
-        .cazName(getCleanAirZoneName(cleanAirZones, entrantPayment.getCleanAirZoneId()))
-        .vrn(entrantPayment.getVrn())
-        .dateOfEntry(entrantPayment.getTravelDate())
-        .charge(entrantPayment.getCharge())
-        .paymentReference(entrantPayment.getPaymentReference())
-        .paymentProviderId(entrantPayment.getPaymentProviderId())
-        .entriesCount(entrantPayment.getEntriesCount())
-        .totalPaid(entrantPayment.getTotalPaid());
-
-    paymentModification.ifPresent(modification -> enrichedCsvEntrantPayment
-        .status(modification.getEntrantPaymentStatus())
-        .dateReceivedFromLa(modification.getModificationTimestamp().toLocalDate())
-        .caseReference(modification.getCaseReference()));
-    return enrichedCsvEntrantPayment.build();
+  private CsvEntrantPayment streamCsvRows(Stream<CsvEntrantPayment> entrantPayments,
+      CsvContentGeneratorStrategy strategy, CsvEntrantPaymentEnricher enricher,
+      Consumer<String[]> csvRowConsumer) {
+    CsvEntrantPayment lastPayment = null;
+    int rowsSinceDetach = 0;
+    Iterator<CsvEntrantPayment> iterator = entrantPayments.iterator();
+    while (iterator.hasNext()) {
+      CsvEntrantPayment entrantPayment = iterator.next();
+      csvRowConsumer.accept(strategy.generateCsvRow(enricher.enrich(entrantPayment)));
+      if (lastPayment == null || PAYMENT_ORDER.compare(entrantPayment, lastPayment) > 0) {
+        lastPayment = entrantPayment;
+      }
+      if (++rowsSinceDetach == STREAMING_FETCH_SIZE) {
+        csvEntrantPaymentRepository.detachAll();
+        rowsSinceDetach = 0;
+      }
+    }
+    return lastPayment;
   }
 
   /**
-   * Method for retrieving a payer name.
+   * Generates rows of payments with {@code changedPaymentIds} grouped by their payment
+   * references.
    */
-  private String getPayerName(UUID userId, List<AccountUserResponse> accountUsers) {
-    AccountUserResponse accountUser = accountUsers.stream()
-        .filter(accountUserResponse -> accountUserResponse.getAccountUserId().equals(userId))
-        .iterator().next();
-    if (accountUser.isOwner()) {
-      return ADMINISTRATOR;
+  private Map<String, List<String[]>> generateChangedRows(List<UUID> changedPaymentIds,
+      CsvContentGeneratorStrategy strategy, CsvEntrantPaymentEnricher enricher) {
+    if (changedPaymentIds.isEmpty()) {
+      return Collections.emptyMap();
     }
-    if (accountUser.isRemoved()) {
-      return DELETED_USER;
+    Map<String, List<String[]>> changedRows = new HashMap<>();
+    for (CsvEntrantPayment entrantPayment : csvEntrantPaymentRepository
+        .findAllForPayments(changedPaymentIds)) {
+      changedRows.computeIfAbsent(safeToString(entrantPayment.getPaymentReference()),
+          paymentReference -> new ArrayList<>())
+          .add(strategy.generateCsvRow(enricher.enrich(entrantPayment)));
     }
-    return accountUser.getName();
+    return changedRows;
   }
 
   /**
-   * Method for retrieving a CleanAirZOne name.
+   * Checks whether rows of the previous export, which have not changed since, are the same as if
+   * they were generated now. It is not the case if the Local Authorities columns have been added
+   * or if any of the payer or Clean Air Zone names has changed.
    */
-  private String getCleanAirZoneName(Response<CleanAirZonesDto> cleanAirZonesResponse,
-      UUID cleanAirZone) {
-
-    return cleanAirZonesResponse.body().getCleanAirZones().stream()
-        .filter(caz -> caz.getCleanAirZoneId().equals(cleanAirZone))
-        .map(CleanAirZoneDto::getName)
-        .findFirst()
-        .orElse(null);
+  private boolean isPreviousExportUpToDate(PaymentsHistoryExportMark previousMark,
+      List<PaymentModification> paymentModifications, CsvEntrantPaymentEnricher enricher) {
+    return (previousMark.isLocalAuthorityColumns() || paymentModifications.isEmpty())
+        && enricher.getEnrichmentDataHash().equals(previousMark.getEnrichmentDataHash());
+  }
+
+  /**
+   * Creates {@link CsvEntrantPaymentEnricher} with the users of the account, all Clean Air Zones
+   * and {@code paymentModifications}.
+   */
+  private CsvEntrantPaymentEnricher createEnricher(UUID accountId,
+      List<PaymentModification> paymentModifications) {
+    List<AccountUserResponse> accountUsers = getAccountUsers(accountId);
+    List<CleanAirZoneDto> cleanAirZones = vccsRepository.findCleanAirZonesSync().body()
+        .getCleanAirZones();
+    return new CsvEntrantPaymentEnricher(accountUsers, cleanAirZones, paymentModifications);
   }
 
   /**
-   * Get list of PaymentIds based on entrant Payments.
+   * Sets the last payment of {@code builder} to the payment of {@code lastPayment} if present.
    */
-  private List<UUID> getPaymentIds(List<CsvEntrantPayment> entrantPayments) {
-    return entrantPayments.stream()
-        .map(CsvEntrantPayment::getPaymentId)
-        .distinct()
-        .collect(Collectors.toList());
+  private static PaymentsHistoryExportMarkBuilder withLastPayment(
+      PaymentsHistoryExportMarkBuilder builder, CsvEntrantPayment lastPayment) {
+    if (lastPayment == null) {
+      return builder;
+    }
+    return builder
+        .lastPaymentSubmittedTimestamp(lastPayment.getDateOfPayment())
+        .lastPaymentId(lastPayment.getPaymentId());
   }
 
   /**
-   * Gets modification status for selected EntrantPayment.
+   * Method performs an API call to the accounts service in order to get users information.
+   *
+   * @param accountId ID of the account of which users are going to be fetched.
+   * @return list of fetched users.
    */
-  private Optional<PaymentModification> getModification(
-      List<PaymentModification> paymentModifications, CsvEntrantPayment entrantPayment) {
-    return paymentModifications.stream()
-        .filter(paymentModification -> paymentModification.getVrn().equals(entrantPayment.getVrn())
-            && paymentModification.getTravelDate().equals(entrantPayment.getTravelDate())
-            && paymentModification.getPaymentId().equals(entrantPayment.getPaymentId()))
-        .reduce((first, second) -> second); // get last element
+  private List<AccountUserResponse> getAccountUsers(UUID accountId) {
+    Response<AccountUsersResponse> accountUsersBody = accountsRepository.getAllUsersSync(accountId);
+    return accountUsersBody.body().getUsers();
   }
 }
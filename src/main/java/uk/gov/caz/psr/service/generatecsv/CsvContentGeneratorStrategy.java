@@ -15,6 +15,11 @@ public interface CsvContentGeneratorStrategy {
       + "Clean Air Zone,Number plate,Dates paid for,Charge,Payment reference,"
       + "Payment ID,Days paid for,Total amount paid";
 
+  /**
+   * Index of the payment reference column, the same for all strategies.
+   */
+  int PAYMENT_REFERENCE_COLUMN_INDEX = 6;
+
   /**
    * Method generates a header row.
    *
@@ -29,4 +34,11 @@ public interface CsvContentGeneratorStrategy {
    */
   List<String[]> generateCsvContent(List<EnrichedCsvEntrantPayment> enrichedCsvEntrantPayments);
 
+  /**
+   * Method generates a single row of a CSV file content.
+   *
+   * @return an array of string which represents a single row.
+   */
+  String[] generateCsvRow(EnrichedCsvEntrantPayment enrichedCsvEntrantPayment);
+
 }
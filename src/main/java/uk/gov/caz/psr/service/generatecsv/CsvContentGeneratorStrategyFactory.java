@@ -25,7 +25,19 @@ public class CsvContentGeneratorStrategyFactory {
    */
   public CsvContentGeneratorStrategy createStrategy(
       List<EnrichedCsvEntrantPayment> enrichedCsvEntrantPayments) {
-    if (hasLocalAuthoritiesStatusUpdates(enrichedCsvEntrantPayments)) {
+    return createStrategy(hasLocalAuthoritiesStatusUpdates(enrichedCsvEntrantPayments));
+  }
+
+  /**
+   * Selects strategy of CSV content generation before any {@link EnrichedCsvEntrantPayment} is
+   * generated, which is needed when the content is streamed.
+   *
+   * @param anyLocalAuthoritiesStatusUpdates whether any of the exported entrant payments has
+   *     been refunded, charged back or failed by the Local Authorities.
+   * @return {@link CsvContentGeneratorStrategy}.
+   */
+  public CsvContentGeneratorStrategy createStrategy(boolean anyLocalAuthoritiesStatusUpdates) {
+    if (anyLocalAuthoritiesStatusUpdates) {
       return new LocalAuthorityCsvContentGeneratorStrategy(currencyFormatter);
     }
 
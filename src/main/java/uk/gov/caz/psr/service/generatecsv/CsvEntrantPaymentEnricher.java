@@ -0,0 +1,165 @@
+package uk.gov.caz.psr.service.generatecsv;
+
+import static uk.gov.caz.psr.util.Strings.safeToString;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import lombok.Value;
+import uk.gov.caz.definitions.dto.CleanAirZoneDto;
+import uk.gov.caz.psr.dto.accounts.AccountUserResponse;
+import uk.gov.caz.psr.model.PaymentModification;
+import uk.gov.caz.psr.model.generatecsv.CsvEntrantPayment;
+import uk.gov.caz.psr.model.generatecsv.EnrichedCsvEntrantPayment;
+import uk.gov.caz.psr.model.generatecsv.EnrichedCsvEntrantPayment.EnrichedCsvEntrantPaymentBuilder;
+
+/**
+ * Enriches {@link CsvEntrantPayment}s with data from External APIs and payment modifications. The
+ * data is indexed once upon creation, so that enriching a single entrant payment takes constant
+ * time regardless of the number of users, Clean Air Zones and modifications.
+ */
+class CsvEntrantPaymentEnricher {
+
+  private static final String ADMINISTRATOR = "Administrator";
+  private static final String DELETED_USER = "Deleted user";
+  private static final char SEPARATOR = '\0';
+
+  private final Map<UUID, String> payerNameByUserId;
+  private final Map<UUID, String> cleanAirZoneNameById;
+  private final Map<ModificationKey, PaymentModification> modificationByKey;
+
+  /**
+   * Creates an instance of {@link CsvEntrantPaymentEnricher}.
+   *
+   * @param accountUsers list of users of the account.
+   * @param cleanAirZones list of all Clean Air Zones.
+   * @param paymentModifications list of payment modifications ordered from the earliest one.
+   */
+  CsvEntrantPaymentEnricher(List<AccountUserResponse> accountUsers,
+      List<CleanAirZoneDto> cleanAirZones, List<PaymentModification> paymentModifications) {
+    this.payerNameByUserId = new HashMap<>(accountUsers.size() * 2);
+    for (AccountUserResponse accountUser : accountUsers) {
+      payerNameByUserId.putIfAbsent(accountUser.getAccountUserId(), getPayerName(accountUser));
+    }
+    this.cleanAirZoneNameById = new HashMap<>(cleanAirZones.size() * 2);
+    for (CleanAirZoneDto cleanAirZone : cleanAirZones) {
+      cleanAirZoneNameById.putIfAbsent(cleanAirZone.getCleanAirZoneId(), cleanAirZone.getName());
+    }
+    this.modificationByKey = new HashMap<>(paymentModifications.size() * 2);
+    for (PaymentModification paymentModification : paymentModifications) {
+      // the last modification of an entrant payment wins
+      modificationByKey.put(ModificationKey.from(paymentModification), paymentModification);
+    }
+  }
+
+  /**
+   * Method which enrich provided {@code CsvEntrantPayment} with data from External APIs and returns
+   * it as {@code EnrichedCsvEntrantPayment}.
+   *
+   * @param entrantPayment {@link CsvEntrantPayment} to enrich.
+   * @return {@link EnrichedCsvEntrantPayment}.
+   * @throws NoSuchElementException if the payer is not a user of the account.
+   */
+  EnrichedCsvEntrantPayment enrich(CsvEntrantPayment entrantPayment) {
+    EnrichedCsvEntrantPaymentBuilder enrichedCsvEntrantPayment = EnrichedCsvEntrantPayment.builder()
+        .paymentId(entrantPayment.getPaymentId())
+        .dateOfPayment(entrantPayment.getDateOfPayment().toLocalDate())
+        .paymentMadeBy(getPayerName(entrantPayment.getUserId()))
+        .cazName(cleanAirZoneNameById.get(entrantPayment.getCleanAirZoneId()))
+        .vrn(entrantPayment.getVrn())
+        .dateOfEntry(entrantPayment.getTravelDate())
+        .charge(entrantPayment.getCharge())
+        .paymentReference(entrantPayment.getPaymentReference())
+        .paymentProviderId(entrantPayment.getPaymentProviderId())
+        .entriesCount(entrantPayment.getEntriesCount())
+        .totalPaid(entrantPayment.getTotalPaid());
+
+    PaymentModification modification = modificationByKey.get(
+        ModificationKey.from(entrantPayment));
+    if (modification != null) {
+      enrichedCsvEntrantPayment
+          .status(modification.getEntrantPaymentStatus())
+          .dateReceivedFromLa(modification.getModificationTimestamp().toLocalDate())
+          .caseReference(modification.getCaseReference());
+    }
+    return enrichedCsvEntrantPayment.build();
+  }
+
+  /**
+   * Computes a hash of the payer and Clean Air Zone names by which entrant payments are enriched,
+   * so that it can be checked whether rows enriched by another instance are still up to date.
+   *
+   * @return hex-encoded SHA-256 hash of the names.
+   */
+  String getEnrichmentDataHash() {
+    Hasher hasher = Hashing.sha256().newHasher();
+    putSorted(hasher, payerNameByUserId);
+    putSorted(hasher, cleanAirZoneNameById);
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Puts entries of {@code namesById} to {@code hasher} in the order of their keys.
+   */
+  private static void putSorted(Hasher hasher, Map<UUID, String> namesById) {
+    namesById.entrySet().stream()
+        .sorted(Comparator.comparing(entry -> entry.getKey().toString()))
+        .forEach(entry -> hasher
+            .putString(entry.getKey().toString(), StandardCharsets.UTF_8)
+            .putChar(SEPARATOR)
+            .putString(safeToString(entry.getValue()), StandardCharsets.UTF_8)
+            .putChar(SEPARATOR));
+    hasher.putChar(SEPARATOR);
+  }
+
+  /**
+   * Method for retrieving a payer name.
+   */
+  private String getPayerName(UUID userId) {
+    if (!payerNameByUserId.containsKey(userId)) {
+      throw new NoSuchElementException("Payer is not a user of the account");
+    }
+    return payerNameByUserId.get(userId);
+  }
+
+  /**
+   * Selects the name which is displayed for {@code accountUser}.
+   */
+  private static String getPayerName(AccountUserResponse accountUser) {
+    if (accountUser.isOwner()) {
+      return ADMINISTRATOR;
+    }
+    if (accountUser.isRemoved()) {
+      return DELETED_USER;
+    }
+    return accountUser.getName();
+  }
+
+  /**
+   * Identifies the entrant payment of a payment which a modification applies to.
+   */
+  @Value
+  private static class ModificationKey {
+
+    UUID paymentId;
+    String vrn;
+    LocalDate travelDate;
+
+    static ModificationKey from(PaymentModification paymentModification) {
+      return new ModificationKey(paymentModification.getPaymentId(),
+          paymentModification.getVrn(), paymentModification.getTravelDate());
+    }
+
+    static ModificationKey from(CsvEntrantPayment entrantPayment) {
+      return new ModificationKey(entrantPayment.getPaymentId(), entrantPayment.getVrn(),
+          entrantPayment.getTravelDate());
+    }
+  }
+}
@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import org.springframework.stereotype.Component;
+import uk.gov.caz.psr.model.generatecsv.CsvExportFormat;
 
 /**
  * Generates full Csv file name that can be export to S3.
@@ -14,7 +15,6 @@ public class CsvFileNameGenerator {
   private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter
       .ofPattern("ddMMMMyyyy-HHmmss");
 
-  private static final String CSV_FILE_EXT = "csv";
   private static final String PAYMENTS = "Payment-history-";
   private static final String DOT = ".";
   private static final ZoneId UK_ZONE_ID = ZoneId.of("Europe/London");
@@ -25,10 +25,20 @@ public class CsvFileNameGenerator {
    * @return Full Csv file name.
    */
   public String generate() {
+    return generate(CsvExportFormat.CSV);
+  }
+
+  /**
+   * Generate full Csv file name with the extension matching {@code format}.
+   *
+   * @param format {@link CsvExportFormat} of the file.
+   * @return Full Csv file name.
+   */
+  public String generate(CsvExportFormat format) {
     LocalDateTime now = LocalDateTime.now(UK_ZONE_ID);
     return PAYMENTS
         + DATE_TIME_FORMATTER.format(now)
         + DOT
-        + CSV_FILE_EXT;
+        + format.getFileExtension();
   }
 }
@@ -3,45 +3,142 @@ package uk.gov.caz.psr.service.generatecsv;
 import com.opencsv.CSVWriter;
 import com.opencsv.CSVWriterBuilder;
 import com.opencsv.ICSVWriter;
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.StringWriter;
 import java.io.Writer;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Component;
+import uk.gov.caz.psr.model.generatecsv.PaymentsHistoryExportMark;
 
 /**
- * Generates writer with csv content.
+ * Writes csv content to a writer.
  */
 @Component
 @AllArgsConstructor
 public class CsvWriter {
 
+  private static final char BOM = '\ufeff';
+
   private final CsvContentGenerator csvContentGenerator;
 
   /**
-   * Create {@link Writer} with content of csv.
+   * Writes content of csv to {@code writer} row by row as the rows are generated. The writer is
+   * flushed, but not closed.
    *
    * @param accountId ID of Account.
    * @param accountUserIds List of account user ids for which we should generate payment history.
-   * @return {@link Writer}.
+   * @param writer {@link Writer} to which the content is written.
+   * @return {@link PaymentsHistoryExportMark} of the written content without the file name.
+   */
+  public PaymentsHistoryExportMark writeCsvContent(UUID accountId, List<UUID> accountUserIds,
+      Writer writer) throws IOException {
+    ICSVWriter csvWriter = createCsvWriter(writer);
+
+    // Write UTF-8 BOM
+    writer.write(BOM);
+
+    PaymentsHistoryExportMark mark = csvContentGenerator.streamCsvRows(accountId, accountUserIds,
+        csvWriter::writeNext);
+
+    flush(csvWriter);
+    return mark;
+  }
+
+  /**
+   * Writes content of csv to {@code writer} by merging {@code previousContent}, i.e. the content
+   * written for {@code previousMark}, with the changes of the payment history since. Rows of new
+   * payments are written first, then rows of {@code previousContent} are copied, apart from the
+   * rows of changed payments which are replaced with their current rows. The writer is flushed,
+   * but not closed.
+   *
+   * @param accountId ID of Account.
+   * @param previousMark {@link PaymentsHistoryExportMark} of the previous content.
+   * @param previousContent {@link BufferedReader} of the previous content.
+   * @param writer {@link Writer} to which the content is written.
+   * @return {@link PaymentsHistoryExportMark} of the written content without the file name or
+   *     empty if the previous content cannot be reused, in which case the written content is
+   *     incomplete and should be discarded.
    */
-  public Writer createWriterWithCsvContent(UUID accountId, List<UUID> accountUserIds)
+  public Optional<PaymentsHistoryExportMark> writeCsvContentIncrementally(UUID accountId,
+      PaymentsHistoryExportMark previousMark, BufferedReader previousContent, Writer writer)
       throws IOException {
-    try (Writer writer = new StringWriter();
-        ICSVWriter csvWriter = new CSVWriterBuilder(writer)
-            .withSeparator(CSVWriter.NO_QUOTE_CHARACTER)
-            .withQuoteChar(CSVWriter.NO_QUOTE_CHARACTER)
-            .build()) {
+    ICSVWriter csvWriter = createCsvWriter(writer);
 
-      // Write UTF-8 BOM
-      writer.write('\ufeff');
+    // Write UTF-8 BOM
+    writer.write(BOM);
 
-      List<String[]> csvRows = csvContentGenerator.generateCsvRows(accountId, accountUserIds);
+    Optional<CsvContentChanges> changes = csvContentGenerator.streamChangedCsvRows(accountId,
+        previousMark, csvWriter::writeNext);
+    if (!changes.isPresent()) {
+      return Optional.empty();
+    }
+    flush(csvWriter);
+
+    String header = String.join(",", changes.get().getHeader());
+    if (!(BOM + header).equals(previousContent.readLine())) {
+      return Optional.empty();
+    }
+    if (!copyPreviousRows(previousContent, header.split(",", -1).length,
+        changes.get().getChangedRowsByPaymentReference(), csvWriter, writer)) {
+      return Optional.empty();
+    }
 
-      csvWriter.writeAll(csvRows);
-      return writer;
+    flush(csvWriter);
+    return Optional.of(changes.get().getMark());
+  }
+
+  /**
+   * Copies rows of {@code previousContent} to {@code writer} replacing rows of changed payments
+   * with {@code changedRowsByPaymentReference}. Returns false if the payment of any row cannot be
+   * determined or if any of the changed payments is missing in the previous content.
+   */
+  private boolean copyPreviousRows(BufferedReader previousContent, int columnsCount,
+      Map<String, List<String[]>> changedRowsByPaymentReference, ICSVWriter csvWriter,
+      Writer writer) throws IOException {
+    Set<String> replacedPaymentReferences = new HashSet<>();
+    String row;
+    while ((row = previousContent.readLine()) != null) {
+      String[] columns = row.split(",", -1);
+      if (columns.length != columnsCount) {
+        // values containing commas are not quoted, hence columns cannot be told apart
+        return false;
+      }
+      String paymentReference = columns[CsvContentGeneratorStrategy.PAYMENT_REFERENCE_COLUMN_INDEX];
+      List<String[]> changedRows = changedRowsByPaymentReference.get(paymentReference);
+      if (changedRows == null) {
+        writer.write(row);
+        writer.write(ICSVWriter.DEFAULT_LINE_END);
+      } else if (replacedPaymentReferences.add(paymentReference)) {
+        csvWriter.writeAll(changedRows);
+        flush(csvWriter);
+      }
+    }
+    return replacedPaymentReferences.size() == changedRowsByPaymentReference.size();
+  }
+
+  /**
+   * Creates {@link ICSVWriter} writing to {@code writer}.
+   */
+  private ICSVWriter createCsvWriter(Writer writer) {
+    return new CSVWriterBuilder(writer)
+        .withSeparator(CSVWriter.NO_QUOTE_CHARACTER)
+        .withQuoteChar(CSVWriter.NO_QUOTE_CHARACTER)
+        .build();
+  }
+
+  /**
+   * Flushes {@code csvWriter} and checks whether it has encountered any error.
+   */
+  private void flush(ICSVWriter csvWriter) throws IOException {
+    csvWriter.flush();
+    if (csvWriter.checkError()) {
+      throw new IOException("Unable to write csv content");
     }
   }
 }
@@ -28,11 +28,16 @@ public class LocalAuthorityCsvContentGeneratorStrategy implements CsvContentGene
     List<String[]> csvRows = new ArrayList<>();
 
     for (EnrichedCsvEntrantPayment enrichedCsvEntrantPayment : enrichedCsvEntrantPayments) {
-      csvRows.add(new String[]{getRow(enrichedCsvEntrantPayment)});
+      csvRows.add(generateCsvRow(enrichedCsvEntrantPayment));
     }
     return csvRows;
   }
 
+  @Override
+  public String[] generateCsvRow(EnrichedCsvEntrantPayment enrichedCsvEntrantPayment) {
+    return new String[]{getRow(enrichedCsvEntrantPayment)};
+  }
+
   @SuppressWarnings("CPD-START")
   private String getRow(EnrichedCsvEntrantPayment enrichedCsvEntrantPayment) {
     return String.join(",",
@@ -1,11 +1,13 @@
 package uk.gov.caz.psr.service.generatecsv;
 
+import java.util.Optional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import retrofit2.Response;
 import uk.gov.caz.psr.dto.PaymentsHistoryLambdaInput;
 import uk.gov.caz.psr.dto.accounts.UpdatePaymentHistoryExportRequest;
+import uk.gov.caz.psr.model.generatecsv.CsvExportFormat;
 import uk.gov.caz.psr.repository.AccountsRepository;
 import uk.gov.caz.psr.service.exception.ExternalServiceCallException;
 import uk.gov.caz.psr.util.ResponseBodyUtils;
@@ -23,8 +25,11 @@ public class PaymentHistoryExportService {
    * @param request A lambda input which need to be used to upload a csv file and call account api.
    */
   public void execute(PaymentsHistoryLambdaInput request)  {
+    CsvExportFormat format = Optional.ofNullable(request.getFormat())
+        .orElse(CsvExportFormat.CSV);
     String fileName = paymentsHistoryCsvFileSupervisor
-        .uploadCsvFileAndGetFileName(request.getAccountId(), request.getAccountUserIds());
+        .uploadCsvFileAndGetFileName(request.getAccountId(), request.getAccountUserIds(),
+            request.isIncremental(), format);
     UpdatePaymentHistoryExportRequest patchBody = paymentHistoryExportRequest(fileName);
     Response<Void> response = accountsRepository.updatePaymentHistoryExportJobSync(
         request.getAccountId(), request.getRegisterJobId(), patchBody);
@@ -1,47 +1,88 @@
 package uk.gov.caz.psr.service.generatecsv;
 
+import com.google.common.base.Stopwatch;
+import com.google.common.io.CountingOutputStream;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
-import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.S3Exception;
+import uk.gov.caz.psr.model.generatecsv.CsvExportFormat;
+import uk.gov.caz.psr.model.generatecsv.PaymentsHistoryExportMark;
+import uk.gov.caz.psr.repository.generatecsv.PaymentsHistoryExportMarkRepository;
 import uk.gov.caz.psr.service.generatecsv.exception.CsvExportException;
 
 /**
- * This class acts as a supervisor around uploading csv file.
+ * This class acts as a supervisor around uploading csv file. Duration of uploads is recorded in
+ * {@code payments.history.export.upload} timer, sizes of the csv content and of the uploaded file
+ * in {@code payments.history.export.content.size} and {@code
+ * payments.history.export.uploaded.size} distribution summaries, all of them tagged by the
+ * format of the file.
  */
 @Slf4j
 @Component
 public class PaymentsHistoryCsvFileSupervisor {
 
   private static final String TEXT_CSV = "text/csv";
+  private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+  private static final String UPLOAD_TIMER_NAME = "payments.history.export.upload";
+  private static final String CONTENT_SIZE_SUMMARY_NAME = "payments.history.export.content.size";
+  private static final String UPLOADED_SIZE_SUMMARY_NAME =
+      "payments.history.export.uploaded.size";
+  private static final String FORMAT_TAG = "format";
   private final S3Client s3Client;
   private final CsvFileNameGenerator csvFileNameGenerator;
   private final CsvWriter csvWriter;
+  private final PaymentsHistoryExportMarkRepository paymentsHistoryExportMarkRepository;
+  private final MeterRegistry meterRegistry;
   private final String bucket;
+  private final int partSize;
 
   /**
    * Default constructor.
    */
   public PaymentsHistoryCsvFileSupervisor(S3Client s3Client,
       CsvFileNameGenerator csvFileNameGenerator,
-      CsvWriter csvWriter, @Value("${csv-export-bucket}") String bucket) {
+      CsvWriter csvWriter, PaymentsHistoryExportMarkRepository paymentsHistoryExportMarkRepository,
+      MeterRegistry meterRegistry,
+      @Value("${csv-export-bucket}") String bucket,
+      @Value("${csv-export-part-size-bytes:5242880}") int partSize) {
     this.s3Client = s3Client;
     this.csvFileNameGenerator = csvFileNameGenerator;
     this.csvWriter = csvWriter;
+    this.paymentsHistoryExportMarkRepository = paymentsHistoryExportMarkRepository;
+    this.meterRegistry = meterRegistry;
     this.bucket = bucket;
+    this.partSize = partSize;
   }
 
   /**
-   * Upload csv file to s3.
+   * Upload csv file to s3. The content is streamed to s3 with a multipart upload as it is
+   * generated, hence the memory footprint is bounded by the size of a single part.
    *
    * @param accountId ID of the account.
    * @param accountUserIds List of account user ids for which we should generate payment
@@ -49,10 +90,37 @@ public class PaymentsHistoryCsvFileSupervisor {
    * @return {@link URL}.
    */
   public String uploadCsvFileAndGetFileName(UUID accountId, List<UUID> accountUserIds) {
-    String fileName = prepareFileName();
+    return uploadCsvFileAndGetFileName(accountId, accountUserIds, false, CsvExportFormat.CSV);
+  }
+
+  /**
+   * Upload csv file to s3. The content is streamed to s3 with a multipart upload as it is
+   * generated, hence the memory footprint is bounded by the size of a single part. If {@code
+   * incremental} is set and the payment history of the same users has been exported before, the
+   * previous file is merged with the changes since its export instead of generating the whole
+   * content. The whole content is generated if the previous file cannot be reused.
+   *
+   * @param accountId ID of the account.
+   * @param accountUserIds List of account user ids for which we should generate payment
+   *     history.
+   * @param incremental whether the previous export of the payment history should be reused.
+   * @param format {@link CsvExportFormat} of the uploaded file, compressed formats are
+   *     compressed as the content is streamed.
+   * @return {@link URL}.
+   */
+  public String uploadCsvFileAndGetFileName(UUID accountId, List<UUID> accountUserIds,
+      boolean incremental, CsvExportFormat format) {
+    String fileName = csvFileNameGenerator.generate(format);
     String error = String.format("Exception while uploading file %s/%s", bucket, fileName);
     try {
-      s3Client.putObject(prepareRequestObject(), prepareRequestBody(accountId, accountUserIds));
+      Optional<PaymentsHistoryExportMark> mark = incremental
+          ? uploadChangedCsvFile(fileName, format, accountId, accountUserIds)
+          : Optional.empty();
+      if (!mark.isPresent()) {
+        mark = upload(fileName, format,
+            writer -> Optional.of(csvWriter.writeCsvContent(accountId, accountUserIds, writer)));
+      }
+      saveMark(mark.get(), fileName);
       return fileName;
     } catch (S3Exception e) {
       logAwsExceptionDetails(e);
@@ -64,32 +132,133 @@ public class PaymentsHistoryCsvFileSupervisor {
   }
 
   /**
-   * Helper method to prepare put request object.
+   * Streams csv content merged from the previous file and the changes since to s3. The object is
+   * created only if the previous file has been reused, otherwise the upload is aborted and an
+   * empty optional is returned.
    */
-  private PutObjectRequest prepareRequestObject() {
-    return PutObjectRequest.builder()
+  private Optional<PaymentsHistoryExportMark> uploadChangedCsvFile(String fileName,
+      CsvExportFormat format, UUID accountId, List<UUID> accountUserIds) throws IOException {
+    Optional<PaymentsHistoryExportMark> previousMark = paymentsHistoryExportMarkRepository
+        .find(accountId, accountUserIds);
+    if (!previousMark.isPresent()) {
+      log.info("Payment history has not been exported before, exporting the whole history");
+      return Optional.empty();
+    }
+    try (ResponseInputStream<GetObjectResponse> previousFile = s3Client.getObject(
+        GetObjectRequest.builder()
+            .bucket(bucket)
+            .key(previousMark.get().getFileName())
+            .build());
+        BufferedReader previousContent = new BufferedReader(
+            new InputStreamReader(decode(previousFile), StandardCharsets.UTF_8))) {
+      Optional<PaymentsHistoryExportMark> mark = upload(fileName, format,
+          writer -> csvWriter.writeCsvContentIncrementally(accountId, previousMark.get(),
+              previousContent, writer));
+      if (!mark.isPresent()) {
+        log.info("Previous export of payment history cannot be reused, exporting the whole "
+            + "history");
+      }
+      return mark;
+    } catch (NoSuchKeyException e) {
+      log.info("Previous export of payment history no longer exists, exporting the whole "
+          + "history");
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Streams csv content written by {@code contentWriter} to s3, compressing it if required by
+   * {@code format}. The object is created only if the whole content is written, i.e. {@code
+   * contentWriter} returns the mark of the content. The deflater of the compressed content is
+   * released regardless of the outcome.
+   */
+  private Optional<PaymentsHistoryExportMark> upload(String fileName, CsvExportFormat format,
+      CsvContentUpload contentWriter) throws IOException {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    try (S3MultipartUploadOutputStream upload = new S3MultipartUploadOutputStream(s3Client,
+        prepareRequestObject(fileName, format), partSize)) {
+      CountingOutputStream uploadedBytes = new CountingOutputStream(upload);
+      ReleasableGzipOutputStream gzip = format.isCompressed()
+          ? new ReleasableGzipOutputStream(uploadedBytes)
+          : null;
+      try {
+        CountingOutputStream contentBytes = new CountingOutputStream(
+            gzip == null ? uploadedBytes : gzip);
+        Writer writer = new OutputStreamWriter(contentBytes, StandardCharsets.UTF_8);
+        Optional<PaymentsHistoryExportMark> mark = contentWriter.write(writer);
+        if (!mark.isPresent()) {
+          return mark;
+        }
+        writer.flush();
+        if (gzip != null) {
+          gzip.finish();
+        }
+        upload.complete();
+        recordUploadMetrics(format, contentBytes.getCount(), uploadedBytes.getCount(),
+            stopwatch.stop().elapsed(TimeUnit.NANOSECONDS));
+        return mark;
+      } finally {
+        if (gzip != null) {
+          gzip.release();
+        }
+      }
+    }
+  }
+
+  /**
+   * Wraps {@code previousFile} in a stream decompressing its content if it is compressed.
+   */
+  private InputStream decode(ResponseInputStream<GetObjectResponse> previousFile)
+      throws IOException {
+    String contentEncoding = previousFile.response().contentEncoding();
+    return CsvExportFormat.CSV_GZIP.getContentEncoding().equals(contentEncoding)
+        ? new GZIPInputStream(previousFile, GZIP_BUFFER_SIZE)
+        : previousFile;
+  }
+
+  /**
+   * Saves {@code mark} of the file uploaded as {@code fileName} unless it is empty.
+   */
+  private void saveMark(PaymentsHistoryExportMark mark, String fileName) {
+    if (mark.hasLastPayment()) {
+      paymentsHistoryExportMarkRepository.save(mark.toBuilder().fileName(fileName).build());
+    }
+  }
+
+  /**
+   * Helper method to prepare multipart upload request object.
+   */
+  private CreateMultipartUploadRequest prepareRequestObject(String fileName,
+      CsvExportFormat format) {
+    return CreateMultipartUploadRequest.builder()
         .bucket(bucket)
-        .key(prepareFileName())
+        .key(fileName)
         .contentType(TEXT_CSV)
+        .contentEncoding(format.getContentEncoding())
         .build();
   }
 
   /**
-   * Helper method to prepare request body.
+   * Records the duration of the upload and the sizes of the csv content and of the uploaded file
+   * in {@code format}.
    */
-  private RequestBody prepareRequestBody(UUID accountId, List<UUID> accountUserIds)
-      throws IOException {
-    try (Writer csvEntrantPayments = csvWriter
-        .createWriterWithCsvContent(accountId, accountUserIds)) {
-      return RequestBody.fromBytes(csvEntrantPayments.toString().getBytes());
-    }
+  private void recordUploadMetrics(CsvExportFormat format, long contentBytes,
+      long uploadedBytes, long elapsedNanos) {
+    String formatTag = format.name();
+    meterRegistry.timer(UPLOAD_TIMER_NAME, FORMAT_TAG, formatTag)
+        .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    sizeSummary(CONTENT_SIZE_SUMMARY_NAME, formatTag).record(contentBytes);
+    sizeSummary(UPLOADED_SIZE_SUMMARY_NAME, formatTag).record(uploadedBytes);
   }
 
   /**
-   * Helper method to prepare file name.
+   * Returns the distribution summary of sizes in bytes named {@code name} for {@code formatTag}.
    */
-  private String prepareFileName() {
-    return csvFileNameGenerator.generate();
+  private DistributionSummary sizeSummary(String name, String formatTag) {
+    return DistributionSummary.builder(name)
+        .baseUnit(BaseUnits.BYTES)
+        .tag(FORMAT_TAG, formatTag)
+        .register(meterRegistry);
   }
 
   /**
@@ -100,4 +269,35 @@ public class PaymentsHistoryCsvFileSupervisor {
     log.warn("Unable to upload file: error code: {}, error message: {}",
         details.errorCode(), details.errorMessage());
   }
+
+  /**
+   * {@link GZIPOutputStream} whose deflater can be released without writing the rest of the
+   * compressed content, e.g. when the content is discarded.
+   */
+  private static class ReleasableGzipOutputStream extends GZIPOutputStream {
+
+    ReleasableGzipOutputStream(OutputStream out) throws IOException {
+      super(out, GZIP_BUFFER_SIZE);
+    }
+
+    /**
+     * Releases the native memory of the deflater. The stream cannot be written to afterwards.
+     */
+    void release() {
+      def.end();
+    }
+  }
+
+  /**
+   * Writes csv content to be uploaded.
+   */
+  @FunctionalInterface
+  private interface CsvContentUpload {
+
+    /**
+     * Writes csv content to {@code writer} and returns its mark or an empty optional if the
+     * content is incomplete and should not be uploaded.
+     */
+    Optional<PaymentsHistoryExportMark> write(Writer writer) throws IOException;
+  }
 }
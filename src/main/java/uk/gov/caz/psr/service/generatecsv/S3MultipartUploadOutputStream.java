@@ -0,0 +1,147 @@
+package uk.gov.caz.psr.service.generatecsv;
+
+import com.google.common.base.Preconditions;
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+/**
+ * An {@link OutputStream} which uploads the written bytes to S3 with a multipart upload, one part
+ * at a time, so that at most a single part is held in memory.
+ *
+ * <p>The object is created only when {@link S3MultipartUploadOutputStream#complete()} is called.
+ * Closing the stream without completing it aborts the upload, hence it should be used in a
+ * try-with-resources block.</p>
+ */
+@Slf4j
+class S3MultipartUploadOutputStream extends OutputStream {
+
+  /**
+   * The minimum size of a part in S3, except for the last one.
+   */
+  static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+  private final S3Client s3Client;
+  private final String bucket;
+  private final String key;
+  private final String uploadId;
+  private final byte[] part;
+  private final List<CompletedPart> completedParts = new ArrayList<>();
+  private int partLength;
+  private boolean finished;
+
+  /**
+   * Starts a multipart upload of the object described by {@code request}.
+   *
+   * @param s3Client {@link S3Client} used for the upload.
+   * @param request {@link CreateMultipartUploadRequest} describing the uploaded object.
+   * @param partSize the size of each part but the last one in bytes.
+   * @throws S3Exception if the upload cannot be started.
+   */
+  S3MultipartUploadOutputStream(S3Client s3Client, CreateMultipartUploadRequest request,
+      int partSize) {
+    Preconditions.checkArgument(partSize >= MIN_PART_SIZE,
+        "partSize must be at least %s bytes", MIN_PART_SIZE);
+    this.s3Client = s3Client;
+    this.bucket = request.bucket();
+    this.key = request.key();
+    this.part = new byte[partSize];
+    this.uploadId = s3Client.createMultipartUpload(request).uploadId();
+  }
+
+  @Override
+  public void write(int b) {
+    checkNotFinished();
+    if (partLength == part.length) {
+      uploadPart();
+    }
+    part[partLength++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) {
+    checkNotFinished();
+    int written = 0;
+    while (written < length) {
+      if (partLength == part.length) {
+        uploadPart();
+      }
+      int chunk = Math.min(length - written, part.length - partLength);
+      System.arraycopy(bytes, offset + written, part, partLength, chunk);
+      partLength += chunk;
+      written += chunk;
+    }
+  }
+
+  /**
+   * Uploads the last part and completes the upload, which creates the object in S3.
+   *
+   * @throws S3Exception if the upload cannot be completed.
+   */
+  void complete() {
+    checkNotFinished();
+    if (partLength > 0 || completedParts.isEmpty()) {
+      uploadPart();
+    }
+    s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+        .bucket(bucket)
+        .key(key)
+        .uploadId(uploadId)
+        .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+        .build());
+    finished = true;
+  }
+
+  /**
+   * Aborts the upload unless it has been completed.
+   */
+  @Override
+  public void close() {
+    if (finished) {
+      return;
+    }
+    finished = true;
+    try {
+      s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+          .bucket(bucket)
+          .key(key)
+          .uploadId(uploadId)
+          .build());
+    } catch (S3Exception e) {
+      log.warn("Unable to abort multipart upload of {}/{}", bucket, key, e);
+    }
+  }
+
+  /**
+   * Uploads the buffered bytes as the next part.
+   */
+  private void uploadPart() {
+    int partNumber = completedParts.size() + 1;
+    String eTag = s3Client.uploadPart(UploadPartRequest.builder()
+            .bucket(bucket)
+            .key(key)
+            .uploadId(uploadId)
+            .partNumber(partNumber)
+            .contentLength((long) partLength)
+            .build(),
+        RequestBody.fromInputStream(new ByteArrayInputStream(part, 0, partLength), partLength))
+        .eTag();
+    completedParts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+    partLength = 0;
+  }
+
+  private void checkNotFinished() {
+    Preconditions.checkState(!finished, "The upload has already finished");
+  }
+}
@@ -42,9 +42,11 @@ public class PaymentReceiptSender {
       log.info("Processing email event for payment with ID: {}", payment.getId());
       boolean shouldBeSent = checkIfShouldBeSent(payment);
       if (shouldBeSent) {
-        SendEmailRequest request = paymentReceiptEmailCreator.createSendEmailRequest(payment);
-        messagingClient.publishMessage(request);
-        setEmailConfirmationSentForPayment(payment);
+        if (!setEmailConfirmationSentForPayment(payment)) {
+          log.info("Email for payment with ID {} has already been sent", payment.getId());
+          return;
+        }
+        sendEmail(payment);
         log.info("Email for payment with ID {} has been sent", payment.getId());
       } else {
         log.info("Skipping email sending for payment with ID: {}", payment.getId());
@@ -56,8 +58,26 @@ public class PaymentReceiptSender {
     }
   }
 
-  private void setEmailConfirmationSentForPayment(Payment payment) {
-    paymentRepository.markSentConfirmationEmail(payment.getId());
+  /**
+   * Marks the email as sent before it is sent, so that it is sent once even if the status of the
+   * payment is updated concurrently. Returns false if the payment has already been marked.
+   */
+  private boolean setEmailConfirmationSentForPayment(Payment payment) {
+    return paymentRepository.markSentConfirmationEmail(payment.getId());
+  }
+
+  /**
+   * Sends the receipt of {@code payment}. The payment is unmarked if the email cannot be sent,
+   * so that it can be sent upon the next update.
+   */
+  private void sendEmail(Payment payment) {
+    try {
+      SendEmailRequest request = paymentReceiptEmailCreator.createSendEmailRequest(payment);
+      messagingClient.publishMessage(request);
+    } catch (RuntimeException e) {
+      paymentRepository.unmarkSentConfirmationEmail(payment.getId());
+      throw e;
+    }
   }
 
   private boolean checkIfShouldBeSent(Payment payment) {
@@ -0,0 +1,39 @@
+package uk.gov.caz.psr.service.paymentinfo;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+import uk.gov.caz.psr.model.info.EntrantPaymentInfo;
+import uk.gov.caz.psr.model.info.EntrantPaymentInfo_;
+import uk.gov.caz.psr.model.info.EntrantPaymentMatchInfo;
+import uk.gov.caz.psr.model.info.EntrantPaymentMatchInfo_;
+import uk.gov.caz.psr.model.info.PaymentInfo;
+import uk.gov.caz.psr.model.info.PaymentInfo_;
+
+/**
+ * Specification which does not narrow down the results, but orders them by vrn, payment and travel
+ * date, so that all entrant payments of a given vrn and payment are adjacent.
+ */
+public class OrderByVrnAndPaymentSpecification implements
+    Specification<EntrantPaymentMatchInfo> {
+
+  @Override
+  public Predicate toPredicate(Root<EntrantPaymentMatchInfo> root, CriteriaQuery<?> criteriaQuery,
+      CriteriaBuilder criteriaBuilder) {
+    boolean isCountQuery = QueryUtil.currentQueryIsCountRecords(criteriaQuery);
+    Join<EntrantPaymentMatchInfo, EntrantPaymentInfo> entrantPaymentInfoJoin = QueryUtil
+        .getOrCreateJoin(root, EntrantPaymentMatchInfo_.entrantPaymentInfo, isCountQuery);
+    Join<EntrantPaymentMatchInfo, PaymentInfo> paymentInfoJoin = QueryUtil
+        .getOrCreateJoin(root, EntrantPaymentMatchInfo_.paymentInfo, isCountQuery);
+
+    criteriaQuery.orderBy(
+        criteriaBuilder.asc(entrantPaymentInfoJoin.get(EntrantPaymentInfo_.vrn)),
+        criteriaBuilder.asc(paymentInfoJoin.get(PaymentInfo_.id)),
+        criteriaBuilder.asc(entrantPaymentInfoJoin.get(EntrantPaymentInfo_.travelDate))
+    );
+    return criteriaBuilder.conjunction();
+  }
+}
@@ -0,0 +1,60 @@
+package uk.gov.caz.psr.service.paymentinfo;
+
+import java.util.UUID;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import org.springframework.data.jpa.domain.Specification;
+import uk.gov.caz.psr.model.PaymentInfoCursor;
+import uk.gov.caz.psr.model.info.EntrantPaymentInfo;
+import uk.gov.caz.psr.model.info.EntrantPaymentInfo_;
+import uk.gov.caz.psr.model.info.EntrantPaymentMatchInfo;
+import uk.gov.caz.psr.model.info.EntrantPaymentMatchInfo_;
+
+/**
+ * Specification which orders entrant payments by (vrn, entrant payment id) and, if the cursor is
+ * present, narrows them down to the ones located after the cursor. Thanks to that a page is read
+ * straight from the index without scanning the previous pages.
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class PaymentInfoKeysetSpecification implements Specification<EntrantPaymentMatchInfo> {
+
+  private final PaymentInfoCursor cursor;
+
+  @Override
+  public Predicate toPredicate(Root<EntrantPaymentMatchInfo> root, CriteriaQuery<?> criteriaQuery,
+      CriteriaBuilder criteriaBuilder) {
+    Join<EntrantPaymentMatchInfo, EntrantPaymentInfo> entrantPaymentInfoJoin = QueryUtil
+        .getOrCreateJoin(root, EntrantPaymentMatchInfo_.entrantPaymentInfo,
+            QueryUtil.currentQueryIsCountRecords(criteriaQuery));
+    Path<String> vrn = entrantPaymentInfoJoin.get(EntrantPaymentInfo_.vrn);
+    Path<UUID> entrantPaymentId = entrantPaymentInfoJoin.get(EntrantPaymentInfo_.id);
+
+    criteriaQuery.orderBy(criteriaBuilder.asc(vrn), criteriaBuilder.asc(entrantPaymentId));
+
+    if (cursor == null) {
+      return criteriaBuilder.conjunction();
+    }
+    return criteriaBuilder.or(
+        criteriaBuilder.greaterThan(vrn, cursor.getVrn()),
+        criteriaBuilder.and(
+            criteriaBuilder.equal(vrn, cursor.getVrn()),
+            criteriaBuilder.greaterThan(entrantPaymentId, cursor.getEntrantPaymentId())
+        )
+    );
+  }
+
+  /**
+   * Static factory method for creating {@link PaymentInfoKeysetSpecification} instances which
+   * select entrant payments located after {@code cursor}. A null {@code cursor} denotes the first
+   * page.
+   */
+  public static PaymentInfoKeysetSpecification after(PaymentInfoCursor cursor) {
+    return new PaymentInfoKeysetSpecification(cursor);
+  }
+}
@@ -67,7 +67,7 @@ public class PaginatedPaymentsInfoByOperatorDetailsFetcher {
     List<EntrantPaymentMatchInfo> entrantPaymentMatchInfos = matchingEntrantInfos
         .get(paymentInfo.getId());
     return PaymentInfoByOperator.builder()
-        .cazName(getCazNameFromAnyMatchingEntrant(cleanAirZoneById, entrantPaymentMatchInfos))
+        .cazName(getCazName(cleanAirZoneById, paymentInfo))
         .paymentId(paymentInfo.getId())
         .operatorId(paymentInfo.getOperatorId())
         .paymentProviderStatus(paymentInfo.getExternalPaymentStatus().toString())
@@ -87,30 +87,11 @@ public class PaginatedPaymentsInfoByOperatorDetailsFetcher {
   }
 
   /**
-   * Returns the matching CAZ name for any entrant payment match (they all are from the same CAZ).
+   * Returns the name of the CAZ which the payment has been made for.
    */
-  private String getCazNameFromAnyMatchingEntrant(Map<UUID, CleanAirZoneDto> cleanAirZoneById,
-      List<EntrantPaymentMatchInfo> entrantPaymentMatchInfos) {
-    EntrantPaymentInfo anyMatchingEntrantInfo = getAnyMatchingEntrantInfo(entrantPaymentMatchInfos);
-    CleanAirZoneDto cleanAirZoneData = getCleanAirZoneDataByCazId(cleanAirZoneById,
-        anyMatchingEntrantInfo);
-    return cleanAirZoneData.getName();
-  }
-
-  /**
-   * Returns the matching CAZ for the given {@code anyMatchingEntrantInfo}.
-   */
-  private CleanAirZoneDto getCleanAirZoneDataByCazId(Map<UUID, CleanAirZoneDto> cleanAirZoneById,
-      EntrantPaymentInfo anyMatchingEntrantInfo) {
-    return cleanAirZoneById.get(anyMatchingEntrantInfo.getCleanAirZoneId());
-  }
-
-  /**
-   * Returns the first element of {@code entrantPaymentMatchInfos}.
-   */
-  private EntrantPaymentInfo getAnyMatchingEntrantInfo(
-      List<EntrantPaymentMatchInfo> entrantPaymentMatchInfos) {
-    return entrantPaymentMatchInfos.iterator().next().getEntrantPaymentInfo();
+  private String getCazName(Map<UUID, CleanAirZoneDto> cleanAirZoneById,
+      PaymentInfo paymentInfo) {
+    return cleanAirZoneById.get(paymentInfo.getCleanAirZoneId()).getName();
   }
 
   /**
@@ -0,0 +1,154 @@
+package uk.gov.caz.psr.service.webhook;
+
+import com.google.common.collect.ImmutableMap;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gov.caz.psr.dto.AccountDirectDebitMandatesResponse.DirectDebitMandate.DirectDebitMandateStatus;
+import uk.gov.caz.psr.dto.directdebit.GoCardlessWebhookMessage.Event;
+import uk.gov.caz.psr.model.directdebit.CachedMandateStatus;
+import uk.gov.caz.psr.repository.WebhookEventRepository;
+import uk.gov.caz.psr.service.directdebit.DirectDebitMandateStatusCache;
+
+/**
+ * Applies verified GoCardless mandate events to the locally kept statuses of mandates. Every event
+ * is applied at most once: it is registered in the same transaction in which the statuses are
+ * updated, hence a redelivered event is ignored. An event is applied only if it has been created
+ * after the known status of the mandate, hence a delayed event does not overwrite a newer status.
+ */
+@Service
+@AllArgsConstructor
+@Slf4j
+public class GoCardlessWebhookEventsProcessor {
+
+  static final String PAYMENT_PROVIDER = "GO_CARDLESS";
+
+  /**
+   * Statuses of mandates after the given actions. Actions which are not present here (e.g.
+   * 'created', which does not determine whether the customer approval is needed) do not change
+   * the status.
+   */
+  private static final Map<String, DirectDebitMandateStatus> STATUSES_BY_ACTION =
+      ImmutableMap.<String, DirectDebitMandateStatus>builder()
+          .put("customer_approval_granted", DirectDebitMandateStatus.PENDING_SUBMISSION)
+          .put("customer_approval_skipped", DirectDebitMandateStatus.PENDING_SUBMISSION)
+          .put("resubmission_requested", DirectDebitMandateStatus.PENDING_SUBMISSION)
+          .put("submitted", DirectDebitMandateStatus.SUBMITTED)
+          .put("active", DirectDebitMandateStatus.ACTIVE)
+          .put("reinstated", DirectDebitMandateStatus.ACTIVE)
+          .put("failed", DirectDebitMandateStatus.FAILED)
+          .put("cancelled", DirectDebitMandateStatus.CANCELLED)
+          .put("expired", DirectDebitMandateStatus.EXPIRED)
+          .build();
+
+  private final WebhookEventRepository webhookEventRepository;
+  private final DirectDebitMandateStatusCache directDebitMandateStatusCache;
+
+  /**
+   * Updates statuses of mandates referred to by {@code events} which have not been applied yet.
+   * If there are many events of the same mandate, the latest one wins. The time at which an
+   * event was created becomes the timestamp of the status.
+   *
+   * @param cleanAirZoneId Identifier of the Clean Air Zone whose GoCardless account sent the
+   *     events.
+   * @param events Events of a single webhook message.
+   * @return The updated statuses along with the accounts the mandates belong to.
+   */
+  @Transactional
+  public List<CachedMandateStatus> process(UUID cleanAirZoneId, List<Event> events) {
+    Map<String, CachedMandateStatus> changes = new LinkedHashMap<>();
+    events.stream()
+        .filter(event -> Event.MANDATES_RESOURCE_TYPE.equals(event.getResourceType()))
+        .map(this::toStatusChange)
+        .filter(Objects::nonNull)
+        .sorted(Comparator.comparing(StatusChange::getStatusTimestamp))
+        .forEach(change -> {
+          if (registerIfAbsent(change.getEvent())) {
+            changes.put(change.getStatus().getPaymentProviderMandateId(), change.getStatus());
+          }
+        });
+    if (changes.isEmpty()) {
+      return Collections.emptyList();
+    }
+    log.info("Updating statuses of {} mandates of Clean Air Zone '{}'", changes.size(),
+        cleanAirZoneId);
+    return directDebitMandateStatusCache.applyStatusChanges(cleanAirZoneId,
+        new ArrayList<>(changes.values()));
+  }
+
+  /**
+   * Gets the status of the mandate after {@code event} or null if the event does not change it,
+   * it does not refer to a mandate or it is not known when it was created.
+   */
+  private StatusChange toStatusChange(Event event) {
+    DirectDebitMandateStatus status = STATUSES_BY_ACTION.get(event.getAction());
+    LocalDateTime createdAt = parseCreatedAt(event);
+    if (status == null || createdAt == null || event.getId() == null || event.getLinks() == null
+        || event.getLinks().getMandate() == null) {
+      log.info("Ignoring event '{}' with action '{}'", event.getId(), event.getAction());
+      return null;
+    }
+    return new StatusChange(event, CachedMandateStatus.builder()
+        .paymentProviderMandateId(event.getLinks().getMandate())
+        .status(status)
+        .statusTimestamp(createdAt)
+        .build());
+  }
+
+  /**
+   * Converts the time at which {@code event} was created to the local time, in which statuses of
+   * mandates are timestamped, or returns null if it is missing or malformed.
+   */
+  private LocalDateTime parseCreatedAt(Event event) {
+    if (event.getCreatedAt() == null) {
+      return null;
+    }
+    try {
+      return Instant.parse(event.getCreatedAt()).atZone(ZoneId.systemDefault())
+          .toLocalDateTime();
+    } catch (DateTimeParseException e) {
+      log.warn("Cannot parse creation time '{}' of event '{}'", event.getCreatedAt(),
+          event.getId());
+      return null;
+    }
+  }
+
+  /**
+   * Registers {@code event} and checks whether it has not been processed before.
+   */
+  private boolean registerIfAbsent(Event event) {
+    if (!webhookEventRepository.registerIfAbsent(PAYMENT_PROVIDER, event.getId())) {
+      log.info("Event '{}' has already been processed", event.getId());
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * A status of a mandate after the event which has changed it.
+   */
+  @Value
+  private static class StatusChange {
+
+    Event event;
+    CachedMandateStatus status;
+
+    LocalDateTime getStatusTimestamp() {
+      return status.getStatusTimestamp();
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package uk.gov.caz.psr.service.webhook;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Preconditions;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import retrofit2.Response;
+import uk.gov.caz.psr.controller.exception.InvalidRequestPayloadException;
+import uk.gov.caz.psr.dto.accounts.DirectDebitMandatesUpdateRequest;
+import uk.gov.caz.psr.dto.accounts.DirectDebitMandatesUpdateRequest.SingleDirectDebitMandateUpdate;
+import uk.gov.caz.psr.dto.directdebit.GoCardlessWebhookMessage;
+import uk.gov.caz.psr.model.directdebit.CachedMandateStatus;
+import uk.gov.caz.psr.repository.AccountsRepository;
+import uk.gov.caz.psr.service.authentication.CredentialRetrievalManager;
+import uk.gov.caz.psr.service.exception.InvalidWebhookSignatureException;
+import uk.gov.caz.psr.util.WebhookSignatures;
+
+/**
+ * Service responsible for accepting webhook messages sent by GoCardless when statuses of mandates
+ * change. Thanks to them statuses of mandates are kept fresh without fetching every mandate from
+ * GoCardless when mandates of an account are listed.
+ */
+@Service
+@AllArgsConstructor
+@Slf4j
+public class GoCardlessWebhookService {
+
+  private final CredentialRetrievalManager credentialRetrievalManager;
+  private final ObjectMapper objectMapper;
+  private final GoCardlessWebhookEventsProcessor goCardlessWebhookEventsProcessor;
+  private final AccountsRepository accountsRepository;
+
+  /**
+   * Verifies that {@code payload} has been signed with the webhook signing secret of the given
+   * Clean Air Zone, applies its mandate events and propagates the new statuses to the accounts
+   * service.
+   *
+   * @param cleanAirZoneId Identifier of the Clean Air Zone whose GoCardless account sent the
+   *     message.
+   * @param payload Raw body of the webhook message.
+   * @param signature Value of the {@code Webhook-Signature} header.
+   * @throws InvalidWebhookSignatureException if the signature is missing or invalid.
+   * @throws InvalidRequestPayloadException if {@code payload} is not a valid webhook message.
+   */
+  public void processWebhookMessage(UUID cleanAirZoneId, String payload, String signature) {
+    Preconditions.checkNotNull(cleanAirZoneId, "cleanAirZoneId cannot be null");
+    Preconditions.checkNotNull(payload, "payload cannot be null");
+
+    verifySignature(cleanAirZoneId, payload, signature);
+    GoCardlessWebhookMessage message = parse(payload);
+    List<CachedMandateStatus> updatedStatuses = goCardlessWebhookEventsProcessor
+        .process(cleanAirZoneId, message.getEvents());
+    updateMandatesInAccountsService(updatedStatuses);
+  }
+
+  /**
+   * Sends the updated statuses to the accounts service, in one request per account. A failed
+   * update is only logged, the statuses are propagated again when the mandates are listed.
+   */
+  private void updateMandatesInAccountsService(List<CachedMandateStatus> updatedStatuses) {
+    Map<UUID, List<SingleDirectDebitMandateUpdate>> updatesByAccount = updatedStatuses.stream()
+        .collect(groupingBy(CachedMandateStatus::getAccountId, mapping(
+            status -> SingleDirectDebitMandateUpdate.builder()
+                .mandateId(status.getPaymentProviderMandateId())
+                .status(status.getStatus().name())
+                .build(), toList())));
+    updatesByAccount.forEach((accountId, updates) -> {
+      try {
+        Response<Void> response = accountsRepository.updateDirectDebitMandatesSync(accountId,
+            DirectDebitMandatesUpdateRequest.builder().directDebitMandates(updates).build());
+        if (!response.isSuccessful()) {
+          log.warn("Failed to update {} mandates of account '{}' in the accounts service, status "
+              + "code: {}", updates.size(), accountId, response.code());
+        }
+      } catch (RuntimeException e) {
+        log.warn("Failed to update {} mandates of account '{}' in the accounts service",
+            updates.size(), accountId, e);
+      }
+    });
+  }
+
+  /**
+   * Verifies {@code signature} of {@code payload} with the webhook signing secret of the given
+   * Clean Air Zone.
+   */
+  private void verifySignature(UUID cleanAirZoneId, String payload, String signature) {
+    String secret = credentialRetrievalManager.getDirectDebitWebhookSigningSecret(cleanAirZoneId)
+        .orElseThrow(() -> new InvalidWebhookSignatureException(
+            "Webhook signing secret not found for Clean Air Zone " + cleanAirZoneId));
+    if (!WebhookSignatures.isValidHmacSha256Signature(secret, payload, signature)) {
+      log.warn("Invalid signature of a webhook message sent for Clean Air Zone '{}'",
+          cleanAirZoneId);
+      throw new InvalidWebhookSignatureException("Invalid webhook message signature");
+    }
+  }
+
+  /**
+   * Parses {@code payload} into {@link GoCardlessWebhookMessage}.
+   */
+  private GoCardlessWebhookMessage parse(String payload) {
+    try {
+      GoCardlessWebhookMessage message = objectMapper.readValue(payload,
+          GoCardlessWebhookMessage.class);
+      if (message.getEvents() == null) {
+        throw new InvalidRequestPayloadException("'events' cannot be null");
+      }
+      return message;
+    } catch (JsonProcessingException e) {
+      log.warn("Cannot parse a webhook message: {}", e.getMessage());
+      throw new InvalidRequestPayloadException("Invalid webhook message");
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package uk.gov.caz.psr.service.webhook;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gov.caz.psr.dto.external.GetPaymentResult;
+import uk.gov.caz.psr.dto.external.GovUkPayWebhookMessage;
+import uk.gov.caz.psr.model.ExternalPaymentDetails;
+import uk.gov.caz.psr.model.ExternalPaymentStatus;
+import uk.gov.caz.psr.model.Payment;
+import uk.gov.caz.psr.repository.PaymentRepository;
+import uk.gov.caz.psr.repository.WebhookEventRepository;
+import uk.gov.caz.psr.service.PaymentStatusUpdater;
+import uk.gov.caz.psr.util.GetPaymentResultConverter;
+
+/**
+ * Applies a single, verified GOV UK Pay payment event to the payment it refers to. Every message
+ * is applied at most once: it is registered in the same transaction in which the payment is
+ * updated, hence a redelivered message is ignored.
+ */
+@Service
+@AllArgsConstructor
+@Slf4j
+public class GovUkPayWebhookMessageProcessor {
+
+  static final String PAYMENT_PROVIDER = "GOV_UK_PAY";
+
+  /**
+   * Statuses of an unfinished payment in the order in which GOV UK Pay moves it through them.
+   */
+  private static final List<ExternalPaymentStatus> UNFINISHED_STATUSES_IN_ORDER = Arrays.asList(
+      ExternalPaymentStatus.INITIATED, ExternalPaymentStatus.CREATED,
+      ExternalPaymentStatus.STARTED, ExternalPaymentStatus.SUBMITTED);
+
+  private final WebhookEventRepository webhookEventRepository;
+  private final PaymentRepository paymentRepository;
+  private final PaymentStatusUpdater paymentStatusUpdater;
+  private final GetPaymentResultConverter getPaymentResultConverter;
+
+  /**
+   * Updates the status of the payment referred to by {@code message} unless the message has
+   * already been applied, the payment is not found, it belongs to a different Clean Air Zone, it
+   * has already finished or it has already moved past the status of the message.
+   *
+   * @param cleanAirZoneId Identifier of the Clean Air Zone whose GOV UK Pay account sent the
+   *     message.
+   * @param message A payment event.
+   */
+  @Transactional
+  public void process(UUID cleanAirZoneId, GovUkPayWebhookMessage message) {
+    if (!webhookEventRepository.registerIfAbsent(PAYMENT_PROVIDER,
+        message.getWebhookMessageId())) {
+      log.info("Webhook message '{}' has already been processed", message.getWebhookMessageId());
+      return;
+    }
+
+    Optional<Payment> result = paymentRepository.findByExternalId(message.getResourceId());
+    if (!result.isPresent()) {
+      log.warn("Payment with external id '{}' not found, ignoring webhook message '{}'",
+          message.getResourceId(), message.getWebhookMessageId());
+      return;
+    }
+    Payment payment = result.get();
+    if (!belongsTo(payment, cleanAirZoneId)) {
+      log.warn("Payment '{}' does not belong to Clean Air Zone '{}', ignoring webhook message "
+          + "'{}'", payment.getId(), cleanAirZoneId, message.getWebhookMessageId());
+      return;
+    }
+    if (!payment.getExternalPaymentStatus().isNotFinished()) {
+      log.info("Payment '{}' has already finished with status '{}', ignoring webhook message '{}'",
+          payment.getId(), payment.getExternalPaymentStatus(), message.getWebhookMessageId());
+      return;
+    }
+
+    GetPaymentResult paymentInfo = message.getResource();
+    ExternalPaymentDetails externalPaymentDetails = toExternalPaymentDetails(paymentInfo);
+    if (externalPaymentDetails == null || externalPaymentDetails.getExternalPaymentStatus()
+        == payment.getExternalPaymentStatus()) {
+      log.info("Status of payment '{}' has not changed, ignoring webhook message '{}'",
+          payment.getId(), message.getWebhookMessageId());
+      return;
+    }
+    if (!isLaterThan(externalPaymentDetails.getExternalPaymentStatus(),
+        payment.getExternalPaymentStatus())) {
+      log.info("Payment '{}' has already moved past status '{}' to '{}', ignoring out-of-order "
+              + "webhook message '{}'", payment.getId(),
+          externalPaymentDetails.getExternalPaymentStatus(), payment.getExternalPaymentStatus(),
+          message.getWebhookMessageId());
+      return;
+    }
+
+    log.info("Updating status of payment '{}' from '{}' to '{}' upon webhook message '{}'",
+        payment.getId(), payment.getExternalPaymentStatus(),
+        externalPaymentDetails.getExternalPaymentStatus(), message.getWebhookMessageId());
+    paymentStatusUpdater.updateWithExternalPaymentDetails(
+        payment.toBuilder().emailAddress(paymentInfo.getEmail()).build(), externalPaymentDetails);
+  }
+
+  /**
+   * Converts the payment attached to the message into {@link ExternalPaymentDetails}. Returns
+   * null if the status is not one of those handled by the service (e.g. 'capturable'), such
+   * messages are acknowledged and the status is left to be reconciled by polling.
+   */
+  private ExternalPaymentDetails toExternalPaymentDetails(GetPaymentResult paymentInfo) {
+    if (paymentInfo == null || paymentInfo.getState() == null
+        || paymentInfo.getState().getStatus() == null) {
+      return null;
+    }
+    try {
+      return getPaymentResultConverter.toExternalPaymentDetails(paymentInfo);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Checks whether a payment in {@code currentStatus} can move to {@code newStatus}, i.e. {@code
+   * newStatus} comes later in the lifecycle of a payment. All finished statuses come after the
+   * unfinished ones.
+   */
+  private static boolean isLaterThan(ExternalPaymentStatus newStatus,
+      ExternalPaymentStatus currentStatus) {
+    return lifecycleStage(newStatus) > lifecycleStage(currentStatus);
+  }
+
+  /**
+   * Returns the position of {@code status} in {@link #UNFINISHED_STATUSES_IN_ORDER}, or its size
+   * for finished statuses.
+   */
+  private static int lifecycleStage(ExternalPaymentStatus status) {
+    int index = UNFINISHED_STATUSES_IN_ORDER.indexOf(status);
+    return index < 0 ? UNFINISHED_STATUSES_IN_ORDER.size() : index;
+  }
+
+  /**
+   * Checks whether {@code payment} has been made in the Clean Air Zone identified by {@code
+   * cleanAirZoneId}.
+   */
+  private boolean belongsTo(Payment payment, UUID cleanAirZoneId) {
+    return !payment.getEntrantPayments().isEmpty() && payment.getEntrantPayments().stream()
+        .allMatch(entrantPayment -> cleanAirZoneId.equals(entrantPayment.getCleanAirZoneId()));
+  }
+}
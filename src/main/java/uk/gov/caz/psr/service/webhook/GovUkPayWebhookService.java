@@ -0,0 +1,85 @@
+package uk.gov.caz.psr.service.webhook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Preconditions;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import uk.gov.caz.psr.controller.exception.InvalidRequestPayloadException;
+import uk.gov.caz.psr.dto.external.GovUkPayWebhookMessage;
+import uk.gov.caz.psr.service.authentication.CredentialRetrievalManager;
+import uk.gov.caz.psr.service.exception.InvalidWebhookSignatureException;
+import uk.gov.caz.psr.util.WebhookSignatures;
+
+/**
+ * Service responsible for accepting webhook messages sent by GOV UK Pay when the state of a
+ * payment changes. Thanks to them statuses of payments are updated without polling GOV UK Pay.
+ */
+@Service
+@AllArgsConstructor
+@Slf4j
+public class GovUkPayWebhookService {
+
+  private final CredentialRetrievalManager credentialRetrievalManager;
+  private final ObjectMapper objectMapper;
+  private final GovUkPayWebhookMessageProcessor govUkPayWebhookMessageProcessor;
+
+  /**
+   * Verifies that {@code payload} has been signed with the webhook signing secret of the given
+   * Clean Air Zone and, if it is a payment event, applies it.
+   *
+   * @param cleanAirZoneId Identifier of the Clean Air Zone whose GOV UK Pay account sent the
+   *     message.
+   * @param payload Raw body of the webhook message.
+   * @param signature Value of the {@code Pay-Signature} header.
+   * @throws InvalidWebhookSignatureException if the signature is missing or invalid.
+   * @throws InvalidRequestPayloadException if {@code payload} is not a valid webhook message.
+   */
+  public void processWebhookMessage(UUID cleanAirZoneId, String payload, String signature) {
+    Preconditions.checkNotNull(cleanAirZoneId, "cleanAirZoneId cannot be null");
+    Preconditions.checkNotNull(payload, "payload cannot be null");
+
+    verifySignature(cleanAirZoneId, payload, signature);
+    GovUkPayWebhookMessage message = parse(payload);
+    if (!GovUkPayWebhookMessage.PAYMENT_RESOURCE_TYPE.equals(message.getResourceType())) {
+      log.info("Ignoring webhook message '{}' of resource type '{}'",
+          message.getWebhookMessageId(), message.getResourceType());
+      return;
+    }
+    govUkPayWebhookMessageProcessor.process(cleanAirZoneId, message);
+  }
+
+  /**
+   * Verifies {@code signature} of {@code payload} with the webhook signing secret of the given
+   * Clean Air Zone.
+   */
+  private void verifySignature(UUID cleanAirZoneId, String payload, String signature) {
+    String secret = credentialRetrievalManager.getCardWebhookSigningSecret(cleanAirZoneId)
+        .orElseThrow(() -> new InvalidWebhookSignatureException(
+            "Webhook signing secret not found for Clean Air Zone " + cleanAirZoneId));
+    if (!WebhookSignatures.isValidHmacSha256Signature(secret, payload, signature)) {
+      log.warn("Invalid signature of a webhook message sent for Clean Air Zone '{}'",
+          cleanAirZoneId);
+      throw new InvalidWebhookSignatureException("Invalid webhook message signature");
+    }
+  }
+
+  /**
+   * Parses {@code payload} into {@link GovUkPayWebhookMessage}.
+   */
+  private GovUkPayWebhookMessage parse(String payload) {
+    try {
+      GovUkPayWebhookMessage message = objectMapper.readValue(payload,
+          GovUkPayWebhookMessage.class);
+      if (message.getWebhookMessageId() == null) {
+        throw new InvalidRequestPayloadException("'webhook_message_id' cannot be null");
+      }
+      return message;
+    } catch (JsonProcessingException e) {
+      log.warn("Cannot parse a webhook message: {}", e.getMessage());
+      throw new InvalidRequestPayloadException("Invalid webhook message");
+    }
+  }
+}
@@ -21,6 +21,8 @@ import uk.gov.caz.psr.dto.PaymentInfoResponseV1;
 import uk.gov.caz.psr.dto.PaymentInfoResponseV1.PaymentsInfo;
 import uk.gov.caz.psr.dto.PaymentInfoResponseV1.SinglePaymentInfo;
 import uk.gov.caz.psr.dto.PaymentInfoResponseV2;
+import uk.gov.caz.psr.model.PaymentInfoCursor;
+import uk.gov.caz.psr.model.PaymentInfoSlice;
 import uk.gov.caz.psr.model.PaymentMethod;
 import uk.gov.caz.psr.model.info.EntrantPaymentInfo;
 import uk.gov.caz.psr.model.info.EntrantPaymentMatchInfo;
@@ -68,7 +70,49 @@ public class EntrantPaymentInfoConverter {
       Page<EntrantPaymentMatchInfo> entrantPaymentMatchInfos) {
     Preconditions.checkNotNull(entrantPaymentMatchInfos, "entrantPaymentMatchInfos cannot be null");
 
-    List<PaymentsInfo> paymentsInfo = groupByVrnAndPayment(entrantPaymentMatchInfos.getContent())
+    List<PaymentsInfo> paymentsInfo = toSortedPaymentsInfo(
+        entrantPaymentMatchInfos.getContent());
+    return new PaymentInfoResponseV2(paymentsInfo, entrantPaymentMatchInfos.getTotalPages());
+  }
+
+  /**
+   * Converts the passed {@code paymentInfoSlice} into an instance of {@link
+   * PaymentInfoResponseV2} with the encoded cursor of the next page.
+   *
+   * @param paymentInfoSlice A page of results fetched with the cursor-based pagination.
+   * @return An instance of {@link PaymentInfoResponseV2}.
+   */
+  public PaymentInfoResponseV2 toPaymentInfoResponseV2(PaymentInfoSlice paymentInfoSlice) {
+    Preconditions.checkNotNull(paymentInfoSlice, "paymentInfoSlice cannot be null");
+
+    List<PaymentsInfo> paymentsInfo = toSortedPaymentsInfo(paymentInfoSlice.getContent());
+    PaymentInfoCursor nextCursor = paymentInfoSlice.getNextCursor();
+    return new PaymentInfoResponseV2(paymentsInfo, paymentInfoSlice.getTotalPages(),
+        nextCursor == null ? null : nextCursor.encode());
+  }
+
+  /**
+   * Converts the passed {@code entrantPaymentMatchInfos} into a list of {@link PaymentsInfo}, one
+   * per vrn, sorted by vrn. Used when the response is streamed in chunks rather than built as a
+   * whole.
+   *
+   * @param entrantPaymentMatchInfos A collection of {@link EntrantPaymentInfo}.
+   * @return A list of {@link PaymentsInfo}.
+   */
+  public List<PaymentsInfo> toPaymentsInfo(
+      Collection<EntrantPaymentMatchInfo> entrantPaymentMatchInfos) {
+    Preconditions.checkNotNull(entrantPaymentMatchInfos, "entrantPaymentMatchInfos cannot be null");
+
+    return toSortedPaymentsInfo(entrantPaymentMatchInfos);
+  }
+
+  /**
+   * Groups the passed {@code entrantPaymentMatchInfos} by vrn and payment and returns them sorted
+   * by vrn.
+   */
+  private List<PaymentsInfo> toSortedPaymentsInfo(
+      Collection<EntrantPaymentMatchInfo> entrantPaymentMatchInfos) {
+    return groupByVrnAndPayment(entrantPaymentMatchInfos)
         .entrySet()
         .stream()
         .map(vrnWithVehicleEntrantPayments -> toPaymentsInfo(
@@ -76,7 +120,6 @@ public class EntrantPaymentInfoConverter {
             vrnWithVehicleEntrantPayments.getValue()))
         .sorted(Comparator.comparing(PaymentsInfo::getVrn))
         .collect(toList());
-    return new PaymentInfoResponseV2(paymentsInfo, entrantPaymentMatchInfos.getTotalPages());
   }
 
   /**
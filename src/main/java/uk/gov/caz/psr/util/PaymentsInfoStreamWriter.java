@@ -0,0 +1,98 @@
+package uk.gov.caz.psr.util;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import javax.servlet.http.HttpServletResponse;
+import lombok.Getter;
+import org.springframework.http.MediaType;
+import uk.gov.caz.psr.dto.PaymentInfoResponseV1;
+import uk.gov.caz.psr.dto.PaymentInfoResponseV1.PaymentsInfo;
+
+/**
+ * Writes {@link PaymentsInfo} as the 'results' array of a JSON object (i.e. in the shape of {@link
+ * PaymentInfoResponseV1}) to the servlet response. Nothing is written to the response until the
+ * first element arrives and the written content stays buffered until the buffers fill up, hence
+ * a failure up to that point can be reported with an error response by calling {@link #abort()}.
+ * Once the response is committed a failure leaves the body truncated.
+ */
+public class PaymentsInfoStreamWriter {
+
+  private final ObjectMapper objectMapper;
+  private final ObjectWriter objectWriter;
+  private final HttpServletResponse response;
+  private JsonGenerator generator;
+  @Getter
+  private int writtenCount;
+
+  /**
+   * Creates a new instance of this class. Elements are not flushed one by one, as it would commit
+   * the response after the first of them.
+   */
+  public PaymentsInfoStreamWriter(ObjectMapper objectMapper, HttpServletResponse response) {
+    this.objectMapper = objectMapper;
+    this.objectWriter = objectMapper.writer()
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    this.response = response;
+  }
+
+  /**
+   * Appends {@code paymentsInfos} to the 'results' array.
+   */
+  public void write(List<PaymentsInfo> paymentsInfos) {
+    try {
+      startIfNecessary();
+      for (PaymentsInfo paymentsInfo : paymentsInfos) {
+        objectWriter.writeValue(generator, paymentsInfo);
+        writtenCount++;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Closes the 'results' array and the enclosing object.
+   */
+  public void close() {
+    try {
+      startIfNecessary();
+      generator.writeEndArray();
+      generator.writeEndObject();
+      generator.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Discards the content written so far, so that an error response can be rendered instead of
+   * the results. It is possible only until the response is committed.
+   *
+   * @return true if the content has been discarded, false if the response has already been
+   *     committed and its body is going to be truncated.
+   */
+  public boolean abort() {
+    if (response.isCommitted()) {
+      return false;
+    }
+    generator = null;
+    response.resetBuffer();
+    return true;
+  }
+
+  private void startIfNecessary() throws IOException {
+    if (generator == null) {
+      response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+      generator = objectMapper.getFactory()
+          .createGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+      generator.writeStartObject();
+      generator.writeArrayFieldStart("results");
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package uk.gov.caz.psr.util;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Locale;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Static utility methods related to signatures of webhook messages sent by payment providers.
+ */
+@UtilityClass
+public class WebhookSignatures {
+
+  /**
+   * Verifies whether {@code signature} is the hex-encoded HMAC-SHA256 of {@code payload} computed
+   * with {@code secret}. Signatures are compared in constant time.
+   *
+   * @param secret The secret shared with the payment provider.
+   * @param payload Raw body of the webhook message.
+   * @param signature The signature sent alongside the message, may be null.
+   * @return true if {@code signature} is valid, false otherwise.
+   * @throws NullPointerException if {@code secret} or {@code payload} is null.
+   */
+  public static boolean isValidHmacSha256Signature(String secret, String payload,
+      String signature) {
+    Preconditions.checkNotNull(secret, "'secret' cannot be null");
+    Preconditions.checkNotNull(payload, "'payload' cannot be null");
+
+    if (signature == null) {
+      return false;
+    }
+    String expected = Hashing.hmacSha256(secret.getBytes(StandardCharsets.UTF_8))
+        .hashString(payload, StandardCharsets.UTF_8)
+        .toString();
+    return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+        signature.trim().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+  }
+}
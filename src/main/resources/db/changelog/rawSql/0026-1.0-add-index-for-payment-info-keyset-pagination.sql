@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS caz_id_vrn_entrant_payment_id ON caz_payment.t_clean_air_zone_entrant_payment (clean_air_zone_id, vrn, clean_air_zone_entrant_payment_id);
\ No newline at end of file
@@ -0,0 +1,30 @@
+ALTER TABLE CAZ_PAYMENT.T_PAYMENT ADD COLUMN IF NOT EXISTS status_check_attempts INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE CAZ_PAYMENT.T_PAYMENT ADD COLUMN IF NOT EXISTS next_status_check_timestamp TIMESTAMP;
+
+-- the first status check of a payment happens 90 minutes after it has been submitted
+UPDATE CAZ_PAYMENT.T_PAYMENT
+SET next_status_check_timestamp = payment_submitted_timestamp + INTERVAL '90 minutes'
+WHERE next_status_check_timestamp IS NULL
+  AND payment_submitted_timestamp IS NOT NULL;
+
+CREATE OR REPLACE FUNCTION CAZ_PAYMENT.schedule_first_status_check() RETURNS TRIGGER AS $body$
+BEGIN
+    IF NEW.next_status_check_timestamp IS NULL AND NEW.payment_submitted_timestamp IS NOT NULL THEN
+        NEW.next_status_check_timestamp := NEW.payment_submitted_timestamp + INTERVAL '90 minutes';
+    END IF;
+    RETURN NEW;
+END;
+$body$
+LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS schedule_first_status_check_trigger ON CAZ_PAYMENT.T_PAYMENT;
+
+CREATE TRIGGER schedule_first_status_check_trigger
+BEFORE INSERT OR UPDATE ON CAZ_PAYMENT.T_PAYMENT
+FOR EACH ROW EXECUTE PROCEDURE CAZ_PAYMENT.schedule_first_status_check();
+
+-- only unfinished GOV UK Pay payments are ever polled, hence the index is kept small
+CREATE INDEX IF NOT EXISTS t_payment_dangling_next_status_check_idx
+ON CAZ_PAYMENT.T_PAYMENT (next_status_check_timestamp, payment_id)
+WHERE payment_provider_id IS NOT NULL
+  AND payment_provider_status NOT IN ('SUCCESS', 'FAILED', 'CANCELLED', 'ERROR');
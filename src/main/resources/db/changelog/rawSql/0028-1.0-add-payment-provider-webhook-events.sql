@@ -0,0 +1,10 @@
+-- identifiers of webhook events which have already been applied, so that redelivered events are ignored
+CREATE TABLE IF NOT EXISTS CAZ_PAYMENT.T_PAYMENT_PROVIDER_WEBHOOK_EVENT(
+    PAYMENT_PROVIDER VARCHAR(32) NOT NULL,
+    EVENT_ID VARCHAR(255) NOT NULL,
+    RECEIVED_TIMESTAMP TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (PAYMENT_PROVIDER, EVENT_ID)
+);
+
+-- webhook events refer to payments by their identifiers in the payment provider
+CREATE INDEX IF NOT EXISTS payment_provider_id ON CAZ_PAYMENT.T_PAYMENT (payment_provider_id);
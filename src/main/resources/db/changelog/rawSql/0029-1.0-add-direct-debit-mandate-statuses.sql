@@ -0,0 +1,9 @@
+-- the latest known statuses of direct debit mandates along with the accounts they belong to,
+-- kept up to date by GoCardless webhook events and used to avoid fetching mandates from GoCardless
+CREATE TABLE IF NOT EXISTS CAZ_PAYMENT.T_DIRECT_DEBIT_MANDATE_STATUS(
+    PAYMENT_PROVIDER_MANDATE_ID VARCHAR(255) PRIMARY KEY NOT NULL,
+    ACCOUNT_ID uuid NOT NULL,
+    CLEAN_AIR_ZONE_ID uuid NOT NULL,
+    STATUS VARCHAR(64),
+    STATUS_TIMESTAMP TIMESTAMP
+);
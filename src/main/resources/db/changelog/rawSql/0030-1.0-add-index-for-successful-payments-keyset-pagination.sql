@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS successful_payments_user_id_insert_timestamp_payment_id ON caz_payment.t_payment (user_id, insert_timestamp DESC, payment_id DESC) WHERE payment_provider_status = 'SUCCESS';
\ No newline at end of file
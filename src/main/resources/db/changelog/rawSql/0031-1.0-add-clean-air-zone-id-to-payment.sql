@@ -0,0 +1,60 @@
+ALTER TABLE CAZ_PAYMENT.T_PAYMENT ADD COLUMN IF NOT EXISTS clean_air_zone_id UUID;
+
+-- all entrant payments of a payment belong to the same Clean Air Zone
+UPDATE CAZ_PAYMENT.T_PAYMENT pay
+SET clean_air_zone_id = payment_caz.clean_air_zone_id
+FROM (
+    SELECT DISTINCT ON (pay_match.payment_id) pay_match.payment_id, ent_pay.clean_air_zone_id
+    FROM CAZ_PAYMENT.T_CLEAN_AIR_ZONE_ENTRANT_PAYMENT_MATCH pay_match
+    JOIN CAZ_PAYMENT.T_CLEAN_AIR_ZONE_ENTRANT_PAYMENT ent_pay
+    ON ent_pay.clean_air_zone_entrant_payment_id = pay_match.clean_air_zone_entrant_payment_id
+) payment_caz
+WHERE pay.payment_id = payment_caz.payment_id
+  AND pay.clean_air_zone_id IS NULL;
+
+-- payments inserted without their Clean Air Zone get it from the first matched entrant payment
+CREATE OR REPLACE FUNCTION CAZ_PAYMENT.set_payment_clean_air_zone_id() RETURNS TRIGGER AS $body$
+BEGIN
+    UPDATE CAZ_PAYMENT.T_PAYMENT
+    SET clean_air_zone_id = (
+        SELECT clean_air_zone_id
+        FROM CAZ_PAYMENT.T_CLEAN_AIR_ZONE_ENTRANT_PAYMENT
+        WHERE clean_air_zone_entrant_payment_id = NEW.clean_air_zone_entrant_payment_id)
+    WHERE payment_id = NEW.payment_id
+      AND clean_air_zone_id IS NULL;
+    RETURN NEW;
+END;
+$body$
+LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS set_payment_clean_air_zone_id_trigger
+ON CAZ_PAYMENT.T_CLEAN_AIR_ZONE_ENTRANT_PAYMENT_MATCH;
+
+CREATE TRIGGER set_payment_clean_air_zone_id_trigger
+AFTER INSERT ON CAZ_PAYMENT.T_CLEAN_AIR_ZONE_ENTRANT_PAYMENT_MATCH
+FOR EACH ROW EXECUTE PROCEDURE CAZ_PAYMENT.set_payment_clean_air_zone_id();
+
+CREATE INDEX IF NOT EXISTS t_payment_clean_air_zone_id_idx
+ON CAZ_PAYMENT.T_PAYMENT (clean_air_zone_id);
+
+CREATE OR REPLACE VIEW caz_reporting.successful_payments_profile_for_account_vehicles_by_payment_type AS
+SELECT date_trunc('day'::text, pay.payment_authorised_timestamp) AS day,
+    caz.caz_name,
+	pay.payment_method,
+    COUNT(DISTINCT(pay.payment_provider_status, pay.payment_id))
+   FROM caz_payment.t_payment pay
+     JOIN caz_reporting.t_clean_air_zone caz ON pay.clean_air_zone_id = caz.clean_air_zone_id
+  WHERE pay.user_id IS NOT NULL AND pay.payment_provider_status= 'SUCCESS'
+  GROUP BY (date_trunc('day'::text, pay.payment_authorised_timestamp)), caz.caz_name, pay.payment_method
+  ORDER BY (date_trunc('day'::text, pay.payment_authorised_timestamp));
+
+CREATE OR REPLACE VIEW caz_reporting.general_payments_profile_for_all_vehicles AS
+ SELECT date_trunc('day'::text, pay.payment_authorised_timestamp) AS day,
+    caz.caz_name,
+	pay.payment_method,
+	pay.payment_provider_status,
+    COUNT(DISTINCT(pay.payment_provider_status, pay.payment_id))
+   FROM caz_payment.t_payment pay
+     JOIN caz_reporting.t_clean_air_zone caz ON pay.clean_air_zone_id = caz.clean_air_zone_id
+  GROUP BY (date_trunc('day'::text, pay.payment_authorised_timestamp)), caz.caz_name, pay.payment_method, pay.payment_provider_status
+  ORDER BY (date_trunc('day'::text, pay.payment_authorised_timestamp));
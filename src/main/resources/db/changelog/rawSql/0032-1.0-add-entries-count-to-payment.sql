@@ -0,0 +1,19 @@
+ALTER TABLE CAZ_PAYMENT.T_PAYMENT ADD COLUMN IF NOT EXISTS entries_count INTEGER NOT NULL DEFAULT 0;
+
+UPDATE CAZ_PAYMENT.T_PAYMENT pay
+SET entries_count = payment_entries.entries_count
+FROM (
+    SELECT pay_match.payment_id, COUNT(*) AS entries_count
+    FROM CAZ_PAYMENT.T_CLEAN_AIR_ZONE_ENTRANT_PAYMENT_MATCH pay_match
+    GROUP BY pay_match.payment_id
+) payment_entries
+WHERE pay.payment_id = payment_entries.payment_id;
+
+CREATE OR REPLACE VIEW caz_reporting.number_of_individual_vehicles_paid_for AS
+  SELECT payment_authorised_timestamp,
+  payment_provider_status,
+  SUM(entries_count) as no_vehicles_paid_for
+  FROM
+    caz_payment.t_payment AS pay
+  WHERE entries_count > 0
+  GROUP BY payment_authorised_timestamp, payment_provider_status;
@@ -0,0 +1,17 @@
+-- the newest payment exported for a set of users of an account, so that the next export of the same
+-- users can reuse the exported file and only query payments which are newer or have changed since
+CREATE TABLE IF NOT EXISTS CAZ_PAYMENT.T_PAYMENTS_HISTORY_EXPORT_MARK(
+    ACCOUNT_ID UUID NOT NULL,
+    ACCOUNT_USER_IDS UUID[] NOT NULL,
+    FILE_NAME VARCHAR(255) NOT NULL,
+    LAST_PAYMENT_SUBMITTED_TIMESTAMP TIMESTAMP NOT NULL,
+    LAST_PAYMENT_ID UUID NOT NULL,
+    LOCAL_AUTHORITY_COLUMNS BOOLEAN NOT NULL,
+    ENRICHMENT_DATA_HASH VARCHAR(64) NOT NULL,
+    EXPORTED_TIMESTAMP TIMESTAMP NOT NULL,
+    PRIMARY KEY (ACCOUNT_ID, ACCOUNT_USER_IDS)
+);
+
+-- modifications made by Local Authorities since the previous export are looked up by insertion time
+CREATE INDEX IF NOT EXISTS payment_detail_inserttimestamp_idx
+ON CAZ_PAYMENT_AUDIT.T_CLEAN_AIR_ZONE_PAYMENT_DETAIL (inserttimestamp);
@@ -7,6 +7,7 @@ import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static uk.gov.caz.psr.controller.AccountsController.ACCOUNTS_PATH;
 
@@ -24,6 +25,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import uk.gov.caz.correlationid.Configuration;
 import uk.gov.caz.correlationid.Constants;
 import uk.gov.caz.psr.controller.exception.InvalidRequestPayloadException;
@@ -91,7 +93,7 @@ class AccountsControllerTest {
 
       performValidRequest().andExpect(status().isOk());
       verify(retrieveSuccessfulPaymentsService)
-          .retrieveForSingleUser(any(), any(), anyInt(), anyInt());
+          .retrieveForSingleUser(any(), any(), any(), anyInt(), anyInt());
     }
 
     @Test
@@ -107,17 +109,40 @@ class AccountsControllerTest {
           .param("pageSize", ANY_PAGE_SIZE))
           .andExpect(status().isOk());
 
-      verify(retrieveSuccessfulPaymentsService).retrieveForAccount(any(), anyInt(), anyInt());
+      verify(retrieveSuccessfulPaymentsService)
+          .retrieveForAccount(any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void shouldReturn400WithMessageWhenLastPaymentIdIsMalformed() throws Exception {
+      mockSuccessfulQueryValidation();
+
+      mockMvc.perform(validRequest().param("lastPaymentId", "not-a-uuid"))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.message").value("Invalid lastPaymentId"));
+    }
+
+    @Test
+    public void shouldReturn400WithMessageWhenLastPaymentIdIsUnknown() throws Exception {
+      mockSuccessfulQueryValidation();
+      when(retrieveSuccessfulPaymentsService.retrieveForSingleUser(any(), any(), any(), anyInt(),
+          anyInt())).thenThrow(new InvalidRequestPayloadException("Unknown lastPaymentId"));
+
+      mockMvc.perform(validRequest()
+          .param("lastPaymentId", "91b1b4d2-f4c2-4a8e-9b3a-3c6c1e0f5a7d"))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.message").value("Unknown lastPaymentId"));
     }
 
     private void mockSuccessfulSingleUserRetrieval() {
       when(
-          retrieveSuccessfulPaymentsService.retrieveForSingleUser(any(), any(), anyInt(), anyInt()))
+          retrieveSuccessfulPaymentsService.retrieveForSingleUser(any(), any(), any(), anyInt(),
+              anyInt()))
           .thenReturn(sampleServiceResult());
     }
 
     private void mockSuccessfulAllUsersRetrieval() {
-      when(retrieveSuccessfulPaymentsService.retrieveForAccount(any(), anyInt(), anyInt()))
+      when(retrieveSuccessfulPaymentsService.retrieveForAccount(any(), any(), anyInt(), anyInt()))
           .thenReturn(sampleServiceResult());
     }
 
@@ -143,12 +168,16 @@ class AccountsControllerTest {
     }
 
     private ResultActions performValidRequest() throws Exception {
-      return mockMvc.perform(get(RETRIEVE_SUCCESSFUL_PAYMENTS_PATH, ANY_ACCOUNT_ID)
+      return mockMvc.perform(validRequest());
+    }
+
+    private MockHttpServletRequestBuilder validRequest() {
+      return get(RETRIEVE_SUCCESSFUL_PAYMENTS_PATH, ANY_ACCOUNT_ID)
           .header(Constants.X_CORRELATION_ID_HEADER, ANY_CORRELATION_ID)
           .accept(MediaType.APPLICATION_JSON)
           .param("accountUserId", ANY_ACCOUNT_USER_ID)
           .param("pageNumber", ANY_PAGE_NUMBER)
-          .param("pageSize", ANY_PAGE_SIZE));
+          .param("pageSize", ANY_PAGE_SIZE);
     }
 
     private void mockSuccessfulQueryValidation() {
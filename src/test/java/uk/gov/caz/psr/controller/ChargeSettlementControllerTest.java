@@ -2,15 +2,20 @@ package uk.gov.caz.psr.controller;
 
 import static org.hamcrest.Matchers.hasItem;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static uk.gov.caz.correlationid.Constants.X_CORRELATION_ID_HEADER;
+import static uk.gov.caz.psr.controller.ChargeSettlementController.BULK_PAYMENT_STATUS_PATH;
 import static uk.gov.caz.psr.controller.ChargeSettlementController.PAYMENT_INFO_PATH_V1;
+import static uk.gov.caz.psr.controller.ChargeSettlementController.PAYMENT_INFO_STREAM_PATH_V1;
 import static uk.gov.caz.psr.controller.ChargeSettlementController.PAYMENT_STATUS_PATH;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -22,6 +27,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 import lombok.SneakyThrows;
 import org.hamcrest.core.IsNull;
 import org.junit.jupiter.api.Nested;
@@ -40,12 +46,16 @@ import uk.gov.caz.GlobalExceptionHandlerConfiguration;
 import uk.gov.caz.correlationid.Configuration;
 import uk.gov.caz.correlationid.Constants;
 import uk.gov.caz.psr.configuration.MessageBundleConfiguration;
+import uk.gov.caz.psr.dto.BulkPaymentStatusRequest;
 import uk.gov.caz.psr.dto.Headers;
+import uk.gov.caz.psr.dto.PaymentInfoResponseV1.PaymentsInfo;
+import uk.gov.caz.psr.dto.PaymentStatusRequest;
 import uk.gov.caz.psr.dto.PaymentStatusUpdateDetails;
 import uk.gov.caz.psr.dto.PaymentStatusUpdateRequest;
 import uk.gov.caz.psr.dto.validation.MaximumDateQueryRangeValidator;
 import uk.gov.caz.psr.model.InternalPaymentStatus;
 import uk.gov.caz.psr.model.PaymentStatus;
+import uk.gov.caz.psr.model.VehicleEntry;
 import uk.gov.caz.psr.service.ChargeSettlementPaymentInfoService;
 import uk.gov.caz.psr.service.ChargeSettlementService;
 import uk.gov.caz.psr.service.PaymentStatusUpdateService;
@@ -302,6 +312,90 @@ class ChargeSettlementControllerTest {
     }
   }
 
+  @Nested
+  class StreamPaymentInfo {
+
+    @Test
+    public void shouldReturn400StatusCodeWhenAllParametersAreMissing() throws Exception {
+      mockMvc.perform(get(PAYMENT_INFO_STREAM_PATH_V1)
+          .accept(MediaType.APPLICATION_JSON)
+          .header(Constants.X_CORRELATION_ID_HEADER, ANY_CORRELATION_ID)
+          .header(Headers.TIMESTAMP, ANY_TIMESTAMP)
+          .header(Headers.X_API_KEY, ANY_API_KEY))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.errors[0].title").value("Parameter validation error"))
+          .andExpect(
+              jsonPath("$.errors[0].detail").value("Request must contain at least one parameter"));
+    }
+
+    @Test
+    public void shouldStreamResultsOfEachVrn() throws Exception {
+      // given
+      doAnswer(invocation -> {
+        Consumer<List<Object>> consumer = invocation.getArgument(2);
+        consumer.accept(Collections.emptyList());
+        consumer.accept(Collections.emptyList());
+        return null;
+      }).when(chargeSettlementPaymentInfoService).streamPaymentInfo(any(), any(), any());
+      given(entrantPaymentInfoConverter.toPaymentsInfo(anyList()))
+          .willReturn(Collections.singletonList(
+              new PaymentsInfo(ANY_VALID_VRN, Collections.emptyList())))
+          .willReturn(Collections.singletonList(
+              new PaymentsInfo("CAS123", Collections.emptyList())));
+
+      // when
+      ResultActions resultActions = mockMvc.perform(get(PAYMENT_INFO_STREAM_PATH_V1)
+          .param("vrn", ANY_VALID_VRN)
+          .accept(MediaType.APPLICATION_JSON)
+          .header(Headers.TIMESTAMP, ANY_TIMESTAMP)
+          .header(Constants.X_CORRELATION_ID_HEADER, ANY_CORRELATION_ID)
+          .header(Headers.X_API_KEY, ANY_API_KEY));
+
+      // then
+      resultActions.andExpect(status().isOk())
+          .andExpect(jsonPath("$.results[0].vrn").value(ANY_VALID_VRN))
+          .andExpect(jsonPath("$.results[1].vrn").value("CAS123"));
+    }
+
+    @Test
+    public void shouldRenderErrorInsteadOfResultsWhenStreamingFailsBeforeResponseIsCommitted()
+        throws Exception {
+      // given
+      doAnswer(invocation -> {
+        Consumer<List<Object>> consumer = invocation.getArgument(2);
+        consumer.accept(Collections.emptyList());
+        throw new IllegalArgumentException("Streaming failed");
+      }).when(chargeSettlementPaymentInfoService).streamPaymentInfo(any(), any(), any());
+      given(entrantPaymentInfoConverter.toPaymentsInfo(anyList()))
+          .willReturn(Collections.singletonList(
+              new PaymentsInfo(ANY_VALID_VRN, Collections.emptyList())));
+
+      // when
+      ResultActions resultActions = mockMvc.perform(get(PAYMENT_INFO_STREAM_PATH_V1)
+          .param("vrn", ANY_VALID_VRN)
+          .accept(MediaType.APPLICATION_JSON)
+          .header(Headers.TIMESTAMP, ANY_TIMESTAMP)
+          .header(Constants.X_CORRELATION_ID_HEADER, ANY_CORRELATION_ID)
+          .header(Headers.X_API_KEY, ANY_API_KEY));
+
+      // then
+      resultActions.andExpect(status().isBadRequest())
+          .andExpect(content().string("Streaming failed"));
+    }
+
+    @Test
+    public void shouldReturnEmptyResultsWhenNothingIsFound() throws Exception {
+      mockMvc.perform(get(PAYMENT_INFO_STREAM_PATH_V1)
+          .param("vrn", ANY_VALID_VRN)
+          .accept(MediaType.APPLICATION_JSON)
+          .header(Headers.TIMESTAMP, ANY_TIMESTAMP)
+          .header(Constants.X_CORRELATION_ID_HEADER, ANY_CORRELATION_ID)
+          .header(Headers.X_API_KEY, ANY_API_KEY))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.results").isEmpty());
+    }
+  }
+
   @Nested
   class GetPaymentStatus {
 
@@ -444,6 +538,97 @@ class ChargeSettlementControllerTest {
     }
   }
 
+  @Nested
+  class GetPaymentStatuses {
+
+    @Test
+    public void shouldReturn400StatusCodeWhenTimestampHeaderIsMissing() throws Exception {
+      mockMvc.perform(post(BULK_PAYMENT_STATUS_PATH)
+          .content(requestWith(Collections.singletonList(anyValidPaymentStatusRequest())))
+          .header(Constants.X_CORRELATION_ID_HEADER, ANY_CORRELATION_ID)
+          .header(Headers.X_API_KEY, ANY_API_KEY)
+          .contentType(MediaType.APPLICATION_JSON)
+          .accept(MediaType.APPLICATION_JSON))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.message").value("Missing request header 'timestamp'"));
+    }
+
+    @Test
+    public void shouldReturn400StatusCodeWhenVehicleEntriesAreEmpty() throws Exception {
+      mockMvc.perform(post(BULK_PAYMENT_STATUS_PATH)
+          .content(requestWith(Collections.emptyList()))
+          .header(Headers.TIMESTAMP, ANY_TIMESTAMP)
+          .header(Constants.X_CORRELATION_ID_HEADER, ANY_CORRELATION_ID)
+          .header(Headers.X_API_KEY, ANY_API_KEY)
+          .contentType(MediaType.APPLICATION_JSON)
+          .accept(MediaType.APPLICATION_JSON))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.errors[0].title").value("Parameter validation error"))
+          .andExpect(jsonPath("$.errors[0].field").value("vehicleEntries"))
+          .andExpect(jsonPath("$.errors[0].detail")
+              .value("\"vehicleEntries\" is mandatory and cannot be empty"))
+          .andExpect(jsonPath("$.errors[0].status").value(HttpStatus.BAD_REQUEST.value()));
+    }
+
+    @Test
+    public void shouldReturn400StatusCodeWhenDateOfCazEntryIsInvalid() throws Exception {
+      mockMvc.perform(post(BULK_PAYMENT_STATUS_PATH)
+          .content(requestWith(Arrays.asList(anyValidPaymentStatusRequest(),
+              new PaymentStatusRequest(ANY_VALID_VRN, "2019/11/11"))))
+          .header(Headers.TIMESTAMP, ANY_TIMESTAMP)
+          .header(Constants.X_CORRELATION_ID_HEADER, ANY_CORRELATION_ID)
+          .header(Headers.X_API_KEY, ANY_API_KEY)
+          .contentType(MediaType.APPLICATION_JSON)
+          .accept(MediaType.APPLICATION_JSON))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.errors[0].title").value("Parameter validation error"))
+          .andExpect(jsonPath("$.errors[0].field").value("dateOfCazEntry"))
+          .andExpect(jsonPath("$.errors[0].detail")
+              .value("Invalid date format of \"dateOfCazEntry\""))
+          .andExpect(jsonPath("$.errors[0].status").value(HttpStatus.BAD_REQUEST.value()));
+    }
+
+    @Test
+    public void shouldReturnResultsInRequestOrderWithNotFoundEntries() throws Exception {
+      String notFoundVrn = "CAS123";
+      PaymentStatus paymentStatusStub = PaymentStatusFactory
+          .anyWithStatus(InternalPaymentStatus.PAID);
+      given(chargeSettlementService.findChargeSettlements(any(), any()))
+          .willReturn(Collections.singletonMap(
+              new VehicleEntry(ANY_VALID_VRN, LocalDate.parse(ANY_VALID_DATE_STRING)),
+              paymentStatusStub));
+
+      mockMvc.perform(post(BULK_PAYMENT_STATUS_PATH)
+          .content(requestWith(Arrays.asList(
+              new PaymentStatusRequest(notFoundVrn, ANY_VALID_DATE_STRING),
+              anyValidPaymentStatusRequest())))
+          .header(Headers.TIMESTAMP, ANY_TIMESTAMP)
+          .header(Constants.X_CORRELATION_ID_HEADER, ANY_CORRELATION_ID)
+          .header(Headers.X_API_KEY, ANY_API_KEY)
+          .contentType(MediaType.APPLICATION_JSON)
+          .accept(MediaType.APPLICATION_JSON))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.results[0].vrn").value(notFoundVrn))
+          .andExpect(jsonPath("$.results[0].paymentStatus").value("notPaid"))
+          .andExpect(jsonPath("$.results[0].paymentProviderId").value(IsNull.nullValue()))
+          .andExpect(jsonPath("$.results[1].vrn").value(ANY_VALID_VRN))
+          .andExpect(jsonPath("$.results[1].dateOfCazEntry").value(ANY_VALID_DATE_STRING))
+          .andExpect(jsonPath("$.results[1].paymentStatus").value("paid"))
+          .andExpect(jsonPath("$.results[1].paymentProviderId")
+              .value(paymentStatusStub.getExternalId()));
+    }
+
+    private PaymentStatusRequest anyValidPaymentStatusRequest() {
+      return new PaymentStatusRequest(ANY_VALID_VRN, ANY_VALID_DATE_STRING);
+    }
+
+    private String requestWith(List<PaymentStatusRequest> vehicleEntries) {
+      return toJsonString(BulkPaymentStatusRequest.builder()
+          .vehicleEntries(vehicleEntries)
+          .build());
+    }
+  }
+
   @Nested
   class PaymentStatusUpdate {
 
@@ -667,7 +852,7 @@ class ChargeSettlementControllerTest {
   }
 
   @SneakyThrows
-  private String toJsonString(PaymentStatusUpdateRequest requestParams) {
+  private String toJsonString(Object requestParams) {
     return objectMapper.writeValueAsString(requestParams);
   }
 }
\ No newline at end of file
@@ -43,7 +43,6 @@ import uk.gov.caz.psr.dto.InitiatePaymentRequest;
 import uk.gov.caz.psr.dto.PaidPaymentsRequest;
 import uk.gov.caz.psr.dto.ReferencesHistoryResponse;
 import uk.gov.caz.psr.dto.Transaction;
-import uk.gov.caz.psr.model.EntrantPayment;
 import uk.gov.caz.psr.model.Payment;
 import uk.gov.caz.psr.service.GetPaidEntrantPaymentsService;
 import uk.gov.caz.psr.service.InitiatePaymentService;
@@ -55,7 +54,6 @@ import uk.gov.caz.psr.util.PaymentDetailsConverter;
 import uk.gov.caz.psr.util.PaymentTransactionsToEntrantsConverter;
 import uk.gov.caz.psr.util.ReferencesHistoryConverter;
 import uk.gov.caz.psr.util.TestObjectFactory;
-import uk.gov.caz.psr.util.TestObjectFactory.EntrantPayments;
 import uk.gov.caz.psr.util.TestObjectFactory.Payments;
 
 @ContextConfiguration(classes = {ExceptionController.class, Configuration.class,
@@ -421,7 +419,7 @@ class PaymentsControllerTest {
           .andExpect(header().string(Constants.X_CORRELATION_ID_HEADER,
               ANY_CORRELATION_ID));
 
-      verify(getPaidEntrantPaymentsService).getResults(any(), any(), any(),
+      verify(getPaidEntrantPaymentsService).getPaidDates(any(), any(), any(),
           any());
     }
 
@@ -436,7 +434,7 @@ class PaymentsControllerTest {
           .andExpect(
               jsonPath("message").value("cleanAirZoneId cannot be null."));
 
-      verify(getPaidEntrantPaymentsService, never()).getResults(any(), any(),
+      verify(getPaidEntrantPaymentsService, never()).getPaidDates(any(), any(),
           any(), any());
     }
 
@@ -449,7 +447,7 @@ class PaymentsControllerTest {
               ANY_CORRELATION_ID))
           .andExpect(jsonPath("message").value("VRNs cannot be blank."));
 
-      verify(getPaidEntrantPaymentsService, never()).getResults(any(), any(),
+      verify(getPaidEntrantPaymentsService, never()).getPaidDates(any(), any(),
           any(), any());
     }
 
@@ -463,7 +461,7 @@ class PaymentsControllerTest {
               ANY_CORRELATION_ID))
           .andExpect(jsonPath("message").value("startDate cannot be null."));
 
-      verify(getPaidEntrantPaymentsService, never()).getResults(any(), any(),
+      verify(getPaidEntrantPaymentsService, never()).getPaidDates(any(), any(),
           any(), any());
     }
 
@@ -476,7 +474,7 @@ class PaymentsControllerTest {
               ANY_CORRELATION_ID))
           .andExpect(jsonPath("message").value("endDate cannot be null."));
 
-      verify(getPaidEntrantPaymentsService, never()).getResults(any(), any(),
+      verify(getPaidEntrantPaymentsService, never()).getPaidDates(any(), any(),
           any(), any());
     }
 
@@ -491,7 +489,7 @@ class PaymentsControllerTest {
           .andExpect(
               jsonPath("message").value("endDate cannot be before startDate."));
 
-      verify(getPaidEntrantPaymentsService, never()).getResults(any(), any(),
+      verify(getPaidEntrantPaymentsService, never()).getPaidDates(any(), any(),
           any(), any());
     }
 
@@ -504,7 +502,7 @@ class PaymentsControllerTest {
               ANY_CORRELATION_ID))
           .andExpect(jsonPath("message").value("VRNs cannot be empty."));
 
-      verify(getPaidEntrantPaymentsService, never()).getResults(any(), any(),
+      verify(getPaidEntrantPaymentsService, never()).getPaidDates(any(), any(),
           any(), any());
     }
 
@@ -520,7 +518,7 @@ class PaymentsControllerTest {
           .andExpect(status().isBadRequest()).andExpect(jsonPath("message")
           .value("Missing request header 'X-Correlation-ID'"));
 
-      verify(getPaidEntrantPaymentsService, never()).getResults(any(), any(),
+      verify(getPaidEntrantPaymentsService, never()).getPaidDates(any(), any(),
           any(), any());
     }
 
@@ -591,14 +589,11 @@ class PaymentsControllerTest {
     }
 
     private void mockValidGetPaidEntrantPaymentScenario() {
-      EntrantPayment validEntrantPayment = EntrantPayments.anyPaid().toBuilder()
-          .travelDate(LocalDate.of(2020, 1, 1)).build();
-
-      Map<String, List<EntrantPayment>> result =
-          ImmutableMap.of("CAS123", Arrays.asList(validEntrantPayment));
+      Map<String, List<LocalDate>> result =
+          ImmutableMap.of("CAS123", Arrays.asList(LocalDate.of(2020, 1, 1)));
 
       given(
-          getPaidEntrantPaymentsService.getResults(any(), any(), any(), any()))
+          getPaidEntrantPaymentsService.getPaidDates(any(), any(), any(), any()))
           .willReturn(result);
     }
   }
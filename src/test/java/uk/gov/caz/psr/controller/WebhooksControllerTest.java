@@ -0,0 +1,105 @@
+package uk.gov.caz.psr.controller;
+
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.UUID;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import uk.gov.caz.correlationid.Configuration;
+import uk.gov.caz.correlationid.Constants;
+import uk.gov.caz.psr.service.webhook.GoCardlessWebhookService;
+import uk.gov.caz.psr.service.webhook.GovUkPayWebhookService;
+
+@ContextConfiguration(classes = {ExceptionController.class, Configuration.class,
+    WebhooksController.class, WebhookCorrelationIdFilter.class})
+@WebMvcTest
+class WebhooksControllerTest {
+
+  private static final String ANY_CORRELATION_ID = "1f7c6a8c-15a3-11ea-b483-afe9911b08f0";
+  private static final UUID ANY_CAZ_ID = UUID.fromString("dff092a3-7b80-4432-a4de-c09715743d06");
+  private static final String GOV_UK_PAY_URL = WebhooksController.BASE_PATH
+      + WebhooksController.GOV_UK_PAY_PATH;
+  private static final String GO_CARDLESS_URL = WebhooksController.BASE_PATH
+      + WebhooksController.GO_CARDLESS_PATH;
+  private static final String PAYLOAD = "{\"webhook_message_id\":\"abc\"}";
+  private static final String SIGNATURE = "signature";
+
+  @MockBean
+  private GovUkPayWebhookService govUkPayWebhookService;
+
+  @MockBean
+  private GoCardlessWebhookService goCardlessWebhookService;
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Nested
+  class WhenCorrelationIdHeaderIsMissing {
+
+    @Test
+    public void shouldAcceptGovUkPayMessage() throws Exception {
+      mockMvc.perform(post(GOV_UK_PAY_URL, ANY_CAZ_ID)
+          .content(PAYLOAD)
+          .contentType(MediaType.APPLICATION_JSON)
+          .header(WebhooksController.GOV_UK_PAY_SIGNATURE_HEADER, SIGNATURE)
+          .accept(MediaType.APPLICATION_JSON))
+          .andExpect(status().isOk());
+
+      verify(govUkPayWebhookService).processWebhookMessage(ANY_CAZ_ID, PAYLOAD, SIGNATURE);
+    }
+
+    @Test
+    public void shouldAcceptGoCardlessMessage() throws Exception {
+      String payload = "{\"events\":[]}";
+
+      mockMvc.perform(post(GO_CARDLESS_URL, ANY_CAZ_ID)
+          .content(payload)
+          .contentType(MediaType.APPLICATION_JSON)
+          .header(WebhooksController.GO_CARDLESS_SIGNATURE_HEADER, SIGNATURE)
+          .accept(MediaType.APPLICATION_JSON))
+          .andExpect(status().isOk());
+
+      verify(goCardlessWebhookService).processWebhookMessage(ANY_CAZ_ID, payload, SIGNATURE);
+    }
+  }
+
+  @Nested
+  class WhenMessageIsAccepted {
+
+    @Test
+    public void shouldPassRawPayloadAndSignatureToService() throws Exception {
+      mockMvc.perform(post(GOV_UK_PAY_URL, ANY_CAZ_ID)
+          .content(PAYLOAD)
+          .contentType(MediaType.APPLICATION_JSON)
+          .header(Constants.X_CORRELATION_ID_HEADER, ANY_CORRELATION_ID)
+          .header(WebhooksController.GOV_UK_PAY_SIGNATURE_HEADER, SIGNATURE)
+          .accept(MediaType.APPLICATION_JSON))
+          .andExpect(status().isOk());
+
+      verify(govUkPayWebhookService).processWebhookMessage(ANY_CAZ_ID, PAYLOAD, SIGNATURE);
+    }
+
+    @Test
+    public void shouldPassRawGoCardlessPayloadAndSignatureToService() throws Exception {
+      String payload = "{\"events\":[]}";
+
+      mockMvc.perform(post(GO_CARDLESS_URL, ANY_CAZ_ID)
+          .content(payload)
+          .contentType(MediaType.APPLICATION_JSON)
+          .header(Constants.X_CORRELATION_ID_HEADER, ANY_CORRELATION_ID)
+          .header(WebhooksController.GO_CARDLESS_SIGNATURE_HEADER, SIGNATURE)
+          .accept(MediaType.APPLICATION_JSON))
+          .andExpect(status().isOk());
+
+      verify(goCardlessWebhookService).processWebhookMessage(ANY_CAZ_ID, payload, SIGNATURE);
+    }
+  }
+}
@@ -1,15 +1,18 @@
 package uk.gov.caz.psr.domain.authentication;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
 import com.amazonaws.services.secretsmanager.AWSSecretsManager;
 import com.amazonaws.services.secretsmanager.model.GetSecretValueRequest;
 import com.amazonaws.services.secretsmanager.model.GetSecretValueResult;
+import com.amazonaws.services.secretsmanager.model.ResourceNotFoundException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.Optional;
@@ -32,13 +35,16 @@ public class CredentialRetrievalManagerTest {
 
   private ObjectMapper objectMapper = new ObjectMapper();
 
+  private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
   @Mock
   private AWSSecretsManager client;
 
   @BeforeEach
   void init() {
     credentialRetrievalManager =
-        new CredentialRetrievalManager(client, objectMapper, "testSecretName", "dd");
+        new CredentialRetrievalManager(client, objectMapper, "testSecretName", "dd",
+            "cardWebhooks", "ddWebhooks", 300, 3600, meterRegistry);
   }
 
   @ParameterizedTest
@@ -124,6 +130,103 @@ public class CredentialRetrievalManagerTest {
     assertThat(result).contains(accessToken);
   }
 
+  @Test
+  public void getCardWebhookSigningSecret() {
+    // given
+    UUID cazId = UUID.randomUUID();
+    mockAccessTokenForCaz(cazId, "webhooksecret");
+
+    // when
+    Optional<String> result = credentialRetrievalManager.getCardWebhookSigningSecret(cazId);
+
+    // then
+    assertThat(result).contains("webhooksecret");
+    Mockito.verify(client).getSecretValue(new GetSecretValueRequest()
+        .withSecretId("cardWebhooks"));
+  }
+
+  @Test
+  public void getDirectDebitWebhookSigningSecret() {
+    // given
+    UUID cazId = UUID.randomUUID();
+    mockAccessTokenForCaz(cazId, "webhooksecret");
+
+    // when
+    Optional<String> result = credentialRetrievalManager.getDirectDebitWebhookSigningSecret(cazId);
+
+    // then
+    assertThat(result).contains("webhooksecret");
+    Mockito.verify(client).getSecretValue(new GetSecretValueRequest()
+        .withSecretId("ddWebhooks"));
+  }
+
+  @Test
+  public void shouldCallSecretsManagerOnceForSubsequentRequests() {
+    // given
+    UUID cazId = UUID.randomUUID();
+    mockAccessTokenForCaz(cazId, "accesstoken");
+
+    // when
+    credentialRetrievalManager.getDirectDebitAccessToken(cazId);
+    Optional<String> result = credentialRetrievalManager.getDirectDebitAccessToken(cazId);
+
+    // then
+    assertThat(result).contains("accesstoken");
+    Mockito.verify(client, Mockito.times(1))
+        .getSecretValue(Mockito.any(GetSecretValueRequest.class));
+    assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count())
+        .isEqualTo(1);
+    assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void shouldCallSecretsManagerAgainAfterInvalidation() {
+    // given
+    UUID cazId = UUID.randomUUID();
+    mockAccessTokenForCaz(cazId, "accesstoken");
+    credentialRetrievalManager.getDirectDebitAccessToken(cazId);
+
+    // when
+    credentialRetrievalManager.invalidateCachedCredentials();
+    credentialRetrievalManager.getDirectDebitAccessToken(cazId);
+
+    // then
+    Mockito.verify(client, Mockito.times(2))
+        .getSecretValue(Mockito.any(GetSecretValueRequest.class));
+  }
+
+  @Test
+  public void shouldNotCacheUnparseableSecret() {
+    // given
+    GetSecretValueResult getSecretValueResponse = mock(GetSecretValueResult.class);
+    Mockito.when(client.getSecretValue(Mockito.any(GetSecretValueRequest.class)))
+        .thenReturn(getSecretValueResponse);
+    Mockito.when(getSecretValueResponse.getSecretString()).thenReturn("{");
+
+    // when
+    credentialRetrievalManager.getCardApiKey(UUID.randomUUID());
+    credentialRetrievalManager.getCardApiKey(UUID.randomUUID());
+
+    // then
+    Mockito.verify(client, Mockito.times(2))
+        .getSecretValue(Mockito.any(GetSecretValueRequest.class));
+  }
+
+  @Test
+  public void shouldRethrowExceptionThrownBySecretsManager() {
+    // given
+    Mockito.when(client.getSecretValue(Mockito.any(GetSecretValueRequest.class)))
+        .thenThrow(new ResourceNotFoundException("not found"));
+
+    // when
+    Throwable throwable = catchThrowable(
+        () -> credentialRetrievalManager.getCardApiKey(UUID.randomUUID()));
+
+    // then
+    assertThat(throwable).isInstanceOf(ResourceNotFoundException.class);
+  }
+
   @SneakyThrows
   private void mockAccessTokenForCaz(UUID cazId, String accessToken) {
     GetSecretValueResult getSecretValueResponse = mock(GetSecretValueResult.class);
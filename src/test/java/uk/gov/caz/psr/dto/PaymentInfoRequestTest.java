@@ -4,9 +4,12 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 
 import java.time.LocalDate;
+import java.util.UUID;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import uk.gov.caz.psr.controller.exception.PaymentInfoPaymentMadeDateValidationException;
+import uk.gov.caz.psr.dto.validation.PaymentInfoCursorValidationException;
+import uk.gov.caz.psr.model.PaymentInfoCursor;
 
 class PaymentInfoRequestTest {
 
@@ -124,4 +127,67 @@ class PaymentInfoRequestTest {
       assertThat(throwable).isNull();
     }
   }
+
+  @Nested
+  class Cursor {
+
+    @Test
+    public void shouldThrowExceptionWhenCursorAndPageArePresent() {
+      // given
+      PaymentInfoRequestV2 request = new PaymentInfoRequestV2(1,
+          PaymentInfoRequestV2.FIRST_PAGE_CURSOR, null);
+
+      // when
+      Throwable throwable = catchThrowable(() -> request.validate());
+
+      // then
+      assertThat(throwable)
+          .isInstanceOf(PaymentInfoCursorValidationException.class)
+          .hasMessage("Cursor cannot be used in conjunction with page number");
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenCursorIsMalformed() {
+      // given
+      PaymentInfoRequestV2 request = new PaymentInfoRequestV2(null, "malformed", null);
+
+      // when
+      Throwable throwable = catchThrowable(() -> request.validate());
+
+      // then
+      assertThat(throwable)
+          .isInstanceOf(PaymentInfoCursorValidationException.class)
+          .hasMessage("Invalid cursor");
+    }
+
+    @Test
+    public void shouldReturnNullCursorForFirstPage() {
+      // given
+      PaymentInfoRequestV2 request = new PaymentInfoRequestV2(null,
+          PaymentInfoRequestV2.FIRST_PAGE_CURSOR, true);
+
+      // when
+      Throwable throwable = catchThrowable(() -> request.validate());
+
+      // then
+      assertThat(throwable).isNull();
+      assertThat(request.usesCursorPagination()).isTrue();
+      assertThat(request.shouldIncludeTotalCount()).isTrue();
+      assertThat(request.decodeCursor()).isNull();
+    }
+
+    @Test
+    public void shouldDecodeCursor() {
+      // given
+      PaymentInfoCursor cursor = new PaymentInfoCursor(ANY_VRN, UUID.randomUUID());
+      PaymentInfoRequestV2 request = new PaymentInfoRequestV2(null, cursor.encode(), null);
+
+      // when
+      PaymentInfoCursor decoded = request.decodeCursor();
+
+      // then
+      assertThat(decoded).isEqualTo(cursor);
+      assertThat(request.shouldIncludeTotalCount()).isFalse();
+    }
+  }
 }
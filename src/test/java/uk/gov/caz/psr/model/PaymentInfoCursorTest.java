@@ -0,0 +1,34 @@
+package uk.gov.caz.psr.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class PaymentInfoCursorTest {
+
+  @Test
+  public void shouldDecodeEncodedCursor() {
+    // given
+    PaymentInfoCursor cursor = new PaymentInfoCursor("CAS123", UUID.randomUUID());
+
+    // when
+    PaymentInfoCursor decoded = PaymentInfoCursor.decode(cursor.encode());
+
+    // then
+    assertThat(decoded).isEqualTo(cursor);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"*", "not-a-cursor", "bm90LWEtdXVpZHxDQVMxMjM"})
+  public void shouldThrowIllegalArgumentExceptionWhenCursorIsMalformed(String cursor) {
+    // when
+    Throwable throwable = catchThrowable(() -> PaymentInfoCursor.decode(cursor));
+
+    // then
+    assertThat(throwable).isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -2,7 +2,11 @@ package uk.gov.caz.psr.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.verifyNoInteractions;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -62,4 +66,66 @@ class EntrantPaymentMatchRepositoryTest {
       }
     }
   }
-}
\ No newline at end of file
+
+  @Nested
+  class InsertList {
+
+    @Test
+    public void shouldThrowNullPointerExceptionWhenListIsNull() {
+      // given
+      List<EntrantPaymentMatch> entrantPaymentMatches = null;
+
+      // when
+      Throwable throwable = catchThrowable(() -> entrantPaymentMatchRepository.insert(
+          entrantPaymentMatches));
+
+      // then
+      assertThat(throwable).isInstanceOf(NullPointerException.class)
+          .hasMessage("'entrantPaymentMatches' cannot be null");
+    }
+
+    @Test
+    public void shouldThrowIllegalArgumentExceptionWhenAnyElementHasId() {
+      // given
+      List<EntrantPaymentMatch> entrantPaymentMatches = Collections.singletonList(
+          EntrantPaymentMatch.builder().id(UUID.randomUUID()).build());
+
+      // when
+      Throwable throwable = catchThrowable(() -> entrantPaymentMatchRepository.insert(
+          entrantPaymentMatches));
+
+      // then
+      assertThat(throwable).isInstanceOf(IllegalArgumentException.class)
+          .hasMessage("'entrantPaymentMatch' cannot have ID");
+    }
+
+    @Test
+    public void shouldNotCallDatabaseWhenListIsEmpty() {
+      // when
+      List<EntrantPaymentMatch> result = entrantPaymentMatchRepository.insert(
+          Collections.<EntrantPaymentMatch>emptyList());
+
+      // then
+      assertThat(result).isEmpty();
+      verifyNoInteractions(jdbcTemplate);
+    }
+  }
+
+  @Nested
+  class UpdateLatestToFalseForAll {
+
+    @Test
+    public void shouldThrowNullPointerExceptionWhenIdsAreNull() {
+      // given
+      Collection<UUID> entrantPaymentIds = null;
+
+      // when
+      Throwable throwable = catchThrowable(
+          () -> entrantPaymentMatchRepository.updateLatestToFalseFor(entrantPaymentIds));
+
+      // then
+      assertThat(throwable).isInstanceOf(NullPointerException.class)
+          .hasMessage("'entrantPaymentIds' cannot be null");
+    }
+  }
+}
@@ -3,12 +3,15 @@ package uk.gov.caz.psr.repository;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -20,6 +23,9 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementSetter;
 import org.springframework.jdbc.core.RowMapper;
 import uk.gov.caz.psr.model.EntrantPayment;
+import uk.gov.caz.psr.model.EntrantPaymentKey;
+import uk.gov.caz.psr.model.EntrantPaymentUpdateActor;
+import uk.gov.caz.psr.model.InternalPaymentStatus;
 import uk.gov.caz.psr.repository.exception.NotUniqueVehicleEntrantPaymentFoundException;
 import uk.gov.caz.psr.util.TestObjectFactory.EntrantPayments;
 
@@ -29,6 +35,9 @@ class EntrantPaymentRepositoryTest {
   @Mock
   private JdbcTemplate jdbcTemplate;
 
+  @Mock
+  private PaidDaysIndex paidDaysIndex;
+
   @InjectMocks
   private EntrantPaymentRepository entrantPaymentRepository;
 
@@ -60,6 +69,22 @@ class EntrantPaymentRepositoryTest {
       assertThat(throwable).isInstanceOf(IllegalArgumentException.class)
           .hasMessage("Entrant payments cannot be empty");
     }
+
+    @Test
+    public void shouldThrowIllegalArgumentExceptionWhenAnyElementHasIdAssigned() {
+      // given
+      List<EntrantPayment> input = Collections.singletonList(EntrantPayments.anyNotPaid()
+          .toBuilder()
+          .cleanAirZoneEntrantPaymentId(UUID.randomUUID())
+          .build());
+
+      // when
+      Throwable throwable = catchThrowable(() -> entrantPaymentRepository.insert(input));
+
+      // then
+      assertThat(throwable).isInstanceOf(IllegalArgumentException.class)
+          .hasMessage("Entrant payment cannot have non-null ID");
+    }
   }
 
   @Nested
@@ -129,6 +154,18 @@ class EntrantPaymentRepositoryTest {
       assertThat(throwable).isInstanceOf(NullPointerException.class)
           .hasMessage("Entrant payments cannot be null");
     }
+
+    @Test
+    public void shouldUpdatePaidDaysIndex() {
+      // given
+      EntrantPayment entrantPayment = EntrantPayments.anyPaid();
+
+      // when
+      entrantPaymentRepository.update(entrantPayment);
+
+      // then
+      verify(paidDaysIndex).update(Collections.singletonList(entrantPayment));
+    }
   }
 
   @Nested
@@ -199,6 +236,73 @@ class EntrantPaymentRepositoryTest {
 
   }
 
+  @Nested
+  class InsertCapturedIfNotExist {
+
+    @Test
+    public void shouldThrowNullPointerExceptionWhenKeysAreNull() {
+      // given
+      List<EntrantPaymentKey> keys = null;
+
+      // when
+      Throwable throwable = catchThrowable(() -> entrantPaymentRepository
+          .insertCapturedIfNotExist(keys, InternalPaymentStatus.NOT_PAID,
+              EntrantPaymentUpdateActor.VCCS_API));
+
+      // then
+      assertThat(throwable).isInstanceOf(NullPointerException.class)
+          .hasMessage("keys cannot be null");
+    }
+
+    @Test
+    public void shouldNotCallDatabaseWhenKeysAreEmpty() {
+      // given
+      List<EntrantPaymentKey> keys = Collections.emptyList();
+
+      // when
+      int result = entrantPaymentRepository.insertCapturedIfNotExist(keys,
+          InternalPaymentStatus.NOT_PAID, EntrantPaymentUpdateActor.VCCS_API);
+
+      // then
+      assertThat(result).isZero();
+      verifyNoInteractions(jdbcTemplate);
+    }
+  }
+
+  @Nested
+  class MarkAsVehicleEntrantCaptured {
+
+    @Test
+    public void shouldThrowNullPointerExceptionWhenUpdateActorIsNull() {
+      // given
+      List<EntrantPaymentKey> keys = Collections.singletonList(
+          new EntrantPaymentKey(UUID.randomUUID(), "CAS123", LocalDate.now()));
+
+      // when
+      Throwable throwable = catchThrowable(() -> entrantPaymentRepository
+          .markAsVehicleEntrantCaptured(keys, null));
+
+      // then
+      assertThat(throwable).isInstanceOf(NullPointerException.class)
+          .hasMessage("updateActor cannot be null");
+    }
+  }
+
+  @Nested
+  class FindAllByKeys {
+
+    @Test
+    public void shouldReturnEmptyListWithoutCallingDatabaseWhenKeysAreEmpty() {
+      // when
+      List<EntrantPayment> result = entrantPaymentRepository
+          .findAllByKeys(Collections.emptyList());
+
+      // then
+      assertThat(result).isEmpty();
+      verifyNoInteractions(jdbcTemplate);
+    }
+  }
+
   @Nested
   class FindByPaymentId {
 
@@ -218,61 +322,57 @@ class EntrantPaymentRepositoryTest {
   }
 
   @Nested
-  class FindAllPaidByVrnAndDateRangeAndCazId {
+  class FindAllPaidByVrnsAndDateRangeAndCazId {
 
     @Test
-    public void shouldThrowNullPointerExceptionWhenVrnIsNull() {
+    public void shouldThrowNullPointerExceptionWhenVrnsAreNull() {
       // given
-      String vrn = null;
+      List<String> vrns = null;
       LocalDate startDate = LocalDate.now();
       LocalDate endDate = LocalDate.now();
       UUID cleanAirZoneId = UUID.randomUUID();
 
       // when
       Throwable throwable = catchThrowable(
-          () -> entrantPaymentRepository.findAllPaidByVrnAndDateRangeAndCazId(
-              vrn, startDate, endDate, cleanAirZoneId));
+          () -> entrantPaymentRepository.findAllPaidByVrnsAndDateRangeAndCazId(
+              vrns, startDate, endDate, cleanAirZoneId));
 
       // then
-      assertThat(throwable).isInstanceOf(IllegalArgumentException.class)
-          .hasMessage("VRN cannot be empty");
+      assertThat(throwable).isInstanceOf(NullPointerException.class)
+          .hasMessage("vrns cannot be null");
     }
 
     @Test
     public void shouldThrowNullPointerExceptionWhenDateIsNull() {
       // given
-      String vrn = "CAS123";
-      LocalDate startDate = null;
-      LocalDate endDate = LocalDate.now();
+      List<String> vrns = Collections.singletonList("CAS123");
+      LocalDate startDate = LocalDate.now();
+      LocalDate endDate = null;
       UUID cleanAirZoneId = UUID.randomUUID();
 
       // when
       Throwable throwable = catchThrowable(
-          () -> entrantPaymentRepository.findAllPaidByVrnAndDateRangeAndCazId(
-              vrn, startDate, endDate, cleanAirZoneId));
+          () -> entrantPaymentRepository.findAllPaidByVrnsAndDateRangeAndCazId(
+              vrns, startDate, endDate, cleanAirZoneId));
 
       // then
       assertThat(throwable).isInstanceOf(NullPointerException.class)
-          .hasMessage("startDate cannot be null");
-
+          .hasMessage("endDate cannot be null");
     }
 
     @Test
-    public void shouldThrowNullPointerExceptionWhenCazIdIsNull() {
+    public void shouldNotQueryDatabaseWhenVrnsAreEmpty() {
       // given
-      String vrn = "CAS123";
-      LocalDate startDate = LocalDate.now();
-      LocalDate endDate = LocalDate.now();
-      UUID cleanAirZoneId = null;
+      List<String> vrns = Collections.emptyList();
 
       // when
-      Throwable throwable = catchThrowable(
-          () -> entrantPaymentRepository.findAllPaidByVrnAndDateRangeAndCazId(
-              vrn, startDate, endDate, cleanAirZoneId));
+      Map<String, List<EntrantPayment>> result = entrantPaymentRepository
+          .findAllPaidByVrnsAndDateRangeAndCazId(vrns, LocalDate.now(), LocalDate.now(),
+              UUID.randomUUID());
 
       // then
-      assertThat(throwable).isInstanceOf(NullPointerException.class)
-          .hasMessage("cleanAirZoneId cannot be null");
+      assertThat(result).isEmpty();
+      verifyNoInteractions(jdbcTemplate);
     }
   }
 
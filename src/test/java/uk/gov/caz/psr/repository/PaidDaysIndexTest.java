@@ -0,0 +1,277 @@
+package uk.gov.caz.psr.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.BitFieldSubCommands;
+import org.springframework.data.redis.connection.BitFieldSubCommands.BitFieldSubCommand;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands.BitOperation;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import uk.gov.caz.psr.util.TestObjectFactory.EntrantPayments;
+
+@ExtendWith(MockitoExtension.class)
+class PaidDaysIndexTest {
+
+  private static final UUID ANY_CAZ_ID = UUID.fromString("6cb5a6b1-18ae-4b06-ac29-f8433099381c");
+  private static final LocalDate ANY_START_DATE = LocalDate.of(2020, 3, 1);
+  private static final LocalDate ANY_END_DATE = LocalDate.of(2020, 3, 13);
+
+  @Mock
+  private StringRedisTemplate redisTemplate;
+
+  @Mock
+  private RedisConnection connection;
+
+  @Nested
+  class BitmapEncoding {
+
+    @Test
+    public void shouldSetMarkerBitAndBitsOfPaidDays() {
+      // given
+      List<LocalDate> paidDays = Arrays.asList(PaidDaysIndex.FIRST_INDEXED_DAY,
+          PaidDaysIndex.FIRST_INDEXED_DAY.plusDays(7));
+
+      // when
+      byte[] bitmap = PaidDaysIndex.toBitmap(paidDays);
+
+      // then
+      assertThat(bitmap).containsExactly((byte) 0xC0, (byte) 0x80);
+    }
+
+    @Test
+    public void shouldSetOnlyMarkerBitWhenThereAreNoPaidDays() {
+      // when
+      byte[] bitmap = PaidDaysIndex.toBitmap(null);
+
+      // then
+      assertThat(bitmap).containsExactly((byte) 0x80);
+    }
+
+    @Test
+    public void shouldReadPaidDaysOfRangeWiderThanSingleBitField() {
+      // given
+      LocalDate startDate = LocalDate.of(2021, 1, 1);
+      LocalDate endDate = LocalDate.of(2021, 12, 31);
+      List<LocalDate> paidDays = Arrays.asList(LocalDate.of(2020, 12, 31),
+          LocalDate.of(2021, 1, 1), LocalDate.of(2021, 3, 5), LocalDate.of(2021, 3, 6),
+          LocalDate.of(2021, 12, 31), LocalDate.of(2022, 1, 1));
+      byte[] bitmap = PaidDaysIndex.toBitmap(paidDays);
+
+      // when
+      List<Long> values = bitField(bitmap, PaidDaysIndex.readRangeCommand(startDate, endDate));
+      List<LocalDate> result = PaidDaysIndex.toPaidDays(values, startDate, endDate);
+
+      // then
+      assertThat(values.get(0)).isEqualTo(1L);
+      assertThat(result).containsExactly(LocalDate.of(2021, 1, 1), LocalDate.of(2021, 3, 5),
+          LocalDate.of(2021, 3, 6), LocalDate.of(2021, 12, 31));
+    }
+  }
+
+  @Nested
+  class FindPaidDays {
+
+    @Test
+    public void shouldReturnPaidDaysOfIndexedVrnsOnly() {
+      // given
+      PaidDaysIndex paidDaysIndex = index(true);
+      byte[] indexed = PaidDaysIndex.toBitmap(Collections.singletonList(ANY_START_DATE));
+      BitFieldSubCommands command = PaidDaysIndex.readRangeCommand(ANY_START_DATE, ANY_END_DATE);
+      when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(Arrays.asList(
+          bitField(indexed, command), bitField(new byte[0], command)));
+
+      // when
+      Map<String, List<LocalDate>> result = paidDaysIndex.findPaidDays(ANY_CAZ_ID,
+          Arrays.asList("CAS123", "CAS124"), ANY_START_DATE, ANY_END_DATE);
+
+      // then
+      assertThat(result).containsOnlyKeys("CAS123");
+      assertThat(result.get("CAS123")).containsExactly(ANY_START_DATE);
+    }
+
+    @Test
+    public void shouldReturnEmptyMapWhenRedisIsNotAvailable() {
+      // given
+      PaidDaysIndex paidDaysIndex = index(true);
+      when(redisTemplate.executePipelined(any(RedisCallback.class)))
+          .thenThrow(new RedisConnectionFailureException("test"));
+
+      // when
+      Map<String, List<LocalDate>> result = paidDaysIndex.findPaidDays(ANY_CAZ_ID,
+          Collections.singletonList("CAS123"), ANY_START_DATE, ANY_END_DATE);
+
+      // then
+      assertThat(result).isEmpty();
+    }
+
+    @Test
+    public void shouldNotCallRedisWhenIndexIsDisabled() {
+      // given
+      PaidDaysIndex paidDaysIndex = index(false);
+
+      // when
+      Map<String, List<LocalDate>> result = paidDaysIndex.findPaidDays(ANY_CAZ_ID,
+          Collections.singletonList("CAS123"), ANY_START_DATE, ANY_END_DATE);
+
+      // then
+      assertThat(result).isEmpty();
+      verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    public void shouldNotCallRedisWhenRangeIsNotIndexed() {
+      // given
+      PaidDaysIndex paidDaysIndex = index(true);
+
+      // when
+      Map<String, List<LocalDate>> result = paidDaysIndex.findPaidDays(ANY_CAZ_ID,
+          Collections.singletonList("CAS123"), LocalDate.of(2019, 12, 25), ANY_END_DATE);
+
+      // then
+      assertThat(result).isEmpty();
+      verifyNoInteractions(redisTemplate);
+    }
+  }
+
+  @Nested
+  class Rebuild {
+
+    @Test
+    public void shouldMergeRebuiltBitmapIntoIndexedOneInsteadOfOverwritingIt() {
+      // given
+      PaidDaysIndex paidDaysIndex = index(true);
+      byte[] key = ("paid-days:{" + ANY_CAZ_ID + "}:CAS123").getBytes(StandardCharsets.UTF_8);
+      byte[] bitmap = PaidDaysIndex.toBitmap(Collections.singletonList(ANY_START_DATE));
+      executePipelinedCallbacksOn(connection);
+
+      // when
+      paidDaysIndex.rebuild(ANY_CAZ_ID, Collections.singletonList("CAS123"),
+          Collections.singletonMap("CAS123", Collections.singletonList(ANY_START_DATE)));
+
+      // then
+      ArgumentCaptor<byte[]> rebuiltKey = ArgumentCaptor.forClass(byte[].class);
+      verify(connection).set(rebuiltKey.capture(), eq(bitmap), any(), any());
+      assertThat(rebuiltKey.getValue()).isNotEqualTo(key);
+      verify(connection).bitOp(BitOperation.OR, key, key, rebuiltKey.getValue());
+      verify(connection).del(rebuiltKey.getValue());
+      verify(connection).expire(key, Duration.ofHours(24).getSeconds());
+      verify(connection, never()).set(eq(key), any(), any(), any());
+    }
+
+    @Test
+    public void shouldNotCallRedisWhenIndexIsDisabled() {
+      // given
+      PaidDaysIndex paidDaysIndex = index(false);
+
+      // when
+      paidDaysIndex.rebuild(ANY_CAZ_ID, Collections.singletonList("CAS123"),
+          Collections.emptyMap());
+
+      // then
+      verifyNoInteractions(redisTemplate);
+    }
+  }
+
+  @Nested
+  class Update {
+
+    @Test
+    public void shouldUpdateBitsImmediatelyOutsideOfTransaction() {
+      // given
+      PaidDaysIndex paidDaysIndex = index(true);
+
+      // when
+      paidDaysIndex.update(Collections.singletonList(EntrantPayments.anyPaid().toBuilder()
+          .travelDate(ANY_START_DATE).build()));
+
+      // then
+      verify(redisTemplate).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    public void shouldRemoveBitmapsWhenUpdateFails() {
+      // given
+      PaidDaysIndex paidDaysIndex = index(true);
+      when(redisTemplate.executePipelined(any(RedisCallback.class)))
+          .thenThrow(new RedisConnectionFailureException("test"))
+          .thenReturn(Collections.emptyList());
+
+      // when
+      paidDaysIndex.update(Collections.singletonList(EntrantPayments.anyPaid().toBuilder()
+          .travelDate(ANY_START_DATE).build()));
+
+      // then
+      verify(redisTemplate, times(2))
+          .executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    public void shouldNotCallRedisWhenIndexIsDisabled() {
+      // given
+      PaidDaysIndex paidDaysIndex = index(false);
+
+      // when
+      paidDaysIndex.update(Collections.singletonList(EntrantPayments.anyPaid()));
+
+      // then
+      verifyNoInteractions(redisTemplate);
+    }
+  }
+
+  private void executePipelinedCallbacksOn(RedisConnection connection) {
+    when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+      RedisCallback<?> callback = invocation.getArgument(0);
+      callback.doInRedis(connection);
+      return Collections.emptyList();
+    });
+  }
+
+  private PaidDaysIndex index(boolean enabled) {
+    return new PaidDaysIndex(redisTemplate, enabled, Duration.ofHours(24));
+  }
+
+  /**
+   * Executes GET sub-commands of BITFIELD on {@code bitmap} as Redis does.
+   */
+  private static List<Long> bitField(byte[] bitmap, BitFieldSubCommands commands) {
+    List<Long> values = new ArrayList<>();
+    for (BitFieldSubCommand command : commands) {
+      long offset = command.getOffset().getValue();
+      long value = 0;
+      for (int i = 0; i < command.getType().getBits(); i++) {
+        long bitOffset = offset + i;
+        int byteIndex = (int) (bitOffset / 8);
+        int bit = byteIndex < bitmap.length
+            ? (bitmap[byteIndex] >>> (7 - bitOffset % 8)) & 1
+            : 0;
+        value = (value << 1) | bit;
+      }
+      values.add(value);
+    }
+    return values;
+  }
+}
@@ -3,10 +3,13 @@ package uk.gov.caz.psr.repository;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+import com.google.common.collect.ImmutableMap;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Map;
 import java.util.UUID;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -16,6 +19,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
 import uk.gov.caz.psr.model.Payment;
 import uk.gov.caz.psr.util.TestObjectFactory.Payments;
@@ -116,6 +120,47 @@ class PaymentRepositoryTest {
     }
   }
 
+  @Nested
+  class FindByIds {
+
+    @Test
+    public void shouldThrowNullPointerExceptionWhenIdsAreNull() {
+      Throwable throwable = catchThrowable(() -> paymentRepository.findByIds(null));
+
+      assertThat(throwable).isInstanceOf(NullPointerException.class)
+          .hasMessage("IDs cannot be null");
+    }
+
+    @Test
+    public void shouldReturnEmptyMapWithoutCallingDatabaseWhenIdsAreEmpty() {
+      Map<UUID, Payment> result = paymentRepository.findByIds(Collections.emptyList());
+
+      assertThat(result).isEmpty();
+      verifyNoInteractions(jdbcTemplate);
+    }
+  }
+
+  @Nested
+  class FindByExternalId {
+
+    @Test
+    public void shouldThrowIllegalStateExceptionWhenMoreThanOnePaymentIsFound() {
+      mockMoreThanOnePaymentFound();
+
+      Throwable throwable = catchThrowable(() -> paymentRepository.findByExternalId("ext-id"));
+
+      assertThat(throwable).isInstanceOf(IllegalStateException.class)
+          .hasMessage("Found more than one payment with external id = ext-id");
+    }
+
+    private void mockMoreThanOnePaymentFound() {
+      when(jdbcTemplate.query(any(String.class), any(PreparedStatementSetter.class),
+          any(ResultSetExtractor.class))
+      ).thenReturn(ImmutableMap.of(UUID.randomUUID(), Payments.forRandomDays(),
+          UUID.randomUUID(), Payments.forRandomDays()));
+    }
+  }
+
   @Nested
   class FindByEntrantPayment {
 
@@ -138,6 +183,28 @@ class PaymentRepositoryTest {
     }
   }
 
+  @Nested
+  class FindByEntrantPayments {
+
+    @Test
+    public void shouldThrowNullPointerExceptionWhenIdsAreNull() {
+      Throwable throwable = catchThrowable(() ->
+          paymentRepository.findByEntrantPayments(null));
+
+      assertThat(throwable).isInstanceOf(NullPointerException.class)
+          .hasMessage("entrantPaymentIds cannot be null");
+    }
+
+    @Test
+    public void shouldReturnEmptyMapWithoutCallingDatabaseWhenIdsAreEmpty() {
+      Map<UUID, Payment> result = paymentRepository.findByEntrantPayments(
+          Collections.emptyList());
+
+      assertThat(result).isEmpty();
+      verifyNoInteractions(jdbcTemplate);
+    }
+  }
+
   @Nested
   class MarkSentConfirmationEmail {
 
@@ -152,4 +219,19 @@ class PaymentRepositoryTest {
           .hasMessage("paymentId cannot be null");
     }
   }
+
+  @Nested
+  class IncreaseEntriesCount {
+
+    @Test
+    public void shouldThrowNullPointerExceptionWhenPaymentIdIsNull() {
+      UUID paymentId = null;
+
+      Throwable throwable = catchThrowable(
+          () -> paymentRepository.increaseEntriesCount(paymentId, 1));
+
+      assertThat(throwable).isInstanceOf(NullPointerException.class)
+          .hasMessage("paymentId cannot be null");
+    }
+  }
 }
@@ -3,7 +3,11 @@ package uk.gov.caz.psr.repository;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 
+import static org.mockito.Mockito.verifyNoInteractions;
+
 import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
 import java.util.UUID;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -12,6 +16,8 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.jdbc.core.JdbcTemplate;
+import uk.gov.caz.psr.model.PaymentStatus;
+import uk.gov.caz.psr.model.VehicleEntry;
 
 @ExtendWith(MockitoExtension.class)
 public class PaymentStatusRepositoryTest {
@@ -63,4 +69,42 @@ public class PaymentStatusRepositoryTest {
           .hasMessage("CAZ ID cannot be null");
     }
   }
+
+  @Nested
+  class FindByVehicleEntries {
+
+    @Test
+    public void shouldThrowNullPointerExceptionWhenCazIdIsNull() {
+      UUID cazId = null;
+
+      Throwable throwable = catchThrowable(
+          () -> paymentStatusRepository.findByCazIdAndVehicleEntries(cazId,
+              Collections.singletonList(new VehicleEntry("CAS123", LocalDate.now()))));
+
+      assertThat(throwable).isInstanceOf(NullPointerException.class)
+          .hasMessage("CAZ ID cannot be null");
+    }
+
+    @Test
+    public void shouldThrowNullPointerExceptionWhenVehicleEntriesAreNull() {
+      UUID cazId = UUID.randomUUID();
+
+      Throwable throwable = catchThrowable(
+          () -> paymentStatusRepository.findByCazIdAndVehicleEntries(cazId, null));
+
+      assertThat(throwable).isInstanceOf(NullPointerException.class)
+          .hasMessage("vehicleEntries cannot be null");
+    }
+
+    @Test
+    public void shouldNotCallDatabaseWhenVehicleEntriesAreEmpty() {
+      UUID cazId = UUID.randomUUID();
+
+      Map<VehicleEntry, PaymentStatus> result = paymentStatusRepository
+          .findByCazIdAndVehicleEntries(cazId, Collections.emptyList());
+
+      assertThat(result).isEmpty();
+      verifyNoInteractions(jdbcTemplate);
+    }
+  }
 }
@@ -3,6 +3,7 @@ package uk.gov.caz.psr.repository;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import org.junit.jupiter.api.Nested;
@@ -23,7 +24,7 @@ class PaymentSummaryRepositoryTest {
   private PaymentSummaryRepository paymentSummaryRepository;
 
   @Nested
-  class GetPaginatedPaymentSummaryForUserIds {
+  class GetPaymentSummariesPage {
 
     @Test
     public void shouldThrowNullPointerExceptionWhenUserIdsIsNull() {
@@ -34,7 +35,7 @@ class PaymentSummaryRepositoryTest {
 
       // when
       Throwable throwable = catchThrowable(() -> paymentSummaryRepository
-          .getPaginatedPaymentSummaryForUserIds(userIds, pageNumber, pageSize));
+          .getPaymentSummariesPage(userIds, null, pageNumber, pageSize));
 
       // then
       assertThat(throwable).isInstanceOf(NullPointerException.class)
@@ -59,4 +60,23 @@ class PaymentSummaryRepositoryTest {
           .hasMessage("userIds cannot be null.");
     }
   }
+
+  @Nested
+  class IsSuccessfulPaymentOfUsers {
+
+    @Test
+    public void shouldThrowNullPointerExceptionWhenPaymentIdIsNull() {
+      // given
+      List<UUID> userIds = Collections.singletonList(UUID.randomUUID());
+      UUID paymentId = null;
+
+      // when
+      Throwable throwable = catchThrowable(() -> paymentSummaryRepository
+          .isSuccessfulPaymentOfUsers(userIds, paymentId));
+
+      // then
+      assertThat(throwable).isInstanceOf(NullPointerException.class)
+          .hasMessage("paymentId cannot be null.");
+    }
+  }
 }
@@ -166,6 +166,32 @@ class PaymentDetailRepositoryTest {
     }
   }
 
+  @Nested
+  class FindAllForAccountUsersPaymentsHistory {
+
+    @Nested
+    class WhenAccountUserIdsAreNotProvided {
+
+      @Test
+      public void shouldThrowNullPointerException() {
+        // given
+        List<UUID> accountUserIds = null;
+        EntrantPaymentUpdateActor updateActor = EntrantPaymentUpdateActor.LA;
+        List<InternalPaymentStatus> paymentStatuses = Arrays
+            .asList(InternalPaymentStatus.REFUNDED, InternalPaymentStatus.CHARGEBACK);
+
+        // when
+        Throwable throwable = catchThrowable(
+            () -> paymentDetailRepository.findAllForAccountUsersPaymentsHistory(accountUserIds,
+                updateActor, paymentStatuses));
+
+        // then
+        assertThat(throwable).isInstanceOf(NullPointerException.class);
+        assertThat(throwable).hasMessage("accountUserIds cannot be null");
+      }
+    }
+  }
+
   @Nested
   class FindAllForPaymentsHistory {
 
@@ -4,12 +4,18 @@ import static java.util.Collections.emptyList;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.catchThrowable;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
@@ -18,7 +24,10 @@ import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.jpa.domain.Specification;
 import uk.gov.caz.psr.controller.exception.PaymentInfoVrnValidationException;
+import uk.gov.caz.psr.model.PaymentInfoCursor;
 import uk.gov.caz.psr.model.PaymentInfoRequestAttributes;
+import uk.gov.caz.psr.model.PaymentInfoSlice;
+import uk.gov.caz.psr.model.info.EntrantPaymentInfo;
 import uk.gov.caz.psr.model.info.EntrantPaymentMatchInfo;
 import uk.gov.caz.psr.repository.EntrantPaymentRepository;
 import uk.gov.caz.psr.repository.jpa.EntrantPaymentMatchInfoRepository;
@@ -74,4 +83,98 @@ class ChargeSettlementPaymentInfoServiceTest {
         .isInstanceOf(PaymentInfoVrnValidationException.class)
         .hasMessage("vrn cannot be found");
   }
+
+  @Test
+  public void shouldReturnNextCursorAndSkipCountWhenThereIsNextPage() {
+    // given
+    paymentInfoService = new ChargeSettlementPaymentInfoService(entrantPaymentMatchInfoRepository,
+        entrantPaymentRepository, specifications, 1);
+    PaymentInfoRequestAttributes input = PaymentInfoRequestAttributes.builder().build();
+    EntrantPaymentMatchInfo first = entrantPaymentMatchInfo("CAS123");
+    EntrantPaymentMatchInfo second = entrantPaymentMatchInfo("CAS124");
+    when(entrantPaymentMatchInfoRepository.findAll(any(Specification.class), eq(2)))
+        .thenReturn(Arrays.asList(first, second));
+
+    // when
+    PaymentInfoSlice result = paymentInfoService
+        .findPaymentInfoV2(input, UUID.randomUUID(), null, false);
+
+    // then
+    assertThat(result.getContent()).isEqualTo(Arrays.asList(first));
+    assertThat(result.getNextCursor()).isEqualTo(new PaymentInfoCursor("CAS123",
+        first.getEntrantPaymentInfo().getId()));
+    assertThat(result.getTotalPages()).isNull();
+    verify(entrantPaymentMatchInfoRepository, never()).count(any(Specification.class));
+  }
+
+  @Test
+  public void shouldReturnTotalPagesAndNoNextCursorOnLastPage() {
+    // given
+    paymentInfoService = new ChargeSettlementPaymentInfoService(entrantPaymentMatchInfoRepository,
+        entrantPaymentRepository, specifications, 2);
+    PaymentInfoRequestAttributes input = PaymentInfoRequestAttributes.builder().build();
+    PaymentInfoCursor cursor = new PaymentInfoCursor("CAS122", UUID.randomUUID());
+    when(entrantPaymentMatchInfoRepository.findAll(any(Specification.class), anyInt()))
+        .thenReturn(Arrays.asList(entrantPaymentMatchInfo("CAS123")));
+    when(entrantPaymentMatchInfoRepository.count(any(Specification.class))).thenReturn(3L);
+
+    // when
+    PaymentInfoSlice result = paymentInfoService
+        .findPaymentInfoV2(input, UUID.randomUUID(), cursor, true);
+
+    // then
+    assertThat(result.getContent()).hasSize(1);
+    assertThat(result.getNextCursor()).isNull();
+    assertThat(result.getTotalPages()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldStreamPaymentInfoGroupedByVrnAndDetachEntitiesBetweenGroups() {
+    // given
+    paymentInfoService = new ChargeSettlementPaymentInfoService(entrantPaymentMatchInfoRepository,
+        entrantPaymentRepository, specifications, 10);
+    PaymentInfoRequestAttributes input = PaymentInfoRequestAttributes.builder().build();
+    EntrantPaymentMatchInfo first = entrantPaymentMatchInfo("CAS123");
+    EntrantPaymentMatchInfo second = entrantPaymentMatchInfo("CAS123");
+    EntrantPaymentMatchInfo third = entrantPaymentMatchInfo("CAS124");
+    when(entrantPaymentMatchInfoRepository.streamAll(any(Specification.class), anyInt()))
+        .thenReturn(Stream.of(first, second, third));
+    List<List<EntrantPaymentMatchInfo>> consumed = new ArrayList<>();
+
+    // when
+    paymentInfoService.streamPaymentInfo(input, UUID.randomUUID(), consumed::add);
+
+    // then
+    assertThat(consumed).isEqualTo(Arrays.asList(Arrays.asList(first, second),
+        Arrays.asList(third)));
+    verify(entrantPaymentMatchInfoRepository).detachAll();
+  }
+
+  @Test
+  public void shouldNotCallConsumerWhenThereAreNoMatchingPayments() {
+    // given
+    paymentInfoService = new ChargeSettlementPaymentInfoService(entrantPaymentMatchInfoRepository,
+        entrantPaymentRepository, specifications, 10);
+    PaymentInfoRequestAttributes input = PaymentInfoRequestAttributes.builder().build();
+    when(entrantPaymentMatchInfoRepository.streamAll(any(Specification.class), anyInt()))
+        .thenReturn(Stream.empty());
+    List<List<EntrantPaymentMatchInfo>> consumed = new ArrayList<>();
+
+    // when
+    paymentInfoService.streamPaymentInfo(input, UUID.randomUUID(), consumed::add);
+
+    // then
+    assertThat(consumed).isEqualTo(emptyList());
+    verify(entrantPaymentMatchInfoRepository, never()).detachAll();
+  }
+
+  private EntrantPaymentMatchInfo entrantPaymentMatchInfo(String vrn) {
+    EntrantPaymentInfo entrantPaymentInfo = new EntrantPaymentInfo();
+    entrantPaymentInfo.setId(UUID.randomUUID());
+    entrantPaymentInfo.setVrn(vrn);
+    EntrantPaymentMatchInfo entrantPaymentMatchInfo = new EntrantPaymentMatchInfo();
+    entrantPaymentMatchInfo.setId(UUID.randomUUID());
+    entrantPaymentMatchInfo.setEntrantPaymentInfo(entrantPaymentInfo);
+    return entrantPaymentMatchInfo;
+  }
 }
@@ -2,11 +2,15 @@ package uk.gov.caz.psr.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
@@ -16,6 +20,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.caz.psr.model.InternalPaymentStatus;
 import uk.gov.caz.psr.model.PaymentStatus;
+import uk.gov.caz.psr.model.VehicleEntry;
 import uk.gov.caz.psr.repository.PaymentStatusRepository;
 import uk.gov.caz.psr.util.TestObjectFactory.PaymentStatusFactory;
 
@@ -97,6 +102,27 @@ class ChargeSettlementServiceTest {
         .contains(InternalPaymentStatus.CHARGEBACK);
   }
 
+  @Test
+  void shouldQueryRepositoryOnceWithDistinctVehicleEntries() {
+    // given
+    VehicleEntry vehicleEntry = new VehicleEntry(ANY_VRN, ANY_DATE);
+    PaymentStatus paymentStatus = PaymentStatusFactory.anyWithStatus(InternalPaymentStatus.PAID);
+    List<VehicleEntry> vehicleEntries = Arrays.asList(vehicleEntry, vehicleEntry);
+    when(paymentStatusRepository.findByCazIdAndVehicleEntries(ANY_CAZ_ID,
+        new LinkedHashSet<>(Collections.singletonList(vehicleEntry))))
+        .thenReturn(Collections.singletonMap(vehicleEntry, paymentStatus));
+
+    // when
+    Map<VehicleEntry, PaymentStatus> paymentStatuses = chargeSettlementService
+        .findChargeSettlements(ANY_CAZ_ID, vehicleEntries);
+
+    // then
+    assertThat(paymentStatuses).containsOnlyKeys(vehicleEntry)
+        .containsValue(paymentStatus);
+    verify(paymentStatusRepository).findByCazIdAndVehicleEntries(ANY_CAZ_ID,
+        new LinkedHashSet<>(Collections.singletonList(vehicleEntry)));
+  }
+
   private void mockEmptyCollection() {
     when(paymentStatusRepository.findByCazIdAndVrnAndEntryDate(ANY_CAZ_ID, ANY_VRN, ANY_DATE))
         .thenReturn(Collections.emptyList());
@@ -3,20 +3,26 @@ package uk.gov.caz.psr.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.caz.psr.model.DanglingPaymentsCleanupSummary;
 import uk.gov.caz.psr.model.Payment;
 import uk.gov.caz.psr.repository.PaymentRepository;
 import uk.gov.caz.psr.util.TestObjectFactory.Payments;
@@ -24,15 +30,22 @@ import uk.gov.caz.psr.util.TestObjectFactory.Payments;
 @ExtendWith(MockitoExtension.class)
 class CleanupDanglingPaymentsServiceTest {
 
+  private static final Duration INITIAL_BACKOFF = Duration.ofMinutes(15);
+  private static final Duration MAX_BACKOFF = Duration.ofDays(1);
+
   @Mock
   private PaymentRepository paymentRepository;
 
   @Mock
   private CleanupDanglingPaymentService cleanupDanglingPaymentService;
 
-  @InjectMocks
   private CleanupDanglingPaymentsService service;
 
+  @BeforeEach
+  public void setUp() {
+    service = createService(500);
+  }
+
   @Test
   public void shouldNotUpdateAnyPaymentsWhenThereAreNonDanglingOnes() {
     // given
@@ -73,6 +86,107 @@ class CleanupDanglingPaymentsServiceTest {
         .processDanglingPayment(any());
   }
 
+  @Test
+  public void shouldReportProcessedAndSkippedPayments() {
+    // given
+    thereAreDanglingPayments();
+    mockProcessingFailureOnSecondCall();
+
+    // when
+    DanglingPaymentsCleanupSummary summary = service.updateStatusesOfDanglingPayments();
+
+    // then
+    assertThat(summary.getFound()).isEqualTo(3);
+    assertThat(summary.getProcessed()).isEqualTo(2);
+    assertThat(summary.getSkipped()).isEqualTo(1);
+    assertThat(summary.getLeftOver()).isZero();
+  }
+
+  @Test
+  public void shouldScheduleNextStatusCheckOfEveryProcessedPayment() {
+    // given
+    List<Payment> danglingPayments = thereAreDanglingPayments();
+    mockProcessingFailureOnSecondCall();
+
+    // when
+    service.updateStatusesOfDanglingPayments();
+
+    // then
+    for (Payment danglingPayment : danglingPayments) {
+      verify(paymentRepository).scheduleNextStatusCheck(danglingPayment.getId(), INITIAL_BACKOFF,
+          MAX_BACKOFF);
+    }
+  }
+
+  @Test
+  public void shouldFetchDanglingPaymentsInChunks() {
+    // given
+    service = createService(2);
+    List<Payment> danglingPayments = thereAreDanglingPayments();
+    given(paymentRepository.findDanglingPayments(any(), anyInt()))
+        .willReturn(danglingPayments.subList(0, 2));
+    given(paymentRepository.findDanglingPayments(any(), eq(danglingPayments.get(1).getId()),
+        anyInt())).willReturn(danglingPayments.subList(2, 3));
+
+    // when
+    DanglingPaymentsCleanupSummary summary = service.updateStatusesOfDanglingPayments();
+
+    // then
+    assertThat(summary.getFound()).isEqualTo(3);
+    assertThat(summary.getProcessed()).isEqualTo(3);
+    verify(paymentRepository).findDanglingPayments(any(), eq(danglingPayments.get(1).getId()),
+        eq(2));
+  }
+
+  @Test
+  public void shouldLeaveOverPaymentsWhenTimeBudgetIsExhausted() {
+    // given
+    thereAreDanglingPayments();
+
+    // when
+    DanglingPaymentsCleanupSummary summary = service.updateStatusesOfDanglingPayments(
+        Duration.ofSeconds(5));
+
+    // then
+    assertThat(summary.getFound()).isEqualTo(3);
+    assertThat(summary.getProcessed()).isZero();
+    assertThat(summary.getLeftOver()).isEqualTo(3);
+    verify(cleanupDanglingPaymentService, never()).processDanglingPayment(any());
+    verify(paymentRepository, never()).scheduleNextStatusCheck(any(), any(), any());
+  }
+
+  @Test
+  public void shouldNotExceedConcurrencyLimitOfCleanAirZone() {
+    // given
+    UUID cleanAirZoneId = UUID.randomUUID();
+    List<Payment> payments = Arrays.asList(
+        Payments.existing().toBuilder().cleanAirZoneId(cleanAirZoneId).build(),
+        Payments.existing().toBuilder().cleanAirZoneId(cleanAirZoneId).build(),
+        Payments.existing().toBuilder().cleanAirZoneId(cleanAirZoneId).build());
+    given(paymentRepository.findDanglingPayments(any(), anyInt())).willReturn(payments);
+    AtomicInteger inProgress = new AtomicInteger();
+    AtomicInteger maxInProgress = new AtomicInteger();
+    willAnswer(answer -> {
+      maxInProgress.accumulateAndGet(inProgress.incrementAndGet(), Math::max);
+      Thread.sleep(50);
+      inProgress.decrementAndGet();
+      return answer.getArgument(0);
+    }).given(cleanupDanglingPaymentService).processDanglingPayment(any());
+
+    // when
+    DanglingPaymentsCleanupSummary summary = service.updateStatusesOfDanglingPayments();
+
+    // then
+    assertThat(summary.getProcessed()).isEqualTo(3);
+    assertThat(maxInProgress.get()).isOne();
+  }
+
+  private CleanupDanglingPaymentsService createService(int chunkSize) {
+    return new CleanupDanglingPaymentsService(paymentRepository, cleanupDanglingPaymentService, 2,
+        1, 1000, Duration.ofMinutes(1), Duration.ofSeconds(10), chunkSize, INITIAL_BACKOFF,
+        MAX_BACKOFF);
+  }
+
   private void mockProcessingFailureOnSecondCall() {
     willAnswer(answer -> answer.getArgument(0))
         .willThrow(new RuntimeException(""))
@@ -83,11 +197,11 @@ class CleanupDanglingPaymentsServiceTest {
   private List<Payment> thereAreDanglingPayments() {
     List<Payment> payments = Arrays.asList(Payments.existing(), Payments.existing(),
         Payments.existing());
-    given(paymentRepository.findDanglingPayments()).willReturn(payments);
+    given(paymentRepository.findDanglingPayments(any(), anyInt())).willReturn(payments);
     return payments;
   }
 
   private void thereAreNoDanglingPayments() {
-    given(paymentRepository.findDanglingPayments()).willReturn(Collections.emptyList());
+    given(paymentRepository.findDanglingPayments(any(), anyInt())).willReturn(Collections.emptyList());
   }
 }
\ No newline at end of file
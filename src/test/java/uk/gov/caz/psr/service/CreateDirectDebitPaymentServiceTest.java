@@ -3,7 +3,9 @@ package uk.gov.caz.psr.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.BDDMockito.given;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -38,7 +40,7 @@ class CreateDirectDebitPaymentServiceTest {
   private PaymentRepository paymentsRepository;
 
   @Mock
-  private InitiateEntrantPaymentsService initiateEntrantPaymentsService;
+  private PaymentInitiationPhaseService paymentInitiationPhaseService;
 
   @Mock
   private DirectDebitPaymentFinalizer directDebitPaymentFinalizer;
@@ -83,6 +85,31 @@ class CreateDirectDebitPaymentServiceTest {
 
     // then
     assertThat(throwable).isInstanceOf(CollectDirectDebitPaymentException.class);
+    verify(paymentInitiationPhaseService).markAsFailed(paymentWithEntrants);
+    verify(directDebitPaymentFinalizer, never()).finalizeSuccessfulPayment(any(), any(), any());
+  }
+
+  @Test
+  public void shouldNotMarkPaymentAsFailedWhenNotAbleToFinalizeCollectedPayment() {
+    // given
+    CreateDirectDebitPaymentRequest request = createRequest();
+    Payment payment = Payments.forDirectDebitRequest(request);
+    Payment paymentWithEntrants = mockSuccessPaymentInDBCreation(payment, request);
+    DirectDebitPayment directDebitPayment = mockSuccessPaymentCollection(paymentWithEntrants,
+        payment.getCleanAirZoneId());
+    given(directDebitPaymentFinalizer.finalizeSuccessfulPayment(paymentWithEntrants,
+        directDebitPayment.getPaymentId(), payment.getEmailAddress()))
+        .willThrow(new IllegalStateException("db"));
+
+    // when
+    Throwable throwable = catchThrowable(() -> createDirectDebitPaymentService.createPayment(
+        DirectDebitPaymentRequestToModelConverter.toPayment(request),
+        PaymentTransactionsToEntrantsConverter.toSingleEntrantPayments(request.getTransactions())
+    ));
+
+    // then
+    assertThat(throwable).isInstanceOf(IllegalStateException.class);
+    verify(paymentInitiationPhaseService, never()).markAsFailed(any());
   }
 
   @Test
@@ -103,27 +130,24 @@ class CreateDirectDebitPaymentServiceTest {
 
     // then
     assertThat(result).isEqualTo(finalizedPayment);
+    verify(paymentInitiationPhaseService, never()).markAsFailed(any());
   }
 
   private void mockFailedPaymentInDBCreation(Payment payment,
       CreateDirectDebitPaymentRequest request) {
     Payment paymentWithId = payment.toBuilder().id(UUID.randomUUID()).build();
-    given(paymentsRepository.insert(payment)).willReturn(paymentWithId);
-    doNothing().when(initiateEntrantPaymentsService)
-        .processEntrantPaymentsForPayment(paymentWithId.getId(), paymentWithId.getCleanAirZoneId(),
-            PaymentTransactionsToEntrantsConverter
-                .toSingleEntrantPayments(request.getTransactions()));
+    given(paymentInitiationPhaseService.insertWithEntrantPayments(payment,
+        PaymentTransactionsToEntrantsConverter.toSingleEntrantPayments(request.getTransactions())))
+        .willReturn(paymentWithId);
   }
 
   private Payment mockSuccessPaymentInDBCreation(Payment payment,
       CreateDirectDebitPaymentRequest request) {
     Payment paymentWithId = payment.toBuilder().id(UUID.randomUUID()).build();
     Payment paymentWithIdAndEntrants = Payments.existing();
-    given(paymentsRepository.insert(payment)).willReturn(paymentWithId);
-    doNothing().when(initiateEntrantPaymentsService)
-        .processEntrantPaymentsForPayment(paymentWithId.getId(), paymentWithId.getCleanAirZoneId(),
-            PaymentTransactionsToEntrantsConverter
-                .toSingleEntrantPayments(request.getTransactions()));
+    given(paymentInitiationPhaseService.insertWithEntrantPayments(payment,
+        PaymentTransactionsToEntrantsConverter.toSingleEntrantPayments(request.getTransactions())))
+        .willReturn(paymentWithId);
     given(paymentsRepository.findById(paymentWithId.getId()))
         .willReturn(Optional.of(paymentWithIdAndEntrants));
     return paymentWithIdAndEntrants;
@@ -1,10 +1,8 @@
 package uk.gov.caz.psr.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -13,8 +11,10 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -26,6 +26,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.caz.psr.dto.EntrantPaymentWithLatestPaymentDetailsDto;
 import uk.gov.caz.psr.dto.VehicleEntrantDto;
 import uk.gov.caz.psr.model.EntrantPayment;
+import uk.gov.caz.psr.model.EntrantPaymentKey;
 import uk.gov.caz.psr.model.EntrantPaymentUpdateActor;
 import uk.gov.caz.psr.model.InternalPaymentStatus;
 import uk.gov.caz.psr.model.Payment;
@@ -51,6 +52,7 @@ class EntrantPaymentServiceTest {
 
   private final static UUID ENTRANT_PAYMENT_ID = UUID.randomUUID();
   private final static String ANY_VRN = "CAS123";
+  private final static String OTHER_VRN = "CAS124";
   private final static String ANY_UUID = "6bea485b-7fa6-4b78-9703-b721c98f4b15";
   private final static String ANY_TIMESTAMP = "2020-01-13T12:21:38.234";
   private final static String NOT_PAID_PAYMENT_STATUS = "NOT_PAID";
@@ -77,6 +79,59 @@ class EntrantPaymentServiceTest {
 
     // then
     assertThat(response).isEmpty();
+    verifyNoInteractions(entrantPaymentRepository, paymentRepository);
+  }
+
+  @Test
+  public void shouldProcessWholeBatchWithConstantNumberOfRepositoryCalls() {
+    // given
+    VehicleEntrantDto first = buildVehicleEntrantDto();
+    VehicleEntrantDto second = VehicleEntrantDto.builder()
+        .vrn(OTHER_VRN)
+        .cazEntryTimestamp(LocalDateTime.parse(ANY_TIMESTAMP))
+        .cleanZoneId(UUID.fromString(ANY_UUID))
+        .build();
+    cazEntrantPaymentDtos = Arrays.asList(first, second, first);
+    EntrantPayment paid = buildCazEntrantPayment(true, InternalPaymentStatus.PAID,
+        EntrantPaymentUpdateActor.VCCS_API);
+    EntrantPayment notPaid = buildCazEntrantPayment(true, InternalPaymentStatus.NOT_PAID,
+        EntrantPaymentUpdateActor.VCCS_API).toBuilder()
+        .cleanAirZoneEntrantPaymentId(UUID.randomUUID())
+        .vrn(OTHER_VRN)
+        .build();
+    when(entrantPaymentRepository.findAllByKeys(any())).thenReturn(Arrays.asList(paid, notPaid));
+    mockMatchingPaymentWithPaymentMethod(PaymentMethod.CREDIT_DEBIT_CARD);
+
+    // when
+    callBulkProcess();
+
+    // then
+    assertThat(response).extracting(EntrantPaymentWithLatestPaymentDetailsDto::getVrn)
+        .containsExactly(ANY_VRN, OTHER_VRN, ANY_VRN);
+    assertThat(response).extracting(EntrantPaymentWithLatestPaymentDetailsDto::getPaymentMethod)
+        .containsExactly(CARD_PAYMENT_METHOD, NULL_PAYMENT_METHOD, CARD_PAYMENT_METHOD);
+    Set<EntrantPaymentKey> expectedKeys = new LinkedHashSet<>(Arrays.asList(
+        EntrantPaymentKey.from(paid), EntrantPaymentKey.from(notPaid)));
+    verify(entrantPaymentRepository).insertCapturedIfNotExist(expectedKeys,
+        InternalPaymentStatus.NOT_PAID, EntrantPaymentUpdateActor.VCCS_API);
+    verify(entrantPaymentRepository).markAsVehicleEntrantCaptured(expectedKeys,
+        EntrantPaymentUpdateActor.VCCS_API);
+    verify(entrantPaymentRepository).findAllByKeys(expectedKeys);
+    verify(paymentRepository).findByEntrantPayments(
+        Collections.singletonList(ENTRANT_PAYMENT_ID));
+  }
+
+  @Test
+  public void shouldThrowIllegalStateExceptionWhenEntrantPaymentIsNotFoundAfterInsert() {
+    // given
+    when(entrantPaymentRepository.findAllByKeys(any())).thenReturn(Collections.emptyList());
+
+    // when
+    Throwable throwable = catchThrowable(this::callBulkProcess);
+
+    // then
+    assertThat(throwable).isInstanceOf(IllegalStateException.class)
+        .hasMessageStartingWith("Entrant payment has not been found");
   }
 
   @Nested
@@ -88,15 +143,19 @@ class EntrantPaymentServiceTest {
       @Test
       public void thenNewEntrantPaymentShouldBeCreatedAndInsertedIntoDbAndResponseWithOnlyEntrantPaymentDetailsReturned() {
         // given
-        mockEmptyCazEntryPaymentRepositoryResponse();
+        mockEntrantPaymentRepositoryResponse(buildCazEntrantPaymentToInsert().toBuilder()
+            .cleanAirZoneEntrantPaymentId(UUID.fromString(ANY_UUID))
+            .build());
 
         // when
         callBulkProcess();
 
         // then
         assertResponseProperties(NOT_PAID_PAYMENT_STATUS, NULL_PAYMENT_METHOD, NULL_TARIFF_CODE);
-        verify(entrantPaymentRepository).insert(buildCazEntrantPaymentToInsert());
-        verifyNoInteractions(paymentRepository);
+        verify(entrantPaymentRepository).insertCapturedIfNotExist(
+            Collections.singleton(expectedKey(LocalDateTime.parse(ANY_TIMESTAMP))),
+            InternalPaymentStatus.NOT_PAID, EntrantPaymentUpdateActor.VCCS_API);
+        verify(paymentRepository).findByEntrantPayments(Collections.emptyList());
       }
 
       @Nested
@@ -109,21 +168,16 @@ class EntrantPaymentServiceTest {
           LocalDateTime ukTime = LocalDateTime.of(2020, 10, 16, 00, 30);
           VehicleEntrantDto dto = buildVehicleEntrantDtoForDate(gmtTime);
           cazEntrantPaymentDtos = Arrays.asList(dto);
-
-          when(entrantPaymentRepository.findOneByVrnAndCazEntryDate(any(), any(), any()))
-              .thenReturn(Optional.empty());
-          when(entrantPaymentRepository.insert(any(EntrantPayment.class))).thenReturn(
-              buildCazEntrantPaymentToInsert().toBuilder()
-                  .cleanAirZoneEntrantPaymentId(UUID.fromString(ANY_UUID))
-                  .build()
-          );
+          mockEntrantPaymentRepositoryResponse(expectedEntrantPaymentInsert(dto, ukTime));
 
           // when
           callBulkProcess();
 
           // then
           assertResponseProperties(NOT_PAID_PAYMENT_STATUS, NULL_PAYMENT_METHOD, NULL_TARIFF_CODE);
-          verify(entrantPaymentRepository).insert(expectedEntrantPaymentInsert(dto, ukTime));
+          verify(entrantPaymentRepository).insertCapturedIfNotExist(
+              Collections.singleton(expectedKey(ukTime)), InternalPaymentStatus.NOT_PAID,
+              EntrantPaymentUpdateActor.VCCS_API);
         }
       }
 
@@ -136,21 +190,16 @@ class EntrantPaymentServiceTest {
           LocalDateTime gmtTime = LocalDateTime.of(2020, 12, 15, 23, 30);
           VehicleEntrantDto dto = buildVehicleEntrantDtoForDate(gmtTime);
           cazEntrantPaymentDtos = Arrays.asList(dto);
-
-          when(entrantPaymentRepository.findOneByVrnAndCazEntryDate(any(), any(), any()))
-              .thenReturn(Optional.empty());
-          when(entrantPaymentRepository.insert(any(EntrantPayment.class))).thenReturn(
-              buildCazEntrantPaymentToInsert().toBuilder()
-                  .cleanAirZoneEntrantPaymentId(UUID.fromString(ANY_UUID))
-                  .build()
-          );
+          mockEntrantPaymentRepositoryResponse(expectedEntrantPaymentInsert(dto, gmtTime));
 
           // when
           callBulkProcess();
 
           // then
           assertResponseProperties(NOT_PAID_PAYMENT_STATUS, NULL_PAYMENT_METHOD, NULL_TARIFF_CODE);
-          verify(entrantPaymentRepository).insert(expectedEntrantPaymentInsert(dto, gmtTime));
+          verify(entrantPaymentRepository).insertCapturedIfNotExist(
+              Collections.singleton(expectedKey(gmtTime)), InternalPaymentStatus.NOT_PAID,
+              EntrantPaymentUpdateActor.VCCS_API);
         }
       }
     }
@@ -175,7 +224,8 @@ class EntrantPaymentServiceTest {
 
             // then
             assertResponseProperties(PAID_PAYMENT_STATUS, NULL_PAYMENT_METHOD, ANY_TARIFF_CODE);
-            verify(paymentRepository).findByEntrantPayment(ENTRANT_PAYMENT_ID);
+            verify(paymentRepository).findByEntrantPayments(
+                Collections.singletonList(ENTRANT_PAYMENT_ID));
           }
         }
 
@@ -202,7 +252,8 @@ class EntrantPaymentServiceTest {
 
               // then
               assertResponseProperties(PAID_PAYMENT_STATUS, CARD_PAYMENT_METHOD, ANY_TARIFF_CODE);
-              verify(paymentRepository).findByEntrantPayment(ENTRANT_PAYMENT_ID);
+              verify(paymentRepository).findByEntrantPayments(
+                  Collections.singletonList(ENTRANT_PAYMENT_ID));
             }
           }
 
@@ -226,7 +277,8 @@ class EntrantPaymentServiceTest {
 
               // then
               assertResponseProperties(PAID_PAYMENT_STATUS, CARD_PAYMENT_METHOD, ANY_TARIFF_CODE);
-              verify(paymentRepository).findByEntrantPayment(ENTRANT_PAYMENT_ID);
+              verify(paymentRepository).findByEntrantPayments(
+                  Collections.singletonList(ENTRANT_PAYMENT_ID));
             }
           }
 
@@ -244,7 +296,8 @@ class EntrantPaymentServiceTest {
 
               // then
               assertResponseProperties(PAID_PAYMENT_STATUS, CARD_PAYMENT_METHOD, ANY_TARIFF_CODE);
-              verify(paymentRepository).findByEntrantPayment(ENTRANT_PAYMENT_ID);
+              verify(paymentRepository).findByEntrantPayments(
+                  Collections.singletonList(ENTRANT_PAYMENT_ID));
             }
           }
 
@@ -263,7 +316,8 @@ class EntrantPaymentServiceTest {
               // then
               assertResponseProperties(PAID_PAYMENT_STATUS, DIRECT_DEBIT_PAYMENT_METHOD,
                   ANY_TARIFF_CODE);
-              verify(paymentRepository).findByEntrantPayment(ENTRANT_PAYMENT_ID);
+              verify(paymentRepository).findByEntrantPayments(
+                  Collections.singletonList(ENTRANT_PAYMENT_ID));
             }
           }
         }
@@ -282,7 +336,7 @@ class EntrantPaymentServiceTest {
 
           // then
           assertResponseProperties(NOT_PAID_PAYMENT_STATUS, NULL_PAYMENT_METHOD, ANY_TARIFF_CODE);
-          verifyNoInteractions(paymentRepository);
+          verify(paymentRepository).findByEntrantPayments(Collections.emptyList());
         }
       }
 
@@ -300,14 +354,9 @@ class EntrantPaymentServiceTest {
 
           // then
           assertThat(response).isNotEmpty();
-          verify(entrantPaymentRepository).findOneByVrnAndCazEntryDate(
-              UUID.fromString(ANY_UUID),
-              ANY_VRN,
-              LocalDateTime.parse(ANY_TIMESTAMP).toLocalDate()
-          );
-          verify(entrantPaymentRepository)
-              .update(buildCazEntrantPayment(true, InternalPaymentStatus.PAID,
-                  EntrantPaymentUpdateActor.VCCS_API));
+          verify(entrantPaymentRepository).markAsVehicleEntrantCaptured(
+              Collections.singleton(expectedKey(LocalDateTime.parse(ANY_TIMESTAMP))),
+              EntrantPaymentUpdateActor.VCCS_API);
         }
       }
 
@@ -317,20 +366,18 @@ class EntrantPaymentServiceTest {
         @Test
         public void thenVehicleEntrantShouldUpdateCapturedAndActor() {
           // given
-          mockNonEmtpyNotCapturedRefundedCazEntryPaymentRepositoryResponse();
+          mockEntrantPaymentRepositoryResponse(buildCazEntrantPayment(false,
+              InternalPaymentStatus.REFUNDED, EntrantPaymentUpdateActor.LA));
 
           // when
           callBulkProcess();
 
+          // then
           assertThat(response).isNotEmpty();
-          verify(entrantPaymentRepository).findOneByVrnAndCazEntryDate(
-              UUID.fromString(ANY_UUID),
-              ANY_VRN,
-              LocalDateTime.parse(ANY_TIMESTAMP).toLocalDate()
-          );
-          verify(entrantPaymentRepository)
-              .update(buildCazEntrantPayment(true, InternalPaymentStatus.REFUNDED,
-                  EntrantPaymentUpdateActor.VCCS_API));
+          verify(entrantPaymentRepository).markAsVehicleEntrantCaptured(
+              Collections.singleton(expectedKey(LocalDateTime.parse(ANY_TIMESTAMP))),
+              EntrantPaymentUpdateActor.VCCS_API);
+          verify(paymentRepository).findByEntrantPayments(Collections.emptyList());
         }
       }
 
@@ -338,7 +385,8 @@ class EntrantPaymentServiceTest {
       public class AndVehicleEntrantHasBeenCaptured {
 
         @Test
-        public void thenVehicleEntrantCapturedShouldNotBeUpdated() {
+        public void thenPaymentDetailsShouldBeFetched() {
+          // given
           mockNonEmptyPaidCapturedCazEntryPaymentRepositoryResponse();
           mockNoMatchingPayment();
 
@@ -347,60 +395,46 @@ class EntrantPaymentServiceTest {
 
           // then
           assertThat(response).isNotEmpty();
-          verify(entrantPaymentRepository).findOneByVrnAndCazEntryDate(
-              UUID.fromString(ANY_UUID),
-              ANY_VRN,
-              LocalDateTime.parse(ANY_TIMESTAMP).toLocalDate()
-          );
-          verify(paymentRepository).findByEntrantPayment(ENTRANT_PAYMENT_ID);
-          verify(entrantPaymentRepository, never())
-              .update(buildCazEntrantPayment(true, InternalPaymentStatus.PAID,
-                  EntrantPaymentUpdateActor.VCCS_API));
+          verify(entrantPaymentRepository).findAllByKeys(
+              Collections.singleton(expectedKey(LocalDateTime.parse(ANY_TIMESTAMP))));
+          verify(paymentRepository).findByEntrantPayments(
+              Collections.singletonList(ENTRANT_PAYMENT_ID));
         }
       }
     }
   }
 
-  private void mockEmptyCazEntryPaymentRepositoryResponse() {
-    when(entrantPaymentRepository.findOneByVrnAndCazEntryDate(any(), any(), any()))
-        .thenReturn(Optional.empty());
-    when(entrantPaymentRepository.insert(buildCazEntrantPaymentToInsert())).thenReturn(
-        buildCazEntrantPaymentToInsert().toBuilder()
-            .cleanAirZoneEntrantPaymentId(UUID.fromString(ANY_UUID))
-            .build()
-    );
+  private void mockEntrantPaymentRepositoryResponse(EntrantPayment entrantPayment) {
+    when(entrantPaymentRepository.findAllByKeys(any()))
+        .thenReturn(Collections.singletonList(entrantPayment));
   }
 
   private void mockNonEmptyPaidCapturedCazEntryInBritishTimeZonePaymentRepositoryResponse(
       LocalDate date) {
-    when(entrantPaymentRepository
-        .findOneByVrnAndCazEntryDate(any(UUID.class), anyString(), eq(date)))
-        .thenReturn(Optional.of(buildCazEntrantPayment(true, InternalPaymentStatus.PAID,
-            EntrantPaymentUpdateActor.VCCS_API)));
+    mockEntrantPaymentRepositoryResponse(buildCazEntrantPayment(true, InternalPaymentStatus.PAID,
+        EntrantPaymentUpdateActor.VCCS_API).toBuilder()
+        .travelDate(date)
+        .build());
   }
 
   private void mockNonEmptyPaidCapturedCazEntryPaymentRepositoryResponse() {
-    when(entrantPaymentRepository.findOneByVrnAndCazEntryDate(any(), any(), any()))
-        .thenReturn(Optional.of(buildCazEntrantPayment(true, InternalPaymentStatus.PAID,
-            EntrantPaymentUpdateActor.VCCS_API)));
+    mockEntrantPaymentRepositoryResponse(buildCazEntrantPayment(true, InternalPaymentStatus.PAID,
+        EntrantPaymentUpdateActor.VCCS_API));
   }
 
   private void mockNonEmptyCapturedNotPaidCazEntryPaymentRepositoryResponse() {
-    when(entrantPaymentRepository.findOneByVrnAndCazEntryDate(any(), any(), any()))
-        .thenReturn(Optional.of(buildCazEntrantPayment(true, InternalPaymentStatus.NOT_PAID,
-            EntrantPaymentUpdateActor.VCCS_API)));
+    mockEntrantPaymentRepositoryResponse(buildCazEntrantPayment(true,
+        InternalPaymentStatus.NOT_PAID, EntrantPaymentUpdateActor.VCCS_API));
   }
 
   private void mockNonEmptyNotCapturedCazEntryPaymentRepositoryResponse() {
-    when(entrantPaymentRepository.findOneByVrnAndCazEntryDate(any(), any(), any()))
-        .thenReturn(Optional.of(buildCazEntrantPayment(false, InternalPaymentStatus.PAID,
-            EntrantPaymentUpdateActor.VCCS_API)));
+    mockEntrantPaymentRepositoryResponse(buildCazEntrantPayment(false, InternalPaymentStatus.PAID,
+        EntrantPaymentUpdateActor.VCCS_API));
   }
 
-  private void mockNonEmtpyNotCapturedRefundedCazEntryPaymentRepositoryResponse() {
-    when(entrantPaymentRepository.findOneByVrnAndCazEntryDate(any(), any(), any()))
-        .thenReturn(Optional.of(buildCazEntrantPayment(false, InternalPaymentStatus.REFUNDED,
-            EntrantPaymentUpdateActor.LA)));
+  private EntrantPaymentKey expectedKey(LocalDateTime expectedDateTime) {
+    return new EntrantPaymentKey(UUID.fromString(ANY_UUID), ANY_VRN,
+        expectedDateTime.toLocalDate());
   }
 
   private VehicleEntrantDto buildVehicleEntrantDto() {
@@ -463,15 +497,15 @@ class EntrantPaymentServiceTest {
   }
 
   private void mockNoMatchingPayment() {
-    when(paymentRepository.findByEntrantPayment(ENTRANT_PAYMENT_ID)).thenReturn(Optional.empty());
+    when(paymentRepository.findByEntrantPayments(any())).thenReturn(Collections.emptyMap());
   }
 
   private void mockMatchingPaymentWithPaymentMethod(PaymentMethod paymentMethod) {
     Payment payment = TestObjectFactory.Payments.existing().toBuilder()
         .paymentMethod(paymentMethod)
         .build();
-    when(paymentRepository.findByEntrantPayment(ENTRANT_PAYMENT_ID))
-        .thenReturn(Optional.of(payment));
+    when(paymentRepository.findByEntrantPayments(any()))
+        .thenReturn(Collections.singletonMap(ENTRANT_PAYMENT_ID, payment));
   }
 
   private void callBulkProcess() {
@@ -2,11 +2,16 @@ package uk.gov.caz.psr.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -18,6 +23,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.caz.psr.model.EntrantPayment;
 import uk.gov.caz.psr.repository.EntrantPaymentRepository;
+import uk.gov.caz.psr.repository.PaidDaysIndex;
 import uk.gov.caz.psr.util.TestObjectFactory.EntrantPayments;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,6 +32,9 @@ class GetPaidEntrantPaymentsServiceTest {
   @Mock
   private EntrantPaymentRepository entrantPaymentRepository;
 
+  @Mock
+  private PaidDaysIndex paidDaysIndex;
+
   @InjectMocks
   private GetPaidEntrantPaymentsService getPaidEntrantPaymentsService;
 
@@ -38,51 +47,80 @@ class GetPaidEntrantPaymentsServiceTest {
   private final static UUID ANY_UUID = UUID.fromString("6cb5a6b1-18ae-4b06-ac29-f8433099381c");
 
   @Test
-  public void shouldReturnEmptyCollectionWhenNoDatesArePaid() {
+  public void shouldReturnPaidDatesFromIndexWithoutQueryingDatabase() {
     // given
-    mockEmptyResultFromEntrantPaymentRepository();
+    Map<String, List<LocalDate>> indexed = new HashMap<>();
+    indexed.put(ANY_VRN_1, Collections.singletonList(LocalDate.of(2020, 1, 15)));
+    indexed.put(ANY_VRN_2, Collections.emptyList());
+    when(paidDaysIndex.findPaidDays(ANY_UUID, ANY_VRNS_LIST, ANY_START_DATE, ANY_END_DATE))
+        .thenReturn(indexed);
 
     // when
-    Map<String, List<EntrantPayment>> result = getPaidEntrantPaymentsService
-        .getResults(ANY_VRNS_LIST, ANY_START_DATE, ANY_END_DATE, ANY_UUID);
+    Map<String, List<LocalDate>> result = getPaidEntrantPaymentsService
+        .getPaidDates(ANY_VRNS_LIST, ANY_START_DATE, ANY_END_DATE, ANY_UUID);
 
     // then
-    assertThat(result).isNotEmpty();
-    assertThat(result.get(ANY_VRN_1)).isEmpty();
+    assertThat(result.get(ANY_VRN_1)).containsExactly(LocalDate.of(2020, 1, 15));
     assertThat(result.get(ANY_VRN_2)).isEmpty();
+    verifyNoInteractions(entrantPaymentRepository);
   }
 
   @Test
-  public void shouldReturnCollectionOfPaidDatesWhenThereArePaidDates() {
+  public void shouldRebuildIndexOfNotIndexedVrnsFromDatabase() {
     // given
-    mockNonEmptyResultFromEntrantPaymentRepository();
+    when(paidDaysIndex.findPaidDays(ANY_UUID, ANY_VRNS_LIST, ANY_START_DATE, ANY_END_DATE))
+        .thenReturn(Collections.singletonMap(ANY_VRN_1, Collections.emptyList()));
+    when(paidDaysIndex.covers(ANY_START_DATE, ANY_END_DATE)).thenReturn(true);
+    Map<String, List<EntrantPayment>> allPaid = new HashMap<>();
+    allPaid.put(ANY_VRN_2, Arrays.asList(
+        buildEntrantPaymentForVrn(ANY_VRN_2),
+        buildEntrantPaymentForVrn(ANY_VRN_2).toBuilder()
+            .travelDate(LocalDate.of(2020, 6, 1)).build()));
+    when(entrantPaymentRepository.findAllPaidByVrnsAndDateRangeAndCazId(
+        Collections.singleton(ANY_VRN_2), PaidDaysIndex.FIRST_INDEXED_DAY,
+        PaidDaysIndex.LAST_INDEXED_DAY, ANY_UUID)).thenReturn(allPaid);
 
     // when
-    Map<String, List<EntrantPayment>> result = getPaidEntrantPaymentsService
-        .getResults(ANY_VRNS_LIST, ANY_START_DATE, ANY_END_DATE, ANY_UUID);
+    Map<String, List<LocalDate>> result = getPaidEntrantPaymentsService
+        .getPaidDates(ANY_VRNS_LIST, ANY_START_DATE, ANY_END_DATE, ANY_UUID);
 
     // then
-    assertThat(result).isNotEmpty();
-    assertThat(result.size()).isEqualTo(2);
-    assertThat(result.get(ANY_VRN_1)).isNotEmpty();
-    assertThat(result.get(ANY_VRN_2)).isNotEmpty();
+    assertThat(result.get(ANY_VRN_1)).isEmpty();
+    assertThat(result.get(ANY_VRN_2)).containsExactly(LocalDate.of(2020, 1, 15));
+    verify(paidDaysIndex).rebuild(eq(ANY_UUID), eq(Collections.singleton(ANY_VRN_2)),
+        eq(Collections.singletonMap(ANY_VRN_2,
+            Arrays.asList(LocalDate.of(2020, 1, 15), LocalDate.of(2020, 6, 1)))));
   }
 
-  private void mockEmptyResultFromEntrantPaymentRepository() {
-    when(entrantPaymentRepository.findAllPaidByVrnAndDateRangeAndCazId(any(), any(), any(), any()))
-        .thenReturn(new ArrayList<>());
+  @Test
+  public void shouldReadPaidDatesFromDatabaseWhenRangeIsNotIndexed() {
+    // given
+    mockNonEmptyResultFromEntrantPaymentRepository();
+    when(paidDaysIndex.findPaidDays(any(), any(), any(), any())).thenReturn(new HashMap<>());
+    when(paidDaysIndex.covers(ANY_START_DATE, ANY_END_DATE)).thenReturn(false);
+
+    // when
+    Map<String, List<LocalDate>> result = getPaidEntrantPaymentsService
+        .getPaidDates(ANY_VRNS_LIST, ANY_START_DATE, ANY_END_DATE, ANY_UUID);
+
+    // then
+    assertThat(result.get(ANY_VRN_1)).containsExactly(LocalDate.of(2020, 1, 15));
+    assertThat(result.get(ANY_VRN_2)).containsExactly(LocalDate.of(2020, 1, 15));
+    verify(entrantPaymentRepository).findAllPaidByVrnsAndDateRangeAndCazId(ANY_VRNS_LIST,
+        ANY_START_DATE, ANY_END_DATE, ANY_UUID);
+    verify(paidDaysIndex, never()).rebuild(any(), any(), any());
   }
 
   private void mockNonEmptyResultFromEntrantPaymentRepository() {
-    when(entrantPaymentRepository.findAllPaidByVrnAndDateRangeAndCazId(any(), any(), any(), any()))
-        .thenReturn(buildMockedEntrantPaymentRepositoryResult());
+    when(entrantPaymentRepository.findAllPaidByVrnsAndDateRangeAndCazId(any(), any(), any(),
+        any())).thenReturn(buildMockedEntrantPaymentRepositoryResult());
   }
 
-  private List<EntrantPayment> buildMockedEntrantPaymentRepositoryResult() {
-    return Arrays.asList(
-        buildEntrantPaymentForVrn(ANY_VRN_1),
-        buildEntrantPaymentForVrn(ANY_VRN_2)
-    );
+  private Map<String, List<EntrantPayment>> buildMockedEntrantPaymentRepositoryResult() {
+    Map<String, List<EntrantPayment>> result = new HashMap<>();
+    result.put(ANY_VRN_1, Collections.singletonList(buildEntrantPaymentForVrn(ANY_VRN_1)));
+    result.put(ANY_VRN_2, Collections.singletonList(buildEntrantPaymentForVrn(ANY_VRN_2)));
+    return result;
   }
 
   private EntrantPayment buildEntrantPaymentForVrn(String vrn) {
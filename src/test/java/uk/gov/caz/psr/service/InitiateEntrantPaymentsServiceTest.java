@@ -4,9 +4,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -16,7 +17,9 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -25,6 +28,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.caz.psr.controller.exception.EntrantPaymentAlreadyPaidException;
 import uk.gov.caz.psr.model.EntrantPayment;
+import uk.gov.caz.psr.model.EntrantPaymentKey;
 import uk.gov.caz.psr.model.EntrantPaymentMatch;
 import uk.gov.caz.psr.model.EntrantPaymentUpdateActor;
 import uk.gov.caz.psr.model.ExternalPaymentStatus;
@@ -81,21 +85,26 @@ class InitiateEntrantPaymentsServiceTest {
       service.processEntrantPaymentsForPayment(ANY_PAYMENT_ID, ANY_CLEAN_AIR_ZONE_ID, transactions);
 
       // then
-      verify(entrantPaymentRepository).insert(argThat((EntrantPayment entrantPayment) ->
-          entrantPayment.getUpdateActor() == EntrantPaymentUpdateActor.USER
-              && entrantPayment.getInternalPaymentStatus() == InternalPaymentStatus.NOT_PAID
-              && ANY_TARIFF_CODE.equals(entrantPayment.getTariffCode())
-              && ANY_CHARGE == entrantPayment.getCharge()
-              && ANY_TRAVEL_DATE.equals(entrantPayment.getTravelDate())
-              && ANY_CLEAN_AIR_ZONE_ID.equals(entrantPayment.getCleanAirZoneId())
-              && ANY_VRN.equals(entrantPayment.getVrn())
+      verify(entrantPaymentRepository).insert(argThat((List<EntrantPayment> entrantPayments) ->
+          entrantPayments.size() == 1
+              && entrantPayments.get(0).getUpdateActor() == EntrantPaymentUpdateActor.USER
+              && entrantPayments.get(0).getInternalPaymentStatus() == InternalPaymentStatus.NOT_PAID
+              && ANY_TARIFF_CODE.equals(entrantPayments.get(0).getTariffCode())
+              && ANY_CHARGE == entrantPayments.get(0).getCharge()
+              && ANY_TRAVEL_DATE.equals(entrantPayments.get(0).getTravelDate())
+              && ANY_CLEAN_AIR_ZONE_ID.equals(entrantPayments.get(0).getCleanAirZoneId())
+              && ANY_VRN.equals(entrantPayments.get(0).getVrn())
       ));
+      verify(entrantPaymentRepository, never()).update(anyList());
       verify(entrantPaymentMatchRepository)
-          .insert(argThat((EntrantPaymentMatch entrantPaymentMatch) ->
-              entrantPaymentMatch.getPaymentId().equals(ANY_PAYMENT_ID)
-                  && entrantPaymentMatch.getVehicleEntrantPaymentId().equals(entrantPaymentId)
-                  && entrantPaymentMatch.isLatest()
+          .insert(argThat((List<EntrantPaymentMatch> entrantPaymentMatches) ->
+              entrantPaymentMatches.size() == 1
+                  && entrantPaymentMatches.get(0).getPaymentId().equals(ANY_PAYMENT_ID)
+                  && entrantPaymentMatches.get(0).getVehicleEntrantPaymentId()
+                  .equals(entrantPaymentId)
+                  && entrantPaymentMatches.get(0).isLatest()
           ));
+      verify(paymentRepository).increaseEntriesCount(ANY_PAYMENT_ID, 1);
     }
   }
 
@@ -134,27 +143,33 @@ class InitiateEntrantPaymentsServiceTest {
         service.processEntrantPaymentsForPayment(ANY_PAYMENT_ID, ANY_CLEAN_AIR_ZONE_ID, transactions);
 
         // then
-        verify(entrantPaymentRepository).update(argThat((EntrantPayment entrantPayment) ->
-            entrantPayment.getCharge() == ANY_CHARGE
-                && ANY_TARIFF_CODE.equals(entrantPayment.getTariffCode())
-                && EntrantPaymentUpdateActor.USER == entrantPayment.getUpdateActor()
-                && entrantPayment.getCleanAirZoneEntrantPaymentId()
+        verify(entrantPaymentRepository).update(argThat((List<EntrantPayment> entrantPayments) ->
+            entrantPayments.size() == 1
+                && entrantPayments.get(0).getCharge() == ANY_CHARGE
+                && ANY_TARIFF_CODE.equals(entrantPayments.get(0).getTariffCode())
+                && EntrantPaymentUpdateActor.USER == entrantPayments.get(0).getUpdateActor()
+                && entrantPayments.get(0).getCleanAirZoneEntrantPaymentId()
                 .equals(existingEntrantPayment.getCleanAirZoneEntrantPaymentId())
         ));
-        verify(entrantPaymentMatchRepository).updateLatestToFalseFor(existingEntrantPaymentId);
-        verify(entrantPaymentRepository).insert(argThat((EntrantPayment entrantPayment) ->
-            entrantPayment.getUpdateActor() == EntrantPaymentUpdateActor.USER
-                && entrantPayment.getInternalPaymentStatus() == InternalPaymentStatus.NOT_PAID
-                && ANY_TARIFF_CODE.equals(entrantPayment.getTariffCode())
-                && ANY_CHARGE == entrantPayment.getCharge()
-                && notMatchingDate.equals(entrantPayment.getTravelDate())
-                && ANY_CLEAN_AIR_ZONE_ID.equals(entrantPayment.getCleanAirZoneId())
-                && ANY_VRN.equals(entrantPayment.getVrn())
+        verify(entrantPaymentMatchRepository)
+            .updateLatestToFalseFor(Collections.singletonList(existingEntrantPaymentId));
+        verify(entrantPaymentRepository).insert(argThat((List<EntrantPayment> entrantPayments) ->
+            entrantPayments.size() == 1
+                && entrantPayments.get(0).getUpdateActor() == EntrantPaymentUpdateActor.USER
+                && entrantPayments.get(0).getInternalPaymentStatus()
+                == InternalPaymentStatus.NOT_PAID
+                && ANY_TARIFF_CODE.equals(entrantPayments.get(0).getTariffCode())
+                && ANY_CHARGE == entrantPayments.get(0).getCharge()
+                && notMatchingDate.equals(entrantPayments.get(0).getTravelDate())
+                && ANY_CLEAN_AIR_ZONE_ID.equals(entrantPayments.get(0).getCleanAirZoneId())
+                && ANY_VRN.equals(entrantPayments.get(0).getVrn())
         ));
-        verify(entrantPaymentMatchRepository, times(travelDates.size()))
-            .insert(argThat((EntrantPaymentMatch entrantPaymentMatch) ->
-                entrantPaymentMatch.getPaymentId().equals(ANY_PAYMENT_ID)
-                    && entrantPaymentMatch.isLatest()
+        verify(entrantPaymentMatchRepository)
+            .insert(argThat((List<EntrantPaymentMatch> entrantPaymentMatches) ->
+                entrantPaymentMatches.size() == travelDates.size()
+                    && entrantPaymentMatches.stream().allMatch(entrantPaymentMatch ->
+                    entrantPaymentMatch.getPaymentId().equals(ANY_PAYMENT_ID)
+                        && entrantPaymentMatch.isLatest())
             ));
       }
     }
@@ -192,11 +207,11 @@ class InitiateEntrantPaymentsServiceTest {
         // then
         assertThat(throwable).isInstanceOf(EntrantPaymentAlreadyPaidException.class)
             .hasMessageStartingWith("Cannot process the payment as the entrant on");
-        verify(entrantPaymentRepository, never()).insert(any(EntrantPayment.class));
+        verify(entrantPaymentRepository, never()).insert(anyList());
         verify(entrantPaymentMatchRepository, never())
-            .updateLatestToFalseFor(existingEntrantPaymentId);
-        verify(entrantPaymentRepository, never()).update(any(EntrantPayment.class));
-        verify(entrantPaymentMatchRepository, never()).insert(any());
+            .updateLatestToFalseFor(anyCollection());
+        verify(entrantPaymentRepository, never()).update(anyList());
+        verify(entrantPaymentMatchRepository, never()).insert(anyList());
       }
     }
 
@@ -230,6 +245,36 @@ class InitiateEntrantPaymentsServiceTest {
         }
       }
 
+      @Nested
+      class WhenRelatedPaymentHasNotReachedPaymentProvider {
+
+        @Test
+        public void shouldNotProcessItAsDanglingPayment() {
+          // given
+          LocalDate matchingDate = LocalDate.now().minusDays(1);
+          List<LocalDate> travelDates = Arrays.asList(matchingDate);
+          List<SingleEntrantPayment> transactions = Arrays.asList(SingleEntrantPayment.builder()
+                  .charge(ANY_CHARGE)
+                  .travelDate(matchingDate)
+                  .vrn(ANY_VRN)
+                  .tariffCode(ANY_TARIFF_CODE)
+                  .build()
+          );
+          UUID existingEntrantPaymentId = UUID.fromString("d34f9d3a-54c7-40e3-9611-60caa783a8b7");
+          mockExistingEntrantPayments(matchingDate, travelDates, existingEntrantPaymentId);
+          when(paymentRepository.findByEntrantPayment(existingEntrantPaymentId)).thenReturn(
+              Optional.of(createPayment(ExternalPaymentStatus.INITIATED).externalId(null).build()));
+
+          // when
+          Throwable throwable = catchThrowable(() -> service.processEntrantPaymentsForPayment(
+              ANY_PAYMENT_ID, ANY_CLEAN_AIR_ZONE_ID, transactions));
+
+          // then
+          assertThat(throwable).isNull();
+          verify(cleanupDanglingPaymentService, never()).processDanglingPayment(any());
+        }
+      }
+
       @Nested
       class WhenRelatedPaymentHasSucceededExternally {
 
@@ -264,11 +309,11 @@ class InitiateEntrantPaymentsServiceTest {
           // then
           assertThat(throwable).isInstanceOf(IllegalStateException.class)
               .hasMessageStartingWith("The corresponding payment has already been paid with its state equal to");
-          verify(entrantPaymentRepository, never()).insert(any(EntrantPayment.class));
+          verify(entrantPaymentRepository, never()).insert(anyList());
           verify(entrantPaymentMatchRepository, never())
-              .updateLatestToFalseFor(existingEntrantPaymentId);
-          verify(entrantPaymentRepository, never()).update(any(EntrantPayment.class));
-          verify(entrantPaymentMatchRepository, never()).insert(any());
+              .updateLatestToFalseFor(anyCollection());
+          verify(entrantPaymentRepository, never()).update(anyList());
+          verify(entrantPaymentMatchRepository, never()).insert(anyList());
         }
       }
 
@@ -320,8 +365,8 @@ class InitiateEntrantPaymentsServiceTest {
       List<LocalDate> travelDates, UUID existingEntrantPaymentId) {
     EntrantPayment existingEntrantPayment = existingEntrantPaymentWithPaidStatus(matchingDate,
         existingEntrantPaymentId);
-    when(entrantPaymentRepository.findByVrnAndCazEntryDates(ANY_CLEAN_AIR_ZONE_ID, ANY_VRN,
-        travelDates)).thenReturn(Collections.singletonList(existingEntrantPayment));
+    when(entrantPaymentRepository.findAllByKeys(keys(ANY_VRN, ANY_CLEAN_AIR_ZONE_ID, travelDates)))
+        .thenReturn(Collections.singletonList(existingEntrantPayment));
   }
 
   private EntrantPayment mockExistingEntrantPayments(LocalDate matchingDate,
@@ -329,8 +374,7 @@ class InitiateEntrantPaymentsServiceTest {
       UUID existingEntrantPaymentId) {
     EntrantPayment existingEntrantPayment = existingEntrantPayment(matchingDate,
         existingEntrantPaymentId);
-    when(entrantPaymentRepository
-        .findByVrnAndCazEntryDates(ANY_CLEAN_AIR_ZONE_ID, ANY_VRN, travelDates))
+    when(entrantPaymentRepository.findAllByKeys(keys(ANY_VRN, ANY_CLEAN_AIR_ZONE_ID, travelDates)))
         .thenReturn(Collections.singletonList(existingEntrantPayment));
     return existingEntrantPayment;
   }
@@ -363,18 +407,27 @@ class InitiateEntrantPaymentsServiceTest {
 
   private UUID mockEntrantPaymentRepository() {
     UUID cleanAirZoneEntrantPaymentId = UUID.fromString("491f15db-4247-4a25-9eaa-a8842b46d733");
-    when(entrantPaymentRepository.insert(any(EntrantPayment.class))).thenAnswer(invocation -> {
-      EntrantPayment argument = invocation.getArgument(0);
-      return argument.toBuilder()
-          .cleanAirZoneEntrantPaymentId(cleanAirZoneEntrantPaymentId)
-          .build();
+    when(entrantPaymentRepository.insert(anyList())).thenAnswer(invocation -> {
+      List<EntrantPayment> argument = invocation.getArgument(0);
+      return argument.stream()
+          .map(entrantPayment -> entrantPayment.toBuilder()
+              .cleanAirZoneEntrantPaymentId(cleanAirZoneEntrantPaymentId)
+              .build())
+          .collect(Collectors.toList());
     });
     return cleanAirZoneEntrantPaymentId;
   }
 
   private void mockNoCurrentEntrantPaymentsInDatabase(List<LocalDate> travelDates, String vrn,
       UUID cleanAirZoneId) {
-    when(entrantPaymentRepository.findByVrnAndCazEntryDates(cleanAirZoneId, vrn, travelDates))
+    when(entrantPaymentRepository.findAllByKeys(keys(vrn, cleanAirZoneId, travelDates)))
         .thenReturn(Collections.emptyList());
   }
+
+  private Set<EntrantPaymentKey> keys(String vrn, UUID cleanAirZoneId,
+      List<LocalDate> travelDates) {
+    return travelDates.stream()
+        .map(travelDate -> new EntrantPaymentKey(cleanAirZoneId, vrn, travelDate))
+        .collect(Collectors.toSet());
+  }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
@@ -40,7 +41,7 @@ public class InitiatePaymentServiceTest {
   private PaymentRepository internalPaymentsRepository;
 
   @Mock
-  private InitiateEntrantPaymentsService initiateEntrantPaymentsService;
+  private PaymentInitiationPhaseService paymentInitiationPhaseService;
 
   @InjectMocks
   private InitiatePaymentService initiatePaymentService;
@@ -62,16 +63,15 @@ public class InitiatePaymentServiceTest {
 
     // then
     assertThat(result).isEqualTo(paymentWithExternalId);
-    verify(internalPaymentsRepository).insert(paymentWithoutInternalId);
+    verify(paymentInitiationPhaseService).insertWithEntrantPayments(
+        eq(paymentWithoutInternalId), anyList());
     verify(externalCardPaymentsRepository).create(paymentWithInternalId, request.getReturnUrl());
     verify(internalPaymentsRepository).update(paymentWithExternalId);
-    verify(initiateEntrantPaymentsService).processEntrantPaymentsForPayment(
-        eq(paymentWithInternalId.getId()), eq(request.getCleanAirZoneId()), anyList()
-    );
+    verify(paymentInitiationPhaseService, never()).markAsFailed(any());
   }
 
   @Test
-  public void shouldNotUpdatePaymentWhenExternalPaymentCreationFailed() {
+  public void shouldMarkPaymentAsFailedWhenExternalPaymentCreationFailed() {
     // given
     InitiatePaymentRequest request = createRequest();
     Payment paymentWithoutInternalId = createPaymentWithoutId(request);
@@ -87,12 +87,31 @@ public class InitiatePaymentServiceTest {
 
     // then
     assertThat(throwable).isInstanceOf(RestClientException.class);
-    verify(internalPaymentsRepository).insert(paymentWithoutInternalId);
     verify(externalCardPaymentsRepository).create(paymentWithInternalId, request.getReturnUrl());
     verify(internalPaymentsRepository, never()).update(any());
-    verify(initiateEntrantPaymentsService, never()).processEntrantPaymentsForPayment(
-        eq(paymentWithInternalId.getId()), eq(request.getCleanAirZoneId()), anyList()
-    );
+    verify(paymentInitiationPhaseService).markAsFailed(paymentWithInternalId);
+  }
+
+  @Test
+  public void shouldRethrowProviderExceptionWhenMarkingPaymentAsFailedFailed() {
+    // given
+    InitiatePaymentRequest request = createRequest();
+    Payment paymentWithoutInternalId = createPaymentWithoutId(request);
+    Payment paymentWithInternalId = mockPaymentWithoutExternalDetails(paymentWithoutInternalId);
+    mockFailedPaymentCreation(paymentWithInternalId, request);
+    willThrow(new IllegalStateException("db")).given(paymentInitiationPhaseService)
+        .markAsFailed(paymentWithInternalId);
+
+    // when
+    Throwable throwable = catchThrowable(() -> initiatePaymentService.createPayment(
+        InitiatePaymentRequestToModelConverter.toPayment(request),
+        PaymentTransactionsToEntrantsConverter
+            .toSingleEntrantPayments(request.getTransactions()), request.getReturnUrl()
+    ));
+
+    // then
+    assertThat(throwable).isInstanceOf(RestClientException.class);
+    assertThat(throwable.getSuppressed()).hasOnlyElementsOfType(IllegalStateException.class);
   }
 
   private InitiatePaymentRequest createRequest() {
@@ -121,7 +140,7 @@ public class InitiatePaymentServiceTest {
 
   private Payment mockPaymentWithoutExternalDetails(Payment paymentWithoutId) {
     Payment paymentWithId = toPaymentWithId(paymentWithoutId);
-    given(internalPaymentsRepository.insert(paymentWithoutId))
+    given(paymentInitiationPhaseService.insertWithEntrantPayments(eq(paymentWithoutId), anyList()))
         .willReturn(paymentWithId);
     return paymentWithId;
   }
@@ -0,0 +1,67 @@
+package uk.gov.caz.psr.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.caz.psr.model.ExternalPaymentStatus;
+import uk.gov.caz.psr.model.Payment;
+import uk.gov.caz.psr.model.SingleEntrantPayment;
+import uk.gov.caz.psr.repository.PaymentRepository;
+import uk.gov.caz.psr.util.TestObjectFactory.Payments;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentInitiationPhaseServiceTest {
+
+  @Mock
+  private PaymentRepository paymentRepository;
+
+  @Mock
+  private InitiateEntrantPaymentsService initiateEntrantPaymentsService;
+
+  @InjectMocks
+  private PaymentInitiationPhaseService paymentInitiationPhaseService;
+
+  @Test
+  public void shouldInsertPaymentAndProcessEntrantPayments() {
+    // given
+    Payment payment = Payments.forRandomDays();
+    Payment paymentWithId = payment.toBuilder().id(UUID.randomUUID()).build();
+    List<SingleEntrantPayment> entrantPayments = Collections.emptyList();
+    given(paymentRepository.insert(payment)).willReturn(paymentWithId);
+
+    // when
+    Payment result = paymentInitiationPhaseService.insertWithEntrantPayments(payment,
+        entrantPayments);
+
+    // then
+    assertThat(result).isEqualTo(paymentWithId);
+    verify(initiateEntrantPaymentsService).processEntrantPaymentsForPayment(paymentWithId.getId(),
+        payment.getCleanAirZoneId(), entrantPayments);
+  }
+
+  @Test
+  public void shouldUpdatePaymentWithErrorStatusWhenMarkingAsFailed() {
+    // given
+    Payment payment = Payments.existing();
+
+    // when
+    paymentInitiationPhaseService.markAsFailed(payment);
+
+    // then
+    ArgumentCaptor<Payment> captor = ArgumentCaptor.forClass(Payment.class);
+    verify(paymentRepository).update(captor.capture());
+    assertThat(captor.getValue().getId()).isEqualTo(payment.getId());
+    assertThat(captor.getValue().getExternalPaymentStatus())
+        .isEqualTo(ExternalPaymentStatus.ERROR);
+  }
+}
@@ -159,7 +159,7 @@ class ReconcilePaymentStatusServiceTest {
   }
 
   @Test
-  public void shouldThrowIllegalArgumentExceptionIfVehicleEntrantPaymentsNotSet() {
+  public void shouldThrowIllegalArgumentExceptionIfCleanAirZoneIdNotSet() {
     ExternalPaymentDetails initExternalPaymentDetails =
         ExternalPaymentDetailsFactory.anyWithStatus(ExternalPaymentStatus.CREATED);
 
@@ -171,7 +171,7 @@ class ReconcilePaymentStatusServiceTest {
     Throwable throwable =
         catchThrowable(() -> reconcilePaymentStatusService.reconcilePaymentStatus(paymentId));
 
-    assertThat(throwable).isInstanceOf(IllegalArgumentException.class).hasMessage("CAZ entrant payments should not be empty");
+    assertThat(throwable).isInstanceOf(IllegalArgumentException.class).hasMessage("Clean Air Zone ID of the payment should not be null");
   }
 
   private void mockStatusUpdaterWithSuccess(Payment payment,
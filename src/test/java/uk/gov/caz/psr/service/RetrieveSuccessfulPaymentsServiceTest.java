@@ -1,16 +1,24 @@
 package uk.gov.caz.psr.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.common.util.concurrent.MoreExecutors;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -20,21 +28,24 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.util.Pair;
 import retrofit2.Response;
 import uk.gov.caz.definitions.dto.CleanAirZoneDto;
 import uk.gov.caz.definitions.dto.CleanAirZonesDto;
+import uk.gov.caz.psr.controller.exception.InvalidRequestPayloadException;
 import uk.gov.caz.psr.dto.accounts.AccountUserResponse;
 import uk.gov.caz.psr.dto.accounts.AccountUsersResponse;
 import uk.gov.caz.psr.model.EnrichedPaymentSummary;
 import uk.gov.caz.psr.model.PaginationData;
+import uk.gov.caz.psr.model.PaymentSummariesPage;
 import uk.gov.caz.psr.model.PaymentSummary;
-import uk.gov.caz.psr.model.PaymentToCleanAirZoneMapping;
 import uk.gov.caz.psr.repository.AccountsRepository;
 import uk.gov.caz.psr.repository.PaymentSummaryRepository;
-import uk.gov.caz.psr.repository.PaymentToCleanAirZoneMappingRepository;
 import uk.gov.caz.psr.repository.audit.PaymentDetailRepository;
+import uk.gov.caz.psr.service.UpstreamCallExecutor.PendingCall;
+import uk.gov.caz.psr.service.exception.ExternalServiceCallException;
 import uk.gov.caz.psr.util.CurrencyFormatter;
 
 @ExtendWith(MockitoExtension.class)
@@ -46,9 +57,6 @@ class RetrieveSuccessfulPaymentsServiceTest {
   @Mock
   private VehicleComplianceRetrievalService vehicleComplianceRetrievalService;
 
-  @Mock
-  private PaymentToCleanAirZoneMappingRepository paymentToCleanAirZoneMappingRepository;
-
   @Mock
   private PaymentSummaryRepository paymentSummaryRepository;
 
@@ -58,6 +66,10 @@ class RetrieveSuccessfulPaymentsServiceTest {
   @Mock
   private CurrencyFormatter currencyFormatter;
 
+  @Spy
+  private UpstreamCallExecutor upstreamCallExecutor = new UpstreamCallExecutor(
+      MoreExecutors.newDirectExecutorService(), Duration.ofSeconds(5));
+
   @InjectMocks
   private RetrieveSuccessfulPaymentsService retrieveSuccessfulPaymentsService;
 
@@ -80,14 +92,13 @@ class RetrieveSuccessfulPaymentsServiceTest {
       prepareAllMocks();
 
       retrieveSuccessfulPaymentsService
-          .retrieveForAccount(ANY_ACCOUNT_ID, ANY_PAGE_NUMBER, ANY_PAGE_SIZE);
+          .retrieveForAccount(ANY_ACCOUNT_ID, null, ANY_PAGE_NUMBER, ANY_PAGE_SIZE);
 
       verify(accountsRepository).getAllUsersSync(any());
-      verify(paymentToCleanAirZoneMappingRepository).getPaymentToCleanAirZoneMapping(any());
       verify(paymentSummaryRepository)
-          .getPaginatedPaymentSummaryForUserIds(any(), anyInt(), anyInt());
+          .getPaymentSummariesPage(any(), any(), anyInt(), anyInt());
       verify(vehicleComplianceRetrievalService).getCleanAirZoneIdToCleanAirZoneNameMap();
-      verify(paymentSummaryRepository).getTotalPaymentsCountForUserIds(any());
+      verify(paymentSummaryRepository, never()).getTotalPaymentsCountForUserIds(any());
       verify(paymentDetailRepository).getPaymentStatusesForPaymentIds(anySet(), any(), anyList());
     }
 
@@ -96,7 +107,8 @@ class RetrieveSuccessfulPaymentsServiceTest {
       prepareAllMocks();
 
       Pair<PaginationData, List<EnrichedPaymentSummary>> result = retrieveSuccessfulPaymentsService
-          .retrieveForSingleUser(ANY_ACCOUNT_ID, OWNER_USER_ID, ANY_PAGE_NUMBER, ANY_PAGE_SIZE);
+          .retrieveForSingleUser(ANY_ACCOUNT_ID, OWNER_USER_ID, null, ANY_PAGE_NUMBER,
+              ANY_PAGE_SIZE);
 
       PaginationData paginationData = result.getFirst();
       List<EnrichedPaymentSummary> enrichedPaymentSummaries = result.getSecond();
@@ -114,14 +126,13 @@ class RetrieveSuccessfulPaymentsServiceTest {
       prepareAllMocks();
 
       retrieveSuccessfulPaymentsService
-          .retrieveForAccount(ANY_ACCOUNT_ID, ANY_PAGE_NUMBER, ANY_PAGE_SIZE);
+          .retrieveForAccount(ANY_ACCOUNT_ID, null, ANY_PAGE_NUMBER, ANY_PAGE_SIZE);
 
       verify(accountsRepository).getAllUsersSync(any());
-      verify(paymentToCleanAirZoneMappingRepository).getPaymentToCleanAirZoneMapping(any());
       verify(paymentSummaryRepository)
-          .getPaginatedPaymentSummaryForUserIds(any(), anyInt(), anyInt());
+          .getPaymentSummariesPage(any(), any(), anyInt(), anyInt());
       verify(vehicleComplianceRetrievalService).getCleanAirZoneIdToCleanAirZoneNameMap();
-      verify(paymentSummaryRepository).getTotalPaymentsCountForUserIds(any());
+      verify(paymentSummaryRepository, never()).getTotalPaymentsCountForUserIds(any());
       verify(paymentDetailRepository).getPaymentStatusesForPaymentIds(anySet(), any(), anyList());
     }
 
@@ -130,46 +141,113 @@ class RetrieveSuccessfulPaymentsServiceTest {
       prepareAllMocks();
 
       Pair<PaginationData, List<EnrichedPaymentSummary>> result = retrieveSuccessfulPaymentsService
-          .retrieveForAccount(ANY_ACCOUNT_ID, ANY_PAGE_NUMBER, ANY_PAGE_SIZE);
+          .retrieveForAccount(ANY_ACCOUNT_ID, null, ANY_PAGE_NUMBER, ANY_PAGE_SIZE);
 
       PaginationData paginationData = result.getFirst();
       List<EnrichedPaymentSummary> enrichedPaymentSummaries = result.getSecond();
 
       assertThat(paginationData).isNotNull();
       assertThat(enrichedPaymentSummaries.size()).isEqualTo(2);
+      assertThat(enrichedPaymentSummaries).extracting(EnrichedPaymentSummary::getCazName)
+          .containsExactly("Birmingham", "Bath");
+    }
+
+    @Test
+    public void shouldCancelCleanAirZonesLookupWhenUsersLookupFails() {
+      PendingCall<Map<UUID, String>> cleanAirZonesLookup = mock(PendingCall.class);
+      doReturn(cleanAirZonesLookup).when(upstreamCallExecutor).submit(anyString(), any());
+      when(accountsRepository.getAllUsersSync(ANY_ACCOUNT_ID))
+          .thenThrow(new ExternalServiceCallException("Accounts service unavailable"));
+
+      Throwable throwable = catchThrowable(() -> retrieveSuccessfulPaymentsService
+          .retrieveForAccount(ANY_ACCOUNT_ID, null, ANY_PAGE_NUMBER, ANY_PAGE_SIZE));
+
+      assertThat(throwable).isInstanceOf(ExternalServiceCallException.class);
+      verify(cleanAirZonesLookup).cancel();
+      verify(paymentSummaryRepository, never())
+          .getPaymentSummariesPage(any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void shouldCountPaymentsWithSeparateQueryWhenPageIsEmpty() {
+      when(accountsRepository.getAllUsersSync(ANY_ACCOUNT_ID)).thenReturn(sampleUsersResponse());
+      when(vehicleComplianceRetrievalService.getCleanAirZoneIdToCleanAirZoneNameMap())
+          .thenReturn(sampleCleanAirZonesMap());
+      when(paymentSummaryRepository.getPaymentSummariesPage(any(), any(), anyInt(), anyInt()))
+          .thenReturn(PaymentSummariesPage.builder()
+              .paymentSummaries(Collections.emptyList())
+              .build());
+      when(paymentSummaryRepository.getTotalPaymentsCountForUserIds(any()))
+          .thenReturn(ANY_PAYMENTS_COUNT_RESULT);
+
+      Pair<PaginationData, List<EnrichedPaymentSummary>> result = retrieveSuccessfulPaymentsService
+          .retrieveForAccount(ANY_ACCOUNT_ID, null, 5, ANY_PAGE_SIZE);
+
+      assertThat(result.getSecond()).isEmpty();
+      assertThat(result.getFirst().getTotalElementsCount()).isEqualTo(ANY_PAYMENTS_COUNT_RESULT);
+      assertThat(result.getFirst().getPageCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRejectUnknownLastPaymentId() {
+      UUID lastPaymentId = UUID.fromString("91b1b4d2-f4c2-4a8e-9b3a-3c6c1e0f5a7d");
+      PendingCall<Map<UUID, String>> cleanAirZonesLookup = mock(PendingCall.class);
+      doReturn(cleanAirZonesLookup).when(upstreamCallExecutor).submit(anyString(), any());
+      when(accountsRepository.getAllUsersSync(ANY_ACCOUNT_ID)).thenReturn(sampleUsersResponse());
+      when(paymentSummaryRepository.getPaymentSummariesPage(any(), any(), anyInt(), anyInt()))
+          .thenReturn(PaymentSummariesPage.builder()
+              .paymentSummaries(Collections.emptyList())
+              .build());
+      when(paymentSummaryRepository.isSuccessfulPaymentOfUsers(any(), any())).thenReturn(false);
+
+      Throwable throwable = catchThrowable(() -> retrieveSuccessfulPaymentsService
+          .retrieveForAccount(ANY_ACCOUNT_ID, lastPaymentId, ANY_PAGE_NUMBER, ANY_PAGE_SIZE));
+
+      assertThat(throwable).isInstanceOf(InvalidRequestPayloadException.class)
+          .hasMessage("Unknown lastPaymentId");
+      verify(cleanAirZonesLookup).cancel();
+      verify(paymentSummaryRepository, never()).getTotalPaymentsCountForUserIds(any());
+    }
+
+    @Test
+    public void shouldReturnEmptyPageAfterLastPayment() {
+      UUID lastPaymentId = UUID.fromString("91b1b4d2-f4c2-4a8e-9b3a-3c6c1e0f5a7d");
+      when(accountsRepository.getAllUsersSync(ANY_ACCOUNT_ID)).thenReturn(sampleUsersResponse());
+      when(vehicleComplianceRetrievalService.getCleanAirZoneIdToCleanAirZoneNameMap())
+          .thenReturn(sampleCleanAirZonesMap());
+      when(paymentSummaryRepository.getPaymentSummariesPage(any(), any(), anyInt(), anyInt()))
+          .thenReturn(PaymentSummariesPage.builder()
+              .paymentSummaries(Collections.emptyList())
+              .build());
+      when(paymentSummaryRepository.isSuccessfulPaymentOfUsers(any(), any())).thenReturn(true);
+      when(paymentSummaryRepository.getTotalPaymentsCountForUserIds(any()))
+          .thenReturn(ANY_PAYMENTS_COUNT_RESULT);
+
+      Pair<PaginationData, List<EnrichedPaymentSummary>> result = retrieveSuccessfulPaymentsService
+          .retrieveForAccount(ANY_ACCOUNT_ID, lastPaymentId, 5, ANY_PAGE_SIZE);
+
+      assertThat(result.getSecond()).isEmpty();
+      assertThat(result.getFirst().getTotalElementsCount()).isEqualTo(ANY_PAYMENTS_COUNT_RESULT);
     }
   }
 
   private void prepareAllMocks() {
     when(accountsRepository.getAllUsersSync(ANY_ACCOUNT_ID)).thenReturn(sampleUsersResponse());
-    when(paymentToCleanAirZoneMappingRepository.getPaymentToCleanAirZoneMapping(any()))
-        .thenReturn(samplePaymentToCazMappingResult());
-    when(paymentSummaryRepository.getPaginatedPaymentSummaryForUserIds(any(), anyInt(), anyInt()))
-        .thenReturn(samplePaymentSummaryResult());
+    when(paymentSummaryRepository.getPaymentSummariesPage(any(), any(), anyInt(), anyInt()))
+        .thenReturn(PaymentSummariesPage.builder()
+            .paymentSummaries(samplePaymentSummaryResult())
+            .totalPaymentsCount(ANY_PAYMENTS_COUNT_RESULT)
+            .build());
     when(vehicleComplianceRetrievalService.getCleanAirZoneIdToCleanAirZoneNameMap())
         .thenReturn(sampleCleanAirZonesMap());
-    when(paymentSummaryRepository.getTotalPaymentsCountForUserIds(any()))
-        .thenReturn(ANY_PAYMENTS_COUNT_RESULT);
     when(currencyFormatter.parsePenniesToBigDecimal(anyInt())).thenReturn(BigDecimal.valueOf(50));
   }
 
-  private List<PaymentToCleanAirZoneMapping> samplePaymentToCazMappingResult() {
-    return Arrays.asList(
-        PaymentToCleanAirZoneMapping.builder()
-            .paymentId(UUID.fromString("eae1d669-297e-41d0-b3b7-290d0300ca6d"))
-            .cleanAirZoneId(UUID.fromString("f64fdc1b-70f6-4c87-bfce-3643b2e4c714"))
-            .build(),
-        PaymentToCleanAirZoneMapping.builder()
-            .paymentId(UUID.fromString("749f8a00-257b-4d06-9589-b1ba7bbc934e"))
-            .cleanAirZoneId(UUID.fromString("5e554ef5-8513-4d98-8cd5-625dc6a77e80"))
-            .build()
-    );
-  }
-
   private List<PaymentSummary> samplePaymentSummaryResult() {
     return Arrays.asList(
         PaymentSummary.builder()
             .paymentId(UUID.fromString("eae1d669-297e-41d0-b3b7-290d0300ca6d"))
+            .cleanAirZoneId(UUID.fromString("f64fdc1b-70f6-4c87-bfce-3643b2e4c714"))
             .entriesCount(10)
             .payerId(OWNER_USER_ID)
             .totalPaid(10000)
@@ -177,6 +255,7 @@ class RetrieveSuccessfulPaymentsServiceTest {
             .build(),
         PaymentSummary.builder()
             .paymentId(UUID.fromString("749f8a00-257b-4d06-9589-b1ba7bbc934e"))
+            .cleanAirZoneId(UUID.fromString("5e554ef5-8513-4d98-8cd5-625dc6a77e80"))
             .entriesCount(5)
             .payerId(ANY_USER_ID)
             .totalPaid(5000)
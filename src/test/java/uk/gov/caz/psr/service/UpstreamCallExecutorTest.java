@@ -0,0 +1,129 @@
+package uk.gov.caz.psr.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import uk.gov.caz.correlationid.Constants;
+import uk.gov.caz.psr.service.UpstreamCallExecutor.PendingCall;
+import uk.gov.caz.psr.service.exception.ExternalServiceCallException;
+
+class UpstreamCallExecutorTest {
+
+  private static final String ANY_CORRELATION_ID = "63be7528-7efd-4f31-ae68-11a6b709ff1c";
+
+  private ExecutorService workers;
+
+  @BeforeEach
+  public void setUp() {
+    workers = Executors.newFixedThreadPool(2);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    workers.shutdownNow();
+    MDC.clear();
+  }
+
+  @Test
+  public void shouldExecuteCallsConcurrently() {
+    // given
+    UpstreamCallExecutor executor = new UpstreamCallExecutor(workers, Duration.ofSeconds(5));
+    CountDownLatch bothStarted = new CountDownLatch(2);
+
+    // when
+    PendingCall<String> first = executor.submit("first", () -> awaitOther(bothStarted, "a"));
+    PendingCall<String> second = executor.submit("second", () -> awaitOther(bothStarted, "b"));
+
+    // then
+    assertThat(first.await()).isEqualTo("a");
+    assertThat(second.await()).isEqualTo("b");
+  }
+
+  @Test
+  public void shouldPropagateCorrelationIdToWorkers() {
+    // given
+    UpstreamCallExecutor executor = new UpstreamCallExecutor(workers, Duration.ofSeconds(5));
+    MDC.put(Constants.X_CORRELATION_ID_HEADER, ANY_CORRELATION_ID);
+
+    // when
+    String correlationId = executor.submit("lookup",
+        () -> MDC.get(Constants.X_CORRELATION_ID_HEADER)).await();
+
+    // then
+    assertThat(correlationId).isEqualTo(ANY_CORRELATION_ID);
+  }
+
+  @Test
+  public void shouldThrowExternalServiceCallExceptionWhenCallTimesOut() {
+    // given
+    UpstreamCallExecutor executor = new UpstreamCallExecutor(workers, Duration.ofMillis(50));
+    CountDownLatch neverReleased = new CountDownLatch(1);
+
+    // when
+    Throwable throwable = catchThrowable(() ->
+        executor.submit("slow lookup", () -> awaitOther(neverReleased, "a")).await());
+
+    // then
+    assertThat(throwable).isInstanceOf(ExternalServiceCallException.class)
+        .hasMessage("slow lookup has not completed in time");
+  }
+
+  @Test
+  public void shouldRethrowExceptionThrownByCall() {
+    // given
+    UpstreamCallExecutor executor = new UpstreamCallExecutor(workers, Duration.ofSeconds(5));
+
+    // when
+    Throwable throwable = catchThrowable(() -> executor.submit("lookup", () -> {
+      throw new IllegalArgumentException("test");
+    }).await());
+
+    // then
+    assertThat(throwable).isInstanceOf(IllegalArgumentException.class).hasMessage("test");
+  }
+
+  @Test
+  public void shouldInterruptCancelledCall() throws InterruptedException {
+    // given
+    UpstreamCallExecutor executor = new UpstreamCallExecutor(workers, Duration.ofSeconds(5));
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch interrupted = new CountDownLatch(1);
+    PendingCall<String> call = executor.submit("lookup", () -> {
+      started.countDown();
+      try {
+        new CountDownLatch(1).await();
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+      }
+      return "a";
+    });
+    started.await();
+
+    // when
+    call.cancel();
+
+    // then
+    assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(catchThrowable(call::await)).isInstanceOf(CancellationException.class);
+  }
+
+  private static String awaitOther(CountDownLatch latch, String result) {
+    latch.countDown();
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return result;
+  }
+}
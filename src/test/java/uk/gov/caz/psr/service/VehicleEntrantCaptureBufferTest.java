@@ -0,0 +1,193 @@
+package uk.gov.caz.psr.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.MDC;
+import uk.gov.caz.correlationid.Constants;
+import uk.gov.caz.psr.dto.EntrantPaymentWithLatestPaymentDetailsDto;
+import uk.gov.caz.psr.dto.VehicleEntrantDto;
+import uk.gov.caz.psr.service.VehicleEntrantCaptureBuffer.PendingRequest;
+import uk.gov.caz.psr.service.exception.VehicleEntrantsCaptureTimeoutException;
+
+@ExtendWith(MockitoExtension.class)
+class VehicleEntrantCaptureBufferTest {
+
+  private static final UUID ANY_CAZ_ID = UUID.randomUUID();
+  private static final String INVALID_VRN = "INVALID";
+
+  @Mock
+  private EntrantPaymentService entrantPaymentService;
+
+  @Mock
+  private ScheduledExecutorService flushExecutor;
+
+  @AfterEach
+  public void clearMdc() {
+    MDC.clear();
+  }
+
+  @Test
+  public void shouldProcessEntrantsOfManyRequestsInSingleBatch() {
+    // given
+    VehicleEntrantCaptureBuffer buffer = new VehicleEntrantCaptureBuffer(entrantPaymentService,
+        10, 5000, flushExecutor);
+    mockBulkProcessReturningVrns();
+    PendingRequest first = buffer.submit(vehicleEntrants("CAS123"));
+    PendingRequest second = buffer.submit(vehicleEntrants("CAS124", "CAS125"));
+
+    // when
+    buffer.flush();
+
+    // then
+    assertThat(first.getResult().join())
+        .extracting(EntrantPaymentWithLatestPaymentDetailsDto::getVrn)
+        .containsExactly("CAS123");
+    assertThat(second.getResult().join())
+        .extracting(EntrantPaymentWithLatestPaymentDetailsDto::getVrn)
+        .containsExactly("CAS124", "CAS125");
+    ArgumentCaptor<List<VehicleEntrantDto>> captor = ArgumentCaptor.forClass(List.class);
+    verify(entrantPaymentService, times(1)).bulkProcess(captor.capture());
+    assertThat(captor.getValue()).extracting(VehicleEntrantDto::getVrn)
+        .containsExactly("CAS123", "CAS124", "CAS125");
+  }
+
+  @Test
+  public void shouldFailOnlyRequestWithInvalidEntrantWhenBatchFails() {
+    // given
+    VehicleEntrantCaptureBuffer buffer = new VehicleEntrantCaptureBuffer(entrantPaymentService,
+        10, 5000, flushExecutor);
+    mockBulkProcessReturningVrns();
+    PendingRequest valid = buffer.submit(vehicleEntrants("CAS123"));
+    PendingRequest invalid = buffer.submit(vehicleEntrants(INVALID_VRN));
+
+    // when
+    buffer.flush();
+
+    // then
+    assertThat(valid.getResult().join())
+        .extracting(EntrantPaymentWithLatestPaymentDetailsDto::getVrn)
+        .containsExactly("CAS123");
+    Throwable throwable = catchThrowable(() -> invalid.getResult().join());
+    assertThat(throwable).isInstanceOf(CompletionException.class)
+        .hasCauseInstanceOf(IllegalArgumentException.class);
+    verify(entrantPaymentService, times(3)).bulkProcess(anyList());
+  }
+
+  @Test
+  public void shouldRethrowExceptionThrownWhileProcessingRequest() {
+    // given
+    VehicleEntrantCaptureBuffer buffer = new VehicleEntrantCaptureBuffer(entrantPaymentService,
+        1, 5000, flushExecutor);
+    when(entrantPaymentService.bulkProcess(anyList()))
+        .thenThrow(new IllegalArgumentException("test"));
+    PendingRequest request = buffer.submit(vehicleEntrants("CAS123"));
+
+    // when
+    buffer.flush();
+
+    // then
+    Throwable throwable = catchThrowable(() -> request.getResult().join());
+    assertThat(throwable).hasCauseInstanceOf(IllegalArgumentException.class)
+        .hasRootCauseMessage("test");
+  }
+
+  @Test
+  public void shouldRequestFlushWhenBufferIsFull() {
+    // given
+    VehicleEntrantCaptureBuffer buffer = new VehicleEntrantCaptureBuffer(entrantPaymentService,
+        2, 5000, flushExecutor);
+
+    // when
+    buffer.submit(vehicleEntrants("CAS123"));
+    buffer.submit(vehicleEntrants("CAS124"));
+
+    // then
+    verify(flushExecutor, times(1)).execute(any());
+  }
+
+  @Test
+  public void shouldNotWriteEntrantsOfRequestWhichTimedOut() {
+    // given
+    VehicleEntrantCaptureBuffer buffer = new VehicleEntrantCaptureBuffer(entrantPaymentService,
+        10, 1, flushExecutor);
+
+    // when
+    Throwable throwable = catchThrowable(() -> buffer.process(vehicleEntrants("CAS123")));
+    buffer.flush();
+
+    // then
+    assertThat(throwable).isInstanceOf(VehicleEntrantsCaptureTimeoutException.class)
+        .hasMessage("Vehicle entrants have not been captured in time");
+    verify(entrantPaymentService, never()).bulkProcess(anyList());
+  }
+
+  @Test
+  public void shouldProcessRequestWithMdcOfCaller() {
+    // given
+    VehicleEntrantCaptureBuffer buffer = new VehicleEntrantCaptureBuffer(entrantPaymentService,
+        10, 5000, flushExecutor);
+    List<String> correlationIds = new ArrayList<>();
+    when(entrantPaymentService.bulkProcess(anyList())).thenAnswer(invocation -> {
+      correlationIds.add(MDC.get(Constants.X_CORRELATION_ID_HEADER));
+      return Collections.singletonList(EntrantPaymentWithLatestPaymentDetailsDto.builder()
+          .build());
+    });
+    MDC.put(Constants.X_CORRELATION_ID_HEADER, "correlation-id");
+    buffer.submit(vehicleEntrants("CAS123"));
+    MDC.clear();
+
+    // when
+    buffer.flush();
+
+    // then
+    assertThat(correlationIds).containsExactly("correlation-id");
+    assertThat(MDC.get(Constants.X_CORRELATION_ID_HEADER)).isNull();
+  }
+
+  private void mockBulkProcessReturningVrns() {
+    when(entrantPaymentService.bulkProcess(anyList())).thenAnswer(invocation -> {
+      List<VehicleEntrantDto> vehicleEntrants = invocation.getArgument(0);
+      if (vehicleEntrants.stream().anyMatch(entrant -> INVALID_VRN.equals(entrant.getVrn()))) {
+        throw new IllegalArgumentException("Invalid VRN");
+      }
+      return vehicleEntrants.stream()
+          .map(vehicleEntrant -> EntrantPaymentWithLatestPaymentDetailsDto.builder()
+              .vrn(vehicleEntrant.getVrn())
+              .build())
+          .collect(Collectors.toList());
+    });
+  }
+
+  private List<VehicleEntrantDto> vehicleEntrants(String... vrns) {
+    List<VehicleEntrantDto> vehicleEntrants = new ArrayList<>();
+    for (String vrn : vrns) {
+      vehicleEntrants.add(VehicleEntrantDto.builder()
+          .vrn(vrn)
+          .cleanZoneId(ANY_CAZ_ID)
+          .cazEntryTimestamp(LocalDateTime.now())
+          .build());
+    }
+    return vehicleEntrants;
+  }
+}
@@ -0,0 +1,129 @@
+package uk.gov.caz.psr.service.directdebit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+import com.google.common.collect.ImmutableMap;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.caz.psr.dto.AccountDirectDebitMandatesResponse.DirectDebitMandate.DirectDebitMandateStatus;
+import uk.gov.caz.psr.model.directdebit.CachedMandateStatus;
+import uk.gov.caz.psr.repository.DirectDebitMandateStatusRepository;
+
+@ExtendWith(MockitoExtension.class)
+class DirectDebitMandateStatusCacheTest {
+
+  private static final UUID ANY_ACCOUNT_ID = UUID.randomUUID();
+  private static final UUID ANY_CAZ_ID = UUID.randomUUID();
+
+  @Mock
+  private DirectDebitMandateStatusRepository directDebitMandateStatusRepository;
+
+  private DirectDebitMandateStatusCache cache;
+
+  @BeforeEach
+  public void setUp() {
+    cache = new DirectDebitMandateStatusCache(directDebitMandateStatusRepository,
+        Duration.ofHours(1));
+  }
+
+  @Test
+  public void shouldReturnOnlyFreshStatuses() {
+    // given
+    LocalDateTime now = LocalDateTime.now();
+    given(directDebitMandateStatusRepository.findByMandateIds(anyCollection())).willReturn(
+        ImmutableMap.of(
+            "fresh", cached("fresh", DirectDebitMandateStatus.ACTIVE, now.minusMinutes(59)),
+            "stale", cached("stale", DirectDebitMandateStatus.ACTIVE, now.minusMinutes(61)),
+            "unknown", cached("unknown", null, null)));
+
+    // when
+    Map<String, DirectDebitMandateStatus> statuses = cache.getFreshStatuses(
+        Arrays.asList("fresh", "stale", "unknown", "absent"));
+
+    // then
+    assertThat(statuses).containsOnlyKeys("fresh")
+        .containsValue(DirectDebitMandateStatus.ACTIVE);
+  }
+
+  @Test
+  public void shouldStampStatusesWithAccountAndCurrentTime() {
+    // given
+    LocalDateTime before = LocalDateTime.now();
+
+    // when
+    cache.putAll(ANY_ACCOUNT_ID, Collections.singletonList(CachedMandateStatus.builder()
+        .paymentProviderMandateId("MD1")
+        .cleanAirZoneId(ANY_CAZ_ID)
+        .status(DirectDebitMandateStatus.SUBMITTED)
+        .build()));
+
+    // then
+    ArgumentCaptor<List<CachedMandateStatus>> captor = ArgumentCaptor.forClass(List.class);
+    verify(directDebitMandateStatusRepository).upsert(captor.capture());
+    assertThat(captor.getValue()).hasOnlyOneElementSatisfying(status -> {
+      assertThat(status.getAccountId()).isEqualTo(ANY_ACCOUNT_ID);
+      assertThat(status.getStatusTimestamp()).isAfterOrEqualTo(before);
+    });
+  }
+
+  @Test
+  public void shouldRegisterMandateWithoutStatus() {
+    // when
+    cache.registerMandate(ANY_ACCOUNT_ID, ANY_CAZ_ID, "MD1");
+
+    // then
+    ArgumentCaptor<List<CachedMandateStatus>> captor = ArgumentCaptor.forClass(List.class);
+    verify(directDebitMandateStatusRepository).upsert(captor.capture());
+    assertThat(captor.getValue()).containsExactly(CachedMandateStatus.builder()
+        .paymentProviderMandateId("MD1")
+        .accountId(ANY_ACCOUNT_ID)
+        .cleanAirZoneId(ANY_CAZ_ID)
+        .build());
+  }
+
+  @Test
+  public void shouldApplyStatusChangesOfKnownMandates() {
+    // given
+    LocalDateTime changedAt = LocalDateTime.now();
+    List<CachedMandateStatus> changes = Arrays.asList(
+        CachedMandateStatus.builder().paymentProviderMandateId("MD1")
+            .status(DirectDebitMandateStatus.CANCELLED).statusTimestamp(changedAt).build(),
+        CachedMandateStatus.builder().paymentProviderMandateId("MD2")
+            .status(DirectDebitMandateStatus.FAILED).statusTimestamp(changedAt).build());
+    List<CachedMandateStatus> updated = Collections.singletonList(
+        cached("MD1", DirectDebitMandateStatus.CANCELLED, changedAt));
+    given(directDebitMandateStatusRepository.updateStatuses(ANY_CAZ_ID, changes))
+        .willReturn(updated);
+
+    // when
+    List<CachedMandateStatus> result = cache.applyStatusChanges(ANY_CAZ_ID, changes);
+
+    // then
+    assertThat(result).isEqualTo(updated);
+  }
+
+  private CachedMandateStatus cached(String mandateId, DirectDebitMandateStatus status,
+      LocalDateTime statusTimestamp) {
+    return CachedMandateStatus.builder()
+        .paymentProviderMandateId(mandateId)
+        .accountId(ANY_ACCOUNT_ID)
+        .cleanAirZoneId(ANY_CAZ_ID)
+        .status(status)
+        .statusTimestamp(statusTimestamp)
+        .build();
+  }
+}
@@ -0,0 +1,226 @@
+package uk.gov.caz.psr.service.directdebit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.gocardless.GoCardlessClient;
+import com.gocardless.errors.GoCardlessApiException;
+import com.gocardless.resources.Mandate;
+import com.gocardless.resources.Mandate.Status;
+import com.gocardless.services.MandateService;
+import com.gocardless.services.MandateService.MandateGetRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+import org.slf4j.MDC;
+import uk.gov.caz.correlationid.Constants;
+import uk.gov.caz.psr.dto.AccountDirectDebitMandatesResponse.DirectDebitMandate;
+import uk.gov.caz.psr.dto.AccountDirectDebitMandatesResponse.DirectDebitMandate.DirectDebitMandateStatus;
+import uk.gov.caz.psr.service.exception.ExternalServiceCallException;
+
+@ExtendWith(MockitoExtension.class)
+class DirectDebitMandateStatusFetcherTest {
+
+  private static final UUID ANY_CAZ_ID = UUID.fromString("dff092a3-7b80-4432-a4de-c09715743d06");
+  private static final UUID OTHER_CAZ_ID = UUID.fromString("5cd7441d-766f-48ff-b8ad-1809586fea37");
+
+  @Mock
+  private AbstractGoCardlessClientFactory goCardlessClientFactory;
+
+  @Mock
+  private GoCardlessClient goCardlessClient;
+
+  @Mock
+  private MandateService mandateService;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private ExecutorService workers;
+
+  @BeforeEach
+  public void setUp() {
+    workers = Executors.newFixedThreadPool(4);
+    when(goCardlessClientFactory.createClientFor(any())).thenReturn(goCardlessClient);
+    when(goCardlessClient.mandates()).thenReturn(mandateService);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    workers.shutdownNow();
+  }
+
+  @Test
+  public void shouldFetchStatusesAndRecordLatencyPerCleanAirZone() {
+    // given
+    DirectDebitMandateStatusFetcher fetcher = fetcher(2, Duration.ofSeconds(5));
+    mockGetMandate(invocation -> mandateWithStatus(Status.ACTIVE));
+
+    // when
+    Map<String, DirectDebitMandateStatus> statuses = fetcher.fetchStatuses(Arrays.asList(
+        mandate("MD1", ANY_CAZ_ID), mandate("MD2", ANY_CAZ_ID), mandate("MD3", OTHER_CAZ_ID)));
+
+    // then
+    assertThat(statuses).containsOnlyKeys("MD1", "MD2", "MD3")
+        .containsValue(DirectDebitMandateStatus.ACTIVE);
+    assertThat(meterRegistry.get("gocardless.mandates.fetch")
+        .tag("cleanAirZoneId", ANY_CAZ_ID.toString()).timer().count()).isEqualTo(2);
+    assertThat(meterRegistry.get("gocardless.mandates.fetch")
+        .tag("cleanAirZoneId", OTHER_CAZ_ID.toString()).timer().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldNotExceedConcurrencyLimitPerCleanAirZone() {
+    // given
+    DirectDebitMandateStatusFetcher fetcher = fetcher(2, Duration.ofSeconds(5));
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    mockGetMandate(invocation -> {
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      TimeUnit.MILLISECONDS.sleep(50);
+      inFlight.decrementAndGet();
+      return mandateWithStatus(Status.SUBMITTED);
+    });
+    List<DirectDebitMandate> mandates = IntStream.range(0, 8)
+        .mapToObj(i -> mandate("MD" + i, ANY_CAZ_ID))
+        .collect(Collectors.toList());
+
+    // when
+    Map<String, DirectDebitMandateStatus> statuses = fetcher.fetchStatuses(mandates);
+
+    // then
+    assertThat(statuses).hasSize(8);
+    assertThat(maxInFlight.get()).isBetween(1, 2);
+  }
+
+  @Test
+  public void shouldSkipStatusesNotFetchedBeforeDeadline() {
+    // given
+    DirectDebitMandateStatusFetcher fetcher = fetcher(2, Duration.ofMillis(200));
+    CountDownLatch neverReleased = new CountDownLatch(1);
+    mockGetMandate(invocation -> {
+      String mandateId = invocation.getArgument(0);
+      if ("slow".equals(mandateId)) {
+        neverReleased.await();
+      }
+      return mandateWithStatus(Status.ACTIVE);
+    });
+
+    // when
+    Map<String, DirectDebitMandateStatus> statuses = fetcher.fetchStatuses(Arrays.asList(
+        mandate("slow", ANY_CAZ_ID), mandate("fast", OTHER_CAZ_ID)));
+
+    // then
+    assertThat(statuses).containsOnlyKeys("fast");
+  }
+
+  @Test
+  public void shouldNotHoldWorkersWithMandatesWaitingForLimitOfTheirCleanAirZone() {
+    // given
+    DirectDebitMandateStatusFetcher fetcher = fetcher(1, Duration.ofMillis(500));
+    CountDownLatch neverReleased = new CountDownLatch(1);
+    mockGetMandate(invocation -> {
+      String mandateId = invocation.getArgument(0);
+      if (mandateId.startsWith("slow")) {
+        neverReleased.await();
+      }
+      return mandateWithStatus(Status.ACTIVE);
+    });
+    List<DirectDebitMandate> mandates = IntStream.range(0, 8)
+        .mapToObj(i -> mandate("slow" + i, ANY_CAZ_ID))
+        .collect(Collectors.toList());
+    mandates.add(mandate("fast", OTHER_CAZ_ID));
+
+    // when
+    Map<String, DirectDebitMandateStatus> statuses = fetcher.fetchStatuses(mandates);
+
+    // then
+    assertThat(statuses).containsOnlyKeys("fast");
+  }
+
+  @Test
+  public void shouldFetchStatusesWithMdcOfCaller() {
+    // given
+    DirectDebitMandateStatusFetcher fetcher = fetcher(2, Duration.ofSeconds(5));
+    List<String> correlationIds = new CopyOnWriteArrayList<>();
+    mockGetMandate(invocation -> {
+      correlationIds.add(MDC.get(Constants.X_CORRELATION_ID_HEADER));
+      return mandateWithStatus(Status.ACTIVE);
+    });
+    MDC.put(Constants.X_CORRELATION_ID_HEADER, "correlation-id");
+
+    // when
+    try {
+      fetcher.fetchStatuses(Arrays.asList(mandate("MD1", ANY_CAZ_ID),
+          mandate("MD2", OTHER_CAZ_ID)));
+    } finally {
+      MDC.clear();
+    }
+
+    // then
+    assertThat(correlationIds).containsExactly("correlation-id", "correlation-id");
+  }
+
+  @Test
+  public void shouldRethrowGoCardlessErrors() {
+    // given
+    DirectDebitMandateStatusFetcher fetcher = fetcher(2, Duration.ofSeconds(5));
+    GoCardlessApiException exception = mock(GoCardlessApiException.class);
+    when(exception.getErrorMessage()).thenReturn("Mandate not found");
+    mockGetMandate(invocation -> {
+      throw exception;
+    });
+
+    // when
+    Throwable throwable = catchThrowable(() -> fetcher.fetchStatuses(
+        Arrays.asList(mandate("MD1", ANY_CAZ_ID))));
+
+    // then
+    assertThat(throwable).isInstanceOf(ExternalServiceCallException.class);
+  }
+
+  private DirectDebitMandateStatusFetcher fetcher(int maxConcurrentRequestsPerCaz,
+      Duration timeout) {
+    return new DirectDebitMandateStatusFetcher(goCardlessClientFactory, meterRegistry, workers,
+        maxConcurrentRequestsPerCaz, timeout);
+  }
+
+  private void mockGetMandate(Answer<Mandate> answer) {
+    when(mandateService.get(anyString())).thenAnswer(invocation ->
+        mock(MandateGetRequest.class, executeInvocation -> answer.answer(invocation)));
+  }
+
+  private Mandate mandateWithStatus(Status status) {
+    return mock(Mandate.class, invocation -> status);
+  }
+
+  private DirectDebitMandate mandate(String mandateId, UUID cleanAirZoneId) {
+    return DirectDebitMandate.builder()
+        .paymentProviderMandateId(mandateId)
+        .cleanAirZoneId(cleanAirZoneId)
+        .directDebitMandateId(UUID.randomUUID())
+        .status(DirectDebitMandateStatus.PENDING_SUBMISSION)
+        .build();
+  }
+}
@@ -3,6 +3,7 @@ package uk.gov.caz.psr.service.directdebit;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
@@ -23,7 +24,10 @@ import com.gocardless.services.RedirectFlowService.RedirectFlowCompleteRequest;
 import com.gocardless.services.RedirectFlowService.RedirectFlowCreateRequest;
 import com.gocardless.services.RedirectFlowService.RedirectFlowCreateRequest.Scheme;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.net.URI;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
@@ -35,12 +39,12 @@ import java.util.stream.StreamSupport;
 import lombok.SneakyThrows;
 import okhttp3.MediaType;
 import okhttp3.ResponseBody;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -71,7 +75,9 @@ class DirectDebitMandatesServiceTest {
   @Mock
   private GoCardlessClient goCardlessClient;
 
-  @InjectMocks
+  @Mock
+  private DirectDebitMandateStatusCache directDebitMandateStatusCache;
+
   private DirectDebitMandatesService directDebitMandatesService;
 
   private final static UUID ANY_ACCOUNT_ID = UUID.randomUUID();
@@ -81,6 +87,16 @@ class DirectDebitMandatesServiceTest {
   private static final String ANY_SESSION_ID = "SESS_wSs0uGYMISxzqOBq";
   private final static UUID ANY_ACCOUNT_USER_ID = UUID.randomUUID();
 
+  @BeforeEach
+  public void setUp() {
+    DirectDebitMandateStatusFetcher directDebitMandateStatusFetcher =
+        new DirectDebitMandateStatusFetcher(goCardlessClientFactory, new SimpleMeterRegistry(),
+            MoreExecutors.newDirectExecutorService(), 1, Duration.ofSeconds(5));
+    directDebitMandatesService = new DirectDebitMandatesService(vccsRepository,
+        accountsRepository, goCardlessClientFactory, directDebitMandateStatusCache,
+        directDebitMandateStatusFetcher);
+  }
+
 
   @Nested
   class CreateDirectDebitMandateRedirectFlow {
@@ -355,6 +371,32 @@ class DirectDebitMandatesServiceTest {
         // then
         assertThat(directDebitMandates).hasSize(1);
         verify(accountsRepository).updateDirectDebitMandatesSync(eq(ANY_ACCOUNT_ID), any());
+        verify(directDebitMandateStatusCache).putAll(eq(ANY_ACCOUNT_ID), anyList());
+      }
+
+      @ParameterizedTest
+      @MethodSource("uk.gov.caz.psr.service.directdebit.DirectDebitMandatesServiceTest#notCacheableStatuses")
+      public void shouldUseFreshCachedStatusInsteadOfCallingGoCardless(
+          DirectDebitMandateStatus status) {
+        // given
+        mockCleanAirZonesInVccs();
+        mockDirectDebitMandatesInAccountsWithStatuses(status);
+        mockAccountsMandateUpdateCall();
+        when(directDebitMandateStatusCache.getFreshStatuses(anyList())).thenAnswer(invocation -> {
+          List<String> mandateIds = invocation.getArgument(0);
+          return Collections.singletonMap(mandateIds.get(0), DirectDebitMandateStatus.valueOf(
+              randomNotCacheableStatusNotEqualTo(status)));
+        });
+
+        // when
+        List<CleanAirZoneWithMandates> directDebitMandates = directDebitMandatesService
+            .getDirectDebitMandates(ANY_ACCOUNT_ID);
+
+        // then
+        assertThat(directDebitMandates).hasSize(1);
+        verify(goCardlessClientFactory, never()).createClientFor(any());
+        verify(directDebitMandateStatusCache, never()).putAll(any(), anyList());
+        verify(accountsRepository).updateDirectDebitMandatesSync(eq(ANY_ACCOUNT_ID), any());
       }
 
       @Nested
@@ -6,6 +6,7 @@ import static org.mockito.BDDMockito.given;
 
 import com.gocardless.GoCardlessClient;
 import com.gocardless.GoCardlessClient.Environment;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Optional;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
@@ -26,7 +27,8 @@ class GoCardlessClientFactoryTest {
 
   @BeforeEach
   public void setUp() {
-    factory = new GoCardlessClientFactory(false, credentialRetrievalManager);
+    factory = new GoCardlessClientFactory(false, credentialRetrievalManager,
+        new SimpleMeterRegistry());
   }
 
   @Nested
@@ -35,7 +37,8 @@ class GoCardlessClientFactoryTest {
     @Test
     public void shouldReturnSandboxEnvironment() {
       // given
-      factory = new GoCardlessClientFactory(false, credentialRetrievalManager);
+      factory = new GoCardlessClientFactory(false, credentialRetrievalManager,
+          new SimpleMeterRegistry());
 
       // when
       Environment environment = factory.getGoCardlessEnvironment();
@@ -52,7 +55,8 @@ class GoCardlessClientFactoryTest {
     @Test
     public void shouldReturnLiveEnvironment() {
       // given
-      factory = new GoCardlessClientFactory(true, credentialRetrievalManager);
+      factory = new GoCardlessClientFactory(true, credentialRetrievalManager,
+          new SimpleMeterRegistry());
 
       // when
       Environment environment = factory.getGoCardlessEnvironment();
@@ -99,4 +103,61 @@ class GoCardlessClientFactoryTest {
     // then
     assertThat(client).isNotNull();
   }
-}
\ No newline at end of file
+
+  @Nested
+  class WhenClientHasAlreadyBeenCreated {
+
+    @Test
+    public void shouldReuseClientWhenAccessTokenHasNotChanged() {
+      // given
+      UUID cazId = UUID.randomUUID();
+      given(credentialRetrievalManager.getDirectDebitAccessToken(cazId))
+          .willReturn(Optional.of("access-key-1"));
+      GoCardlessClient existingClient = factory.createClientFor(cazId);
+
+      // when
+      GoCardlessClient client = factory.createClientFor(cazId);
+
+      // then
+      assertThat(client).isSameAs(existingClient);
+      assertThat(factory.getLiveClientsCount()).isOne();
+      assertThat(factory.getReusedClientsCount()).isOne();
+    }
+
+    @Test
+    public void shouldCreateNewClientWhenAccessTokenHasChanged() {
+      // given
+      UUID cazId = UUID.randomUUID();
+      given(credentialRetrievalManager.getDirectDebitAccessToken(cazId))
+          .willReturn(Optional.of("access-key-1"), Optional.of("access-key-2"));
+      GoCardlessClient existingClient = factory.createClientFor(cazId);
+
+      // when
+      GoCardlessClient client = factory.createClientFor(cazId);
+
+      // then
+      assertThat(client).isNotSameAs(existingClient);
+      assertThat(factory.getLiveClientsCount()).isOne();
+      assertThat(factory.getReusedClientsCount()).isZero();
+    }
+
+    @Test
+    public void shouldCreateSeparateClientsForDifferentCleanAirZones() {
+      // given
+      UUID cazId = UUID.randomUUID();
+      UUID otherCazId = UUID.randomUUID();
+      given(credentialRetrievalManager.getDirectDebitAccessToken(cazId))
+          .willReturn(Optional.of("access-key-1"));
+      given(credentialRetrievalManager.getDirectDebitAccessToken(otherCazId))
+          .willReturn(Optional.of("access-key-1"));
+
+      // when
+      GoCardlessClient client = factory.createClientFor(cazId);
+      GoCardlessClient otherClient = factory.createClientFor(otherCazId);
+
+      // then
+      assertThat(client).isNotSameAs(otherClient);
+      assertThat(factory.getLiveClientsCount()).isEqualTo(2);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package uk.gov.caz.psr.service.generatecsv;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import uk.gov.caz.definitions.dto.CleanAirZoneDto;
+import uk.gov.caz.psr.dto.accounts.AccountUserResponse;
+import uk.gov.caz.psr.model.PaymentModification;
+import uk.gov.caz.psr.model.generatecsv.CsvEntrantPayment;
+import uk.gov.caz.psr.model.generatecsv.EnrichedCsvEntrantPayment;
+
+class CsvEntrantPaymentEnricherTest {
+
+  private static final UUID PAYMENT_ID = UUID.fromString("b71b72a5-902f-4a16-a91d-1a4463b801db");
+  private static final UUID OWNER_ID = UUID.fromString("ab3e9f4b-4076-4154-b6dd-97c5d4800b47");
+  private static final UUID USER_ID = UUID.fromString("3f319922-71d2-432c-9757-8e5f060c2447");
+  private static final UUID REMOVED_USER_ID = UUID
+      .fromString("88732cca-a5c7-4ad6-a60d-7edede935915");
+  private static final UUID UNNAMED_USER_ID = UUID
+      .fromString("1f30838f-69ee-4486-95b4-7dfcd5c6c67c");
+  private static final UUID CAZ_ID = UUID.fromString("5cd7441d-766f-48ff-b8ad-1809586fea37");
+  private static final String VRN = "CAS310";
+  private static final LocalDate TRAVEL_DATE = LocalDate.of(2019, 11, 1);
+
+  private static final List<AccountUserResponse> ACCOUNT_USERS = Arrays.asList(
+      AccountUserResponse.builder().accountUserId(OWNER_ID).owner(true).build(),
+      AccountUserResponse.builder().accountUserId(USER_ID).name("Jan Kowalski").build(),
+      AccountUserResponse.builder().accountUserId(REMOVED_USER_ID).name("John Doe").removed(true)
+          .build(),
+      AccountUserResponse.builder().accountUserId(UNNAMED_USER_ID).build());
+
+  private static final List<CleanAirZoneDto> CLEAN_AIR_ZONES = Collections.singletonList(
+      CleanAirZoneDto.builder().cleanAirZoneId(CAZ_ID).name("Birmingham").build());
+
+  @Test
+  public void shouldEnrichEntrantPaymentWithPayerAndCleanAirZoneNames() {
+    // given
+    CsvEntrantPaymentEnricher enricher = new CsvEntrantPaymentEnricher(ACCOUNT_USERS,
+        CLEAN_AIR_ZONES, Collections.emptyList());
+
+    // when
+    EnrichedCsvEntrantPayment result = enricher.enrich(entrantPayment(USER_ID, VRN));
+
+    // then
+    assertThat(result.getPaymentMadeBy()).isEqualTo("Jan Kowalski");
+    assertThat(result.getCazName()).isEqualTo("Birmingham");
+    assertThat(result.getStatus()).isNull();
+  }
+
+  @Test
+  public void shouldUseSpecialNamesForOwnerAndRemovedUser() {
+    // given
+    CsvEntrantPaymentEnricher enricher = new CsvEntrantPaymentEnricher(ACCOUNT_USERS,
+        CLEAN_AIR_ZONES, Collections.emptyList());
+
+    // when
+    EnrichedCsvEntrantPayment ownerPayment = enricher.enrich(entrantPayment(OWNER_ID, VRN));
+    EnrichedCsvEntrantPayment removedUserPayment = enricher
+        .enrich(entrantPayment(REMOVED_USER_ID, VRN));
+
+    // then
+    assertThat(ownerPayment.getPaymentMadeBy()).isEqualTo("Administrator");
+    assertThat(removedUserPayment.getPaymentMadeBy()).isEqualTo("Deleted user");
+  }
+
+  @Test
+  public void shouldEnrichEntrantPaymentWithItsLastModification() {
+    // given
+    CsvEntrantPaymentEnricher enricher = new CsvEntrantPaymentEnricher(ACCOUNT_USERS,
+        CLEAN_AIR_ZONES, Arrays.asList(
+            modification(VRN, "refunded", "case-1"),
+            modification("OTHER", "failed", "case-2"),
+            modification(VRN, "chargeback", "case-3")));
+
+    // when
+    EnrichedCsvEntrantPayment result = enricher.enrich(entrantPayment(USER_ID, VRN));
+
+    // then
+    assertThat(result.getStatus()).isEqualTo("chargeback");
+    assertThat(result.getCaseReference()).isEqualTo("case-3");
+    assertThat(result.getDateReceivedFromLa()).isEqualTo(LocalDate.of(2020, 1, 2));
+  }
+
+  @Test
+  public void shouldThrowNoSuchElementExceptionWhenPayerIsNotUserOfAccount() {
+    // given
+    CsvEntrantPaymentEnricher enricher = new CsvEntrantPaymentEnricher(ACCOUNT_USERS,
+        CLEAN_AIR_ZONES, Collections.emptyList());
+
+    // when
+    Throwable throwable = catchThrowable(
+        () -> enricher.enrich(entrantPayment(UUID.randomUUID(), VRN)));
+
+    // then
+    assertThat(throwable).isInstanceOf(NoSuchElementException.class);
+  }
+
+  @Test
+  public void shouldEnrichEntrantPaymentOfUserWithoutName() {
+    // given
+    CsvEntrantPaymentEnricher enricher = new CsvEntrantPaymentEnricher(ACCOUNT_USERS,
+        CLEAN_AIR_ZONES, Collections.emptyList());
+
+    // when
+    EnrichedCsvEntrantPayment result = enricher.enrich(entrantPayment(UNNAMED_USER_ID, VRN));
+
+    // then
+    assertThat(result.getPaymentMadeBy()).isNull();
+    assertThat(result.getCazName()).isEqualTo("Birmingham");
+  }
+
+  private CsvEntrantPayment entrantPayment(UUID userId, String vrn) {
+    CsvEntrantPayment entrantPayment = new CsvEntrantPayment();
+    entrantPayment.setPaymentId(PAYMENT_ID);
+    entrantPayment.setUserId(userId);
+    entrantPayment.setCleanAirZoneId(CAZ_ID);
+    entrantPayment.setVrn(vrn);
+    entrantPayment.setTravelDate(TRAVEL_DATE);
+    entrantPayment.setDateOfPayment(LocalDateTime.of(2019, 11, 1, 10, 0));
+    return entrantPayment;
+  }
+
+  private PaymentModification modification(String vrn, String status, String caseReference) {
+    return PaymentModification.builder()
+        .paymentId(PAYMENT_ID)
+        .vrn(vrn)
+        .travelDate(TRAVEL_DATE)
+        .entrantPaymentStatus(status)
+        .caseReference(caseReference)
+        .modificationTimestamp(LocalDateTime.of(2020, 1, 2, 12, 0))
+        .build();
+  }
+}
@@ -8,6 +8,7 @@ import java.time.format.DateTimeFormatter;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.caz.psr.model.generatecsv.CsvExportFormat;
 
 @ExtendWith(MockitoExtension.class)
 class CsvFileNameGeneratorTest {
@@ -29,4 +30,15 @@ class CsvFileNameGeneratorTest {
         .contains(DATE_TIME_FORMATTER.format(timeInBst))
         .contains(".csv");
   }
+
+  @Test
+  public void shouldGenerateFileNameWithExtensionOfFormat() {
+    // when
+    String fileName = csvFileNameGenerator.generate(CsvExportFormat.CSV_GZIP);
+
+    // then
+    assertThat(fileName)
+        .startsWith("Payment-history-")
+        .endsWith(".csv.gz");
+  }
 }
@@ -0,0 +1,157 @@
+package uk.gov.caz.psr.service.generatecsv;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willAnswer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.caz.psr.model.generatecsv.PaymentsHistoryExportMark;
+
+@ExtendWith(MockitoExtension.class)
+class CsvWriterTest {
+
+  private static final UUID ACCOUNT_ID = UUID.fromString("1f30838f-69ee-4486-95b4-7dfcd5c6c67c");
+  private static final String HEADER = "Date of payment,Payment made by,Clean Air Zone,"
+      + "Number plate,Dates paid for,Charge,Payment reference,Payment ID,Days paid for,"
+      + "Total amount paid";
+  private static final String NEW_ROW = "2021-05-12,Administrator,Birmingham,CAS310,"
+      + "2021-05-13,£8.00,1003,ext-3,1,£8.00";
+  private static final String CHANGED_ROW = "2021-05-11,Jan Kowalski,Birmingham,CAS310,"
+      + "2021-05-11,£8.00,1002,ext-2,2,£16.00";
+  private static final String PREVIOUS_CHANGED_ROW = "2021-05-11,Jan Kowalski,Birmingham,"
+      + "CAS310,2021-05-11,£8.00,1002,ext-2,1,£8.00";
+  private static final String UNCHANGED_ROW = "2021-05-10,Jan Kowalski,Birmingham,CAS310,"
+      + "2021-05-10,£8.00,1001,ext-1,1,£8.00";
+
+  private static final PaymentsHistoryExportMark PREVIOUS_MARK = mark(
+      LocalDateTime.of(2021, 5, 11, 12, 0));
+  private static final PaymentsHistoryExportMark MARK = mark(
+      LocalDateTime.of(2021, 5, 12, 12, 0));
+
+  @Mock
+  private CsvContentGenerator csvContentGenerator;
+
+  private CsvWriter csvWriter;
+
+  @BeforeEach
+  public void setUp() {
+    csvWriter = new CsvWriter(csvContentGenerator);
+  }
+
+  @Test
+  public void shouldWriteNewRowsAndCopyPreviousRowsReplacingChangedOnes() throws IOException {
+    // given
+    mockChanges(Collections.singletonMap("1002", rows(CHANGED_ROW)));
+    StringWriter writer = new StringWriter();
+
+    // when
+    Optional<PaymentsHistoryExportMark> result = csvWriter.writeCsvContentIncrementally(
+        ACCOUNT_ID, PREVIOUS_MARK,
+        previousContent(HEADER, PREVIOUS_CHANGED_ROW, UNCHANGED_ROW, PREVIOUS_CHANGED_ROW),
+        writer);
+
+    // then
+    assertThat(result).contains(MARK);
+    assertThat(writer.toString()).isEqualTo(
+        content(HEADER, NEW_ROW, CHANGED_ROW, UNCHANGED_ROW));
+  }
+
+  @Test
+  public void shouldReturnEmptyWhenChangedPaymentIsMissingInPreviousContent()
+      throws IOException {
+    // given
+    Map<String, List<String[]>> changedRows = new HashMap<>();
+    changedRows.put("1002", rows(CHANGED_ROW));
+    changedRows.put("1004", rows(NEW_ROW));
+    mockChanges(changedRows);
+
+    // when
+    Optional<PaymentsHistoryExportMark> result = csvWriter.writeCsvContentIncrementally(
+        ACCOUNT_ID, PREVIOUS_MARK, previousContent(HEADER, PREVIOUS_CHANGED_ROW, UNCHANGED_ROW),
+        new StringWriter());
+
+    // then
+    assertThat(result).isEmpty();
+  }
+
+  @Test
+  public void shouldReturnEmptyWhenColumnsOfPreviousRowCannotBeToldApart() throws IOException {
+    // given
+    mockChanges(Collections.emptyMap());
+
+    // when
+    Optional<PaymentsHistoryExportMark> result = csvWriter.writeCsvContentIncrementally(
+        ACCOUNT_ID, PREVIOUS_MARK,
+        previousContent(HEADER, UNCHANGED_ROW.replace("Jan Kowalski", "Kowalski, Jan")),
+        new StringWriter());
+
+    // then
+    assertThat(result).isEmpty();
+  }
+
+  @Test
+  public void shouldReturnEmptyWhenHeaderOfPreviousContentIsDifferent() throws IOException {
+    // given
+    mockChanges(Collections.emptyMap());
+
+    // when
+    Optional<PaymentsHistoryExportMark> result = csvWriter.writeCsvContentIncrementally(
+        ACCOUNT_ID, PREVIOUS_MARK, previousContent(HEADER + ",Status", UNCHANGED_ROW + ","),
+        new StringWriter());
+
+    // then
+    assertThat(result).isEmpty();
+  }
+
+  private void mockChanges(Map<String, List<String[]>> changedRowsByPaymentReference) {
+    willAnswer(answer -> {
+      Consumer<String[]> csvRowConsumer = answer.getArgument(2);
+      csvRowConsumer.accept(new String[]{HEADER});
+      csvRowConsumer.accept(new String[]{NEW_ROW});
+      return Optional.of(new CsvContentChanges(new String[]{HEADER},
+          changedRowsByPaymentReference, MARK));
+    }).given(csvContentGenerator).streamChangedCsvRows(eq(ACCOUNT_ID), eq(PREVIOUS_MARK), any());
+  }
+
+  private static List<String[]> rows(String row) {
+    return Collections.singletonList(new String[]{row});
+  }
+
+  private static BufferedReader previousContent(String... rows) {
+    return new BufferedReader(new StringReader(content(rows)));
+  }
+
+  private static String content(String... rows) {
+    return '\ufeff' + String.join("\n", rows) + "\n";
+  }
+
+  private static PaymentsHistoryExportMark mark(LocalDateTime exportedTimestamp) {
+    return PaymentsHistoryExportMark.builder()
+        .accountId(ACCOUNT_ID)
+        .accountUserIds(Collections.singletonList(
+            UUID.fromString("3f319922-71d2-432c-9757-8e5f060c2447")))
+        .lastPaymentSubmittedTimestamp(LocalDateTime.of(2021, 5, 12, 11, 0))
+        .lastPaymentId(UUID.fromString("b71b72a5-902f-4a16-a91d-1a4463b801db"))
+        .localAuthorityColumns(false)
+        .enrichmentDataHash("hash")
+        .exportedTimestamp(exportedTimestamp)
+        .build();
+  }
+}
@@ -23,6 +23,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import retrofit2.Response;
 import uk.gov.caz.psr.dto.PaymentsHistoryLambdaInput;
 import uk.gov.caz.psr.dto.accounts.UpdatePaymentHistoryExportRequest;
+import uk.gov.caz.psr.model.generatecsv.CsvExportFormat;
 import uk.gov.caz.psr.repository.AccountsRepository;
 import uk.gov.caz.psr.service.exception.ExternalServiceCallException;
 
@@ -82,7 +83,7 @@ public class PaymentHistoryExportServiceTest {
   private UpdatePaymentHistoryExportRequest mockUpdatePaymentHistoryExportRequest() {
     String fileName = mockFilename();
     when(paymentsHistoryCsvFileSupervisor.uploadCsvFileAndGetFileName(
-        ANY_ACCOUNT_ID, ANY_ACCOUNT_USER_IDS)).thenReturn(fileName);
+        ANY_ACCOUNT_ID, ANY_ACCOUNT_USER_IDS, false, CsvExportFormat.CSV)).thenReturn(fileName);
     return mockPaymentHistoryExportRequest(fileName);
   }
 
@@ -4,24 +4,50 @@ import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.assertj.core.api.BDDAssertions.then;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
+import com.google.common.io.ByteStreams;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.test.util.ReflectionTestUtils;
 import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+import uk.gov.caz.psr.model.generatecsv.CsvExportFormat;
+import uk.gov.caz.psr.model.generatecsv.PaymentsHistoryExportMark;
+import uk.gov.caz.psr.repository.generatecsv.PaymentsHistoryExportMarkRepository;
 import uk.gov.caz.psr.service.generatecsv.exception.CsvExportException;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,6 +55,9 @@ class PaymentsHistoryCsvFileSupervisorTest {
 
   private static final String S3_BUCKET = "s3Bucket";
   private static final String FILENAME = "filename";
+  private static final String FILENAME_GZIP = "filename.gz";
+  private static final String PREVIOUS_FILENAME = "previous-filename";
+  private static final UUID ACCOUNT_ID = UUID.randomUUID();
   private static final List<UUID> ACCOUNT_USER_IDS = Arrays.asList(
       UUID.randomUUID(), UUID.randomUUID());
 
@@ -41,13 +70,195 @@ class PaymentsHistoryCsvFileSupervisorTest {
   @Mock
   private CsvWriter csvWriter;
 
-  @InjectMocks
+  @Mock
+  private PaymentsHistoryExportMarkRepository paymentsHistoryExportMarkRepository;
+
+  private SimpleMeterRegistry meterRegistry;
+
   private PaymentsHistoryCsvFileSupervisor csvFileSupervisor;
 
+  @BeforeEach
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    csvFileSupervisor = new PaymentsHistoryCsvFileSupervisor(s3Client, csvFileNameGenerator,
+        csvWriter, paymentsHistoryExportMarkRepository, meterRegistry, S3_BUCKET,
+        S3MultipartUploadOutputStream.MIN_PART_SIZE);
+  }
+
+  @Test
+  public void shouldStreamCsvContentToS3AndCompleteUpload() throws IOException {
+    // given
+    mockGenerateFileName();
+    mockCreateMultipartUpload();
+    mockUploadPart();
+    mockWriteCsvContent();
+
+    // when
+    String fileName = csvFileSupervisor
+        .uploadCsvFileAndGetFileName(UUID.randomUUID(), ACCOUNT_USER_IDS);
+
+    // then
+    then(fileName).isEqualTo(FILENAME);
+    verify(s3Client).uploadPart(any(UploadPartRequest.class), any(RequestBody.class));
+    verify(s3Client).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    verify(s3Client, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    verify(paymentsHistoryExportMarkRepository).save(mark(FILENAME));
+  }
+
+  @Test
+  public void shouldCompressCsvContentWhenUploadingItInCompressedFormat() throws IOException {
+    // given
+    given(csvFileNameGenerator.generate(CsvExportFormat.CSV_GZIP)).willReturn(FILENAME_GZIP);
+    mockCreateMultipartUpload();
+    mockUploadPart();
+    mockWriteCsvContent();
+
+    // when
+    String fileName = csvFileSupervisor.uploadCsvFileAndGetFileName(ACCOUNT_ID,
+        ACCOUNT_USER_IDS, false, CsvExportFormat.CSV_GZIP);
+
+    // then
+    then(fileName).isEqualTo(FILENAME_GZIP);
+    ArgumentCaptor<CreateMultipartUploadRequest> request = ArgumentCaptor
+        .forClass(CreateMultipartUploadRequest.class);
+    verify(s3Client).createMultipartUpload(request.capture());
+    then(request.getValue().contentEncoding()).isEqualTo("gzip");
+    ArgumentCaptor<RequestBody> body = ArgumentCaptor.forClass(RequestBody.class);
+    verify(s3Client).uploadPart(any(UploadPartRequest.class), body.capture());
+    try (InputStream content = new GZIPInputStream(
+        body.getValue().contentStreamProvider().newStream())) {
+      then(new String(ByteStreams.toByteArray(content), StandardCharsets.UTF_8))
+          .isEqualTo("csv content");
+    }
+    verify(s3Client).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    verify(paymentsHistoryExportMarkRepository).save(mark(FILENAME_GZIP));
+  }
+
   @Test
-  public void shouldThrowS3ExceptionsDuringUploadingCsv() throws IOException {
+  public void shouldRecordUploadMetricsTaggedByFormat() throws IOException {
     // given
-    mockData();
+    given(csvFileNameGenerator.generate(CsvExportFormat.CSV_GZIP)).willReturn(FILENAME_GZIP);
+    mockCreateMultipartUpload();
+    mockUploadPart();
+    mockWriteCsvContent();
+
+    // when
+    csvFileSupervisor.uploadCsvFileAndGetFileName(ACCOUNT_ID, ACCOUNT_USER_IDS, false,
+        CsvExportFormat.CSV_GZIP);
+
+    // then
+    ArgumentCaptor<RequestBody> body = ArgumentCaptor.forClass(RequestBody.class);
+    verify(s3Client).uploadPart(any(UploadPartRequest.class), body.capture());
+    then(meterRegistry.get("payments.history.export.upload").tag("format", "CSV_GZIP")
+        .timer().count()).isEqualTo(1);
+    DistributionSummary contentSize = meterRegistry.get("payments.history.export.content.size")
+        .tag("format", "CSV_GZIP").summary();
+    then(contentSize.count()).isEqualTo(1);
+    then(contentSize.totalAmount()).isEqualTo("csv content".length());
+    then(meterRegistry.get("payments.history.export.uploaded.size").tag("format", "CSV_GZIP")
+        .summary().totalAmount()).isEqualTo(body.getValue().contentLength());
+  }
+
+  @Test
+  public void shouldExportWholeHistoryWhenItHasNotBeenExportedBefore() throws IOException {
+    // given
+    mockGenerateFileName();
+    mockCreateMultipartUpload();
+    mockUploadPart();
+    mockWriteCsvContent();
+    given(paymentsHistoryExportMarkRepository.find(ACCOUNT_ID, ACCOUNT_USER_IDS))
+        .willReturn(Optional.empty());
+
+    // when
+    String fileName = csvFileSupervisor
+        .uploadCsvFileAndGetFileName(ACCOUNT_ID, ACCOUNT_USER_IDS, true,
+            CsvExportFormat.CSV);
+
+    // then
+    then(fileName).isEqualTo(FILENAME);
+    verify(s3Client, never()).getObject(any(GetObjectRequest.class));
+    verify(s3Client).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    verify(paymentsHistoryExportMarkRepository).save(mark(FILENAME));
+  }
+
+  @Test
+  public void shouldMergePreviousExportWithChangesWhenItCanBeReused() throws IOException {
+    // given
+    mockGenerateFileName();
+    mockCreateMultipartUpload();
+    mockUploadPart();
+    mockPreviousExport();
+    willAnswer(answer -> {
+      Writer writer = answer.getArgument(3);
+      writer.write("csv content");
+      return Optional.of(mark(null));
+    }).given(csvWriter).writeCsvContentIncrementally(any(), any(), any(), any());
+
+    // when
+    String fileName = csvFileSupervisor
+        .uploadCsvFileAndGetFileName(ACCOUNT_ID, ACCOUNT_USER_IDS, true,
+            CsvExportFormat.CSV);
+
+    // then
+    then(fileName).isEqualTo(FILENAME);
+    verify(csvWriter, never()).writeCsvContent(any(), any(), any());
+    verify(s3Client).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    verify(s3Client, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    verify(paymentsHistoryExportMarkRepository).save(mark(FILENAME));
+  }
+
+  @Test
+  public void shouldAbortMergeAndExportWholeHistoryWhenPreviousExportCannotBeReused()
+      throws IOException {
+    // given
+    mockGenerateFileName();
+    mockCreateMultipartUpload();
+    mockUploadPart();
+    mockPreviousExport();
+    given(csvWriter.writeCsvContentIncrementally(any(), any(), any(), any()))
+        .willReturn(Optional.empty());
+    mockWriteCsvContent();
+
+    // when
+    String fileName = csvFileSupervisor
+        .uploadCsvFileAndGetFileName(ACCOUNT_ID, ACCOUNT_USER_IDS, true,
+            CsvExportFormat.CSV);
+
+    // then
+    then(fileName).isEqualTo(FILENAME);
+    verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    verify(s3Client).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    verify(paymentsHistoryExportMarkRepository).save(mark(FILENAME));
+  }
+
+  @Test
+  public void shouldExportWholeHistoryWhenPreviousExportNoLongerExists() throws IOException {
+    // given
+    mockGenerateFileName();
+    mockCreateMultipartUpload();
+    mockUploadPart();
+    mockWriteCsvContent();
+    given(paymentsHistoryExportMarkRepository.find(ACCOUNT_ID, ACCOUNT_USER_IDS))
+        .willReturn(Optional.of(mark(PREVIOUS_FILENAME)));
+    given(s3Client.getObject(any(GetObjectRequest.class)))
+        .willThrow(NoSuchKeyException.builder().build());
+
+    // when
+    String fileName = csvFileSupervisor
+        .uploadCsvFileAndGetFileName(ACCOUNT_ID, ACCOUNT_USER_IDS, true,
+            CsvExportFormat.CSV);
+
+    // then
+    then(fileName).isEqualTo(FILENAME);
+    verify(csvWriter, never()).writeCsvContentIncrementally(any(), any(), any(), any());
+    verify(s3Client).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    verify(paymentsHistoryExportMarkRepository).save(mark(FILENAME));
+  }
+
+  @Test
+  public void shouldThrowS3ExceptionsDuringUploadingCsv() {
+    // given
+    mockGenerateFileName();
     prepareS3ClientToThrow();
 
     // when
@@ -63,9 +274,10 @@ class PaymentsHistoryCsvFileSupervisorTest {
   }
 
   @Test
-  public void shouldThrowIOExceptionsDuringUploadingCsv() throws IOException {
+  public void shouldThrowIOExceptionsDuringUploadingCsvAndAbortUpload() throws IOException {
     // given
-    mockData();
+    mockGenerateFileName();
+    mockCreateMultipartUpload();
     mockIOException();
 
     // when
@@ -78,24 +290,75 @@ class PaymentsHistoryCsvFileSupervisorTest {
         .isInstanceOf(CsvExportException.class)
         .hasMessage(
             "Exception while uploading file s3Bucket/filename");
+    verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    verify(s3Client, never())
+        .completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
   }
 
-  private void mockData() throws IOException {
-    mockS3Bucket();
-    mockGenerateFileName();
-    mockCreateWriterWithCsvContent();
+  @Test
+  public void shouldAbortCompressedUploadWithoutRecordingMetricsWhenWritingFails()
+      throws IOException {
+    // given
+    given(csvFileNameGenerator.generate(CsvExportFormat.CSV_GZIP)).willReturn(FILENAME_GZIP);
+    mockCreateMultipartUpload();
+    mockIOException();
+
+    // when
+    Throwable throwable = catchThrowable(() -> csvFileSupervisor.uploadCsvFileAndGetFileName(
+        ACCOUNT_ID, ACCOUNT_USER_IDS, false, CsvExportFormat.CSV_GZIP));
+
+    // then
+    then(throwable).isInstanceOf(CsvExportException.class);
+    verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    verify(s3Client, never()).uploadPart(any(UploadPartRequest.class), any(RequestBody.class));
+    then(meterRegistry.find("payments.history.export.upload").timer()).isNull();
   }
 
   private void mockIOException() throws IOException {
-    given(csvWriter.createWriterWithCsvContent(any(), any())).willThrow(IOException.class);
+    willThrow(IOException.class).given(csvWriter).writeCsvContent(any(), any(), any());
   }
 
-  private void mockS3Bucket() {
-    ReflectionTestUtils.setField(csvFileSupervisor, "bucket", S3_BUCKET);
+  private void mockWriteCsvContent() throws IOException {
+    willAnswer(answer -> {
+      Writer writer = answer.getArgument(2);
+      writer.write("csv content");
+      return mark(null);
+    }).given(csvWriter).writeCsvContent(any(), any(), any());
+  }
+
+  private void mockPreviousExport() {
+    given(paymentsHistoryExportMarkRepository.find(ACCOUNT_ID, ACCOUNT_USER_IDS))
+        .willReturn(Optional.of(mark(PREVIOUS_FILENAME)));
+    given(s3Client.getObject(any(GetObjectRequest.class)))
+        .willReturn(new ResponseInputStream<>(GetObjectResponse.builder().build(),
+            AbortableInputStream.create(new ByteArrayInputStream("csv content".getBytes()))));
+  }
+
+  private PaymentsHistoryExportMark mark(String fileName) {
+    return PaymentsHistoryExportMark.builder()
+        .accountId(ACCOUNT_ID)
+        .accountUserIds(ACCOUNT_USER_IDS)
+        .fileName(fileName)
+        .lastPaymentSubmittedTimestamp(LocalDateTime.of(2021, 5, 12, 14, 23, 34))
+        .lastPaymentId(UUID.fromString("b71b72a5-902f-4a16-a91d-1a4463b801db"))
+        .localAuthorityColumns(false)
+        .enrichmentDataHash("hash")
+        .exportedTimestamp(LocalDateTime.of(2021, 5, 12, 14, 30))
+        .build();
+  }
+
+  private void mockCreateMultipartUpload() {
+    given(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+        .willReturn(CreateMultipartUploadResponse.builder().uploadId("upload-id").build());
+  }
+
+  private void mockUploadPart() {
+    given(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+        .willReturn(UploadPartResponse.builder().eTag("etag").build());
   }
 
   private void prepareS3ClientToThrow() {
-    given(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+    given(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
         .willThrow(mockS3Exception());
   }
 
@@ -104,11 +367,7 @@ class PaymentsHistoryCsvFileSupervisorTest {
   }
 
   private void mockGenerateFileName() {
-    given(csvFileNameGenerator.generate()).willReturn(FILENAME);
-  }
-
-  private void mockCreateWriterWithCsvContent() throws IOException {
-    given(csvWriter.createWriterWithCsvContent(any(), any())).willReturn(new StringWriter());
+    given(csvFileNameGenerator.generate(CsvExportFormat.CSV)).willReturn(FILENAME);
   }
 
   private AwsErrorDetails getStubbedAwsErrorDetails() {
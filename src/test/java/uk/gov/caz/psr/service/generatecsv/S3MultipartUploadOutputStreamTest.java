@@ -0,0 +1,105 @@
+package uk.gov.caz.psr.service.generatecsv;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+@ExtendWith(MockitoExtension.class)
+class S3MultipartUploadOutputStreamTest {
+
+  private static final int PART_SIZE = S3MultipartUploadOutputStream.MIN_PART_SIZE;
+  private static final CreateMultipartUploadRequest REQUEST = CreateMultipartUploadRequest
+      .builder()
+      .bucket("bucket")
+      .key("key")
+      .build();
+
+  @Mock
+  private S3Client s3Client;
+
+  @Test
+  public void shouldThrowIllegalArgumentExceptionWhenPartSizeIsTooSmall() {
+    // when
+    Throwable throwable = catchThrowable(
+        () -> new S3MultipartUploadOutputStream(s3Client, REQUEST, PART_SIZE - 1));
+
+    // then
+    assertThat(throwable).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void shouldUploadContentInPartsOfGivenSize() {
+    // given
+    mockCreateMultipartUpload();
+    mockUploadPart();
+
+    // when
+    try (S3MultipartUploadOutputStream upload = new S3MultipartUploadOutputStream(s3Client,
+        REQUEST, PART_SIZE)) {
+      upload.write(new byte[PART_SIZE + 1], 0, PART_SIZE + 1);
+      upload.write(1);
+      upload.complete();
+    }
+
+    // then
+    ArgumentCaptor<UploadPartRequest> parts = ArgumentCaptor.forClass(UploadPartRequest.class);
+    verify(s3Client, times(2)).uploadPart(parts.capture(), any(RequestBody.class));
+    assertThat(parts.getAllValues()).extracting(UploadPartRequest::partNumber)
+        .containsExactly(1, 2);
+    assertThat(parts.getAllValues()).extracting(UploadPartRequest::contentLength)
+        .containsExactly((long) PART_SIZE, 2L);
+    ArgumentCaptor<CompleteMultipartUploadRequest> completion = ArgumentCaptor
+        .forClass(CompleteMultipartUploadRequest.class);
+    verify(s3Client).completeMultipartUpload(completion.capture());
+    List<CompletedPart> completedParts = completion.getValue().multipartUpload().parts();
+    assertThat(completedParts).extracting(CompletedPart::partNumber).containsExactly(1, 2);
+    verify(s3Client, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+  }
+
+  @Test
+  public void shouldAbortUploadWhenClosedWithoutCompletion() {
+    // given
+    mockCreateMultipartUpload();
+
+    // when
+    try (S3MultipartUploadOutputStream upload = new S3MultipartUploadOutputStream(s3Client,
+        REQUEST, PART_SIZE)) {
+      upload.write(1);
+    }
+
+    // then
+    verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    verify(s3Client, never()).uploadPart(any(UploadPartRequest.class), any(RequestBody.class));
+    verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+  }
+
+  private void mockCreateMultipartUpload() {
+    given(s3Client.createMultipartUpload(REQUEST))
+        .willReturn(CreateMultipartUploadResponse.builder().uploadId("upload-id").build());
+  }
+
+  private void mockUploadPart() {
+    given(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+        .willReturn(UploadPartResponse.builder().eTag("etag").build());
+  }
+}
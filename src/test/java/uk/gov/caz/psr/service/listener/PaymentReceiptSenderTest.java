@@ -112,6 +112,7 @@ public class PaymentReceiptSenderTest {
     // given
     PaymentStatusUpdatedEvent event = new PaymentStatusUpdatedEvent(this, ANY_PAYMENT);
     SendEmailRequest sendEmailRequest = anyValidRequest();
+    when(paymentRepository.markSentConfirmationEmail(ANY_PAYMENT.getId())).thenReturn(true);
     when(paymentReceiptEmailCreator.createSendEmailRequest(ANY_PAYMENT)).thenReturn(sendEmailRequest);
     doThrow(new RuntimeException("something")).when(messagingClient).publishMessage(sendEmailRequest);
 
@@ -120,6 +121,7 @@ public class PaymentReceiptSenderTest {
 
     // then
     assertThat(throwable).isNull();
+    verify(paymentRepository).unmarkSentConfirmationEmail(ANY_PAYMENT.getId());
   }
 
   @Test
@@ -127,6 +129,7 @@ public class PaymentReceiptSenderTest {
     // given
     PaymentStatusUpdatedEvent event = new PaymentStatusUpdatedEvent(this, ANY_PAYMENT);
     SendEmailRequest sendEmailRequest = anyValidRequest();
+    when(paymentRepository.markSentConfirmationEmail(ANY_PAYMENT.getId())).thenReturn(true);
     when(paymentReceiptEmailCreator.createSendEmailRequest(ANY_PAYMENT)).thenReturn(sendEmailRequest);
 
     // when
@@ -134,7 +137,20 @@ public class PaymentReceiptSenderTest {
 
     // then
     verify(messagingClient).publishMessage(sendEmailRequest);
-    verify(paymentRepository).markSentConfirmationEmail(ANY_PAYMENT.getId());
+    verify(paymentRepository, never()).unmarkSentConfirmationEmail(any());
+  }
+
+  @Test
+  void shouldNotPublishMessageIfEmailHasAlreadyBeenSent() {
+    // given
+    PaymentStatusUpdatedEvent event = new PaymentStatusUpdatedEvent(this, ANY_PAYMENT);
+    when(paymentRepository.markSentConfirmationEmail(ANY_PAYMENT.getId())).thenReturn(false);
+
+    // when
+    paymentReceiptSender.onPaymentStatusUpdated(event);
+
+    // then
+    verifyNoInteractions(messagingClient, paymentReceiptEmailCreator);
   }
 
   @Test
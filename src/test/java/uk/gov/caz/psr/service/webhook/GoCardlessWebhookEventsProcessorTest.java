@@ -0,0 +1,143 @@
+package uk.gov.caz.psr.service.webhook;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.caz.psr.dto.AccountDirectDebitMandatesResponse.DirectDebitMandate.DirectDebitMandateStatus;
+import uk.gov.caz.psr.dto.directdebit.GoCardlessWebhookMessage.Event;
+import uk.gov.caz.psr.dto.directdebit.GoCardlessWebhookMessage.Links;
+import uk.gov.caz.psr.model.directdebit.CachedMandateStatus;
+import uk.gov.caz.psr.repository.WebhookEventRepository;
+import uk.gov.caz.psr.service.directdebit.DirectDebitMandateStatusCache;
+
+@ExtendWith(MockitoExtension.class)
+class GoCardlessWebhookEventsProcessorTest {
+
+  private static final UUID ANY_CAZ_ID = UUID.fromString("dff092a3-7b80-4432-a4de-c09715743d06");
+
+  @Mock
+  private WebhookEventRepository webhookEventRepository;
+
+  @Mock
+  private DirectDebitMandateStatusCache directDebitMandateStatusCache;
+
+  @InjectMocks
+  private GoCardlessWebhookEventsProcessor processor;
+
+  @Test
+  public void shouldApplyLatestStatusOfEveryMandate() {
+    // given
+    given(webhookEventRepository.registerIfAbsent(
+        eq(GoCardlessWebhookEventsProcessor.PAYMENT_PROVIDER), anyString())).willReturn(true);
+    List<CachedMandateStatus> updated = Collections.singletonList(
+        CachedMandateStatus.builder().paymentProviderMandateId("MD1").build());
+    given(directDebitMandateStatusCache.applyStatusChanges(eq(ANY_CAZ_ID), anyList()))
+        .willReturn(updated);
+
+    // when
+    List<CachedMandateStatus> result = processor.process(ANY_CAZ_ID, Arrays.asList(
+        mandateEvent("EV3", "2020-06-01T12:00:02.000Z", "cancelled", "MD1"),
+        mandateEvent("EV1", "2020-06-01T12:00:00.000Z", "submitted", "MD1"),
+        mandateEvent("EV2", "2020-06-01T12:00:01.000Z", "active", "MD2")));
+
+    // then
+    assertThat(result).isEqualTo(updated);
+    assertThat(captureAppliedStatuses()).containsExactly(
+        change("MD1", DirectDebitMandateStatus.CANCELLED, "2020-06-01T12:00:02.000Z"),
+        change("MD2", DirectDebitMandateStatus.ACTIVE, "2020-06-01T12:00:01.000Z"));
+  }
+
+  @Test
+  public void shouldIgnoreEventsWithoutCreationTime() {
+    // when
+    List<CachedMandateStatus> result = processor.process(ANY_CAZ_ID, Arrays.asList(
+        mandateEvent("EV1", null, "cancelled", "MD1"),
+        mandateEvent("EV2", "yesterday", "active", "MD2")));
+
+    // then
+    assertThat(result).isEmpty();
+    verifyNoInteractions(webhookEventRepository);
+    verify(directDebitMandateStatusCache, never()).applyStatusChanges(eq(ANY_CAZ_ID), anyList());
+  }
+
+  @Test
+  public void shouldSkipAlreadyProcessedEvents() {
+    // given
+    given(webhookEventRepository.registerIfAbsent(GoCardlessWebhookEventsProcessor
+        .PAYMENT_PROVIDER, "EV1")).willReturn(false);
+    given(webhookEventRepository.registerIfAbsent(GoCardlessWebhookEventsProcessor
+        .PAYMENT_PROVIDER, "EV2")).willReturn(true);
+
+    // when
+    processor.process(ANY_CAZ_ID, Arrays.asList(
+        mandateEvent("EV1", "2020-06-01T12:00:00.000Z", "failed", "MD1"),
+        mandateEvent("EV2", "2020-06-01T12:00:01.000Z", "expired", "MD2")));
+
+    // then
+    assertThat(captureAppliedStatuses()).containsExactly(
+        change("MD2", DirectDebitMandateStatus.EXPIRED, "2020-06-01T12:00:01.000Z"));
+  }
+
+  @Test
+  public void shouldIgnoreEventsWhichDoNotChangeStatusOfMandate() {
+    // given
+    Event paymentEvent = Event.builder()
+        .id("EV1")
+        .resourceType("payments")
+        .action("confirmed")
+        .build();
+
+    // when
+    List<CachedMandateStatus> result = processor.process(ANY_CAZ_ID, Arrays.asList(paymentEvent,
+        mandateEvent("EV2", "2020-06-01T12:00:00.000Z", "created", "MD1")));
+
+    // then
+    assertThat(result).isEmpty();
+    verifyNoInteractions(webhookEventRepository);
+    verify(directDebitMandateStatusCache, never()).applyStatusChanges(eq(ANY_CAZ_ID), anyList());
+  }
+
+  private List<CachedMandateStatus> captureAppliedStatuses() {
+    ArgumentCaptor<List<CachedMandateStatus>> captor = ArgumentCaptor.forClass(List.class);
+    verify(directDebitMandateStatusCache).applyStatusChanges(eq(ANY_CAZ_ID), captor.capture());
+    return captor.getValue();
+  }
+
+  private CachedMandateStatus change(String mandateId, DirectDebitMandateStatus status,
+      String createdAt) {
+    return CachedMandateStatus.builder()
+        .paymentProviderMandateId(mandateId)
+        .status(status)
+        .statusTimestamp(Instant.parse(createdAt).atZone(ZoneId.systemDefault())
+            .toLocalDateTime())
+        .build();
+  }
+
+  private Event mandateEvent(String id, String createdAt, String action, String mandateId) {
+    return Event.builder()
+        .id(id)
+        .createdAt(createdAt)
+        .resourceType(Event.MANDATES_RESOURCE_TYPE)
+        .action(action)
+        .links(Links.builder().mandate(mandateId).build())
+        .build();
+  }
+}
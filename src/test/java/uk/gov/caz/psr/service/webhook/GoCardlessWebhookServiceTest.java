@@ -0,0 +1,211 @@
+package uk.gov.caz.psr.service.webhook;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import retrofit2.Response;
+import uk.gov.caz.psr.controller.exception.InvalidRequestPayloadException;
+import uk.gov.caz.psr.dto.AccountDirectDebitMandatesResponse.DirectDebitMandate.DirectDebitMandateStatus;
+import uk.gov.caz.psr.dto.accounts.DirectDebitMandatesUpdateRequest;
+import uk.gov.caz.psr.dto.accounts.DirectDebitMandatesUpdateRequest.SingleDirectDebitMandateUpdate;
+import uk.gov.caz.psr.dto.directdebit.GoCardlessWebhookMessage.Event;
+import uk.gov.caz.psr.model.directdebit.CachedMandateStatus;
+import uk.gov.caz.psr.repository.AccountsRepository;
+import uk.gov.caz.psr.service.authentication.CredentialRetrievalManager;
+import uk.gov.caz.psr.service.exception.InvalidWebhookSignatureException;
+
+@ExtendWith(MockitoExtension.class)
+class GoCardlessWebhookServiceTest {
+
+  private static final UUID ANY_CAZ_ID = UUID.fromString("dff092a3-7b80-4432-a4de-c09715743d06");
+  private static final UUID ANY_ACCOUNT_ID =
+      UUID.fromString("2b1b6a8e-0f5a-4b35-9e4b-6c7fbc5f2e11");
+  private static final UUID OTHER_ACCOUNT_ID =
+      UUID.fromString("7d9e7c4a-3a52-4f8e-8a43-4ad5a0c1a2b4");
+  private static final String SECRET = "secret";
+  private static final String PAYLOAD = "{\"events\":[{"
+      + "\"id\":\"EV123\","
+      + "\"created_at\":\"2020-06-01T12:00:00.000Z\","
+      + "\"resource_type\":\"mandates\","
+      + "\"action\":\"cancelled\","
+      + "\"links\":{\"mandate\":\"MD123\"}"
+      + "}]}";
+  // HMAC-SHA256 of PAYLOAD computed with SECRET
+  private static final String SIGNATURE =
+      "c930e22a84410e6edf251cb43569338b6fc1bd3ba4ca7d391bcd547644e16e3e";
+
+  @Mock
+  private CredentialRetrievalManager credentialRetrievalManager;
+
+  @Mock
+  private GoCardlessWebhookEventsProcessor goCardlessWebhookEventsProcessor;
+
+  @Mock
+  private AccountsRepository accountsRepository;
+
+  private GoCardlessWebhookService service;
+
+  @BeforeEach
+  public void setUp() {
+    service = new GoCardlessWebhookService(credentialRetrievalManager, new ObjectMapper(),
+        goCardlessWebhookEventsProcessor, accountsRepository);
+  }
+
+  @Test
+  public void shouldProcessEventsWithValidSignature() {
+    // given
+    given(credentialRetrievalManager.getDirectDebitWebhookSigningSecret(ANY_CAZ_ID))
+        .willReturn(Optional.of(SECRET));
+
+    // when
+    service.processWebhookMessage(ANY_CAZ_ID, PAYLOAD, SIGNATURE);
+
+    // then
+    ArgumentCaptor<List<Event>> captor = ArgumentCaptor.forClass(List.class);
+    verify(goCardlessWebhookEventsProcessor).process(eq(ANY_CAZ_ID), captor.capture());
+    assertThat(captor.getValue()).hasOnlyOneElementSatisfying(event -> {
+      assertThat(event.getId()).isEqualTo("EV123");
+      assertThat(event.getCreatedAt()).isEqualTo("2020-06-01T12:00:00.000Z");
+      assertThat(event.getResourceType()).isEqualTo(Event.MANDATES_RESOURCE_TYPE);
+      assertThat(event.getAction()).isEqualTo("cancelled");
+      assertThat(event.getLinks().getMandate()).isEqualTo("MD123");
+    });
+  }
+
+  @Test
+  public void shouldUpdateMandatesInAccountsServiceWithOneRequestPerAccount() {
+    // given
+    given(credentialRetrievalManager.getDirectDebitWebhookSigningSecret(ANY_CAZ_ID))
+        .willReturn(Optional.of(SECRET));
+    given(goCardlessWebhookEventsProcessor.process(eq(ANY_CAZ_ID), anyList())).willReturn(
+        Arrays.asList(
+            updatedStatus("MD1", ANY_ACCOUNT_ID, DirectDebitMandateStatus.CANCELLED),
+            updatedStatus("MD2", OTHER_ACCOUNT_ID, DirectDebitMandateStatus.ACTIVE),
+            updatedStatus("MD3", ANY_ACCOUNT_ID, DirectDebitMandateStatus.FAILED)));
+    given(accountsRepository.updateDirectDebitMandatesSync(any(), any()))
+        .willReturn(Response.success(null));
+
+    // when
+    service.processWebhookMessage(ANY_CAZ_ID, PAYLOAD, SIGNATURE);
+
+    // then
+    ArgumentCaptor<DirectDebitMandatesUpdateRequest> captor = ArgumentCaptor
+        .forClass(DirectDebitMandatesUpdateRequest.class);
+    verify(accountsRepository).updateDirectDebitMandatesSync(eq(ANY_ACCOUNT_ID), captor.capture());
+    assertThat(captor.getValue().getDirectDebitMandates())
+        .extracting(SingleDirectDebitMandateUpdate::getMandateId,
+            SingleDirectDebitMandateUpdate::getStatus)
+        .containsExactlyInAnyOrder(
+            tuple("MD1", "CANCELLED"),
+            tuple("MD3", "FAILED"));
+    verify(accountsRepository).updateDirectDebitMandatesSync(eq(OTHER_ACCOUNT_ID), any());
+  }
+
+  @Test
+  public void shouldNotFailWhenAccountsServiceUpdateFails() {
+    // given
+    given(credentialRetrievalManager.getDirectDebitWebhookSigningSecret(ANY_CAZ_ID))
+        .willReturn(Optional.of(SECRET));
+    given(goCardlessWebhookEventsProcessor.process(eq(ANY_CAZ_ID), anyList())).willReturn(
+        Arrays.asList(updatedStatus("MD1", ANY_ACCOUNT_ID, DirectDebitMandateStatus.CANCELLED)));
+    given(accountsRepository.updateDirectDebitMandatesSync(any(), any())).willReturn(
+        Response.error(500, ResponseBody.create(MediaType.get("application/json"), "")));
+
+    // when
+    Throwable throwable = catchThrowable(
+        () -> service.processWebhookMessage(ANY_CAZ_ID, PAYLOAD, SIGNATURE));
+
+    // then
+    assertThat(throwable).isNull();
+  }
+
+  @Test
+  public void shouldRejectMessageWithInvalidSignature() {
+    // given
+    given(credentialRetrievalManager.getDirectDebitWebhookSigningSecret(ANY_CAZ_ID))
+        .willReturn(Optional.of("other-secret"));
+
+    // when
+    Throwable throwable = catchThrowable(
+        () -> service.processWebhookMessage(ANY_CAZ_ID, PAYLOAD, SIGNATURE));
+
+    // then
+    assertThat(throwable).isInstanceOf(InvalidWebhookSignatureException.class);
+    verify(goCardlessWebhookEventsProcessor, never()).process(any(), any());
+  }
+
+  @Test
+  public void shouldRejectMessageWhenSigningSecretIsMissing() {
+    // given
+    given(credentialRetrievalManager.getDirectDebitWebhookSigningSecret(ANY_CAZ_ID))
+        .willReturn(Optional.empty());
+
+    // when
+    Throwable throwable = catchThrowable(
+        () -> service.processWebhookMessage(ANY_CAZ_ID, PAYLOAD, SIGNATURE));
+
+    // then
+    assertThat(throwable).isInstanceOf(InvalidWebhookSignatureException.class);
+    verify(goCardlessWebhookEventsProcessor, never()).process(any(), any());
+  }
+
+  @Test
+  public void shouldRejectUnparseableMessage() {
+    // given
+    given(credentialRetrievalManager.getDirectDebitWebhookSigningSecret(ANY_CAZ_ID))
+        .willReturn(Optional.of(SECRET));
+
+    // when
+    Throwable throwable = catchThrowable(() -> service.processWebhookMessage(ANY_CAZ_ID, "{",
+        "a1af98d49ad4d3fa8ac725af8d18edb65f5c7191e9fc2796d51b05db6679f2b8"));
+
+    // then
+    assertThat(throwable).isInstanceOf(InvalidRequestPayloadException.class);
+    verify(goCardlessWebhookEventsProcessor, never()).process(any(), any());
+  }
+
+  @Test
+  public void shouldRejectMessageWithoutEvents() {
+    // given
+    given(credentialRetrievalManager.getDirectDebitWebhookSigningSecret(ANY_CAZ_ID))
+        .willReturn(Optional.of(SECRET));
+
+    // when
+    Throwable throwable = catchThrowable(() -> service.processWebhookMessage(ANY_CAZ_ID,
+        "{\"meta\":{}}", "f4c7a9fd60c925842a91908e67d2b3c239398c06379f19bb675407717287d9eb"));
+
+    // then
+    assertThat(throwable).isInstanceOf(InvalidRequestPayloadException.class);
+    verify(goCardlessWebhookEventsProcessor, never()).process(any(), any());
+  }
+
+  private CachedMandateStatus updatedStatus(String mandateId, UUID accountId,
+      DirectDebitMandateStatus status) {
+    return CachedMandateStatus.builder()
+        .paymentProviderMandateId(mandateId)
+        .accountId(accountId)
+        .cleanAirZoneId(ANY_CAZ_ID)
+        .status(status)
+        .build();
+  }
+}
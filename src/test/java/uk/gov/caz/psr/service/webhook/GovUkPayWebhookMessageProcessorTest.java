@@ -0,0 +1,199 @@
+package uk.gov.caz.psr.service.webhook;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.caz.psr.dto.external.GetPaymentResult;
+import uk.gov.caz.psr.dto.external.GovUkPayWebhookMessage;
+import uk.gov.caz.psr.dto.external.PaymentState;
+import uk.gov.caz.psr.model.ExternalPaymentStatus;
+import uk.gov.caz.psr.model.Payment;
+import uk.gov.caz.psr.repository.PaymentRepository;
+import uk.gov.caz.psr.repository.WebhookEventRepository;
+import uk.gov.caz.psr.service.PaymentStatusUpdater;
+import uk.gov.caz.psr.util.GetPaymentResultConverter;
+import uk.gov.caz.psr.util.TestObjectFactory.Payments;
+
+@ExtendWith(MockitoExtension.class)
+class GovUkPayWebhookMessageProcessorTest {
+
+  private static final UUID ANY_CAZ_ID = UUID.fromString("dff092a3-7b80-4432-a4de-c09715743d06");
+  private static final String ANY_EXTERNAL_ID = "hu20sqlact5260q2nanm0q8u93";
+  private static final String ANY_MESSAGE_ID = "abc";
+
+  @Mock
+  private WebhookEventRepository webhookEventRepository;
+
+  @Mock
+  private PaymentRepository paymentRepository;
+
+  @Mock
+  private PaymentStatusUpdater paymentStatusUpdater;
+
+  private GovUkPayWebhookMessageProcessor processor;
+
+  @BeforeEach
+  public void setUp() {
+    processor = new GovUkPayWebhookMessageProcessor(webhookEventRepository, paymentRepository,
+        paymentStatusUpdater, new GetPaymentResultConverter());
+  }
+
+  @Test
+  public void shouldUpdatePaymentWithStatusFromMessage() {
+    // given
+    messageIsProcessedForTheFirstTime();
+    paymentExistsWithStatus(ExternalPaymentStatus.STARTED, ANY_CAZ_ID);
+
+    // when
+    processor.process(ANY_CAZ_ID, messageWithStatus("success"));
+
+    // then
+    verify(paymentStatusUpdater).updateWithExternalPaymentDetails(
+        argThat(payment -> "sherlock.holmes@example.com".equals(payment.getEmailAddress())),
+        argThat(details -> details.getExternalPaymentStatus() == ExternalPaymentStatus.SUCCESS));
+  }
+
+  @Test
+  public void shouldIgnoreAlreadyProcessedMessage() {
+    // given
+    given(webhookEventRepository.registerIfAbsent(
+        GovUkPayWebhookMessageProcessor.PAYMENT_PROVIDER, ANY_MESSAGE_ID)).willReturn(false);
+
+    // when
+    processor.process(ANY_CAZ_ID, messageWithStatus("success"));
+
+    // then
+    verifyNoInteractions(paymentRepository, paymentStatusUpdater);
+  }
+
+  @Test
+  public void shouldIgnoreMessageOfUnknownPayment() {
+    // given
+    messageIsProcessedForTheFirstTime();
+    given(paymentRepository.findByExternalId(ANY_EXTERNAL_ID)).willReturn(Optional.empty());
+
+    // when
+    processor.process(ANY_CAZ_ID, messageWithStatus("success"));
+
+    // then
+    verifyNoInteractions(paymentStatusUpdater);
+  }
+
+  @Test
+  public void shouldIgnoreMessageSentForOtherCleanAirZone() {
+    // given
+    messageIsProcessedForTheFirstTime();
+    paymentExistsWithStatus(ExternalPaymentStatus.STARTED, UUID.randomUUID());
+
+    // when
+    processor.process(ANY_CAZ_ID, messageWithStatus("success"));
+
+    // then
+    verifyNoInteractions(paymentStatusUpdater);
+  }
+
+  @Test
+  public void shouldNotOverwriteFinalStatus() {
+    // given
+    messageIsProcessedForTheFirstTime();
+    paymentExistsWithStatus(ExternalPaymentStatus.SUCCESS, ANY_CAZ_ID);
+
+    // when
+    processor.process(ANY_CAZ_ID, messageWithStatus("submitted"));
+
+    // then
+    verifyNoInteractions(paymentStatusUpdater);
+  }
+
+  @Test
+  public void shouldIgnoreUnrecognizedStatus() {
+    // given
+    messageIsProcessedForTheFirstTime();
+    paymentExistsWithStatus(ExternalPaymentStatus.SUBMITTED, ANY_CAZ_ID);
+
+    // when
+    processor.process(ANY_CAZ_ID, messageWithStatus("capturable"));
+
+    // then
+    verify(paymentStatusUpdater, never()).updateWithExternalPaymentDetails(any(), any());
+  }
+
+  @Test
+  public void shouldNotUpdatePaymentWhenStatusHasNotChanged() {
+    // given
+    messageIsProcessedForTheFirstTime();
+    paymentExistsWithStatus(ExternalPaymentStatus.SUBMITTED, ANY_CAZ_ID);
+
+    // when
+    processor.process(ANY_CAZ_ID, messageWithStatus("submitted"));
+
+    // then
+    verify(paymentStatusUpdater, never()).updateWithExternalPaymentDetails(any(), any());
+  }
+
+  @Test
+  public void shouldNotMovePaymentBackToEarlierStatus() {
+    // given
+    messageIsProcessedForTheFirstTime();
+    paymentExistsWithStatus(ExternalPaymentStatus.SUBMITTED, ANY_CAZ_ID);
+
+    // when
+    processor.process(ANY_CAZ_ID, messageWithStatus("started"));
+
+    // then
+    verify(paymentStatusUpdater, never()).updateWithExternalPaymentDetails(any(), any());
+  }
+
+  @Test
+  public void shouldMovePaymentToLaterUnfinishedStatus() {
+    // given
+    messageIsProcessedForTheFirstTime();
+    paymentExistsWithStatus(ExternalPaymentStatus.CREATED, ANY_CAZ_ID);
+
+    // when
+    processor.process(ANY_CAZ_ID, messageWithStatus("submitted"));
+
+    // then
+    verify(paymentStatusUpdater).updateWithExternalPaymentDetails(any(),
+        argThat(details -> details.getExternalPaymentStatus() == ExternalPaymentStatus.SUBMITTED));
+  }
+
+  private void messageIsProcessedForTheFirstTime() {
+    given(webhookEventRepository.registerIfAbsent(
+        eq(GovUkPayWebhookMessageProcessor.PAYMENT_PROVIDER), eq(ANY_MESSAGE_ID)))
+        .willReturn(true);
+  }
+
+  private void paymentExistsWithStatus(ExternalPaymentStatus status, UUID cleanAirZoneId) {
+    Payment payment = Payments.forRandomDaysWithId(UUID.randomUUID(), ANY_EXTERNAL_ID,
+        cleanAirZoneId).toBuilder()
+        .externalPaymentStatus(status)
+        .build();
+    given(paymentRepository.findByExternalId(ANY_EXTERNAL_ID)).willReturn(Optional.of(payment));
+  }
+
+  private GovUkPayWebhookMessage messageWithStatus(String status) {
+    return GovUkPayWebhookMessage.builder()
+        .webhookMessageId(ANY_MESSAGE_ID)
+        .resourceId(ANY_EXTERNAL_ID)
+        .resourceType(GovUkPayWebhookMessage.PAYMENT_RESOURCE_TYPE)
+        .resource(GetPaymentResult.builder()
+            .paymentId(ANY_EXTERNAL_ID)
+            .email("sherlock.holmes@example.com")
+            .state(PaymentState.builder().status(status).build())
+            .build())
+        .build();
+  }
+}
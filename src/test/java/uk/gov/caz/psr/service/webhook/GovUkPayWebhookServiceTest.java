@@ -0,0 +1,143 @@
+package uk.gov.caz.psr.service.webhook;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.caz.psr.controller.exception.InvalidRequestPayloadException;
+import uk.gov.caz.psr.dto.external.GovUkPayWebhookMessage;
+import uk.gov.caz.psr.model.ExternalPaymentStatus;
+import uk.gov.caz.psr.service.authentication.CredentialRetrievalManager;
+import uk.gov.caz.psr.service.exception.InvalidWebhookSignatureException;
+
+@ExtendWith(MockitoExtension.class)
+class GovUkPayWebhookServiceTest {
+
+  private static final UUID ANY_CAZ_ID = UUID.fromString("dff092a3-7b80-4432-a4de-c09715743d06");
+  private static final String SECRET = "secret";
+  private static final String PAYLOAD = "{"
+      + "\"webhook_message_id\":\"abc\","
+      + "\"created_date\":\"2019-07-11T10:36:26.988Z\","
+      + "\"resource_id\":\"hu20sqlact5260q2nanm0q8u93\","
+      + "\"resource_type\":\"payment\","
+      + "\"event_type\":\"card_payment_succeeded\","
+      + "\"resource\":{"
+      + "\"amount\":5000,"
+      + "\"email\":\"sherlock.holmes@example.com\","
+      + "\"payment_id\":\"hu20sqlact5260q2nanm0q8u93\","
+      + "\"refund_summary\":{\"status\":\"available\"},"
+      + "\"state\":{\"status\":\"success\",\"finished\":true}"
+      + "}}";
+  // HMAC-SHA256 of PAYLOAD computed with SECRET
+  private static final String SIGNATURE =
+      "b2101847b2556b042f181e033d408d26a29536352184f8b08995933082a52b65";
+
+  @Mock
+  private CredentialRetrievalManager credentialRetrievalManager;
+
+  @Mock
+  private GovUkPayWebhookMessageProcessor govUkPayWebhookMessageProcessor;
+
+  private GovUkPayWebhookService service;
+
+  @BeforeEach
+  public void setUp() {
+    service = new GovUkPayWebhookService(credentialRetrievalManager, new ObjectMapper(),
+        govUkPayWebhookMessageProcessor);
+  }
+
+  @Test
+  public void shouldProcessPaymentEventWithValidSignature() {
+    // given
+    given(credentialRetrievalManager.getCardWebhookSigningSecret(ANY_CAZ_ID))
+        .willReturn(Optional.of(SECRET));
+
+    // when
+    service.processWebhookMessage(ANY_CAZ_ID, PAYLOAD, SIGNATURE);
+
+    // then
+    ArgumentCaptor<GovUkPayWebhookMessage> captor = ArgumentCaptor
+        .forClass(GovUkPayWebhookMessage.class);
+    verify(govUkPayWebhookMessageProcessor).process(eq(ANY_CAZ_ID), captor.capture());
+    GovUkPayWebhookMessage message = captor.getValue();
+    assertThat(message.getWebhookMessageId()).isEqualTo("abc");
+    assertThat(message.getResourceId()).isEqualTo("hu20sqlact5260q2nanm0q8u93");
+    assertThat(message.getResource().getPaymentStatus()).isEqualTo(ExternalPaymentStatus.SUCCESS);
+    assertThat(message.getResource().getEmail()).isEqualTo("sherlock.holmes@example.com");
+  }
+
+  @Test
+  public void shouldRejectMessageWithInvalidSignature() {
+    // given
+    given(credentialRetrievalManager.getCardWebhookSigningSecret(ANY_CAZ_ID))
+        .willReturn(Optional.of("other-secret"));
+
+    // when
+    Throwable throwable = catchThrowable(
+        () -> service.processWebhookMessage(ANY_CAZ_ID, PAYLOAD, SIGNATURE));
+
+    // then
+    assertThat(throwable).isInstanceOf(InvalidWebhookSignatureException.class);
+    verify(govUkPayWebhookMessageProcessor, never()).process(any(), any());
+  }
+
+  @Test
+  public void shouldRejectMessageWhenSigningSecretIsMissing() {
+    // given
+    given(credentialRetrievalManager.getCardWebhookSigningSecret(ANY_CAZ_ID))
+        .willReturn(Optional.empty());
+
+    // when
+    Throwable throwable = catchThrowable(
+        () -> service.processWebhookMessage(ANY_CAZ_ID, PAYLOAD, SIGNATURE));
+
+    // then
+    assertThat(throwable).isInstanceOf(InvalidWebhookSignatureException.class);
+    verify(govUkPayWebhookMessageProcessor, never()).process(any(), any());
+  }
+
+  @Test
+  public void shouldRejectUnparseableMessage() {
+    // given
+    String payload = "{";
+    given(credentialRetrievalManager.getCardWebhookSigningSecret(ANY_CAZ_ID))
+        .willReturn(Optional.of(SECRET));
+
+    // when
+    Throwable throwable = catchThrowable(() -> service.processWebhookMessage(ANY_CAZ_ID,
+        payload, "a1af98d49ad4d3fa8ac725af8d18edb65f5c7191e9fc2796d51b05db6679f2b8"));
+
+    // then
+    assertThat(throwable).isInstanceOf(InvalidRequestPayloadException.class);
+    verify(govUkPayWebhookMessageProcessor, never()).process(any(), any());
+  }
+
+  @Test
+  public void shouldIgnoreEventOfOtherResourceType() {
+    // given
+    String payload = "{\"webhook_message_id\":\"abc\",\"resource_id\":\"x\","
+        + "\"resource_type\":\"card\"}";
+    given(credentialRetrievalManager.getCardWebhookSigningSecret(ANY_CAZ_ID))
+        .willReturn(Optional.of(SECRET));
+
+    // when
+    service.processWebhookMessage(ANY_CAZ_ID, payload,
+        "47ac3983fb739672ca0b2fc15155ede2fa7007c4be39360222d876a1bff25846");
+
+    // then
+    verify(govUkPayWebhookMessageProcessor, never()).process(any(), any());
+  }
+}
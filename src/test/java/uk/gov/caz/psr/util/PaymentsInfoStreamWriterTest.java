@@ -0,0 +1,88 @@
+package uk.gov.caz.psr.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import uk.gov.caz.psr.dto.PaymentInfoResponseV1.PaymentsInfo;
+
+class PaymentsInfoStreamWriterTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+  private final PaymentsInfoStreamWriter writer = new PaymentsInfoStreamWriter(objectMapper,
+      response);
+
+  @Test
+  public void shouldWriteResultsOfAllVrns() throws Exception {
+    // given
+    writer.write(Collections.singletonList(paymentsInfo("CAS123")));
+    writer.write(Arrays.asList(paymentsInfo("CAS124"), paymentsInfo("CAS125")));
+
+    // when
+    writer.close();
+
+    // then
+    JsonNode results = objectMapper.readTree(response.getContentAsString()).get("results");
+    assertThat(results).extracting(result -> result.get("vrn").asText())
+        .containsExactly("CAS123", "CAS124", "CAS125");
+    assertThat(writer.getWrittenCount()).isEqualTo(3);
+    assertThat(response.getContentType()).startsWith("application/json");
+  }
+
+  @Test
+  public void shouldWriteEmptyResultsWhenNothingIsWritten() throws Exception {
+    // when
+    writer.close();
+
+    // then
+    assertThat(response.getContentAsString()).isEqualTo("{\"results\":[]}");
+  }
+
+  @Test
+  public void shouldDiscardWrittenContentWhenAbortedBeforeResponseIsCommitted() throws Exception {
+    // given
+    writer.write(Collections.singletonList(paymentsInfo("CAS123")));
+
+    // when
+    boolean aborted = writer.abort();
+
+    // then
+    assertThat(aborted).isTrue();
+    assertThat(response.isCommitted()).isFalse();
+    assertThat(response.getContentAsString()).isEmpty();
+  }
+
+  @Test
+  public void shouldLeaveTruncatedBodyWhenAbortedAfterResponseIsCommitted() throws Exception {
+    // given
+    response.setBufferSize(1);
+    writer.write(IntStream.range(0, 1000)
+        .mapToObj(i -> paymentsInfo("CAS" + i))
+        .collect(Collectors.toList()));
+
+    // when
+    boolean aborted = writer.abort();
+
+    // then
+    assertThat(aborted).isFalse();
+    assertThat(response.isCommitted()).isTrue();
+    assertThat(response.getContentAsString()).startsWith("{\"results\":[{\"vrn\":\"CAS0\"");
+    Throwable throwable = catchThrowable(
+        () -> objectMapper.readTree(response.getContentAsString()));
+    assertThat(throwable).isNotNull();
+  }
+
+  private PaymentsInfo paymentsInfo(String vrn) {
+    return new PaymentsInfo(vrn, Collections.emptyList());
+  }
+}
@@ -0,0 +1,42 @@
+package uk.gov.caz.psr.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class WebhookSignaturesTest {
+
+  private static final String SECRET = "secret";
+  private static final String PAYLOAD = "{\"webhook_message_id\":\"abc\"}";
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+      "531e0cae40e092481b8326f089eb31e5bca61b216dbd3e60ab218bc27d7515f0",
+      "531E0CAE40E092481B8326F089EB31E5BCA61B216DBD3E60AB218BC27D7515F0",
+      " 531e0cae40e092481b8326f089eb31e5bca61b216dbd3e60ab218bc27d7515f0 "
+  })
+  public void shouldAcceptValidSignature(String signature) {
+    // when
+    boolean result = WebhookSignatures.isValidHmacSha256Signature(SECRET, PAYLOAD, signature);
+
+    // then
+    assertThat(result).isTrue();
+  }
+
+  @ParameterizedTest
+  @NullAndEmptySource
+  @ValueSource(strings = {
+      "631e0cae40e092481b8326f089eb31e5bca61b216dbd3e60ab218bc27d7515f0",
+      "531e0cae40e092481b8326f089eb31e5",
+      "not-a-signature"
+  })
+  public void shouldRejectInvalidSignature(String signature) {
+    // when
+    boolean result = WebhookSignatures.isValidHmacSha256Signature(SECRET, PAYLOAD, signature);
+
+    // then
+    assertThat(result).isFalse();
+  }
+}